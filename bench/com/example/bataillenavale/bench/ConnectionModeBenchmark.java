@@ -0,0 +1,140 @@
+package com.example.bataillenavale.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.bataillenavale.server.BatailleNavaleServer;
+
+/**
+ * Compare les modes de connexion TCP du serveur sous un grand nombre de connexions simultanées.
+ *
+ * Usage : ConnectionModeBenchmark MODE [connexions=10000] [echantillons=200] [commandesParEchantillon=20]
+ * MODE vaut THREAD_PER_CONNECTION, VIRTUAL_THREADS ou NIO. Lancer une JVM par mode pour que les mesures
+ * mémoire ne se polluent pas. Clients et serveur partagent la JVM : prévoir 2 descripteurs par connexion.
+ *
+ * Mesures : tas utilisé et RSS après ouverture de toutes les connexions, nombre de threads de plateforme,
+ * et latence aller-retour d'une commande (CHAT_MSG jusqu'à la réception de son NEW_CHAT_MSG).
+ */
+public class ConnectionModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ConnectionModeBenchmark THREAD_PER_CONNECTION|VIRTUAL_THREADS|NIO [connexions] [echantillons] [commandesParEchantillon]");
+            System.exit(2);
+        }
+        BatailleNavaleServer.TcpMode mode = BatailleNavaleServer.TcpMode.valueOf(args[0].toUpperCase());
+        int connexions = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int echantillons = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int commandesParEchantillon = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        PrintStream sortie = System.out;
+        System.setOut(new PrintStream(new OutputStream() { // Les journaux du serveur faussent les mesures
+            @Override public void write(int b) { }
+            @Override public void write(byte[] b, int off, int len) { }
+        }));
+
+        int tcpPort = portLibre();
+        int wsPort = portLibre();
+        long tasAvant = tasUtilise();
+        int threadsAvant = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        BatailleNavaleServer server = new BatailleNavaleServer(tcpPort, wsPort, mode);
+        server.startServer();
+        Thread.sleep(500);
+
+        long debutConnexions = System.nanoTime();
+        List<Socket> sockets = new ArrayList<>(connexions);
+        for (int i = 0; i < connexions; i++) {
+            Socket socket = new Socket();
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("127.0.0.1", tcpPort), 5000);
+            sockets.add(socket);
+        }
+        double secondesConnexions = (System.nanoTime() - debutConnexions) / 1e9;
+        Thread.sleep(2000); // Laisser le serveur finir d'enregistrer les connexions
+
+        long tasApres = tasUtilise();
+        int threadsApres = ManagementFactory.getThreadMXBean().getThreadCount();
+        long rss = rssKo();
+
+        // Un échantillon par salle de 7 : évite que deux joueurs nommés ne lancent un compte à rebours
+        long[] latences = new long[Math.min(echantillons, (connexions + 6) / 7) * commandesParEchantillon];
+        int n = 0;
+        for (int e = 0; e * 7 < connexions && e < echantillons; e++) {
+            Socket socket = sockets.get(e * 7);
+            socket.setSoTimeout(10000);
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String nom = "b" + e;
+            out.println("SET_NAME:" + nom);
+            attendre(in, "LOBBY_STATE:");
+            for (int c = 0; c < commandesParEchantillon; c++) {
+                String attendu = "NEW_CHAT_MSG:" + nom + ":p" + c;
+                long t0 = System.nanoTime();
+                out.println("CHAT_MSG:p" + c);
+                attendre(in, attendu);
+                latences[n++] = System.nanoTime() - t0;
+            }
+        }
+        latences = Arrays.copyOf(latences, n);
+        Arrays.sort(latences);
+
+        sortie.println("Mode: " + mode + " (JDK " + System.getProperty("java.version") + ")");
+        sortie.printf("Connexions: %d ouvertes en %.2f s%n", connexions, secondesConnexions);
+        sortie.printf("Tas utilisé: %.1f Mo (+%.1f Mo)%n", tasApres / 1e6, (tasApres - tasAvant) / 1e6);
+        sortie.printf("RSS: %.1f Mo%n", rss / 1e3);
+        sortie.printf("Threads de plateforme: %d (+%d)%n", threadsApres, threadsApres - threadsAvant);
+        if (n > 0) {
+            sortie.printf("Latence commande (%d mesures): p50=%.3f ms p99=%.3f ms max=%.3f ms%n", n,
+                    latences[n / 2] / 1e6, latences[Math.min(n - 1, (int) Math.ceil(n * 0.99) - 1)] / 1e6, latences[n - 1] / 1e6);
+        }
+
+        System.exit(0); // Sockets et serveur fermés avec la JVM
+    }
+
+    private static void attendre(BufferedReader in, String prefixe) throws IOException {
+        String ligne;
+        while ((ligne = in.readLine()) != null) {
+            if (ligne.startsWith(prefixe)) return;
+        }
+        throw new IOException("Connexion fermée avant '" + prefixe + "'");
+    }
+
+    static int portLibre() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    static long tasUtilise() {
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /** Mémoire résidente du processus en Ko (Linux uniquement, -1 sinon). */
+    static long rssKo() {
+        try {
+            for (String ligne : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (ligne.startsWith("VmRSS:")) {
+                    return Long.parseLong(ligne.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) { /* Non Linux */ }
+        return -1;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.bataillenavale.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.bataillenavale.model.BatailleNavaleGame;
+import com.example.bataillenavale.model.DensityTargeting;
+import com.example.bataillenavale.model.FleetGenerator;
+import com.example.bataillenavale.model.GameConfig;
+import com.example.bataillenavale.model.GameSnapshot;
+import com.example.bataillenavale.model.Ship;
+import com.example.bataillenavale.model.ShotOutcome;
+import com.example.bataillenavale.server.GameJournal;
+
+/**
+ * Coût du journal des parties (GameJournal) et exactitude de sa relecture, sans serveur.
+ * Des threads jouent des parties à deux (visée par densité) et journalisent chaque événement comme
+ * le fait GameRoom ; chaque appel au journal est chronométré. Une partie sur deux est interrompue en
+ * cours de route (pas de FIN), une sur dix par une déconnexion. Le journal est ensuite relu : les
+ * parties en cours relues doivent donner le même GameSnapshot que les parties jouées.
+ *
+ * Usage : JournalBenchmark [parties=20000] [threads=cœurs] [syncMs=10] [dossier=temporaire]
+ * Mesures : événements/s et latence d'un appel au journal (p50, p99, p99.9, max), puis relecture
+ * (événements/s) et nombre de parties relues identiques.
+ */
+public class JournalBenchmark {
+    private static final int SEGMENT = 16 << 20;
+
+    public static void main(String[] args) throws Exception {
+        int nombreParties = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int nombreThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long syncMs = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        File dossier = args.length > 3 ? new File(args[3]) : Files.createTempDirectory("journal-bench").toFile();
+
+        GameJournal journal = new GameJournal(dossier, SEGMENT, syncMs);
+        Map<Long, BatailleNavaleGame> enCours = new ConcurrentHashMap<>();
+        AtomicLong prochaine = new AtomicLong();
+        long[][] latences = new long[nombreThreads][];
+        int[] appels = new int[nombreThreads];
+        ExecutorService executeur = Executors.newFixedThreadPool(nombreThreads);
+        long debut = System.nanoTime();
+        for (int t = 0; t < nombreThreads; t++) {
+            int thread = t;
+            latences[t] = new long[1 << 20];
+            executeur.execute(() -> {
+                Random aleatoire = new Random(thread);
+                for (long partie; (partie = prochaine.getAndIncrement()) < nombreParties; ) {
+                    jouer(journal, partie, aleatoire, enCours, latences, appels, thread);
+                }
+            });
+        }
+        executeur.shutdown();
+        executeur.awaitTermination(1, TimeUnit.HOURS);
+        double secondes = (System.nanoTime() - debut) / 1e9;
+        journal.fermer();
+
+        int total = 0;
+        int mesures = 0;
+        for (int t = 0; t < nombreThreads; t++) {
+            total += appels[t];
+            mesures += Math.min(appels[t], latences[t].length);
+        }
+        long[] toutes = new long[mesures];
+        for (int t = 0, k = 0; t < nombreThreads; t++) {
+            System.arraycopy(latences[t], 0, toutes, k, Math.min(appels[t], latences[t].length));
+            k += Math.min(appels[t], latences[t].length);
+        }
+        Arrays.sort(toutes);
+        System.out.printf("%d parties, %d événements journalisés en %.1f s sur %d threads (sync %d ms), %s%n",
+                nombreParties, total, secondes, nombreThreads, syncMs, dossier);
+        System.out.printf("Appel au journal : p50 %.2f us, p99 %.2f us, p99.9 %.2f us, max %.1f us%n",
+                centile(toutes, 0.50) / 1e3, centile(toutes, 0.99) / 1e3, centile(toutes, 0.999) / 1e3, toutes[toutes.length - 1] / 1e3);
+
+        Map<Long, GameJournal.PartieRelue> relues = new HashMap<>();
+        long debutRelecture = System.nanoTime();
+        GameJournal.Relecture bilan = GameJournal.rejouer(dossier, -1, relues);
+        double secondesRelecture = (System.nanoTime() - debutRelecture) / 1e9;
+        int identiques = 0;
+        for (Map.Entry<Long, BatailleNavaleGame> partie : enCours.entrySet()) {
+            GameJournal.PartieRelue relue = relues.get(partie.getKey());
+            if (relue != null && Arrays.equals(GameSnapshot.versOctets(partie.getValue()), GameSnapshot.versOctets(relue.partie))) identiques++;
+        }
+        System.out.printf("Relecture : %d événements, %d segments en %.2f s (%.0f événements/s) ; %d/%d parties en cours identiques, %d relues en trop, %d incohérentes%n",
+                bilan.evenements, bilan.segments, secondesRelecture, bilan.evenements / secondesRelecture,
+                identiques, enCours.size(), relues.size() - identiques, bilan.incoherentes);
+        if (identiques != enCours.size() || relues.size() != enCours.size()) {
+            throw new IllegalStateException("La relecture du journal ne reproduit pas les parties en cours.");
+        }
+    }
+
+    /** Une partie, journalisée comme GameRoom le ferait ; interrompue en cours de route pour les numéros impairs. */
+    private static void jouer(GameJournal journal, long numero, Random aleatoire, Map<Long, BatailleNavaleGame> enCours,
+                              long[][] latences, int[] appels, int thread) {
+        GameConfig config = GameConfig.STANDARD;
+        int taille = config.getTailleGrille();
+        BatailleNavaleGame partie = new BatailleNavaleGame(new String[] {"alice" + numero, "bob" + numero}, config);
+        partie.setSilencieux(true);
+        long t0 = System.nanoTime();
+        long id = journal.debuterPartie(String.valueOf(numero), partie, 0, new long[] {aleatoire.nextLong() | 1, aleatoire.nextLong() | 1});
+        noter(latences, appels, thread, t0);
+
+        boolean interrompue = numero % 2 == 1;
+        int evenementsMax = interrompue ? aleatoire.nextInt(120) : Integer.MAX_VALUE;
+        int deconnexionA = numero % 10 == 3 ? aleatoire.nextInt(100) : -1;
+        int evenements = 0;
+
+        FleetGenerator generateur = new FleetGenerator(taille);
+        int[] placements = new int[config.getFlotte().size()];
+        for (int joueur = 0; joueur < 2 && evenements < evenementsMax; joueur++) {
+            generateur.generer(config.getFlotte(), aleatoire, placements);
+            for (int n = 0; n < placements.length && evenements < evenementsMax; n++, evenements++) {
+                Ship.ShipType type = partie.getNaviresAPlacerPourJoueurCourant().get(0);
+                int ligne = generateur.getLigne(placements[n]);
+                int colonne = generateur.getColonne(placements[n]);
+                boolean horizontal = FleetGenerator.estHorizontal(placements[n]);
+                partie.placerNavireJoueurCourant(type, ligne, colonne, horizontal);
+                t0 = System.nanoTime();
+                journal.placement(id, joueur, type, ligne, colonne, horizontal);
+                noter(latences, appels, thread, t0);
+            }
+            if (partie.getPhaseActuelle() == BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX && partie.getNaviresAPlacerPourJoueurCourant().isEmpty()) {
+                partie.passerAuJoueurSuivantPourPlacement();
+                t0 = System.nanoTime();
+                journal.tourSuivant(id);
+                noter(latences, appels, thread, t0);
+            }
+        }
+
+        DensityTargeting[] visees = { new DensityTargeting(config), new DensityTargeting(config) };
+        while (partie.getPhaseActuelle() == BatailleNavaleGame.GamePhase.COMBAT && evenements < evenementsMax) {
+            if (evenements++ == deconnexionA) {
+                partie.handlePlayerDisconnect(1);
+                t0 = System.nanoTime();
+                journal.deconnexion(id, 1);
+                noter(latences, appels, thread, t0);
+                break;
+            }
+            int tireur = partie.getJoueurCourantIndex();
+            int index = visees[tireur].choisirCase(aleatoire);
+            ShotOutcome issue = partie.tirerSurAdversaire(1 - tireur, index / taille, index % taille);
+            visees[tireur].enregistrer(index / taille, index % taille, issue.getResultat(), issue.getNavireCoule());
+            t0 = System.nanoTime();
+            journal.tir(id, tireur, 1 - tireur, index / taille, index % taille, issue);
+            if (issue.isCibleEliminee()) journal.elimination(id, 1 - tireur);
+            noter(latences, appels, thread, t0);
+        }
+        if (interrompue && partie.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) {
+            enCours.put(id, partie); // Toujours en cours au « crash »
+        } else {
+            t0 = System.nanoTime();
+            journal.fin(id, partie.getGagnantIndex());
+            noter(latences, appels, thread, t0);
+        }
+    }
+
+    private static void noter(long[][] latences, int[] appels, int thread, long debut) {
+        long duree = System.nanoTime() - debut;
+        long[] tableau = latences[thread];
+        if (appels[thread] < tableau.length) tableau[appels[thread]] = duree;
+        appels[thread]++;
+    }
+
+    private static long centile(long[] tries, double p) {
+        return tries[Math.min(tries.length - 1, (int) Math.ceil(p * tries.length) - 1)];
+    }
+}
@@ -0,0 +1,463 @@
+package com.example.bataillenavale.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.example.bataillenavale.server.BatailleNavaleServer;
+
+/**
+ * Générateur de charge : des milliers de bots scriptés jouent contre un serveur local lancé dans la JVM,
+ * en mélangeant le protocole ligne TCP (celui de ServerCommunicator) et WebSocket texte.
+ * Chaque bot donne son nom, démarre la partie s'il est l'hôte, place sa flotte, tire et discute ;
+ * après GAME_OVER il redonne son nom et rejoue. Les bots qui arrivent pendant une partie la suivent en spectateurs.
+ *
+ * Usage : LoadGenerator [bots=1000] [pourcentWebSocket=50] [duree=30] [joueursParPartie=2] [modeTcp=NIO]
+ * Tous les bots tournent sur un seul thread (sélecteur NIO, client WebSocket minimal) :
+ * les threads en plus de ceux d'avant le démarrage sont donc ceux du serveur, à ce thread près.
+ *
+ * Mesures : commandes envoyées par seconde, latence FIRE_SHOT -> SHOT_RESULT du tireur (p50/p90/p99/p99.9/max),
+ * échecs de connexion et fermetures inattendues, tas utilisé (pic et après GC) et threads du serveur.
+ */
+public class LoadGenerator {
+    private static final int CONNEXIONS_PAR_SECONDE = 1000; // Rampe : évite de saturer la file d'acceptation
+    private static final long INTERVALLE_RAPPORT_NS = 5_000_000_000L;
+    private static final int CHAT_TOUS_LES_N_TIRS = 10;
+    private static final String[] NAVIRES = { "PORTE_AVIONS", "CROISEUR", "CONTRE_TORPILLEUR", "SOUS_MARIN", "TORPILLEUR" };
+    private static final byte[] MASQUE = { 0x1b, 0x2e, 0x3c, 0x4f }; // Les trames client doivent être masquées
+
+    // Compteurs, tous modifiés par le seul thread des bots
+    private static long commandes;
+    private static long tirs;
+    private static long parties;
+    private static long erreursServeur;
+    private static int connectes;
+    private static int connexionsEchouees;
+    private static int fermeturesInattendues;
+    private static long[] latences = new long[1 << 16];
+    private static int nbLatences;
+
+    private static Selector selecteur;
+    private static int joueursParPartie;
+
+    public static void main(String[] args) throws Exception {
+        int nbBots = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int pourcentWs = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int duree = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        joueursParPartie = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        BatailleNavaleServer.TcpMode mode = args.length > 4 ? BatailleNavaleServer.TcpMode.valueOf(args[4].toUpperCase()) : BatailleNavaleServer.TcpMode.NIO;
+
+        PrintStream sortie = System.out;
+        System.setOut(new PrintStream(new OutputStream() { // Les journaux du serveur faussent les mesures
+            @Override public void write(int b) { }
+            @Override public void write(byte[] b, int off, int len) { }
+        }));
+
+        int tcpPort = ConnectionModeBenchmark.portLibre();
+        int wsPort = ConnectionModeBenchmark.portLibre();
+        long tasAvant = ConnectionModeBenchmark.tasUtilise();
+        int threadsAvant = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        BatailleNavaleServer server = new BatailleNavaleServer(tcpPort, wsPort, mode);
+        server.startServer();
+        Thread.sleep(1000);
+
+        sortie.printf("%d bots (%d%% WebSocket), %d s, %d joueurs par partie, TCP %s (JDK %s)%n",
+                nbBots, pourcentWs, duree, joueursParPartie, mode, System.getProperty("java.version"));
+
+        selecteur = Selector.open();
+        ByteBuffer lecture = ByteBuffer.allocate(64 * 1024); // Partagé : un seul thread lit
+        List<Bot> bots = new ArrayList<>(nbBots);
+        long debut = System.nanoTime();
+        long fin = debut + duree * 1_000_000_000L;
+        long prochainRapport = debut + INTERVALLE_RAPPORT_NS;
+        long commandesAuRapport = 0;
+        long tirsAuRapport = 0;
+        long tasPic = 0;
+
+        while (System.nanoTime() < fin) {
+            long ecoule = System.nanoTime() - debut;
+            long attendus = Math.min(nbBots, ecoule * CONNEXIONS_PAR_SECONDE / 1_000_000_000L + 1);
+            while (bots.size() < attendus) {
+                int id = bots.size();
+                boolean ws = id % 100 < pourcentWs;
+                Bot bot = new Bot(id, ws);
+                bots.add(bot);
+                bot.connecter(ws ? wsPort : tcpPort);
+            }
+
+            selecteur.select(50);
+            Iterator<SelectionKey> cles = selecteur.selectedKeys().iterator();
+            while (cles.hasNext()) {
+                SelectionKey cle = cles.next();
+                cles.remove();
+                Bot bot = (Bot) cle.attachment();
+                try {
+                    if (cle.isConnectable()) bot.connexionEtablie();
+                    if (cle.isValid() && cle.isWritable()) bot.viderSortie();
+                    if (cle.isValid() && cle.isReadable()) bot.lire(lecture);
+                } catch (IOException e) {
+                    bot.fermer(true);
+                }
+            }
+
+            long maintenant = System.nanoTime();
+            if (maintenant >= prochainRapport) {
+                Runtime rt = Runtime.getRuntime();
+                long tas = rt.totalMemory() - rt.freeMemory();
+                tasPic = Math.max(tasPic, tas);
+                double secondes = INTERVALLE_RAPPORT_NS / 1e9;
+                sortie.printf("t=%3ds bots connectés=%d commandes/s=%.0f tirs/s=%.0f parties=%d tas=%.1f Mo threads=%d%n",
+                        (maintenant - debut) / 1_000_000_000L, connectes, (commandes - commandesAuRapport) / secondes,
+                        (tirs - tirsAuRapport) / secondes, parties, tas / 1e6, ManagementFactory.getThreadMXBean().getThreadCount());
+                commandesAuRapport = commandes;
+                tirsAuRapport = tirs;
+                prochainRapport += INTERVALLE_RAPPORT_NS;
+            }
+        }
+
+        double secondesTotales = (System.nanoTime() - debut) / 1e9;
+        int threadsServeur = ManagementFactory.getThreadMXBean().getThreadCount() - threadsAvant;
+        long tasApres = ConnectionModeBenchmark.tasUtilise();
+        long[] tri = Arrays.copyOf(latences, nbLatences);
+        Arrays.sort(tri);
+
+        sortie.println("--- Résultat ---");
+        sortie.printf("Commandes: %d (%.0f/s), tirs: %d (%.0f/s), parties terminées: %d, erreurs serveur: %d%n",
+                commandes, commandes / secondesTotales, tirs, tirs / secondesTotales, parties, erreursServeur);
+        if (tri.length > 0) {
+            sortie.printf("Latence FIRE_SHOT -> SHOT_RESULT (%d mesures): p50=%.3f ms p90=%.3f ms p99=%.3f ms p99.9=%.3f ms max=%.3f ms%n",
+                    tri.length, centile(tri, 0.50), centile(tri, 0.90), centile(tri, 0.99), centile(tri, 0.999), tri[tri.length - 1] / 1e6);
+        }
+        sortie.printf("Connexions: %d/%d ouvertes, %d échecs, %d fermetures inattendues%n",
+                connectes, nbBots, connexionsEchouees, fermeturesInattendues);
+        sortie.printf("Tas: pic %.1f Mo, après GC %.1f Mo (+%.1f Mo, bots compris), threads serveur: +%d%n",
+                tasPic / 1e6, tasApres / 1e6, (tasApres - tasAvant) / 1e6, threadsServeur);
+        sortie.println("Envoi serveur: " + server.getMetriquesEnvoi());
+        System.exit(0);
+    }
+
+    private static double centile(long[] tri, double q) {
+        return tri[Math.min(tri.length - 1, (int) Math.ceil(tri.length * q) - 1)] / 1e6;
+    }
+
+    private static void enregistrerLatence(long nanos) {
+        if (nbLatences == latences.length) latences = Arrays.copyOf(latences, latences.length * 2);
+        latences[nbLatences++] = nanos;
+    }
+
+    /** Un client scripté. Réagit aux messages du serveur, sans autre état partagé que les compteurs. */
+    private static final class Bot {
+        private final boolean webSocket;
+        private final String nom;
+        private SocketChannel canal;
+        private SelectionKey cle;
+        private boolean poigneeDeMainFaite; // WebSocket : réponse 101 reçue
+        private boolean ferme;
+        private byte[] reste; // Octets d'un message incomplet, entre deux lectures
+        private final ArrayDeque<ByteBuffer> enAttente = new ArrayDeque<>();
+
+        // Partie en cours
+        private boolean demarrageDemande;
+        private int monIndex = -1;
+        private int nbJoueurs;
+        private int[] prochaineCase;
+        private int[] coules;
+        private boolean[] eliminee;
+        private int cibleCourante = -1;
+        private long tirEnvoye; // nanoTime du FIRE_SHOT en attente de son SHOT_RESULT, 0 sinon
+        private int tirsDeLaPartie;
+
+        Bot(int id, boolean webSocket) {
+            this.webSocket = webSocket;
+            this.nom = (webSocket ? "w" : "t") + id;
+        }
+
+        void connecter(int port) {
+            try {
+                canal = SocketChannel.open();
+                canal.configureBlocking(false);
+                canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                if (canal.connect(new InetSocketAddress("127.0.0.1", port))) {
+                    cle = canal.register(selecteur, SelectionKey.OP_READ, this);
+                    ouvert();
+                } else {
+                    cle = canal.register(selecteur, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException e) {
+                connexionsEchouees++;
+                ferme = true;
+            }
+        }
+
+        void connexionEtablie() {
+            try {
+                canal.finishConnect();
+                cle.interestOps(SelectionKey.OP_READ);
+                ouvert();
+            } catch (IOException e) {
+                connexionsEchouees++;
+                ferme = true;
+                cle.cancel();
+            }
+        }
+
+        private void ouvert() throws IOException {
+            if (webSocket) {
+                String requete = "GET / HTTP/1.1\r\nHost: 127.0.0.1\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                        + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n\r\n";
+                ecrire(ByteBuffer.wrap(requete.getBytes(StandardCharsets.US_ASCII)));
+            } else {
+                connectes++;
+            }
+        }
+
+        void lire(ByteBuffer lecture) throws IOException {
+            lecture.clear();
+            if (reste != null) {
+                lecture.put(reste);
+                reste = null;
+            }
+            if (canal.read(lecture) < 0) {
+                fermer(true);
+                return;
+            }
+            lecture.flip();
+            if (webSocket) lireWebSocket(lecture); else lireLignes(lecture);
+            if (!ferme && lecture.hasRemaining()) {
+                reste = new byte[lecture.remaining()];
+                lecture.get(reste);
+            }
+        }
+
+        private void lireLignes(ByteBuffer lecture) throws IOException {
+            int debut = lecture.position();
+            for (int i = debut; i < lecture.limit(); i++) {
+                if (lecture.get(i) == '\n') {
+                    recevoir(new String(lecture.array(), debut, i - debut, StandardCharsets.UTF_8));
+                    debut = i + 1;
+                }
+            }
+            lecture.position(debut);
+        }
+
+        private void lireWebSocket(ByteBuffer lecture) throws IOException {
+            if (!poigneeDeMainFaite) {
+                int finEntete = chercherFinEntete(lecture);
+                if (finEntete < 0) return;
+                String entete = new String(lecture.array(), lecture.position(), finEntete - lecture.position(), StandardCharsets.US_ASCII);
+                if (!entete.startsWith("HTTP/1.1 101")) {
+                    connexionsEchouees++;
+                    fermer(false);
+                    return;
+                }
+                poigneeDeMainFaite = true;
+                connectes++;
+                lecture.position(finEntete);
+            }
+            // Trames serveur : jamais masquées
+            while (lecture.remaining() >= 2) {
+                int debut = lecture.position();
+                int opcode = lecture.get(debut) & 0x0F;
+                int longueur = lecture.get(debut + 1) & 0x7F;
+                int entete = 2;
+                if (longueur == 126) {
+                    if (lecture.remaining() < 4) return;
+                    longueur = lecture.getShort(debut + 2) & 0xFFFF;
+                    entete = 4;
+                } else if (longueur == 127) {
+                    if (lecture.remaining() < 10) return;
+                    longueur = (int) lecture.getLong(debut + 2);
+                    entete = 10;
+                }
+                if (lecture.remaining() < entete + longueur) return;
+                int charge = debut + entete;
+                lecture.position(charge + longueur);
+                if (opcode == 0x1) {
+                    recevoir(new String(lecture.array(), charge, longueur, StandardCharsets.UTF_8));
+                } else if (opcode == 0x9) {
+                    byte[] donnees = Arrays.copyOfRange(lecture.array(), charge, charge + longueur);
+                    ecrire(trame(0xA, donnees));
+                } else if (opcode == 0x8) {
+                    fermer(true);
+                    return;
+                }
+                if (ferme) return;
+            }
+        }
+
+        private static int chercherFinEntete(ByteBuffer lecture) {
+            for (int i = lecture.position(); i + 3 < lecture.limit(); i++) {
+                if (lecture.get(i) == '\r' && lecture.get(i + 1) == '\n' && lecture.get(i + 2) == '\r' && lecture.get(i + 3) == '\n') {
+                    return i + 4;
+                }
+            }
+            return -1;
+        }
+
+        private void recevoir(String message) throws IOException {
+            int separateur = message.indexOf(':');
+            String type = separateur < 0 ? message : message.substring(0, separateur);
+            String[] champs = separateur < 0 ? new String[0] : message.substring(separateur + 1).split(":");
+            switch (type) {
+                case "REQ_NAME":
+                    demarrageDemande = false;
+                    monIndex = -1;
+                    envoyer("SET_NAME:" + nom);
+                    break;
+                case "LOBBY_STATE": // nombre:min:max:noms
+                    if (!demarrageDemande && Integer.parseInt(champs[0]) >= joueursParPartie
+                            && champs.length > 3 && champs[3].split(",")[0].equals(nom)) {
+                        demarrageDemande = true; // Seul l'hôte (premier nommé) peut démarrer
+                        envoyer("ADMIN_START_GAME");
+                    }
+                    break;
+                case "GAME_START": // taille:monIndex:nbJoueurs:flotte:noms
+                    int taille = Integer.parseInt(champs[0]);
+                    monIndex = Integer.parseInt(champs[1]);
+                    nbJoueurs = Integer.parseInt(champs[2]);
+                    prochaineCase = new int[nbJoueurs];
+                    coules = new int[nbJoueurs];
+                    eliminee = new boolean[nbJoueurs];
+                    eliminee[monIndex] = true;
+                    cibleCourante = -1;
+                    tirsDeLaPartie = 0;
+                    if (taille * taille < 100) throw new IOException("Grille inattendue: " + taille);
+                    break;
+                case "YOUR_TURN_PLACE_SHIP": { // TYPE:taille:nom — un navire par ligne, jamais de chevauchement
+                    int ligne = Arrays.asList(NAVIRES).indexOf(champs[0]);
+                    envoyer("PLACE_SHIP:" + champs[0] + ":" + ligne + ":0:true");
+                    break;
+                }
+                case "YOUR_TURN_FIRE":
+                    tirer();
+                    break;
+                case "SHOT_RESULT": { // tireur:cible:ligne:col:RESULTAT[:navire]
+                    int tireur = Integer.parseInt(champs[0]);
+                    int cible = Integer.parseInt(champs[1]);
+                    if (monIndex >= 0 && "COULE".equals(champs[4]) && ++coules[cible] == NAVIRES.length) {
+                        eliminee[cible] = true;
+                    }
+                    if (tireur == monIndex && tirEnvoye != 0) {
+                        enregistrerLatence(System.nanoTime() - tirEnvoye);
+                        tirEnvoye = 0;
+                    }
+                    break;
+                }
+                case "PLAYER_LEFT": // nom:index
+                    if (monIndex >= 0) eliminee[Integer.parseInt(champs[1])] = true;
+                    break;
+                case "GAME_OVER":
+                    if (monIndex == 0) parties++; // Compté une fois par partie
+                    break;
+                case "ERROR":
+                    erreursServeur++;
+                    if (message.contains("Cible de tir invalide") && cibleCourante >= 0) {
+                        eliminee[cibleCourante] = true; // YOUR_TURN_FIRE suit : on change de cible
+                        cibleCourante = -1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void tirer() throws IOException {
+            if (monIndex < 0) return;
+            if (cibleCourante < 0 || eliminee[cibleCourante] || prochaineCase[cibleCourante] >= 100) {
+                cibleCourante = -1;
+                for (int i = 1; i < nbJoueurs; i++) {
+                    int candidate = (monIndex + i) % nbJoueurs;
+                    if (!eliminee[candidate] && prochaineCase[candidate] < 100) {
+                        cibleCourante = candidate;
+                        break;
+                    }
+                }
+                if (cibleCourante < 0) return;
+            }
+            if (++tirsDeLaPartie % CHAT_TOUS_LES_N_TIRS == 0) {
+                envoyer("CHAT_MSG:salve " + tirsDeLaPartie + " de " + nom);
+            }
+            int c = prochaineCase[cibleCourante]++;
+            tirEnvoye = System.nanoTime();
+            tirs++;
+            envoyer("FIRE_SHOT:" + cibleCourante + ":" + (c / 10) + ":" + (c % 10));
+        }
+
+        private void envoyer(String commande) throws IOException {
+            byte[] octets = commande.getBytes(StandardCharsets.UTF_8);
+            commandes++;
+            if (webSocket) {
+                ecrire(trame(0x1, octets));
+            } else {
+                byte[] ligne = Arrays.copyOf(octets, octets.length + 1);
+                ligne[octets.length] = '\n';
+                ecrire(ByteBuffer.wrap(ligne));
+            }
+        }
+
+        private static ByteBuffer trame(int opcode, byte[] donnees) {
+            int entete = donnees.length < 126 ? 2 : 4;
+            ByteBuffer trame = ByteBuffer.allocate(entete + 4 + donnees.length);
+            trame.put((byte) (0x80 | opcode));
+            if (entete == 2) {
+                trame.put((byte) (0x80 | donnees.length));
+            } else {
+                trame.put((byte) (0x80 | 126));
+                trame.putShort((short) donnees.length);
+            }
+            trame.put(MASQUE);
+            for (int i = 0; i < donnees.length; i++) {
+                trame.put((byte) (donnees[i] ^ MASQUE[i & 3]));
+            }
+            trame.flip();
+            return trame;
+        }
+
+        private void ecrire(ByteBuffer tampon) throws IOException {
+            if (ferme) return;
+            if (enAttente.isEmpty()) {
+                canal.write(tampon);
+                if (!tampon.hasRemaining()) return;
+                cle.interestOps(cle.interestOps() | SelectionKey.OP_WRITE);
+            }
+            enAttente.add(tampon);
+        }
+
+        void viderSortie() throws IOException {
+            while (!enAttente.isEmpty()) {
+                ByteBuffer tampon = enAttente.peek();
+                canal.write(tampon);
+                if (tampon.hasRemaining()) return;
+                enAttente.poll();
+            }
+            cle.interestOps(SelectionKey.OP_READ);
+        }
+
+        void fermer(boolean inattendue) {
+            if (ferme) return;
+            ferme = true;
+            if (inattendue) fermeturesInattendues++;
+            if (poigneeDeMainFaite || !webSocket) connectes--;
+            if (cle != null) cle.cancel();
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // Rien à faire
+            }
+        }
+    }
+}
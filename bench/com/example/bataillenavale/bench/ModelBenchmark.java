@@ -0,0 +1,492 @@
+package com.example.bataillenavale.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.example.bataillenavale.model.BatailleNavaleGame;
+import com.example.bataillenavale.model.DensityTargeting;
+import com.example.bataillenavale.model.FleetGenerator;
+import com.example.bataillenavale.model.GameConfig;
+import com.example.bataillenavale.model.GameSnapshot;
+import com.example.bataillenavale.model.MonteCarloTargeting;
+import com.example.bataillenavale.model.PlayerBoard;
+import com.example.bataillenavale.model.Ship;
+import com.example.bataillenavale.model.ShotOutcome;
+
+/**
+ * Micro-benchmarks des chemins chauds du modèle (placement, tir, fin de partie), à relancer
+ * avant et après chaque optimisation du modèle.
+ * Chaque mesure sépare une préparation (non chronométrée, comme un @Setup par invocation)
+ * de l'exécution chronométrée, avec des itérations de préchauffage puis de mesure.
+ *
+ * Usage : ModelBenchmark [filtre] [secondes par itération=1]
+ * Mesures : débit (ops/s, moyenne ± écart-type), octets alloués par opération et débit
+ * d'allocation (Mo/s), via le ThreadMXBean de HotSpot.
+ * Les traces console du modèle sont redirigées vers un flux nul pendant les mesures :
+ * leur construction (concaténations) reste comptée, pas l'écriture sur le terminal.
+ */
+public class ModelBenchmark {
+    private static final int PRECHAUFFAGE = 3;
+    private static final int MESURES = 5;
+
+    // Flotte fixe et sans chevauchement : {ligne, colonne, horizontal (1/0)}
+    private static final Ship.ShipType[] FLOTTE = Ship.ShipType.values();
+    private static final int[][] POSITIONS = { {0, 0, 1}, {2, 1, 1}, {4, 9, 0}, {6, 2, 0}, {9, 5, 1} };
+
+    private static long puits; // Empêche le JIT d'éliminer le travail mesuré
+
+    /** Un benchmark : préparation hors chrono, puis exécution chronométrée qui renvoie le nombre d'opérations. */
+    private interface Cas<E> {
+        E preparer();
+        int executer(E etat);
+    }
+
+    public static void main(String[] args) {
+        String filtre = args.length > 0 ? args[0] : "";
+        double secondes = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+        PrintStream console = System.out;
+        PrintStream nul = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+
+        console.printf("%-44s %14s %10s %12s %10s%n", "Benchmark", "ops/s", "+/-", "octets/op", "Mo/s");
+        lancer("PlayerBoard.placerNavire (5 navires)", filtre, secondes, console, nul, new Cas<PlayerBoard>() {
+            public PlayerBoard preparer() {
+                return new PlayerBoard("bench");
+            }
+
+            public int executer(PlayerBoard plateau) {
+                for (int i = 0; i < FLOTTE.length; i++) {
+                    if (plateau.placerNavire(new Ship(FLOTTE[i]), POSITIONS[i][0], POSITIONS[i][1], POSITIONS[i][2] == 1)) puits++;
+                }
+                return FLOTTE.length;
+            }
+        });
+        lancer("PlayerBoard.recevoirTir (100 cases)", filtre, secondes, console, nul, new Cas<PlayerBoard>() {
+            public PlayerBoard preparer() {
+                return plateauAvecFlotte();
+            }
+
+            public int executer(PlayerBoard plateau) {
+                int taille = PlayerBoard.TAILLE_GRILLE;
+                for (int ligne = 0; ligne < taille; ligne++) {
+                    for (int colonne = 0; colonne < taille; colonne++) {
+                        puits += plateau.recevoirTir(ligne, colonne).getResultat().ordinal();
+                    }
+                }
+                return taille * taille;
+            }
+        });
+        lancer("PlayerBoard.tousNaviresCoules", filtre, secondes, console, nul, new Cas<PlayerBoard[]>() {
+            public PlayerBoard[] preparer() {
+                // Plusieurs plateaux à des stades différents : le JIT ne peut pas sortir l'appel de la boucle
+                PlayerBoard[] plateaux = new PlayerBoard[8];
+                for (int p = 0; p < plateaux.length; p++) {
+                    plateaux[p] = plateauAvecFlotte();
+                    for (int c = 0; c < p * 12; c++) plateaux[p].recevoirTir(c / 10, c % 10);
+                }
+                return plateaux;
+            }
+
+            public int executer(PlayerBoard[] plateaux) {
+                for (int i = 0; i < 1000; i++) {
+                    if (plateaux[i & 7].tousNaviresCoules()) puits++;
+                }
+                return 1000;
+            }
+        });
+        lancer("Ship.registerHit + estCoule", filtre, secondes, console, nul, new Cas<PlayerBoard>() {
+            public PlayerBoard preparer() {
+                return plateauAvecFlotte();
+            }
+
+            public int executer(PlayerBoard plateau) {
+                int operations = 0;
+                for (Ship navire : plateau.getNavires()) {
+                    for (int i = 0; i < navire.getTaille(); i++) {
+                        int segment = navire.segmentEn(navire.getLigneSegment(i), navire.getColonneSegment(i));
+                        if (navire.registerHit(segment)) puits++;
+                        if (navire.estCoule()) puits++;
+                        operations++;
+                    }
+                }
+                return operations;
+            }
+        });
+        lancer("BatailleNavaleGame.tirerSurAdversaire", filtre, secondes, console, nul, new Cas<BatailleNavaleGame>() {
+            public BatailleNavaleGame preparer() {
+                BatailleNavaleGame partie = new BatailleNavaleGame(new String[] {"alice", "bob"});
+                partie.placerNaviresAleatoirementPourJoueur(0);
+                partie.placerNaviresAleatoirementPourJoueur(1);
+                return partie;
+            }
+
+            public int executer(BatailleNavaleGame partie) {
+                // Les deux joueurs balaient la grille dans le même ordre jusqu'à la fin de la partie
+                int taille = PlayerBoard.TAILLE_GRILLE;
+                int tirs = 0;
+                for (int c = 0; c < taille * taille && partie.getPhaseActuelle() == BatailleNavaleGame.GamePhase.COMBAT; c++) {
+                    for (int tour = 0; tour < 2 && partie.getPhaseActuelle() == BatailleNavaleGame.GamePhase.COMBAT; tour++) {
+                        int cible = 1 - partie.getJoueurCourantIndex();
+                        puits += partie.tirerSurAdversaire(cible, c / taille, c % taille).getResultat().ordinal();
+                        tirs++;
+                    }
+                }
+                return tirs;
+            }
+        });
+        lancer("BatailleNavaleGame.placerNaviresAleatoirement", filtre, secondes, console, nul, new Cas<BatailleNavaleGame>() {
+            public BatailleNavaleGame preparer() {
+                return new BatailleNavaleGame(new String[] {"alice", "bob"});
+            }
+
+            public int executer(BatailleNavaleGame partie) {
+                partie.placerNaviresAleatoirementPourJoueur(0);
+                partie.placerNaviresAleatoirementPourJoueur(1);
+                return 2;
+            }
+        });
+        lancer("FleetGenerator.generer (flotte de 5)", filtre, secondes, console, nul, new Cas<FleetGenerator>() {
+            private final FleetGenerator generateur = new FleetGenerator(PlayerBoard.TAILLE_GRILLE);
+            private final List<Ship.ShipType> types = Arrays.asList(FLOTTE);
+            private final int[] placements = new int[FLOTTE.length];
+
+            public FleetGenerator preparer() {
+                return generateur;
+            }
+
+            public int executer(FleetGenerator generateur) {
+                Random aleatoire = ThreadLocalRandom.current();
+                for (int i = 0; i < 100; i++) {
+                    if (generateur.generer(types, aleatoire, placements)) puits += placements[4];
+                }
+                return 100;
+            }
+        });
+        // Une opération = un coup du bot (choix, tir, enregistrement), sur une partie complète
+        lancer("DensityTargeting.choisirCase (partie 10x10)", filtre, secondes, console, nul, new Cas<BatailleNavaleGame>() {
+            public BatailleNavaleGame preparer() {
+                BatailleNavaleGame partie = new BatailleNavaleGame(new String[] {"alice", "bob"});
+                partie.placerNaviresAleatoirementPourJoueur(0);
+                return partie;
+            }
+
+            public int executer(BatailleNavaleGame partie) {
+                Random aleatoire = ThreadLocalRandom.current();
+                PlayerBoard plateau = partie.getPlayerBoard(0);
+                DensityTargeting visee = new DensityTargeting(GameConfig.STANDARD);
+                int taille = PlayerBoard.TAILLE_GRILLE;
+                int coups = 0;
+                while (!visee.estFlotteCoulee()) {
+                    int index = visee.choisirCase(aleatoire);
+                    ShotOutcome resultat = plateau.recevoirTir(index / taille, index % taille);
+                    visee.enregistrer(index / taille, index % taille, resultat.getResultat(), resultat.getNavireCoule());
+                    coups++;
+                }
+                puits += coups;
+                return coups;
+            }
+        });
+        // Une opération = un échantillon de flotte ; l'écart entre 1 thread et tous les cœurs donne le passage à l'échelle.
+        // Les octets/op ne comptent que le thread appelant, pas les threads du pool.
+        int coeurs = Runtime.getRuntime().availableProcessors();
+        for (int threads : coeurs > 1 ? new int[] {1, coeurs} : new int[] {1}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            MonteCarloTargeting visee = viseeEnModeCible(pool, nul);
+            lancer("MonteCarloTargeting échantillons (" + threads + " thread" + (threads > 1 ? "s)" : ")"), filtre, secondes, console, nul,
+                    new Cas<MonteCarloTargeting>() {
+                        public MonteCarloTargeting preparer() {
+                            return visee;
+                        }
+
+                        public int executer(MonteCarloTargeting visee) {
+                            puits += visee.choisirCase(ThreadLocalRandom.current());
+                            return (int) visee.getEchantillonsDernierCoup();
+                        }
+                    });
+            pool.shutdown();
+        }
+        // Une opération = un coup sur une partie complète, sans puis avec la résolution exacte de fin de partie
+        ForkJoinPool seul = new ForkJoinPool(1);
+        for (int seuil : new int[] {0, MonteCarloTargeting.SEUIL_FIN_DE_PARTIE}) {
+            long[] table = new long[2]; // Consultations, succès
+            lancer("MonteCarloTargeting coups (" + (seuil == 0 ? "échantillons)" : "fin de partie exacte)"),
+                    filtre, secondes, console, nul, new Cas<BatailleNavaleGame>() {
+                        public BatailleNavaleGame preparer() {
+                            BatailleNavaleGame partie = new BatailleNavaleGame(new String[] {"alice", "bob"});
+                            partie.placerNaviresAleatoirementPourJoueur(0);
+                            return partie;
+                        }
+
+                        public int executer(BatailleNavaleGame partie) {
+                            Random aleatoire = ThreadLocalRandom.current();
+                            PlayerBoard plateau = partie.getPlayerBoard(0);
+                            MonteCarloTargeting visee = new MonteCarloTargeting(GameConfig.STANDARD, aleatoire.nextLong(), seul,
+                                    8 * MonteCarloTargeting.ECHANTILLONS_PAR_LOT, 0, seuil);
+                            int taille = PlayerBoard.TAILLE_GRILLE;
+                            int coups = 0;
+                            while (!visee.estFlotteCoulee()) {
+                                int index = visee.choisirCase(aleatoire);
+                                ShotOutcome resultat = plateau.recevoirTir(index / taille, index % taille);
+                                visee.enregistrer(index / taille, index % taille, resultat.getResultat(), resultat.getNavireCoule());
+                                coups++;
+                            }
+                            table[0] += visee.getConsultationsTable();
+                            table[1] += visee.getSuccesTable();
+                            puits += coups;
+                            return coups;
+                        }
+                    });
+            if (table[0] > 0) {
+                console.printf("  table de fin de partie : %d consultations, %.1f%% trouvées%n", table[0], 100.0 * table[1] / table[0]);
+            }
+        }
+        seul.shutdown();
+        // Une opération = une partie à deux en combat (30 tirs chacun), écrite puis relue
+        if ("GameSnapshot.ecrire".contains(filtre) || "GameSnapshot.lire".contains(filtre) || filtre.startsWith("GameSnapshot")) {
+            verifierInstantanes(console, nul);
+        }
+        ByteBuffer tamponInstantane = ByteBuffer.allocate(4096);
+        lancer("GameSnapshot.ecrire (partie 10x10)", filtre, secondes, console, nul, new Cas<BatailleNavaleGame>() {
+            private final BatailleNavaleGame[] parties = partiesEnCombat(16, 30);
+            private int suivante;
+
+            public BatailleNavaleGame preparer() {
+                return parties[suivante++ & 15];
+            }
+
+            public int executer(BatailleNavaleGame partie) {
+                for (int i = 0; i < 100; i++) {
+                    tamponInstantane.clear();
+                    puits += GameSnapshot.ecrire(partie, tamponInstantane);
+                }
+                return 100;
+            }
+        });
+        lancer("GameSnapshot.lire (partie 10x10)", filtre, secondes, console, nul, new Cas<byte[]>() {
+            private final byte[][] instantanes = new byte[16][];
+            private int suivante;
+
+            {
+                BatailleNavaleGame[] parties = partiesEnCombat(instantanes.length, 30);
+                for (int i = 0; i < instantanes.length; i++) instantanes[i] = GameSnapshot.versOctets(parties[i]);
+            }
+
+            public byte[] preparer() {
+                return instantanes[suivante++ & 15];
+            }
+
+            public int executer(byte[] instantane) {
+                for (int i = 0; i < 100; i++) puits += GameSnapshot.lire(instantane).getJoueurCourantIndex();
+                return 100;
+            }
+        });
+        if ("empreinte".contains(filtre)) {
+            mesurerEmpreinte(GameConfig.STANDARD, 20_000, 0, console, nul);
+            GameConfig grande = new GameConfig(GameConfig.TAILLE_MAX, GameConfig.FLOTTE_STANDARD);
+            mesurerEmpreinte(grande, 2_000, 0, console, nul);
+            mesurerEmpreinte(grande, 200, 1_000, console, nul);
+        }
+        console.println("(puits " + puits + ")");
+    }
+
+    /**
+     * Tas retenu par une partie à deux joueurs avec leurs flottes placées, puis tirsParJoueur tirs
+     * aléatoires par joueur, mesuré sur de nombreuses parties.
+     */
+    private static void mesurerEmpreinte(GameConfig config, int nombre, int tirsParJoueur, PrintStream console, PrintStream nul) {
+        BatailleNavaleGame[] parties = new BatailleNavaleGame[nombre];
+        Random aleatoire = new Random(42);
+        int taille = config.getTailleGrille();
+        PrintStream erreurs = System.err;
+        System.setOut(nul);
+        System.setErr(nul);
+        long avant = ConnectionModeBenchmark.tasUtilise();
+        for (int i = 0; i < nombre; i++) {
+            parties[i] = new BatailleNavaleGame(new String[] {"alice", "bob"}, config);
+            parties[i].placerNaviresAleatoirementPourJoueur(0);
+            parties[i].placerNaviresAleatoirementPourJoueur(1);
+            for (int t = 0; t < tirsParJoueur; t++) {
+                parties[i].getPlayerBoard(t & 1).recevoirTir(aleatoire.nextInt(taille), aleatoire.nextInt(taille));
+                parties[i].getPlayerBoard(1 - (t & 1)).recevoirTir(aleatoire.nextInt(taille), aleatoire.nextInt(taille));
+            }
+        }
+        long apres = ConnectionModeBenchmark.tasUtilise();
+        System.setOut(console);
+        System.setErr(erreurs);
+        puits += parties[nombre - 1].getNombreJoueursActifs();
+        console.printf("Empreinte d'une partie à 2 joueurs %dx%d, flottes placées, %d tirs par joueur : %.0f octets%n",
+                taille, taille, tirsParJoueur, (double) (apres - avant) / nombre);
+    }
+
+    /** Parties à deux, flottes tirées au hasard, après tirsParJoueur tirs aléatoires chacun (sans fin de partie). */
+    private static BatailleNavaleGame[] partiesEnCombat(int nombre, int tirsParJoueur) {
+        Random aleatoire = new Random(42);
+        BatailleNavaleGame[] parties = new BatailleNavaleGame[nombre];
+        for (int i = 0; i < nombre; i++) {
+            parties[i] = new BatailleNavaleGame(new String[] {"alice", "bob"});
+            parties[i].setSilencieux(true);
+            parties[i].placerNaviresAleatoirementPourJoueur(0, aleatoire);
+            parties[i].placerNaviresAleatoirementPourJoueur(1, aleatoire);
+            jouerAuHasard(parties[i], 2 * tirsParJoueur, aleatoire);
+        }
+        return parties;
+    }
+
+    /** Tirs aléatoires du joueur courant sur un adversaire actif, tant que la partie est en combat. */
+    private static void jouerAuHasard(BatailleNavaleGame partie, int tirs, Random aleatoire) {
+        int taille = partie.getConfig().getTailleGrille();
+        for (int t = 0; t < tirs && partie.getPhaseActuelle() == BatailleNavaleGame.GamePhase.COMBAT; t++) {
+            List<Integer> actifs = partie.getJoueursActifsIndices();
+            actifs.remove(Integer.valueOf(partie.getJoueurCourantIndex()));
+            int cible = actifs.get(aleatoire.nextInt(actifs.size()));
+            partie.tirerSurAdversaire(cible, aleatoire.nextInt(taille), aleatoire.nextInt(taille));
+        }
+    }
+
+    /**
+     * Allers-retours écrire/lire sur des parties à tous les stades (placement en cours, combat, abandon,
+     * fin, grande grille, noms accentués) : la partie relue doit donner les mêmes octets, les mêmes cases
+     * et le même tour. Lève IllegalStateException au premier écart, avant toute mesure.
+     */
+    private static void verifierInstantanes(PrintStream console, PrintStream nul) {
+        PrintStream sortie = System.out;
+        System.setOut(nul);
+        Random aleatoire = new Random(7);
+        List<BatailleNavaleGame> parties = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            GameConfig config = i % 10 == 8 ? new GameConfig(200, GameConfig.FLOTTE_STANDARD) : GameConfig.STANDARD;
+            int joueurs = 2 + i % 3;
+            String[] noms = new String[joueurs];
+            for (int j = 0; j < joueurs; j++) noms[j] = (i % 4 == 0 ? "Zoé" : "joueur") + j;
+            BatailleNavaleGame partie = new BatailleNavaleGame(noms, config);
+            partie.setSilencieux(true);
+            int stade = i % 5;
+            if (stade == 0) { // Placement en cours : le premier joueur a posé un navire
+                partie.placerNavireJoueurCourant(Ship.ShipType.TORPILLEUR, 0, 0, true);
+            } else {
+                for (int j = 0; j < joueurs; j++) partie.placerNaviresAleatoirementPourJoueur(j, aleatoire);
+                if (stade == 2) partie.handlePlayerDisconnect(joueurs - 1);
+                jouerAuHasard(partie, stade == 4 ? Integer.MAX_VALUE : 20 * stade, aleatoire);
+            }
+            parties.add(partie);
+        }
+        int octetsCombat = GameSnapshot.versOctets(partiesEnCombat(1, 30)[0]).length;
+        System.setOut(sortie);
+        for (int i = 0; i < parties.size(); i++) {
+            BatailleNavaleGame partie = parties.get(i);
+            byte[] octets = GameSnapshot.versOctets(partie);
+            BatailleNavaleGame relue = GameSnapshot.lire(octets);
+            relue.setSilencieux(true);
+            if (!Arrays.equals(octets, GameSnapshot.versOctets(relue)) || relue.getPhaseActuelle() != partie.getPhaseActuelle()
+                    || relue.getJoueurCourantIndex() != partie.getJoueurCourantIndex() || relue.getGagnantIndex() != partie.getGagnantIndex()
+                    || !relue.getJoueursActifsIndices().equals(partie.getJoueursActifsIndices())) {
+                throw new IllegalStateException("Instantané " + i + " : la partie relue diffère de l'originale.");
+            }
+            int taille = partie.getConfig().getTailleGrille();
+            for (int j = 0; j < partie.getNombreJoueursInitial(); j++) {
+                PlayerBoard avant = partie.getPlayerBoard(j);
+                PlayerBoard apres = relue.getPlayerBoard(j);
+                if (!avant.getNomJoueur().equals(apres.getNomJoueur()) || avant.getNombreNaviresRestants() != apres.getNombreNaviresRestants()) {
+                    throw new IllegalStateException("Instantané " + i + " : plateau " + j + " différent.");
+                }
+                for (int c = 0; c < taille * taille; c++) {
+                    if (avant.getEtatCase(c / taille, c % taille) != apres.getEtatCase(c / taille, c % taille)) {
+                        throw new IllegalStateException("Instantané " + i + " : case " + c + " du plateau " + j + " différente.");
+                    }
+                }
+            }
+        }
+        console.printf("GameSnapshot : %d allers-retours vérifiés ; partie 10x10 à deux après 30 tirs chacun : %d octets%n",
+                parties.size(), octetsCombat);
+    }
+
+    /**
+     * Visée sur la flotte fixe après quelques tirs dans l'eau et une touche : les échantillons doivent la couvrir.
+     * Sans résolution exacte, qui ne ferait ici que tenter l'énumération à chaque coup.
+     */
+    private static MonteCarloTargeting viseeEnModeCible(ForkJoinPool pool, PrintStream nul) {
+        PrintStream console = System.out;
+        System.setOut(nul);
+        PlayerBoard plateau = plateauAvecFlotte();
+        MonteCarloTargeting visee = new MonteCarloTargeting(GameConfig.STANDARD, 42, pool, 64 * MonteCarloTargeting.ECHANTILLONS_PAR_LOT, 0, 0);
+        int[][] tirs = { {5, 5}, {3, 3}, {7, 7}, {1, 8}, {0, 2} };
+        for (int[] tir : tirs) {
+            ShotOutcome resultat = plateau.recevoirTir(tir[0], tir[1]);
+            visee.enregistrer(tir[0], tir[1], resultat.getResultat(), resultat.getNavireCoule());
+        }
+        System.setOut(console);
+        return visee;
+    }
+
+    private static PlayerBoard plateauAvecFlotte() {
+        PlayerBoard plateau = new PlayerBoard("bench");
+        for (int i = 0; i < FLOTTE.length; i++) {
+            plateau.placerNavire(new Ship(FLOTTE[i]), POSITIONS[i][0], POSITIONS[i][1], POSITIONS[i][2] == 1);
+        }
+        return plateau;
+    }
+
+    private static <E> void lancer(String nom, String filtre, double secondes, PrintStream console, PrintStream nul, Cas<E> cas) {
+        if (!nom.contains(filtre)) return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long idThread = Thread.currentThread().getId();
+        long dureeIteration = (long) (secondes * 1_000_000_000L);
+        double[] debits = new double[MESURES];
+        long totalOps = 0;
+        long totalAlloue = 0;
+        long totalNanos = 0;
+
+        PrintStream erreurs = System.err;
+        System.setOut(nul);
+        System.setErr(nul);
+        try {
+            for (int iteration = 0; iteration < PRECHAUFFAGE + MESURES; iteration++) {
+                long ops = 0;
+                long nanos = 0;
+                long alloue = 0;
+                long finIteration = System.nanoTime() + dureeIteration;
+                while (System.nanoTime() < finIteration) {
+                    E etat = cas.preparer();
+                    long allocAvant = threads.getThreadAllocatedBytes(idThread);
+                    long debut = System.nanoTime();
+                    ops += cas.executer(etat);
+                    nanos += System.nanoTime() - debut;
+                    alloue += threads.getThreadAllocatedBytes(idThread) - allocAvant;
+                }
+                if (iteration >= PRECHAUFFAGE) {
+                    debits[iteration - PRECHAUFFAGE] = ops * 1e9 / nanos;
+                    totalOps += ops;
+                    totalAlloue += alloue;
+                    totalNanos += nanos;
+                }
+            }
+        } finally {
+            System.setOut(console);
+            System.setErr(erreurs);
+        }
+
+        double moyenne = 0;
+        for (double d : debits) moyenne += d;
+        moyenne /= MESURES;
+        double variance = 0;
+        for (double d : debits) variance += (d - moyenne) * (d - moyenne);
+        double ecart = Math.sqrt(variance / (MESURES - 1));
+        console.printf("%-44s %14.0f %10.0f %12.1f %10.1f%n", nom, moyenne, ecart,
+                (double) totalAlloue / totalOps, totalAlloue / 1e6 / (totalNanos / 1e9));
+    }
+}
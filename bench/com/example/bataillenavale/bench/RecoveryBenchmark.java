@@ -0,0 +1,172 @@
+package com.example.bataillenavale.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.example.bataillenavale.model.BatailleNavaleGame;
+import com.example.bataillenavale.model.GameConfig;
+import com.example.bataillenavale.model.GameSnapshot;
+import com.example.bataillenavale.model.Ship;
+import com.example.bataillenavale.model.ShotOutcome;
+import com.example.bataillenavale.server.GameCheckpoint;
+import com.example.bataillenavale.server.GameJournal;
+
+/**
+ * Durée de la reprise des parties au démarrage (GameCheckpoint.reprendre), sans serveur.
+ * Des parties à deux, d'âges différents, sont jouées en parallèle, un événement à la fois dans une
+ * partie tirée au hasard, et journalisées comme le fait GameRoom. Après avantPoint événements par partie, un point de reprise
+ * est écrit comme le ferait RoomRegistry (segments couverts par le point précédent supprimés) ; les parties continuent pendant
+ * apresPoint événements par partie, une partie terminée étant aussitôt remplacée par une nouvelle,
+ * puis le journal s'arrête sans FIN (« crash »). La reprise doit reproduire, au GameSnapshot et aux
+ * jetons de reprise près, chacune des parties en cours.
+ *
+ * Usage : RecoveryBenchmark [parties=10000] [avantPoint=60] [apresPoint=30] [dossier=temporaire]
+ * Mesures : écriture du point de reprise, puis reprise à froid et meilleure de REPETITIONS reprises.
+ */
+public class RecoveryBenchmark {
+    private static final int SEGMENT = 16 << 20;
+    private static final int REPETITIONS = 5;
+    private static final int AVANCE_MAX = 200; // Événements déjà joués par une partie au début de la mesure, au plus
+
+    /** Une partie en cours et son numéro dans le journal. */
+    private static final class Partie {
+        final long numero;
+        final BatailleNavaleGame jeu;
+        final long[] jetons;
+
+        Partie(long numero, BatailleNavaleGame jeu, long[] jetons) {
+            this.numero = numero;
+            this.jeu = jeu;
+            this.jetons = jetons;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nombreParties = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int avantPoint = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        int apresPoint = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        File dossier = args.length > 3 ? new File(args[3]) : Files.createTempDirectory("reprise-bench").toFile();
+
+        GameJournal journal = new GameJournal(dossier, SEGMENT, 10);
+        Random aleatoire = new Random(42);
+        List<Partie> enCours = new ArrayList<>(nombreParties);
+        int terminees = 0;
+        for (int i = 0; i < nombreParties; i++) {
+            Partie partie = commencer(journal, aleatoire);
+            for (int e = aleatoire.nextInt(AVANCE_MAX); e > 0; e--) { // Parties d'âges différents
+                if (!avancer(journal, partie, aleatoire)) {
+                    partie = commencer(journal, aleatoire);
+                    terminees++;
+                }
+            }
+            enCours.add(partie);
+        }
+        terminees += jouer(journal, enCours, (long) nombreParties * avantPoint, aleatoire);
+
+        // Point de reprise, comme RoomRegistry : séquence relevée avant les instantanés
+        long debut = System.nanoTime();
+        long sequence = journal.derniereSequence();
+        long dernierePartie = journal.dernierePartie();
+        List<GameCheckpoint.Entree> entrees = new ArrayList<>(enCours.size());
+        for (Partie partie : enCours) {
+            entrees.add(new GameCheckpoint.Entree(partie.numero, journal.derniereSequence(), 0, partie.jetons, String.valueOf(partie.numero), GameSnapshot.versOctets(partie.jeu)));
+        }
+        long couverte = GameCheckpoint.ecrire(dossier, sequence, dernierePartie, entrees);
+        int supprimes = couverte < 0 ? 0 : journal.supprimerSegmentsJusqua(couverte);
+        double msPoint = (System.nanoTime() - debut) / 1e6;
+
+        terminees += jouer(journal, enCours, (long) nombreParties * apresPoint, aleatoire);
+        journal.fermer(); // Arrêt brutal : aucune FIN pour les parties en cours
+        System.out.printf("%d parties en cours, %d terminées ; point de reprise de %d parties écrit en %.1f ms (%d segments supprimés), %s%n",
+                enCours.size(), terminees, entrees.size(), msPoint, supprimes, dossier);
+
+        GameCheckpoint.Reprise reprise = GameCheckpoint.reprendre(dossier);
+        long meilleure = reprise.dureeNs;
+        for (int r = 1; r < REPETITIONS; r++) meilleure = Math.min(meilleure, GameCheckpoint.reprendre(dossier).dureeNs);
+        System.out.printf("Reprise : %d parties (%d du point de reprise), %d événements relus dans %d segments, %d incohérentes%n",
+                reprise.parties.size(), reprise.depuisPointDeReprise, reprise.relecture.evenements, reprise.relecture.segments, reprise.relecture.incoherentes);
+        System.out.printf("Durée de la reprise : %.1f ms à froid, %.1f ms au mieux de %d%n", reprise.dureeNs / 1e6, meilleure / 1e6, REPETITIONS);
+
+        int identiques = 0;
+        for (Partie partie : enCours) {
+            GameJournal.PartieRelue relue = reprise.parties.get(partie.numero);
+            if (relue != null && Arrays.equals(GameSnapshot.versOctets(partie.jeu), GameSnapshot.versOctets(relue.partie))
+                    && Arrays.equals(partie.jetons, relue.jetons)) identiques++;
+        }
+        System.out.printf("%d/%d parties en cours identiques, %d reprises en trop%n", identiques, enCours.size(), reprise.parties.size() - identiques);
+        if (identiques != enCours.size() || reprise.parties.size() != enCours.size()) {
+            throw new IllegalStateException("La reprise ne reproduit pas les parties en cours.");
+        }
+    }
+
+    private static Partie commencer(GameJournal journal, Random aleatoire) {
+        BatailleNavaleGame jeu = new BatailleNavaleGame(new String[] {"alice", "bob"}, GameConfig.STANDARD);
+        jeu.setSilencieux(true);
+        long numero = journal.dernierePartie() + 1;
+        long[] jetons = {aleatoire.nextLong() | 1, aleatoire.nextLong() | 1}; // Jamais 0 : sièges repris
+        return new Partie(journal.debuterPartie(String.valueOf(numero), jeu, 0, jetons), jeu, jetons);
+    }
+
+    /**
+     * Joue evenements événements, chacun dans une partie tirée au hasard ; une partie terminée
+     * est remplacée par une nouvelle.
+     * @return le nombre de parties terminées.
+     */
+    private static int jouer(GameJournal journal, List<Partie> enCours, long evenements, Random aleatoire) {
+        int terminees = 0;
+        for (long e = 0; e < evenements; e++) {
+            int index = aleatoire.nextInt(enCours.size());
+            if (!avancer(journal, enCours.get(index), aleatoire)) {
+                enCours.set(index, commencer(journal, aleatoire));
+                terminees++;
+            }
+        }
+        return terminees;
+    }
+
+    /** Un événement de la partie, journalisé ; faux si la partie est terminée (FIN journalisée). */
+    private static boolean avancer(GameJournal journal, Partie partie, Random aleatoire) {
+        BatailleNavaleGame jeu = partie.jeu;
+        int taille = jeu.getConfig().getTailleGrille();
+        switch (jeu.getPhaseActuelle()) {
+            case PLACEMENT_BATEAUX: {
+                List<Ship.ShipType> aPlacer = jeu.getNaviresAPlacerPourJoueurCourant();
+                if (aPlacer.isEmpty()) {
+                    jeu.passerAuJoueurSuivantPourPlacement();
+                    journal.tourSuivant(partie.numero);
+                    return true;
+                }
+                Ship.ShipType type = aPlacer.get(0);
+                int joueur = jeu.getJoueurCourantIndex();
+                while (true) {
+                    int ligne = aleatoire.nextInt(taille);
+                    int colonne = aleatoire.nextInt(taille);
+                    boolean horizontal = aleatoire.nextBoolean();
+                    if (jeu.placerNavireJoueurCourant(type, ligne, colonne, horizontal)) {
+                        journal.placement(partie.numero, joueur, type, ligne, colonne, horizontal);
+                        return true;
+                    }
+                }
+            }
+            case COMBAT: {
+                int tireur = jeu.getJoueurCourantIndex();
+                while (true) {
+                    int ligne = aleatoire.nextInt(taille);
+                    int colonne = aleatoire.nextInt(taille);
+                    ShotOutcome issue = jeu.tirerSurAdversaire(1 - tireur, ligne, colonne);
+                    if (!issue.estJoue()) continue; // Case déjà tirée
+                    journal.tir(partie.numero, tireur, 1 - tireur, ligne, colonne, issue);
+                    if (issue.isCibleEliminee()) journal.elimination(partie.numero, 1 - tireur);
+                    return true;
+                }
+            }
+            default:
+                journal.fin(partie.numero, jeu.getGagnantIndex());
+                return false;
+        }
+    }
+}
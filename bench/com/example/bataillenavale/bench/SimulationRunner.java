@@ -0,0 +1,244 @@
+package com.example.bataillenavale.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.bataillenavale.model.BatailleNavaleGame;
+import com.example.bataillenavale.model.DensityTargeting;
+import com.example.bataillenavale.model.GameConfig;
+import com.example.bataillenavale.model.MonteCarloTargeting;
+import com.example.bataillenavale.model.PlayerBoard;
+import com.example.bataillenavale.model.Ship;
+import com.example.bataillenavale.model.ShotOutcome;
+import com.example.bataillenavale.model.TargetingStrategy;
+
+/**
+ * Tournoi hors serveur : des parties complètes à deux joueurs, jouées directement sur BatailleNavaleGame
+ * (parties silencieuses, ni socket ni BatailleNavaleServer), réparties sur plusieurs threads.
+ * Chaque paire de stratégies se rencontre à tour de rôle, en alternant le premier tireur.
+ *
+ * Usage : SimulationRunner [parties=100000] [strategies=DENSITE,ALEATOIRE] [threads=cœurs] [graine=1] [taille=10]
+ * Stratégies : ALEATOIRE, DENSITE, MONTE_CARLO. Une seule stratégie donne des parties en miroir.
+ *
+ * Chaque thread a son Random, réensemencé pour chaque partie à partir de (graine, numéro de partie) :
+ * les placements et les tirs d'une partie ne dépendent pas du nombre de threads.
+ * Toutes les 5 s : parties/s et taux de victoire courants. À la fin, par stratégie : taux de victoire,
+ * puis distribution du nombre de tirs du vainqueur (moyenne, écart-type, percentiles).
+ */
+public class SimulationRunner {
+    private static final long INTERVALLE_RAPPORT_NS = 5_000_000_000L;
+    private static final int PARTIES_PAR_LOT = 64;
+    private static final int ECHANTILLONS_MONTE_CARLO = 2_000; // Sans budget de temps : coups reproductibles
+
+    enum Strategie {
+        ALEATOIRE, DENSITE, MONTE_CARLO;
+
+        TargetingStrategy creer(GameConfig config, long graine) {
+            switch (this) {
+                case DENSITE:
+                    return new DensityTargeting(config);
+                case MONTE_CARLO:
+                    return new MonteCarloTargeting(config, graine, ForkJoinPool.commonPool(), ECHANTILLONS_MONTE_CARLO, 0);
+                default:
+                    return new Aleatoire(config.getTailleGrille());
+            }
+        }
+    }
+
+    /** Référence : une case non jouée au hasard. */
+    private static final class Aleatoire implements TargetingStrategy {
+        private final int[] restantes; // Cases non jouées ; les nombreRestantes premières
+        private int nombreRestantes;
+
+        Aleatoire(int taille) {
+            this.restantes = new int[taille * taille];
+            for (int i = 0; i < restantes.length; i++) restantes[i] = i;
+            this.nombreRestantes = restantes.length;
+        }
+
+        @Override
+        public void enregistrer(int ligne, int colonne, PlayerBoard.ShotResult resultat, Ship.ShipType navireCoule) {
+        }
+
+        @Override
+        public int choisirCase(Random aleatoire) {
+            if (nombreRestantes == 0) return -1;
+            int i = aleatoire.nextInt(nombreRestantes);
+            int index = restantes[i];
+            restantes[i] = restantes[--nombreRestantes];
+            return index;
+        }
+
+        @Override
+        public boolean estFlotteCoulee() {
+            return false; // Sans importance : la partie décide de la fin
+        }
+    }
+
+    /** Résultats d'un thread, fusionnés à la fin. */
+    private static final class Resultats {
+        final long[] jouees;
+        final long[] gagnees;
+        final long[][] tirsVainqueur; // [stratégie][tirs] : nombre de victoires en autant de tirs
+
+        Resultats(int nombreStrategies, int nombreCases) {
+            jouees = new long[nombreStrategies];
+            gagnees = new long[nombreStrategies];
+            tirsVainqueur = new long[nombreStrategies][nombreCases + 1];
+        }
+
+        void ajouter(Resultats autre) {
+            for (int s = 0; s < jouees.length; s++) {
+                jouees[s] += autre.jouees[s];
+                gagnees[s] += autre.gagnees[s];
+                for (int t = 0; t < tirsVainqueur[s].length; t++) tirsVainqueur[s][t] += autre.tirsVainqueur[s][t];
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long nombreParties = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        List<Strategie> strategies = new ArrayList<>();
+        for (String nom : (args.length > 1 ? args[1] : "DENSITE,ALEATOIRE").split(",")) {
+            strategies.add(Strategie.valueOf(nom.trim().toUpperCase()));
+        }
+        int nombreThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long graine = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        GameConfig config = args.length > 4 ? new GameConfig(Integer.parseInt(args[4]), GameConfig.FLOTTE_STANDARD) : GameConfig.STANDARD;
+
+        // Rencontres : toutes les paires de stratégies distinctes, ou le miroir s'il n'y en a qu'une
+        List<int[]> rencontres = new ArrayList<>();
+        for (int a = 0; a < strategies.size(); a++) {
+            for (int b = a + 1; b < strategies.size(); b++) rencontres.add(new int[] {a, b});
+        }
+        if (rencontres.isEmpty()) rencontres.add(new int[] {0, 0});
+
+        System.out.printf("%d parties %s, %s, %d threads, graine %d (JDK %s)%n", nombreParties, strategies, config,
+                nombreThreads, graine, System.getProperty("java.version"));
+
+        int nombreCases = config.getTailleGrille() * config.getTailleGrille();
+        AtomicLong prochaine = new AtomicLong();
+        LongAdder terminees = new LongAdder();
+        LongAdder[] victoires = new LongAdder[strategies.size()];
+        LongAdder[] participations = new LongAdder[strategies.size()];
+        for (int s = 0; s < strategies.size(); s++) {
+            victoires[s] = new LongAdder();
+            participations[s] = new LongAdder();
+        }
+        List<Resultats> parThread = new ArrayList<>();
+        ExecutorService executeur = Executors.newFixedThreadPool(nombreThreads);
+        long debut = System.nanoTime();
+        for (int t = 0; t < nombreThreads; t++) {
+            Resultats resultats = new Resultats(strategies.size(), nombreCases);
+            parThread.add(resultats);
+            executeur.execute(() -> {
+                Random aleatoire = new Random();
+                int[] tirs = new int[2];
+                for (long lot; (lot = prochaine.getAndAdd(PARTIES_PAR_LOT)) < nombreParties; ) {
+                    long fin = Math.min(nombreParties, lot + PARTIES_PAR_LOT);
+                    for (long partie = lot; partie < fin; partie++) {
+                        int[] rencontre = rencontres.get((int) (partie % rencontres.size()));
+                        boolean inverse = (partie / rencontres.size()) % 2 == 1; // Chacun commence à son tour
+                        int[] sieges = inverse ? new int[] {rencontre[1], rencontre[0]} : rencontre;
+                        aleatoire.setSeed(graine * 0x9E3779B97F4A7C15L + partie);
+                        int gagnant = jouer(config, strategies.get(sieges[0]), strategies.get(sieges[1]), aleatoire, tirs);
+                        for (int siege = 0; siege < 2; siege++) {
+                            resultats.jouees[sieges[siege]]++;
+                            participations[sieges[siege]].increment();
+                        }
+                        if (gagnant >= 0) {
+                            resultats.gagnees[sieges[gagnant]]++;
+                            resultats.tirsVainqueur[sieges[gagnant]][tirs[gagnant]]++;
+                            victoires[sieges[gagnant]].increment();
+                        }
+                        terminees.increment();
+                    }
+                }
+            });
+        }
+        executeur.shutdown();
+
+        long prochainRapport = debut + INTERVALLE_RAPPORT_NS;
+        while (!executeur.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+            long maintenant = System.nanoTime();
+            if (maintenant < prochainRapport) continue;
+            prochainRapport += INTERVALLE_RAPPORT_NS;
+            StringBuilder ligne = new StringBuilder(String.format("[%5.1fs] %d parties, %.0f parties/s",
+                    (maintenant - debut) / 1e9, terminees.sum(), terminees.sum() / ((maintenant - debut) / 1e9)));
+            for (int s = 0; s < strategies.size(); s++) {
+                long n = participations[s].sum();
+                ligne.append(String.format(", %s %.1f%%", strategies.get(s), n == 0 ? 0.0 : 100.0 * victoires[s].sum() / n));
+            }
+            System.out.println(ligne);
+        }
+        double secondes = (System.nanoTime() - debut) / 1e9;
+
+        Resultats total = new Resultats(strategies.size(), nombreCases);
+        for (Resultats resultats : parThread) total.ajouter(resultats);
+        System.out.printf("%d parties en %.1f s (%.0f parties/s)%n", nombreParties, secondes, nombreParties / secondes);
+        System.out.printf("%-12s %10s %10s %8s %8s %6s %6s %6s %6s %6s%n",
+                "Strategie", "parties", "victoires", "tirs", "+/-", "min", "p10", "p50", "p90", "max");
+        for (int s = 0; s < strategies.size(); s++) {
+            long[] histogramme = total.tirsVainqueur[s];
+            long n = 0;
+            double somme = 0;
+            double carres = 0;
+            for (int t = 0; t < histogramme.length; t++) {
+                n += histogramme[t];
+                somme += (double) t * histogramme[t];
+                carres += (double) t * t * histogramme[t];
+            }
+            double moyenne = n == 0 ? 0 : somme / n;
+            double ecart = n < 2 ? 0 : Math.sqrt(Math.max(0, (carres - n * moyenne * moyenne) / (n - 1)));
+            System.out.printf("%-12s %10d %9.1f%% %8.2f %8.2f %6d %6d %6d %6d %6d%n", strategies.get(s), total.jouees[s],
+                    total.jouees[s] == 0 ? 0.0 : 100.0 * total.gagnees[s] / total.jouees[s], moyenne, ecart,
+                    percentile(histogramme, n, 0), percentile(histogramme, n, 0.10), percentile(histogramme, n, 0.50),
+                    percentile(histogramme, n, 0.90), percentile(histogramme, n, 1.0));
+        }
+    }
+
+    /**
+     * Une partie à deux : flottes tirées au hasard, puis chaque joueur tire à son tour avec sa stratégie.
+     * @param tirs reçoit le nombre de tirs de chaque siège.
+     * @return siège du vainqueur, -1 si aucune stratégie n'a plus de case à proposer.
+     */
+    static int jouer(GameConfig config, Strategie premier, Strategie second, Random aleatoire, int[] tirs) {
+        BatailleNavaleGame partie = new BatailleNavaleGame(new String[] {premier.name(), second.name()}, config);
+        partie.setSilencieux(true);
+        partie.placerNaviresAleatoirementPourJoueur(0, aleatoire);
+        partie.placerNaviresAleatoirementPourJoueur(1, aleatoire);
+        TargetingStrategy[] visees = { premier.creer(config, aleatoire.nextLong()), second.creer(config, aleatoire.nextLong()) };
+        int taille = config.getTailleGrille();
+        tirs[0] = 0;
+        tirs[1] = 0;
+        while (partie.getPhaseActuelle() == BatailleNavaleGame.GamePhase.COMBAT) {
+            int tireur = partie.getJoueurCourantIndex();
+            int index = visees[tireur].choisirCase(aleatoire);
+            if (index < 0) return -1;
+            int ligne = index / taille;
+            int colonne = index % taille;
+            ShotOutcome issue = partie.tirerSurAdversaire(1 - tireur, ligne, colonne);
+            visees[tireur].enregistrer(ligne, colonne, issue.getResultat(), issue.getNavireCoule());
+            tirs[tireur]++;
+        }
+        return partie.getGagnantIndex();
+    }
+
+    private static int percentile(long[] histogramme, long n, double p) {
+        if (n == 0) return 0;
+        long rang = Math.max(1, (long) Math.ceil(p * n));
+        long cumul = 0;
+        for (int t = 0; t < histogramme.length; t++) {
+            cumul += histogramme[t];
+            if (cumul >= rang) return t;
+        }
+        return histogramme.length - 1;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.bataillenavale.server;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import com.example.bataillenavale.model.Ship;
+
+/**
+ * Compare l'analyse des commandes de jeu : ancien découpage (split, toUpperCase, parseInt)
+ * contre CommandParser sur une String et sur la vue d'octets du frontal NIO.
+ * Dans le paquet server car l'analyseur est interne au serveur.
+ *
+ * Usage : CommandParserBenchmark [iterations=5000000]
+ * Mesures : débit (ns par commande) et octets alloués par commande (ThreadMXBean de HotSpot).
+ */
+public class CommandParserBenchmark {
+    private static final String[] COMMANDES = {
+        "FIRE_SHOT:1:4:7",
+        "PLACE_SHIP:CROISEUR:2:3:true",
+        "fire_shot:0:9:0",
+        "ADMIN_START_GAME",
+    };
+
+    private static long puits; // Empêche le JIT d'éliminer le travail mesuré
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        byte[][] octets = new byte[COMMANDES.length][];
+        for (int i = 0; i < COMMANDES.length; i++) {
+            octets[i] = COMMANDES[i].getBytes(StandardCharsets.UTF_8);
+        }
+        ClientCommand commande = new ClientCommand();
+        CommandParser.LigneOctets vue = new CommandParser.LigneOctets();
+
+        for (int tour = 0; tour < 2; tour++) { // Le premier tour sert de préchauffage
+            boolean afficher = tour == 1;
+            mesurer("split + parseInt (ancien)", iterations, afficher, () -> {
+                for (String ligne : COMMANDES) puits += ancienneAnalyse(ligne);
+            });
+            mesurer("CommandParser sur String", iterations, afficher, () -> {
+                for (String ligne : COMMANDES) {
+                    CommandParser.analyser(ligne, commande);
+                    puits += commande.opcode + commande.ligne + commande.colonne;
+                }
+            });
+            mesurer("CommandParser sur octets (NIO)", iterations, afficher, () -> {
+                for (byte[] ligne : octets) {
+                    CommandParser.analyser(vue.cibler(ligne, 0, ligne.length), commande);
+                    puits += commande.opcode + commande.ligne + commande.colonne;
+                }
+            });
+        }
+        System.out.println("(puits " + puits + ")");
+    }
+
+    private static void mesurer(String nom, int iterations, boolean afficher, Runnable lot) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long idThread = Thread.currentThread().getId();
+        int lots = iterations / COMMANDES.length;
+        long allocAvant = threads.getThreadAllocatedBytes(idThread);
+        long debut = System.nanoTime();
+        for (int i = 0; i < lots; i++) {
+            lot.run();
+        }
+        long duree = System.nanoTime() - debut;
+        long alloue = threads.getThreadAllocatedBytes(idThread) - allocAvant;
+        if (afficher) {
+            long commandes = (long) lots * COMMANDES.length;
+            System.out.printf("%-32s %8.1f ns/commande %8.1f octets/commande%n", nom, (double) duree / commandes, (double) alloue / commandes);
+        }
+    }
+
+    /** Reproduction de l'analyse d'origine de processClientMessage. */
+    private static int ancienneAnalyse(String messageLine) {
+        String[] parts = messageLine.split(":", 2);
+        String command = parts[0].toUpperCase();
+        String payload = (parts.length > 1) ? parts[1] : "";
+        switch (command) {
+            case "PLACE_SHIP": {
+                String[] args = payload.split(":");
+                Ship.ShipType type = Ship.ShipType.valueOf(args[0].toUpperCase());
+                return type.ordinal() + Integer.parseInt(args[1]) + Integer.parseInt(args[2]) + (Boolean.parseBoolean(args[3]) ? 1 : 0);
+            }
+            case "FIRE_SHOT": {
+                String[] args = payload.split(":");
+                return Integer.parseInt(args[0]) + Integer.parseInt(args[1]) + Integer.parseInt(args[2]);
+            }
+            default:
+                return command.length();
+        }
+    }
+}
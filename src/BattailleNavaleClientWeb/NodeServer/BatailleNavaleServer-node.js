@@ -88,6 +88,9 @@ class Ship {
     }
 }
 
+// Flotte fixe au format protocole (GAME_START, SPECTATE_INFO), comme la flotte standard du serveur Java
+const FLOTTE_TEXTE = Object.keys(Ship.ShipType).join(',');
+
 /**
  * PlayerBoard.java -> class PlayerBoard
  */
@@ -449,7 +452,7 @@ function playerHasSetName(client) {
         if (gameInProgressFlag && game && game.phaseActuelle !== GamePhase.TERMINE) {
             client.sendMessage("SPECTATE_MODE");
             const allPlayerNamesStr = playersInGame.map(p => p.nomJoueur).join(',');
-            client.sendMessage(`SPECTATE_INFO:${PlayerBoard.TAILLE_GRILLE}:${playersInGame.length}:${allPlayerNamesStr}`);
+            client.sendMessage(`SPECTATE_INFO:${PlayerBoard.TAILLE_GRILLE}:${playersInGame.length}:${FLOTTE_TEXTE}:${allPlayerNamesStr}`);
             broadcast(`NEW_CHAT_MSG:Serveur:[${client.nomJoueur} a rejoint le chat en tant que spectateur]`);
             return;
         } else {
@@ -533,7 +536,7 @@ function prepareAndStartGameWithReadyPlayers() {
     const allPlayerNamesStr = nomsJoueurs.join(',');
 
     playersInGame.forEach(client => {
-        client.sendMessage(`GAME_START:${PlayerBoard.TAILLE_GRILLE}:${client.playerIndex}:${playersInGame.length}:${allPlayerNamesStr}`);
+        client.sendMessage(`GAME_START:${PlayerBoard.TAILLE_GRILLE}:${client.playerIndex}:${playersInGame.length}:${FLOTTE_TEXTE}:${allPlayerNamesStr}`);
     });
     
     allClientConnections.forEach(client => {
@@ -541,7 +544,7 @@ function prepareAndStartGameWithReadyPlayers() {
             client.role = ClientRole.SPECTATOR;
             if (client.isNameSet) {
                 client.sendMessage("SPECTATE_MODE");
-                client.sendMessage(`SPECTATE_INFO:${PlayerBoard.TAILLE_GRILLE}:${playersInGame.length}:${allPlayerNamesStr}`);
+                client.sendMessage(`SPECTATE_INFO:${PlayerBoard.TAILLE_GRILLE}:${playersInGame.length}:${FLOTTE_TEXTE}:${allPlayerNamesStr}`);
             } else {
                 client.sendMessage("REQ_NAME");
             }
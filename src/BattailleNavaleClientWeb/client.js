@@ -36,7 +36,7 @@ document.addEventListener('DOMContentLoaded', () => {
             TORPILLEUR: { nom: "Torpilleur", taille: 2, spriteChar: 'R' }
         },
         ShotResult: { MANQUE: "MANQUE", TOUCHE: "TOUCHE", COULE: "COULE", DEJA_JOUE: "DEJA_JOUE", ERREUR: "ERREUR" },
-        TAILLE_GRILLE: 10,
+        TAILLE_GRILLE: 10, // Taille par défaut, la partie annonce la sienne (GAME_START)
         OPP_UNKNOWN: ' ', OPP_MISS: 'O', OPP_HIT: 'X', OPP_SUNK: '!',
         MY_EMPTY: ' ', MY_HIT_ON_ME: 'X', MY_MISS_ON_ME: 'M' // M for miss on my board by opponent
     };
@@ -52,9 +52,13 @@ document.addEventListener('DOMContentLoaded', () => {
     let inGame = false;
     let amISpectator = false;
     let totalPlayersInGame = 0;
+    let tailleGrille = ModelConstants.TAILLE_GRILLE; // Taille de la partie en cours
     let allPlayerNames = {}; // { index: "name", ... }
     let minPlayersToStartLobby = 2;
     let nameSuccessfullySetThisSession = false;
+    // "salle:jeton" from SEAT_TOKEN, sent back with RECONNECT to take our seat again after a server restart.
+    // Kept in sessionStorage so that reloading the page does not lose it.
+    const REPRISE_KEY = "bataillenavale.reprise";
 
     // Stores references to grid cell elements for quick updates
     // playerGrids[playerBoardIndex][row][col] = cellElement
@@ -183,18 +187,18 @@ document.addEventListener('DOMContentLoaded', () => {
             }
             for (let i = 0; i < totalPlayersInGame; i++) {
                 const playerNameForGrid = allPlayerNames[i] || `Joueur ${i + 1}`;
-                createGridPanelDOM(gridsContainer, ModelConstants.TAILLE_GRILLE, false, i, playerNameForGrid);
+                createGridPanelDOM(gridsContainer, tailleGrille, false, i, playerNameForGrid);
                 setGridEnabled(i, false); // Spectator grids are never enabled for interaction
             }
         } else { // Regular player
             // My grid
-            createGridPanelDOM(gridsContainer, ModelConstants.TAILLE_GRILLE, true, playerIndex, `${playerName} (Votre Grille)`);
+            createGridPanelDOM(gridsContainer, tailleGrille, true, playerIndex, `${playerName} (Votre Grille)`);
             
             // Opponent grids
             for (let i = 0; i < totalPlayersInGame; i++) {
                 if (i === playerIndex) continue;
                 const opponentName = allPlayerNames[i] || `Adversaire ${i + 1}`;
-                createGridPanelDOM(gridsContainer, ModelConstants.TAILLE_GRILLE, false, i, `Tirer sur: ${opponentName}`);
+                createGridPanelDOM(gridsContainer, tailleGrille, false, i, `Tirer sur: ${opponentName}`);
             }
         }
     }
@@ -272,8 +276,14 @@ document.addEventListener('DOMContentLoaded', () => {
 
 
         socket.onopen = () => {
-            updateStatus("Connecté. Envoi du nom au serveur...");
-            sendMessage(`SET_NAME:${playerName}`);
+            const reprise = sessionStorage.getItem(REPRISE_KEY);
+            if (reprise) { // Interrupted game: take our seat back instead of joining the lobby
+                updateStatus("Connecté. Reprise de la partie en cours...");
+                sendMessage(`RECONNECT:${reprise}`);
+            } else {
+                updateStatus("Connecté. Envoi du nom au serveur...");
+                sendMessage(`SET_NAME:${playerName}`);
+            }
         };
 
         socket.onmessage = (event) => {
@@ -423,15 +433,16 @@ function handleServerMessageRaw(rawMessage) {
 
             case "SPECTATE_INFO":
                 if (!amISpectator) break;
-                const si = payload.split(":", 3); // TAILLE_GRILLE:totalPlayers:names
-                if (si.length >= 3) {
-                    // TAILLE_GRILLE from si[0] can be used if dynamic
+                const si = payload.split(":"); // TAILLE_GRILLE:totalPlayers:fleet:names
+                if (si.length >= 4) {
+                    tailleGrille = parseInt(si[0]);
                     totalPlayersInGame = parseInt(si[1]);
-                    const specPlayerNames = si[2].split(',');
+                    si[3] = si.slice(3).join(":"); // Names may contain ':'
+                    const specPlayerNames = si[3].split(',');
                     allPlayerNames = {};
                     specPlayerNames.forEach((name, idx) => allPlayerNames[idx] = name.trim());
                     
-                    const sm = `Spectateur: ${totalPlayersInGame} joueurs: ${si[2]}`;
+                    const sm = `Spectateur: ${totalPlayersInGame} joueurs: ${si[3]}`;
                     updateStatus(sm); addGameLog(sm);
                     switchToGameOrSpectatorView();
                 } else {
@@ -439,12 +450,14 @@ function handleServerMessageRaw(rawMessage) {
                 }
                 break;
 
-            case "GAME_START": // TAILLE_GRILLE:playerIndex:totalPlayers:names
-                const gi = payload.split(":", 4);
-                if (gi.length >= 4) {
+            case "GAME_START": // TAILLE_GRILLE:playerIndex:totalPlayers:fleet:names
+                const gi = payload.split(":");
+                if (gi.length >= 5) {
+                    tailleGrille = parseInt(gi[0]);
                     playerIndex = parseInt(gi[1]);
                     totalPlayersInGame = parseInt(gi[2]);
-                    const gamePlayerNames = gi[3].split(',');
+                    addGameLog(`Grille ${tailleGrille}x${tailleGrille}, flotte: ${gi[3]}`);
+                    const gamePlayerNames = gi.slice(4).join(":").split(','); // Names may contain ':'
                     allPlayerNames = {};
                     gamePlayerNames.forEach((name, idx) => allPlayerNames[idx] = name.trim());
                     
@@ -462,6 +475,10 @@ function handleServerMessageRaw(rawMessage) {
                 }
                 break;
             
+            case "SEAT_TOKEN": // salle:jeton
+                sessionStorage.setItem(REPRISE_KEY, payload);
+                break;
+
             case "YOUR_TURN_PLACE_SHIP": // shipEnumName:shipSize:shipDisplayName
                 if (amISpectator) break;
                 const shi = payload.split(":");
@@ -606,6 +623,27 @@ function handleServerMessageRaw(rawMessage) {
                 }
                 break;
 
+            case "BOARD_STATE": { // targetIdx:misses:hits:sunk, one board's state when a game is resumed
+                const bs = payload.split(":");
+                if (bs.length >= 4) {
+                    const boardIdx = parseInt(bs[0]);
+                    const onMyBoard = boardIdx === playerIndex && !amISpectator;
+                    markCells(boardIdx, bs[1], ModelConstants.ShotResult.MANQUE, onMyBoard);
+                    markCells(boardIdx, bs[2], ModelConstants.ShotResult.TOUCHE, onMyBoard);
+                    const sunkNames = [];
+                    for (const sunk of bs[3] ? bs[3].split(",") : []) { // shipName/cell.cell...
+                        const [name, cells] = sunk.split("/");
+                        sunkNames.push(name);
+                        markCells(boardIdx, (cells || "").replace(/\./g, ","), ModelConstants.ShotResult.COULE, onMyBoard);
+                    }
+                    const boardName = allPlayerNames[boardIdx] || `J${boardIdx + 1}`;
+                    addGameLog(`Reprise: plateau de ${boardName}` + (sunkNames.length ? `, coulés: ${sunkNames.join(", ")}` : ""));
+                } else {
+                    addGameLog(`Erreur: BOARD_STATE malformé: ${payload}`);
+                }
+                break;
+            }
+
             case "GAME_OVER": // winnerName:winnerIndex OR DRAW
                 let winMsg;
                 if (payload.toUpperCase() === "DRAW" || payload.toUpperCase() === "GAME_OVER_DRAW") {
@@ -617,6 +655,7 @@ function handleServerMessageRaw(rawMessage) {
                 alert(winMsg); // Simple alert for now
                 updateStatus(`${winMsg}. Retour au lobby demandé...`); addGameLog(`${winMsg}. Retour au lobby demandé par le serveur.`);
                 myTurn = false; inGame = false; placementPhase = false;
+                sessionStorage.removeItem(REPRISE_KEY);
                 // Server should follow up with REQ_NAME or LOBBY_STATE to transition client
                 break;
             
@@ -626,6 +665,7 @@ function handleServerMessageRaw(rawMessage) {
                 alert(dMsg);
                 updateStatus(`${dMsg}. Retour au lobby demandé...`); addGameLog(`${dMsg}. Retour au lobby demandé par le serveur.`);
                 myTurn = false; inGame = false; placementPhase = false;
+                sessionStorage.removeItem(REPRISE_KEY);
                 break;
 
             case "PLAYER_LEFT": // playerName:playerIndex (playerIndex only if it was a game player)
@@ -644,8 +684,8 @@ function handleServerMessageRaw(rawMessage) {
                     const gridPanel = document.getElementById(`grid-panel-${lPlayerIdx}`);
                     if (gridPanel) gridPanel.classList.add('disabled-player-grid'); // Add a class for styling
                     
-                    for (let r_idx = 0; r_idx < ModelConstants.TAILLE_GRILLE; r_idx++) {
-                        for (let c_idx = 0; c_idx < ModelConstants.TAILLE_GRILLE; c_idx++) {
+                    for (let r_idx = 0; r_idx < tailleGrille; r_idx++) {
+                        for (let c_idx = 0; c_idx < tailleGrille; c_idx++) {
                             const cell = playerGridCells[lPlayerIdx]?.[r_idx]?.[c_idx];
                             if (cell) {
                                 cell.textContent = "OUT";
@@ -661,6 +701,7 @@ function handleServerMessageRaw(rawMessage) {
                 if (lPlayerIdx === playerIndex && command === "PLAYER_LEFT") { // I was the one who left/got disconnected
                     updateStatus("Vous avez été déconnecté de la partie. Retour au lobby...");
                     inGame = false; myTurn = false; placementPhase = false;
+                    sessionStorage.removeItem(REPRISE_KEY);
                     // Server should send REQ_NAME or LOBBY_STATE
                 }
                 break;
@@ -678,6 +719,10 @@ function handleServerMessageRaw(rawMessage) {
                  lobbyArea.value += `\nCompte à rebours de ${payload}s démarré !`;
                  addGameLog(`Lobby: Compte à rebours de ${payload}s démarré !`);
                  break;
+            case "ROOM_CONFIG": // TAILLE_GRILLE:fleet, chosen by the host with ADMIN_CONFIG
+                const rc = payload.split(":");
+                if (rc.length >= 2) addGameLog(`Lobby: prochaine partie sur ${rc[0]}x${rc[0]}, flotte: ${rc[1]}`);
+                break;
             case "LOBBY_COUNTDOWN_CANCELLED":
                  lobbyArea.value += `\nCompte à rebours annulé.`;
                  addGameLog(`Lobby: Compte à rebours annulé.`);
@@ -690,7 +735,10 @@ function handleServerMessageRaw(rawMessage) {
             case "ERROR":
                 updateStatus(`Erreur serveur: ${payload}`);
                 addGameLog(`Erreur serveur: ${payload}`);
-                if (payload.includes("nom est déjà utilisé") || payload.includes("nom ne peut pas être vide") || payload.includes("15 caractères max")) {
+                if (payload.startsWith("Aucun siège à reprendre")) { // Game over or seat given up: join the lobby under our name
+                    sessionStorage.removeItem(REPRISE_KEY);
+                    sendMessage(`SET_NAME:${playerName}`);
+                } else if (payload.includes("nom est déjà utilisé") || payload.includes("nom ne peut pas être vide") || payload.includes("15 caractères max")) {
                     playerNameField.disabled = false;
                     playerNameField.focus();
                     connectButton.disabled = false;
@@ -799,7 +847,7 @@ function handleServerMessageRaw(rawMessage) {
             const r = isHorizontal ? startR : startR + i;
             const c = isHorizontal ? startC + i : startC;
 
-            if (r < 0 || r >= ModelConstants.TAILLE_GRILLE || c < 0 || c >= ModelConstants.TAILLE_GRILLE) {
+            if (r < 0 || r >= tailleGrille || c < 0 || c >= tailleGrille) {
                 isValidPlacement = false;
                 break; // Ship out of bounds
             }
@@ -828,8 +876,8 @@ function handleServerMessageRaw(rawMessage) {
     
     function clearPlacementPreview(boardOwnerIdx) {
         if (!playerGridCells[boardOwnerIdx]) return;
-        for (let r = 0; r < ModelConstants.TAILLE_GRILLE; r++) {
-            for (let c = 0; c < ModelConstants.TAILLE_GRILLE; c++) {
+        for (let r = 0; r < tailleGrille; r++) {
+            for (let c = 0; c < tailleGrille; c++) {
                 const cell = playerGridCells[boardOwnerIdx][r]?.[c];
                 if (cell) {
                     cell.classList.remove('preview-valid', 'preview-invalid');
@@ -845,8 +893,8 @@ function handleServerMessageRaw(rawMessage) {
             const currentR = isHorizontal ? r : r + i;
             const currentC = isHorizontal ? c + i : c;
 
-            if (currentR >= 0 && currentR < ModelConstants.TAILLE_GRILLE &&
-                currentC >= 0 && currentC < ModelConstants.TAILLE_GRILLE) {
+            if (currentR >= 0 && currentR < tailleGrille &&
+                currentC >= 0 && currentC < tailleGrille) {
                 const cell = playerGridCells[boardOwnerIndex][currentR][currentC];
                 if (cell) {
                     cell.classList.add('ship');
@@ -858,8 +906,17 @@ function handleServerMessageRaw(rawMessage) {
         clearPlacementPreview(boardOwnerIndex); // Clear any lingering preview
     }
 
+    // Cells of a BOARD_STATE list: "index,index..." with index = row * size + column
+    function markCells(boardOwnerIndex, cells, shotResult, onMyBoard) {
+        if (!cells) return;
+        for (const cell of cells.split(",")) {
+            const index = parseInt(cell);
+            markShotOnGrid(boardOwnerIndex, Math.floor(index / tailleGrille), index % tailleGrille, shotResult, onMyBoard);
+        }
+    }
+
     function markShotOnGrid(boardOwnerIndex, r, c, shotResult, onMyBoard) {
-        if (r < 0 || r >= ModelConstants.TAILLE_GRILLE || c < 0 || c >= ModelConstants.TAILLE_GRILLE || !playerGridCells[boardOwnerIndex]) return;
+        if (r < 0 || r >= tailleGrille || c < 0 || c >= tailleGrille || !playerGridCells[boardOwnerIndex]) return;
         const cell = playerGridCells[boardOwnerIndex][r]?.[c];
         if (!cell) return;
 
@@ -899,8 +956,8 @@ function handleServerMessageRaw(rawMessage) {
 
         const isMyOwnBoard = (boardOwnerIndex === playerIndex && !amISpectator);
 
-        for (let r = 0; r < ModelConstants.TAILLE_GRILLE; r++) {
-            for (let c = 0; c < ModelConstants.TAILLE_GRILLE; c++) {
+        for (let r = 0; r < tailleGrille; r++) {
+            for (let c = 0; c < tailleGrille; c++) {
                 const cell = playerGridCells[boardOwnerIndex][r]?.[c];
                 if (!cell) continue;
 
@@ -1,7 +1,6 @@
 package com.example.bataillenavale.client;
 
 import javax.swing.*;
-import javax.swing.border.Border;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -26,7 +25,7 @@ public class BatailleNavaleClient extends JFrame {
             public String getNom() { return nom; } public int getTaille() { return taille; } public char getSpriteChar() { return spriteChar; }
         }
         public enum ShotResult { MANQUE, TOUCHE, COULE, DEJA_JOUE, ERREUR }
-        public static final int TAILLE_GRILLE = 10;
+        public static final int TAILLE_GRILLE = 10; // Taille par défaut, la partie annonce la sienne (GAME_START)
         public static final char OPP_UNKNOWN = ' '; public static final char OPP_MISS = 'M';
         public static final char OPP_HIT = 'X'; public static final char OPP_SUNK = '!';
         public static final char MY_EMPTY = ' '; public static final char MY_HIT_ON_ME = 'X';
@@ -72,9 +71,11 @@ public class BatailleNavaleClient extends JFrame {
     private boolean inGame = false;
     private boolean amISpectator = false;
     private int totalPlayersInGame = 0;
+    private int tailleGrille = ModelConstants.TAILLE_GRILLE; // Taille de la partie en cours
     private Map<Integer, String> allPlayerNames = new HashMap<>();
     private int minPlayersToStartLobby = 2;
     private boolean nameSuccessfullySetThisSession = false;
+    private String repriseSiege; // "salle:jeton" reçu dans SEAT_TOKEN, présenté par RECONNECT si le serveur redémarre
 
 
     public BatailleNavaleClient() {
@@ -188,7 +189,10 @@ public class BatailleNavaleClient extends JFrame {
         nameField.setEditable(false);
 
         boolean success = serverCommunicator.connect(serverAddress, serverPort, this.playerName);
-        if (success) {
+        if (success && repriseSiege != null) { // Partie interrompue : reprendre son siège plutôt qu'entrer au lobby
+            statusLabel.setText("Connecté. Reprise de la partie en cours...");
+            serverCommunicator.sendMessage("RECONNECT:" + repriseSiege);
+        } else if (success) {
             statusLabel.setText("Connecté. Envoi du nom au serveur...");
             serverCommunicator.sendMessage("SET_NAME:" + this.playerName);
         } else {
@@ -317,11 +321,11 @@ public class BatailleNavaleClient extends JFrame {
             for (int i = 0; i < totalPlayersInGame; i++) {
                 JPanel spgv = new JPanel(new BorderLayout(0,3)); String n = allPlayerNames.getOrDefault(i, "Joueur " + (i+1));
                 spgv.setBorder(BorderFactory.createTitledBorder(n));
-                GridPanel pg = new GridPanel(ModelConstants.TAILLE_GRILLE, false, i); pg.setEnabled(false);
+                GridPanel pg = new GridPanel(tailleGrille, false, i); pg.setEnabled(false);
                 playerGridPanels.put(i, pg); spgv.add(new JScrollPane(pg), BorderLayout.CENTER); gameGridsDisplayPanel.add(spgv);
             }
         } else { 
-            myGridPanel = new GridPanel(ModelConstants.TAILLE_GRILLE, true, playerIndex);
+            myGridPanel = new GridPanel(tailleGrille, true, playerIndex);
             playerGridPanels.put(playerIndex, myGridPanel);
             JPanel myGC = new JPanel(new BorderLayout()); myGC.setBorder(BorderFactory.createTitledBorder(this.playerName + " (Votre Grille)"));
             myGC.add(new JScrollPane(myGridPanel), BorderLayout.CENTER);
@@ -334,7 +338,7 @@ public class BatailleNavaleClient extends JFrame {
                     if (i == playerIndex) continue;
                     JPanel sop = new JPanel(new BorderLayout(0,3)); String n = allPlayerNames.getOrDefault(i, "Adversaire " + (i+1));
                     sop.setBorder(BorderFactory.createTitledBorder("Tirer sur: " + n));
-                    GridPanel og = new GridPanel(ModelConstants.TAILLE_GRILLE, false, i);
+                    GridPanel og = new GridPanel(tailleGrille, false, i);
                     playerGridPanels.put(i, og); sop.add(new JScrollPane(og), BorderLayout.CENTER); oppC.add(sop);
                 }
             }
@@ -345,6 +349,15 @@ public class BatailleNavaleClient extends JFrame {
         }
     }
 
+    // Cases "index,index..." (ligne * taille + colonne) d'un BOARD_STATE
+    private void markCells(GridPanel grid, String cases, ModelConstants.ShotResult result, boolean onMyBoard) {
+        if (cases.isEmpty()) return;
+        for (String c : cases.split(",")) {
+            int index = Integer.parseInt(c);
+            grid.markShot(index / tailleGrille, index % tailleGrille, result, onMyBoard);
+        }
+    }
+
     private void switchToPlacementView() {
         placementPhase = true; inGame = true; amISpectator = false;
         setupPlayerGridsForGameView(); 
@@ -471,21 +484,24 @@ public class BatailleNavaleClient extends JFrame {
                 break;
             case "SPECTATE_INFO":
                 if (!amISpectator) break; 
-                String[] si = payload.split(":", 3);
-                if(si.length >= 3) { 
+                String[] si = payload.split(":", 4); // taille:nombreJoueurs:flotte:noms
+                if(si.length >= 4) { 
+                    tailleGrille = Integer.parseInt(si[0]);
                     totalPlayersInGame = Integer.parseInt(si[1]); 
-                    String[] sn = si[2].split(","); allPlayerNames.clear();
+                    String[] sn = si[3].split(","); allPlayerNames.clear();
                     for(int i=0; i < sn.length; i++) allPlayerNames.put(i, sn[i].trim());
-                    String sm = "Spectateur: " + totalPlayersInGame + " joueurs: " + si[2]; statusLabel.setText(sm); gameLogUI.addLogEntry(sm);
+                    String sm = "Spectateur: " + totalPlayersInGame + " joueurs: " + si[3]; statusLabel.setText(sm); gameLogUI.addLogEntry(sm);
                     switchToGameOrSpectatorView(); 
                 } else { statusLabel.setText("Erreur: SPECTATE_INFO malformé."); gameLogUI.addLogEntry("Erreur: SPECTATE_INFO malformé: " + payload); }
                 break;
             case "GAME_START":
-                String[] gi = payload.split(":", 4);
-                if (gi.length >= 4) { 
+                String[] gi = payload.split(":", 5); // taille:index:nombreJoueurs:flotte:noms
+                if (gi.length >= 5) { 
+                    tailleGrille = Integer.parseInt(gi[0]);
                     playerIndex = Integer.parseInt(gi[1]); 
                     totalPlayersInGame = Integer.parseInt(gi[2]); 
-                    String[] n = gi[3].split(","); allPlayerNames.clear();
+                    gameLogUI.addLogEntry("Grille " + tailleGrille + "x" + tailleGrille + ", flotte: " + gi[3]);
+                    String[] n = gi[4].split(","); allPlayerNames.clear();
                     for(int i=0; i < n.length; i++) allPlayerNames.put(i, n[i].trim()); 
                     if (allPlayerNames.containsKey(playerIndex)) this.playerName = allPlayerNames.get(playerIndex); 
                     nameSuccessfullySetThisSession = true; amISpectator = false; inGame = true;
@@ -493,6 +509,9 @@ public class BatailleNavaleClient extends JFrame {
                     switchToPlacementView();
                 } else { statusLabel.setText("Erreur: GAME_START malformé."); gameLogUI.addLogEntry("Erreur: GAME_START malformé: " + payload); }
                 break;
+            case "SEAT_TOKEN": // salle:jeton
+                repriseSiege = payload;
+                break;
             case "YOUR_TURN_PLACE_SHIP":
                 if (amISpectator) break;
                 String[] shi = payload.split(":");
@@ -595,6 +614,25 @@ public class BatailleNavaleClient extends JFrame {
                     statusLabel.setText(srm); gameLogUI.addLogEntry(srm); 
                 } else { statusLabel.setText("Erreur: SHOT_RESULT malformé."); gameLogUI.addLogEntry("Erreur: SHOT_RESULT malformé: " + payload); }
                 break;
+            case "BOARD_STATE": // cible:manques:touches:coules, état d'un plateau à la reprise d'une partie
+                String[] bs = payload.split(":", -1);
+                if (bs.length >= 4) {
+                    int boardIdx = Integer.parseInt(bs[0]);
+                    GridPanel boardGrid = playerGridPanels.get(boardIdx);
+                    if (boardGrid != null) {
+                        markCells(boardGrid, bs[1], ModelConstants.ShotResult.MANQUE, boardIdx == playerIndex);
+                        markCells(boardGrid, bs[2], ModelConstants.ShotResult.TOUCHE, boardIdx == playerIndex);
+                    }
+                    List<String> sunkNames = new ArrayList<>();
+                    for (String sunk : bs[3].isEmpty() ? new String[0] : bs[3].split(",")) {
+                        String[] ns = sunk.split("/", 2);
+                        sunkNames.add(ns[0]);
+                        if (boardGrid != null && ns.length > 1) markCells(boardGrid, ns[1].replace('.', ','), ModelConstants.ShotResult.COULE, boardIdx == playerIndex);
+                    }
+                    String boardName = allPlayerNames.getOrDefault(boardIdx, "J" + (boardIdx+1));
+                    gameLogUI.addLogEntry("Reprise: plateau de " + boardName + (sunkNames.isEmpty() ? "" : ", coulés: " + String.join(", ", sunkNames)));
+                } else { gameLogUI.addLogEntry("Erreur: BOARD_STATE malformé: " + payload); }
+                break;
             case "GAME_OVER":
                 String winMsg; 
                 if (payload.equals("DRAW") || payload.equals("GAME_OVER_DRAW")) {
@@ -605,13 +643,13 @@ public class BatailleNavaleClient extends JFrame {
                 }
                 JOptionPane.showMessageDialog(this, winMsg, "Fin de Partie", JOptionPane.INFORMATION_MESSAGE); 
                 statusLabel.setText(winMsg + ". Retour au lobby demandé..."); gameLogUI.addLogEntry(winMsg + ". Retour au lobby demandé par le serveur.");
-                myTurn = false; inGame = false; placementPhase = false;
+                myTurn = false; inGame = false; placementPhase = false; repriseSiege = null;
                 break;
             case "GAME_OVER_DISCONNECT":
                 String dPlayer = payload; String dMsg = "PARTIE TERMINÉE: " + dPlayer + " s'est déconnecté.";
                 JOptionPane.showMessageDialog(this, dMsg, "Fin de Partie", JOptionPane.WARNING_MESSAGE); 
                 statusLabel.setText(dMsg + ". Retour au lobby demandé..."); gameLogUI.addLogEntry(dMsg + ". Retour au lobby demandé par le serveur.");
-                myTurn = false; inGame = false; placementPhase = false;
+                myTurn = false; inGame = false; placementPhase = false; repriseSiege = null;
                 break;
             case "PLAYER_LEFT": 
             case "PLAYER_LEFT_GAME_SPECTATOR": 
@@ -628,22 +666,12 @@ public class BatailleNavaleClient extends JFrame {
                 if (lPlayerIdx != -1 && command.equals("PLAYER_LEFT")) { 
                     GridPanel lpg = playerGridPanels.get(lPlayerIdx); 
                     if(lpg != null) { 
-                        lpg.setBackground(Color.GRAY.brighter()); 
-                        lpg.setEnabled(false);
-                        for(int r=0; r < ModelConstants.TAILLE_GRILLE; r++) {
-                            for(int c=0; c < ModelConstants.TAILLE_GRILLE; c++) {
-                                if (lpg.buttons[r][c] != null) { 
-                                    lpg.buttons[r][c].setBackground(Color.GRAY.brighter()); 
-                                    lpg.buttons[r][c].setText("OUT"); 
-                                    lpg.buttons[r][c].setEnabled(false);
-                                }
-                            }
-                        }
+                        lpg.marquerHorsJeu();
                     }
                     allPlayerNames.remove(lPlayerIdx); 
                     if (lPlayerIdx == playerIndex) { 
                         statusLabel.setText("Vous avez été déconnecté de la partie. Retour au lobby...");
-                        inGame = false; myTurn = false; placementPhase = false;
+                        inGame = false; myTurn = false; placementPhase = false; repriseSiege = null;
                     }
                 }
                 break;
@@ -665,6 +693,10 @@ public class BatailleNavaleClient extends JFrame {
                 break;
             case "LOBBY_COUNTDOWN_STARTED":
                  String csMsg = "\nCompte à rebours de " + payload + "s démarré !"; if(lobbyArea != null && lobbyPanelContainer.isVisible()) lobbyArea.append(csMsg); gameLogUI.addLogEntry("Lobby: " + csMsg.trim()); break;
+            case "ROOM_CONFIG": // taille:flotte, choisies par l'hôte avec ADMIN_CONFIG
+                 String[] rc = payload.split(":", 2);
+                 if (rc.length >= 2) gameLogUI.addLogEntry("Lobby: prochaine partie sur " + rc[0] + "x" + rc[0] + ", flotte: " + rc[1]);
+                 break;
             case "LOBBY_COUNTDOWN_CANCELLED":
                  String ccMsg = "\nCompte à rebours annulé."; if(lobbyArea != null && lobbyPanelContainer.isVisible()) lobbyArea.append(ccMsg); gameLogUI.addLogEntry("Lobby: " + ccMsg.trim()); break;
             case "LOBBY_TIMER_ENDED_NO_GAME":
@@ -672,7 +704,10 @@ public class BatailleNavaleClient extends JFrame {
             case "ERROR":
                 statusLabel.setText("Erreur serveur: " + payload); 
                 gameLogUI.addLogEntry("Erreur serveur: " + payload);
-                if (payload.contains("nom est déjà utilisé") || payload.contains("nom ne peut pas être vide") || payload.contains("15 caractères max")) {
+                if (payload.startsWith("Aucun siège à reprendre")) { // Partie finie ou abandonnée : entrer au lobby sous son nom
+                    repriseSiege = null;
+                    serverCommunicator.sendMessage("SET_NAME:" + this.playerName);
+                } else if (payload.contains("nom est déjà utilisé") || payload.contains("nom ne peut pas être vide") || payload.contains("15 caractères max")) {
                     if(nameField != null) { nameField.setEditable(true); nameField.requestFocus(); }
                     if(connectButton != null) connectButton.setEnabled(true); 
                     if(serverIpField != null) serverIpField.setEditable(true);
@@ -698,9 +733,21 @@ public class BatailleNavaleClient extends JFrame {
         }
     }
 
-    class GridPanel extends JPanel {
-        private JButton[][] buttons;
-        private int taille;
+    /**
+     * Grille dessinée case par case, sans composant par case : seules les cases visibles dans le
+     * JScrollPane sont peintes, ce qui tient jusqu'aux grilles 1000x1000 qu'annonce GAME_START.
+     * Une case jouée (navire posé, tir reçu) n'est plus cliquable.
+     */
+    class GridPanel extends JPanel implements Scrollable {
+        private static final int TAILLE_CASES_LARGES = 30; // Au-delà, cases réduites et vue limitée à cette largeur
+        private static final byte VIDE = 0, MANQUE = 1, TOUCHE = 2, COULE = 3, NAVIRE = 4; // NAVIRE + ordinal du type
+
+        private final int taille;
+        private final int pas; // Côté d'une case, bordure comprise (px)
+        private final byte[] etats; // Un octet par case, ligne par ligne
+        private final Font police;
+        private final ModelConstants.ShipType[] types = ModelConstants.ShipType.values();
+        private boolean horsJeu = false; // Joueur parti : grille grisée
         public final int boardOwnerPlayerIndex; 
 
         private boolean placementModeActive = false;
@@ -711,63 +758,64 @@ public class BatailleNavaleClient extends JFrame {
         public GridPanel(int taille, boolean isActuallyMyBoard, int boardOwnerPlayerIndex) {
             this.taille = taille;
             this.boardOwnerPlayerIndex = boardOwnerPlayerIndex;
-            setLayout(new GridLayout(taille, taille, 1, 1));
-            buttons = new JButton[taille][taille];
-            Border thinBorder = BorderFactory.createLineBorder(Color.LIGHT_GRAY);
-
-            for (int i = 0; i < taille; i++) {
-                for (int j = 0; j < taille; j++) {
-                    buttons[i][j] = new JButton();
-                    buttons[i][j].setFont(new Font("Arial", Font.BOLD, Math.max(10, 200 / taille)));
-                    buttons[i][j].setFocusable(false);
-                    buttons[i][j].setBorder(thinBorder);
-                    buttons[i][j].setBackground(Color.CYAN.darker());
-                    buttons[i][j].setOpaque(true);
-                    int preferredCellSize = Math.max(25, Math.min(40, 350 / taille)); 
-                    buttons[i][j].setPreferredSize(new Dimension(preferredCellSize, preferredCellSize));
-
-                    if (boardOwnerPlayerIndex == BatailleNavaleClient.this.playerIndex && !amISpectator) { 
-                        buttons[i][j].setText(String.valueOf(ModelConstants.MY_EMPTY));
-                    } else { 
-                        buttons[i][j].setText(String.valueOf(ModelConstants.OPP_UNKNOWN));
+            this.pas = taille <= TAILLE_CASES_LARGES ? Math.max(25, Math.min(40, 350 / taille)) : 14;
+            this.etats = new byte[taille * taille];
+            this.police = new Font("Arial", Font.BOLD, Math.min(pas - 4, Math.max(10, 200 / taille)));
+            setBackground(Color.LIGHT_GRAY);
+            setPreferredSize(new Dimension(taille * pas, taille * pas));
+
+            java.awt.event.MouseAdapter souris = new java.awt.event.MouseAdapter() {
+                @Override
+                public void mousePressed(java.awt.event.MouseEvent evt) {
+                    if (!SwingUtilities.isLeftMouseButton(evt)) return;
+                    int r = evt.getY() / pas;
+                    int c = evt.getX() / pas;
+                    if (r >= taille || c >= taille || !caseCliquable(r, c)) return;
+
+                    boolean isMyOwnBoardForAction = (GridPanel.this.boardOwnerPlayerIndex == BatailleNavaleClient.this.playerIndex);
+
+                    if (isMyOwnBoardForAction && placementPhase && currentShipToPlace != null && BatailleNavaleClient.this.inGame) {
+                        serverCommunicator.sendMessage("PLACE_SHIP:" + currentShipToPlace.name() + ":" + r + ":" + c + ":" + horizontalRadioButton.isSelected());
+                    } else if (!isMyOwnBoardForAction && myTurn && BatailleNavaleClient.this.inGame && !placementPhase) {
+                        serverCommunicator.sendMessage("FIRE_SHOT:" + GridPanel.this.boardOwnerPlayerIndex + ":" + r + ":" + c);
                     }
+                }
 
-                    final int r = i;
-                    final int c = j;
-
-                    buttons[i][j].addActionListener(e -> {
-                        if (amISpectator) return; 
-
-                        boolean isMyOwnBoardForAction = (this.boardOwnerPlayerIndex == BatailleNavaleClient.this.playerIndex);
+                @Override
+                public void mouseMoved(java.awt.event.MouseEvent evt) {
+                    if (placementModeActive && currentShipToPlace != null && horizontalRadioButton != null && !amISpectator) {
+                        int r = evt.getY() / pas;
+                        int c = evt.getX() / pas;
+                        Point survol = r < taille && c < taille ? new Point(r, c) : null;
+                        if (survol == null ? previewStartCell == null : survol.equals(previewStartCell)) return;
+                        previewStartCell = survol;
+                        previewHorizontal = horizontalRadioButton.isSelected(); // Mettre à jour l'orientation pour la preview
+                        shipToPlaceForPreview = currentShipToPlace; // S'assurer que le bon navire est prévisualisé
+                        repaint();
+                    }
+                }
 
-                        if (isMyOwnBoardForAction && placementPhase && currentShipToPlace != null && BatailleNavaleClient.this.inGame) {
-                            serverCommunicator.sendMessage("PLACE_SHIP:" + currentShipToPlace.name() + ":" + r + ":" + c + ":" + horizontalRadioButton.isSelected());
-                        } else if (!isMyOwnBoardForAction && myTurn && BatailleNavaleClient.this.inGame && !placementPhase) {
-                             serverCommunicator.sendMessage("FIRE_SHOT:" + this.boardOwnerPlayerIndex + ":" + r + ":" + c);
-                        }
-                    });
-
-                    if (boardOwnerPlayerIndex == BatailleNavaleClient.this.playerIndex && !amISpectator) { 
-                        buttons[i][j].addMouseListener(new java.awt.event.MouseAdapter() {
-                            public void mouseEntered(java.awt.event.MouseEvent evt) {
-                                if (placementModeActive && currentShipToPlace != null && horizontalRadioButton != null && !amISpectator) {
-                                    previewStartCell = new Point(r,c);
-                                    previewHorizontal = horizontalRadioButton.isSelected(); // Mettre à jour l'orientation pour la preview
-                                    shipToPlaceForPreview = currentShipToPlace; // S'assurer que le bon navire est prévisualisé
-                                    repaint();
-                                }
-                            }
-                            public void mouseExited(java.awt.event.MouseEvent evt) {
-                                if (placementModeActive && currentShipToPlace != null && !amISpectator) {
-                                    previewStartCell = null;
-                                    repaint();
-                                }
-                            }
-                        });
+                @Override
+                public void mouseExited(java.awt.event.MouseEvent evt) {
+                    if (placementModeActive && currentShipToPlace != null && !amISpectator) {
+                        previewStartCell = null;
+                        repaint();
                     }
-                    add(buttons[i][j]);
                 }
+            };
+            addMouseListener(souris);
+            if (boardOwnerPlayerIndex == BatailleNavaleClient.this.playerIndex && !amISpectator) {
+                addMouseMotionListener(souris);
+            }
+        }
+
+        /** Même règle que l'activation des anciens boutons : case libre, et c'est au joueur d'y agir. */
+        private boolean caseCliquable(int r, int c) {
+            if (!isEnabled() || BatailleNavaleClient.this.amISpectator || horsJeu || etats[r * taille + c] != VIDE) return false;
+            if (boardOwnerPlayerIndex == BatailleNavaleClient.this.playerIndex) {
+                return placementPhase && currentShipToPlace != null;
             }
+            return BatailleNavaleClient.this.inGame && !placementPhase && BatailleNavaleClient.this.myTurn;
         }
 
         public void setCurrentShipForPlacement(ModelConstants.ShipType shipType, boolean horizontal) {
@@ -801,10 +849,7 @@ public class BatailleNavaleClient extends JFrame {
                     currentL += i;
                 }
                 if (currentL >= 0 && currentL < taille && currentC >= 0 && currentC < taille) {
-                    buttons[currentL][currentC].setBackground(Color.DARK_GRAY);
-                    buttons[currentL][currentC].setText(String.valueOf(type.getSpriteChar()));
-                    buttons[currentL][currentC].setForeground(Color.WHITE);
-                    buttons[currentL][currentC].setEnabled(false); 
+                    etats[currentL * taille + currentC] = (byte) (NAVIRE + type.ordinal());
                 }
             }
             previewStartCell = null; 
@@ -814,49 +859,78 @@ public class BatailleNavaleClient extends JFrame {
 
         public void markShot(int r, int c, ModelConstants.ShotResult result, boolean onMyBoard) {
             if (r < 0 || r >= taille || c < 0 || c >= taille) return;
-            JButton button = buttons[r][c]; if (button == null) return;
-            button.setIcon(null); 
-            char displayChar;
-            Color bgColor;
-            Color fgColor = Color.BLACK;
-
             switch (result) {
-                case TOUCHE:
-                    displayChar = onMyBoard ? ModelConstants.MY_HIT_ON_ME : ModelConstants.OPP_HIT;
-                    bgColor = onMyBoard ? Color.PINK : Color.ORANGE;
-                    break;
-                case COULE:
-                    displayChar = onMyBoard ? ModelConstants.MY_HIT_ON_ME : ModelConstants.OPP_SUNK; 
-                    bgColor = Color.RED;
-                    fgColor = Color.WHITE;
-                    break;
-                case MANQUE:
-                    displayChar = onMyBoard ? ModelConstants.MY_MISS_ON_ME : ModelConstants.OPP_MISS;
-                    bgColor = onMyBoard ? Color.BLUE.brighter() : Color.LIGHT_GRAY;
-                    break;
+                case TOUCHE: etats[r * taille + c] = TOUCHE; break;
+                case COULE: etats[r * taille + c] = COULE; break;
+                case MANQUE: etats[r * taille + c] = MANQUE; break;
                 case DEJA_JOUE: 
                 case ERREUR:    
                 default:
                     return; 
             }
-            button.setText(String.valueOf(displayChar));
-            button.setBackground(bgColor);
-            button.setForeground(fgColor);
-            button.setEnabled(false); 
+            repaint(c * pas, r * pas, pas, pas);
+        }
+
+        /** Joueur parti : toute la grille grisée, plus aucune case cliquable. */
+        public void marquerHorsJeu() {
+            horsJeu = true;
+            setEnabled(false);
+            repaint();
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (boardOwnerPlayerIndex == BatailleNavaleClient.this.playerIndex && !amISpectator && 
+            Rectangle zone = g.getClipBounds();
+            if (zone == null) zone = new Rectangle(0, 0, getWidth(), getHeight());
+            int premiereLigne = Math.max(0, zone.y / pas), derniereLigne = Math.min(taille - 1, (zone.y + zone.height) / pas);
+            int premiereColonne = Math.max(0, zone.x / pas), derniereColonne = Math.min(taille - 1, (zone.x + zone.width) / pas);
+            boolean maGrille = boardOwnerPlayerIndex == BatailleNavaleClient.this.playerIndex;
+            g.setFont(police);
+            FontMetrics mesures = g.getFontMetrics();
+            boolean avecTexte = pas >= 12;
+
+            for (int r = premiereLigne; r <= derniereLigne; r++) {
+                for (int c = premiereColonne; c <= derniereColonne; c++) {
+                    String texte;
+                    Color fond;
+                    Color encre = Color.BLACK;
+                    int etat = etats[r * taille + c];
+                    if (horsJeu) {
+                        texte = "OUT"; fond = Color.GRAY.brighter();
+                    } else if (etat >= NAVIRE) {
+                        texte = String.valueOf(types[etat - NAVIRE].getSpriteChar());
+                        fond = Color.DARK_GRAY; encre = Color.WHITE;
+                    } else if (etat == TOUCHE) {
+                        texte = String.valueOf(maGrille ? ModelConstants.MY_HIT_ON_ME : ModelConstants.OPP_HIT);
+                        fond = maGrille ? Color.PINK : Color.ORANGE;
+                    } else if (etat == COULE) {
+                        texte = String.valueOf(maGrille ? ModelConstants.MY_HIT_ON_ME : ModelConstants.OPP_SUNK);
+                        fond = Color.RED; encre = Color.WHITE;
+                    } else if (etat == MANQUE) {
+                        texte = String.valueOf(maGrille ? ModelConstants.MY_MISS_ON_ME : ModelConstants.OPP_MISS);
+                        fond = maGrille ? Color.BLUE.brighter() : Color.LIGHT_GRAY;
+                    } else {
+                        texte = String.valueOf(maGrille && !amISpectator ? ModelConstants.MY_EMPTY : ModelConstants.OPP_UNKNOWN);
+                        fond = Color.CYAN.darker();
+                    }
+                    int x = c * pas, y = r * pas;
+                    g.setColor(fond);
+                    g.fillRect(x, y, pas - 1, pas - 1);
+                    g.setColor(Color.LIGHT_GRAY);
+                    g.drawRect(x, y, pas - 1, pas - 1);
+                    if (avecTexte && !texte.trim().isEmpty() && mesures.stringWidth(texte) < pas) {
+                        g.setColor(encre);
+                        g.drawString(texte, x + (pas - mesures.stringWidth(texte)) / 2,
+                                y + (pas - mesures.getHeight()) / 2 + mesures.getAscent());
+                    }
+                }
+            }
+
+            if (maGrille && !amISpectator && 
                 placementModeActive && shipToPlaceForPreview != null && previewStartCell != null) {
                 
                 Graphics2D g2d = (Graphics2D) g.create();
-                if (buttons[0][0] == null) { g2d.dispose(); return; } 
-                int cellWidth = buttons[0][0].getWidth(); 
-                int cellHeight = buttons[0][0].getHeight(); 
-                if (cellWidth <= 0 || cellHeight <= 0) { g2d.dispose(); return; }
-
                 boolean placementEstValide = true; 
                 List<Point> cellulesPreview = new ArrayList<>();
                 boolean currentOrientation = this.previewHorizontal; 
@@ -868,68 +942,48 @@ public class BatailleNavaleClient extends JFrame {
                     
                     if (rP < 0 || rP >= taille || cP < 0 || cP >= taille) { 
                         placementEstValide = false; 
-                        for (int k=0; k < i; k++) { 
-                             int rPk = previewStartCell.x; int cPk = previewStartCell.y;
-                             if(currentOrientation) cPk += k; else rPk += k;
-                             cellulesPreview.add(new Point(rPk, cPk));
-                        }
                         break; 
                     }
-                    if (!buttons[rP][cP].getText().equals(String.valueOf(ModelConstants.MY_EMPTY))) { 
+                    cellulesPreview.add(new Point(rP, cP));
+                    if (etats[rP * taille + cP] != VIDE) { 
                         placementEstValide = false; 
-                         for (int k=0; k < i; k++) {
-                             int rPk = previewStartCell.x; int cPk = previewStartCell.y;
-                             if(currentOrientation) cPk += k; else rPk += k;
-                             cellulesPreview.add(new Point(rPk, cPk));
-                        }
-                        cellulesPreview.add(new Point(rP, cP)); 
                         break; 
                     }
-                    cellulesPreview.add(new Point(rP, cP));
                 }
                 
                 g2d.setColor(placementEstValide ? new Color(100, 100, 100, 120) : new Color(255, 0, 0, 120));
                 for (Point cell : cellulesPreview) {
-                    if (cell.x >= 0 && cell.x < taille && cell.y >= 0 && cell.y < taille) {
-                        Point loc = buttons[cell.x][cell.y].getLocation(); 
-                        g2d.fillRect(loc.x, loc.y, cellWidth, cellHeight); 
-                    }
+                    g2d.fillRect(cell.y * pas, cell.x * pas, pas - 1, pas - 1); 
                 }
                 g2d.dispose();
             }
         }
 
         @Override
-        public void setEnabled(boolean enabled) {
-            super.setEnabled(enabled); 
+        public Dimension getPreferredScrollableViewportSize() {
+            int cote = Math.min(taille, TAILLE_CASES_LARGES) * pas;
+            return new Dimension(cote, cote);
+        }
 
-            boolean isMyOwnBoard = (this.boardOwnerPlayerIndex == BatailleNavaleClient.this.playerIndex && !BatailleNavaleClient.this.amISpectator);
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return pas;
+        }
 
-            for (int i = 0; i < taille; i++) {
-                for (int j = 0; j < taille; j++) {
-                    if (buttons[i][j] == null) continue;
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+            int visible = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+            return Math.max(pas, visible - pas);
+        }
 
-                    if (BatailleNavaleClient.this.amISpectator) { 
-                        buttons[i][j].setEnabled(false);
-                        continue;
-                    }
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return false;
+        }
 
-                    String buttonText = buttons[i][j].getText();
-                    if (isMyOwnBoard) { 
-                        if (placementPhase && currentShipToPlace != null) { 
-                            buttons[i][j].setEnabled(enabled && buttonText.equals(String.valueOf(ModelConstants.MY_EMPTY)));
-                        } else { 
-                            buttons[i][j].setEnabled(false);
-                        }
-                    } else { 
-                        if (BatailleNavaleClient.this.inGame && !placementPhase && BatailleNavaleClient.this.myTurn) {
-                            buttons[i][j].setEnabled(enabled && buttonText.equals(String.valueOf(ModelConstants.OPP_UNKNOWN)));
-                        } else { 
-                            buttons[i][j].setEnabled(false);
-                        }
-                    }
-                }
-            }
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return false;
         }
     } // Fin GridPanel
 
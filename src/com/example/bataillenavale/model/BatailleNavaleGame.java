@@ -1,9 +1,9 @@
 package com.example.bataillenavale.model; // Exemple de package
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 public class BatailleNavaleGame {
@@ -21,26 +21,27 @@ public class BatailleNavaleGame {
     private GamePhase phaseActuelle;
     private int gagnantIndex = -1; // Index global du gagnant
 
-    private final List<Ship.ShipType> typesDeNaviresAPlacer = Arrays.asList(
-            Ship.ShipType.PORTE_AVIONS,
-            Ship.ShipType.CROISEUR,
-            Ship.ShipType.CONTRE_TORPILLEUR,
-            Ship.ShipType.SOUS_MARIN,
-            Ship.ShipType.TORPILLEUR
-    );
+    private final GameConfig config; // Taille de grille et flotte, communes à tous les joueurs
 
     private final List<List<Ship.ShipType>> naviresRestantsAPlacerParJoueur; // Indexé par l'index global du joueur
+    private FleetGenerator generateurFlotte; // Créé au premier placement aléatoire
+    private boolean silencieux = false; // Aucune trace console (simulations hors serveur)
 
 
     public BatailleNavaleGame(String[] nomsJoueurs) {
+        this(nomsJoueurs, GameConfig.STANDARD);
+    }
+
+    public BatailleNavaleGame(String[] nomsJoueurs, GameConfig config) {
+        this.config = config;
         this.nombreJoueursInitial = nomsJoueurs.length;
         this.playerBoards = new PlayerBoard[nombreJoueursInitial];
         this.naviresRestantsAPlacerParJoueur = new ArrayList<>();
         this.joueursActifsIndices = new ArrayList<>();
 
         for (int i = 0; i < nombreJoueursInitial; i++) {
-            playerBoards[i] = new PlayerBoard(nomsJoueurs[i]);
-            naviresRestantsAPlacerParJoueur.add(new ArrayList<>(typesDeNaviresAPlacer));
+            playerBoards[i] = new PlayerBoard(nomsJoueurs[i], config.getTailleGrille());
+            naviresRestantsAPlacerParJoueur.add(new ArrayList<>(config.getFlotte()));
             joueursActifsIndices.add(i); // Au début, tous les joueurs (par leur index global) sont actifs
         }
 
@@ -48,6 +49,16 @@ public class BatailleNavaleGame {
         this.phaseActuelle = GamePhase.PLACEMENT_BATEAUX;
     }
 
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    /** Coupe (ou rétablit) toutes les traces console de la partie et de ses plateaux. */
+    public void setSilencieux(boolean silencieux) {
+        this.silencieux = silencieux;
+        for (PlayerBoard board : playerBoards) board.setSilencieux(silencieux);
+    }
+
     public int getNombreJoueursInitial() {
         return this.nombreJoueursInitial;
     }
@@ -61,7 +72,7 @@ public class BatailleNavaleGame {
             return -1;
         }
         if (joueurCourantIndexDansListeActifs < 0 || joueurCourantIndexDansListeActifs >= joueursActifsIndices.size()) {
-             System.err.println("Alerte: joueurCourantIndexDansListeActifs (" + joueurCourantIndexDansListeActifs +
+             if (!silencieux) System.err.println("Alerte: joueurCourantIndexDansListeActifs (" + joueurCourantIndexDansListeActifs +
                                 ") est hors limites pour joueursActifsIndices de taille " + joueursActifsIndices.size());
              if (joueursActifsIndices.isEmpty()) return -1;
              joueurCourantIndexDansListeActifs = 0; // Réinitialiser par sécurité au premier joueur actif
@@ -90,7 +101,7 @@ public class BatailleNavaleGame {
             if (joueurCourantGlobalIdx != -1 && joueurCourantGlobalIdx < naviresRestantsAPlacerParJoueur.size()) {
                 return naviresRestantsAPlacerParJoueur.get(joueurCourantGlobalIdx);
             } else {
-                 System.err.println("getNaviresAPlacerPourJoueurCourant: Index joueur courant global invalide (" + joueurCourantGlobalIdx + ")");
+                 if (!silencieux) System.err.println("getNaviresAPlacerPourJoueurCourant: Index joueur courant global invalide (" + joueurCourantGlobalIdx + ")");
             }
         }
         return new ArrayList<>(); // Retourner une liste vide si pas en phase de placement ou erreur
@@ -98,7 +109,7 @@ public class BatailleNavaleGame {
 
     public boolean placerNavireJoueurCourant(Ship.ShipType type, int ligne, int colonne, boolean horizontal) {
         if (phaseActuelle != GamePhase.PLACEMENT_BATEAUX) {
-            System.err.println("Erreur: Tentative de placement de navire hors de la phase de placement.");
+            if (!silencieux) System.err.println("Erreur: Tentative de placement de navire hors de la phase de placement.");
             return false;
         }
 
@@ -107,7 +118,7 @@ public class BatailleNavaleGame {
 
         List<Ship.ShipType> naviresPourCeJoueur = naviresRestantsAPlacerParJoueur.get(joueurCourantGlobalIdx);
         if (!naviresPourCeJoueur.contains(type)) { // Vérifier si le type est bien dans la liste des navires à placer pour CE joueur
-            System.err.println("Erreur: Le joueur " + getNomJoueurCourant() + " ne doit pas placer " + type.getNom() + " (peut-être déjà placé ou non attendu).");
+            if (!silencieux) System.err.println("Erreur: Le joueur " + getNomJoueurCourant() + " ne doit pas placer " + type.getNom() + " (peut-être déjà placé ou non attendu).");
             return false;
         }
 
@@ -116,15 +127,15 @@ public class BatailleNavaleGame {
 
         if (placementOk) {
             naviresPourCeJoueur.remove(type); // Retirer le navire de la liste de CE joueur
-            System.out.println(getNomJoueurCourant() + " a placé " + type.getNom());
+            if (!silencieux) System.out.println(getNomJoueurCourant() + " a placé " + type.getNom());
             if (naviresPourCeJoueur.isEmpty()) {
-                System.out.println(getNomJoueurCourant() + " a placé tous ses navires.");
+                if (!silencieux) System.out.println(getNomJoueurCourant() + " a placé tous ses navires.");
                 // Ne pas passer au joueur suivant ici, laisser passerAuPlacementSuivant() le gérer
             }
             // Si tous les joueurs actifs ont placé tous leurs navires, la phase change.
             // Cette vérification est mieux placée dans une méthode appelée par le serveur après chaque placement.
             if (tousLesJoueursActifsOntPlaceLeursNavires()) {
-                 System.out.println("Tous les joueurs actifs ont placé leurs navires. Passage à la phase de COMBAT.");
+                 if (!silencieux) System.out.println("Tous les joueurs actifs ont placé leurs navires. Passage à la phase de COMBAT.");
                  phaseActuelle = GamePhase.COMBAT;
                  joueurCourantIndexDansListeActifs = 0; // Le combat commence avec le premier joueur de la liste des actifs
             }
@@ -141,7 +152,7 @@ public class BatailleNavaleGame {
         if (tousLesJoueursActifsOntPlaceLeursNavires()) {
             phaseActuelle = GamePhase.COMBAT;
             joueurCourantIndexDansListeActifs = 0; // Le combat commence avec le premier joueur actif
-            System.out.println("Transition vers la phase de COMBAT.");
+            if (!silencieux) System.out.println("Transition vers la phase de COMBAT.");
             return;
         }
 
@@ -152,14 +163,14 @@ public class BatailleNavaleGame {
             joueurCourantIndexDansListeActifs = (joueurCourantIndexDansListeActifs + 1) % joueursActifsIndices.size();
             int joueurGlobalSuivant = joueursActifsIndices.get(joueurCourantIndexDansListeActifs);
             if (!naviresRestantsAPlacerParJoueur.get(joueurGlobalSuivant).isEmpty()) {
-                System.out.println("Phase de placement: au tour de " + playerBoards[joueurGlobalSuivant].getNomJoueur());
+                if (!silencieux) System.out.println("Phase de placement: au tour de " + playerBoards[joueurGlobalSuivant].getNomJoueur());
                 return; // Joueur trouvé
             }
         } while (joueurCourantIndexDansListeActifs != initialIndexDansActifs);
 
         // Si on revient au joueur initial et que la condition tousLesJoueursActifsOntPlaceLeursNavires n'était pas vraie,
         // il y a une incohérence ou tous ont fini en même temps. La vérification au début devrait couvrir cela.
-        System.err.println("Impossible de trouver un joueur suivant pour le placement, ou tous ont fini (devrait être géré).");
+        if (!silencieux) System.err.println("Impossible de trouver un joueur suivant pour le placement, ou tous ont fini (devrait être géré).");
     }
 
 
@@ -177,35 +188,39 @@ public class BatailleNavaleGame {
     }
 
 
-    public PlayerBoard.ShotResult tirerSurAdversaire(int targetPlayerGlobalIndex, int ligne, int colonne) {
+    /**
+     * Tir du joueur courant sur une cible. L'issue porte le résultat, le navire coulé
+     * et l'élimination de la cible ; ERREUR ou DEJA_JOUE laissent le tour au tireur.
+     */
+    public ShotOutcome tirerSurAdversaire(int targetPlayerGlobalIndex, int ligne, int colonne) {
         if (phaseActuelle != GamePhase.COMBAT) {
-            System.err.println("Erreur: Tentative de tir hors de la phase de combat.");
-            return PlayerBoard.ShotResult.ERREUR;
+            if (!silencieux) System.err.println("Erreur: Tentative de tir hors de la phase de combat.");
+            return ShotOutcome.de(PlayerBoard.ShotResult.ERREUR);
         }
         int tireurGlobalIndex = getJoueurCourantIndex();
         if (tireurGlobalIndex == -1) {
-            System.err.println("Erreur de tir: Aucun joueur courant valide.");
-            return PlayerBoard.ShotResult.ERREUR;
+            if (!silencieux) System.err.println("Erreur de tir: Aucun joueur courant valide.");
+            return ShotOutcome.de(PlayerBoard.ShotResult.ERREUR);
         }
 
         if (targetPlayerGlobalIndex < 0 || targetPlayerGlobalIndex >= nombreJoueursInitial || targetPlayerGlobalIndex == tireurGlobalIndex) {
-            System.err.println("Erreur: Index de joueur cible invalide pour le tir.");
-            return PlayerBoard.ShotResult.ERREUR;
+            if (!silencieux) System.err.println("Erreur: Index de joueur cible invalide pour le tir.");
+            return ShotOutcome.de(PlayerBoard.ShotResult.ERREUR);
         }
         if (!joueursActifsIndices.contains(targetPlayerGlobalIndex)) {
-            System.err.println("Erreur: Tentative de tir sur un joueur déjà éliminé ou inactif (cible non dans joueursActifsIndices).");
-            return PlayerBoard.ShotResult.DEJA_JOUE; // Ou ERREUR, car le joueur n'est plus une cible valide
+            if (!silencieux) System.err.println("Erreur: Tentative de tir sur un joueur déjà éliminé ou inactif (cible non dans joueursActifsIndices).");
+            return ShotOutcome.de(PlayerBoard.ShotResult.DEJA_JOUE); // Ou ERREUR, car le joueur n'est plus une cible valide
         }
 
 
         PlayerBoard cibleBoard = playerBoards[targetPlayerGlobalIndex];
-        PlayerBoard.ShotResult resultat = cibleBoard.recevoirTir(ligne, colonne);
-        System.out.println(playerBoards[tireurGlobalIndex].getNomJoueur() + " tire sur " + cibleBoard.getNomJoueur() + " en " + ligne + "," + colonne + " -> " + resultat);
+        ShotOutcome issue = cibleBoard.recevoirTir(ligne, colonne);
+        if (!silencieux) System.out.println(playerBoards[tireurGlobalIndex].getNomJoueur() + " tire sur " + cibleBoard.getNomJoueur() + " en " + ligne + "," + colonne + " -> " + issue.getResultat());
 
-        if (resultat != PlayerBoard.ShotResult.DEJA_JOUE && resultat != PlayerBoard.ShotResult.ERREUR) {
+        if (issue.estJoue()) {
             // Gérer l'élimination du joueur cible si tous ses navires sont coulés
-            if (cibleBoard.tousNaviresCoules()) {
-                System.out.println("Tous les navires de " + cibleBoard.getNomJoueur() + " sont coulés ! Il est éliminé.");
+            if (issue.isCibleEliminee()) {
+                if (!silencieux) System.out.println("Tous les navires de " + cibleBoard.getNomJoueur() + " sont coulés ! Il est éliminé.");
                 eliminerJoueur(targetPlayerGlobalIndex); // Gère la logique d'élimination et de fin de partie
             }
 
@@ -215,7 +230,7 @@ public class BatailleNavaleGame {
             }
         }
         // Si DEJA_JOUE ou ERREUR, le tour ne passe pas, le joueur doit rejouer (géré par le serveur).
-        return resultat;
+        return issue;
     }
 
     private void eliminerJoueur(int joueurGlobalIndexAEliminer) {
@@ -224,7 +239,7 @@ public class BatailleNavaleGame {
             return;
         }
 
-        System.out.println("Élimination du joueur: " + playerBoards[joueurGlobalIndexAEliminer].getNomJoueur() + " (Index global: " + joueurGlobalIndexAEliminer + ")");
+        if (!silencieux) System.out.println("Élimination du joueur: " + playerBoards[joueurGlobalIndexAEliminer].getNomJoueur() + " (Index global: " + joueurGlobalIndexAEliminer + ")");
         joueursActifsIndices.remove(Integer.valueOf(joueurGlobalIndexAEliminer));
 
         // Vérifier les conditions de fin de partie
@@ -232,10 +247,10 @@ public class BatailleNavaleGame {
             phaseActuelle = GamePhase.TERMINE;
             if (joueursActifsIndices.size() == 1) {
                 gagnantIndex = joueursActifsIndices.get(0); // Le seul joueur restant est le gagnant
-                System.out.println("JEU TERMINE! Gagnant: " + playerBoards[gagnantIndex].getNomJoueur());
+                if (!silencieux) System.out.println("JEU TERMINE! Gagnant: " + playerBoards[gagnantIndex].getNomJoueur());
             } else { // 0 joueurs actifs (ex: élimination simultanée ou déconnexion du dernier)
                 gagnantIndex = -1; // Match nul ou pas de gagnant clair
-                System.out.println("JEU TERMINE! Aucun survivant ou match nul.");
+                if (!silencieux) System.out.println("JEU TERMINE! Aucun survivant ou match nul.");
             }
         } else {
             // Si la partie continue, ajuster l'index du joueur courant pour pointer vers le même joueur
@@ -256,9 +271,30 @@ public class BatailleNavaleGame {
             return;
         }
         joueurCourantIndexDansListeActifs = (joueurCourantIndexDansListeActifs + 1) % joueursActifsIndices.size();
-        System.out.println("Phase de combat: au tour de " + getNomJoueurCourant());
+        if (!silencieux) System.out.println("Phase de combat: au tour de " + getNomJoueurCourant());
+    }
+
+
+    // État de tour, sans copie, pour GameSnapshot
+    List<Integer> joueursActifs() {
+        return joueursActifsIndices;
+    }
+
+    int getJoueurCourantIndexDansListeActifs() {
+        return joueurCourantIndexDansListeActifs;
+    }
+
+    List<Ship.ShipType> getNaviresRestantsAPlacer(int playerGlobalIndex) {
+        return naviresRestantsAPlacerParJoueur.get(playerGlobalIndex);
     }
 
+    /** Rétablit l'état de tour lu par GameSnapshot ; les plateaux et les navires à placer sont restaurés à part. */
+    void restaurerTour(GamePhase phase, List<Integer> actifs, int courantDansActifs, int gagnant) {
+        this.phaseActuelle = phase;
+        this.joueursActifsIndices = actifs;
+        this.joueurCourantIndexDansListeActifs = courantDansActifs;
+        this.gagnantIndex = gagnant;
+    }
 
     public int getGagnantIndex() {
         return gagnantIndex;
@@ -274,11 +310,11 @@ public class BatailleNavaleGame {
      * @return true si la partie peut continuer, false sinon.
      */
     public boolean handlePlayerDisconnect(int playerGlobalIndex) {
-        System.out.println("Jeu: Gestion de la déconnexion du joueur avec index global " + playerGlobalIndex);
+        if (!silencieux) System.out.println("Jeu: Gestion de la déconnexion du joueur avec index global " + playerGlobalIndex);
         if (!joueursActifsIndices.contains(playerGlobalIndex) && phaseActuelle != GamePhase.TERMINE) {
              // Si le joueur n'était déjà plus actif (peut-être éliminé juste avant déconnexion)
              // ou si la partie est déjà terminée, il n'y a rien de plus à faire pour la logique de jeu.
-             System.out.println("Joueur " + playerGlobalIndex + " déjà inactif ou partie terminée. Aucune action de jeu supplémentaire.");
+             if (!silencieux) System.out.println("Joueur " + playerGlobalIndex + " déjà inactif ou partie terminée. Aucune action de jeu supplémentaire.");
              return phaseActuelle != GamePhase.TERMINE && !joueursActifsIndices.isEmpty();
         }
 
@@ -294,7 +330,7 @@ public class BatailleNavaleGame {
         eliminerJoueur(playerGlobalIndex); // Utilise la même logique que pour une élimination en combat
 
         if (phaseActuelle == GamePhase.TERMINE) {
-            System.out.println("Jeu: Partie terminée suite à la déconnexion.");
+            if (!silencieux) System.out.println("Jeu: Partie terminée suite à la déconnexion.");
             return false; // La partie ne peut pas continuer
         }
 
@@ -327,7 +363,7 @@ public class BatailleNavaleGame {
             }
         }
 
-        System.out.println("Jeu: Après déconnexion du joueur " + playerGlobalIndex + ", joueurs actifs: " + joueursActifsIndices.size());
+        if (!silencieux) System.out.println("Jeu: Après déconnexion du joueur " + playerGlobalIndex + ", joueurs actifs: " + joueursActifsIndices.size());
         return !joueursActifsIndices.isEmpty(); // La partie peut continuer s'il reste des joueurs actifs
     }
 
@@ -359,77 +395,40 @@ public class BatailleNavaleGame {
 
 
     public void placerNaviresAleatoirementPourJoueur(int playerIdx) {
+        placerNaviresAleatoirementPourJoueur(playerIdx, ThreadLocalRandom.current());
+    }
+
+    /** Comme placerNaviresAleatoirementPourJoueur(int), avec un générateur fourni (placements reproductibles). */
+    public void placerNaviresAleatoirementPourJoueur(int playerIdx, Random random) {
         if (playerIdx < 0 || playerIdx >= nombreJoueursInitial) return;
 
         PlayerBoard board = playerBoards[playerIdx];
         List<Ship.ShipType> naviresPourCeJoueur = naviresRestantsAPlacerParJoueur.get(playerIdx);
         if (naviresPourCeJoueur.isEmpty()) {
-             System.out.println("Pas de navires à placer aléatoirement pour " + board.getNomJoueur() + ", déjà fait.");
+             if (!silencieux) System.out.println("Pas de navires à placer aléatoirement pour " + board.getNomJoueur() + ", déjà fait.");
              return;
         }
 
+        // Tirage parmi les positions libres du plateau (FleetGenerator) : pas de tentatives en rafale
+        // ni de simulation du tour de ce joueur, le tour courant n'est pas modifié.
+        if (generateurFlotte == null) generateurFlotte = new FleetGenerator(config.getTailleGrille());
         List<Ship.ShipType> aPlacerCeTourCi = new ArrayList<>(naviresPourCeJoueur); // Copie pour itération
-        Random random = new Random();
 
         for (Ship.ShipType type : aPlacerCeTourCi) {
-            boolean place = false;
-            int tentatives = 0;
-            while (!place && tentatives < 100) { // Limiter les tentatives pour éviter boucle infinie
-                int ligne = random.nextInt(PlayerBoard.TAILLE_GRILLE);
-                int colonne = random.nextInt(PlayerBoard.TAILLE_GRILLE);
-                boolean horizontal = random.nextBoolean();
-
-                // Utiliser la méthode de placement existante qui gère la logique et met à jour naviresRestantsAPlacerParJoueur
-                // Temporairement, on simule le fait que c'est le tour de ce joueur
-                // Ceci est une simplification, car la logique de tour est normalement gérée par getJoueurCourantIndex.
-                // Pour un vrai placement aléatoire au nom d'un joueur, il faudrait s'assurer que les conditions sont bonnes.
-
-                // Sauvegarder l'état du tour actuel
-                GamePhase phasePrecedente = this.phaseActuelle;
-                int joueurCourantIndexDansListeActifsPrecedent = this.joueurCourantIndexDansListeActifs;
-                List<Integer> joueursActifsIndicesPrecedent = new ArrayList<>(this.joueursActifsIndices);
-
-                // Simuler le tour pour le joueur spécifié s'il est actif
-                if (joueursActifsIndices.contains(playerIdx)) {
-                    this.phaseActuelle = GamePhase.PLACEMENT_BATEAUX; // Forcer la phase
-                    // Trouver l'index de playerIdx dans la liste des joueurs actifs
-                    int tempIndexDansActifs = joueursActifsIndices.indexOf(playerIdx);
-                    if (tempIndexDansActifs != -1) {
-                         this.joueurCourantIndexDansListeActifs = tempIndexDansActifs;
-
-                         if (placerNavireJoueurCourant(type, ligne, colonne, horizontal)) {
-                             place = true; // Le navire a été placé et retiré de la liste via placerNavireJoueurCourant
-                         }
-                    }
-                } else if (naviresRestantsAPlacerParJoueur.get(playerIdx).contains(type)) {
-                    // Si le joueur n'est pas actif mais a des navires à placer (scénario de débug/test)
-                    // on peut essayer de le placer directement sur son board, mais sans affecter la liste des joueurs actifs
-                    Ship tempShip = new Ship(type);
-                     if (board.placerNavire(tempShip, ligne, colonne, horizontal)) {
-                         naviresRestantsAPlacerParJoueur.get(playerIdx).remove(type);
-                         place = true;
-                     }
-                }
-
-
-                // Restaurer l'état du tour
-                this.phaseActuelle = phasePrecedente;
-                this.joueursActifsIndices = joueursActifsIndicesPrecedent;
-                this.joueurCourantIndexDansListeActifs = joueurCourantIndexDansListeActifsPrecedent;
-
-                tentatives++;
-            }
-            if (!place) {
-                System.err.println("Impossible de placer aléatoirement " + type.getNom() + " pour " + board.getNomJoueur() + " après " + tentatives + " tentatives.");
+            if (generateurFlotte.placerAleatoirement(board, new Ship(type), random)) {
+                naviresPourCeJoueur.remove(type);
+                if (!silencieux) System.out.println(board.getNomJoueur() + " a placé " + type.getNom());
+            } else {
+                if (!silencieux) System.err.println("Impossible de placer aléatoirement " + type.getNom() + " pour " + board.getNomJoueur() + " : aucune position libre.");
             }
         }
-         System.out.println("Navires (restants) placés aléatoirement pour " + board.getNomJoueur());
+         if (!silencieux) System.out.println("Navires (restants) placés aléatoirement pour " + board.getNomJoueur());
 
          // Après placement aléatoire, vérifier si cela déclenche la phase de combat
          if (phaseActuelle == GamePhase.PLACEMENT_BATEAUX && tousLesJoueursActifsOntPlaceLeursNavires()) {
              phaseActuelle = GamePhase.COMBAT;
              joueurCourantIndexDansListeActifs = 0;
-             System.out.println("Placement aléatoire terminé pour tous les joueurs actifs. Passage au COMBAT.");
+             if (!silencieux) System.out.println("Placement aléatoire terminé pour tous les joueurs actifs. Passage au COMBAT.");
          }
     }
 }
\ No newline at end of file
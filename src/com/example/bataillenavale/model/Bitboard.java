@@ -0,0 +1,55 @@
+package com.example.bataillenavale.model;
+
+/**
+ * Ensemble de cases d'une grille, un bit par case (index = ligne * taille + colonne).
+ * Les bits sont rangés par pages de 1024 cases allouées au premier ajout : une grande grille
+ * ne coûte que les pages où un navire ou un tir a été posé. Une grille 10x10 tient dans
+ * une seule page de deux long ; un test de case coûte un décalage et un masque.
+ */
+final class Bitboard {
+    private static final int BITS_PAR_PAGE = 10; // 1 << 10 cases par page
+    private static final int MOTS_PAR_PAGE = 1 << (BITS_PAR_PAGE - 6);
+
+    private final long[][] pages;
+    private final int motsPremierePage; // Une grille plus petite qu'une page n'alloue que ses mots
+
+    Bitboard(int nombreCases) {
+        this.pages = new long[(nombreCases + (1 << BITS_PAR_PAGE) - 1) >>> BITS_PAR_PAGE][];
+        this.motsPremierePage = Math.min(MOTS_PAR_PAGE, (nombreCases + 63) >>> 6);
+    }
+
+    boolean contient(int index) {
+        long[] page = pages[index >>> BITS_PAR_PAGE];
+        // Le décalage d'un long n'utilise que les 6 bits bas
+        return page != null && (page[(index >>> 6) & (MOTS_PAR_PAGE - 1)] & (1L << index)) != 0;
+    }
+
+    void ajouter(int index) {
+        long[] page = pages[index >>> BITS_PAR_PAGE];
+        if (page == null) {
+            page = new long[pages.length == 1 ? motsPremierePage : MOTS_PAR_PAGE];
+            pages[index >>> BITS_PAR_PAGE] = page;
+        }
+        page[(index >>> 6) & (MOTS_PAR_PAGE - 1)] |= 1L << index;
+    }
+
+    /** Plus petite case de l'ensemble à partir de depuis, -1 s'il n'y en a plus ; les pages absentes sont sautées. */
+    int suivant(int depuis) {
+        for (int p = depuis >>> BITS_PAR_PAGE; p < pages.length; p++) {
+            long[] page = pages[p];
+            if (page == null) continue;
+            int debut = p == depuis >>> BITS_PAR_PAGE ? depuis & ((1 << BITS_PAR_PAGE) - 1) : 0;
+            for (int m = debut >>> 6; m < page.length; m++) {
+                long mot = page[m];
+                if (m == debut >>> 6) mot &= -1L << debut;
+                if (mot != 0) return (p << BITS_PAR_PAGE) + (m << 6) + Long.numberOfTrailingZeros(mot);
+            }
+        }
+        return -1;
+    }
+
+    void retirer(int index) {
+        long[] page = pages[index >>> BITS_PAR_PAGE];
+        if (page != null) page[(index >>> 6) & (MOTS_PAR_PAGE - 1)] &= ~(1L << index);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bataillenavale.model;
+
+import java.util.Objects;
+
+/**
+ * Case de la grille (ligne, colonne), immuable. Remplace java.awt.Point dans le modèle :
+ * le serveur n'a ainsi aucune dépendance à AWT (module java.desktop).
+ * Le chemin de jeu n'en crée pas ; elle sert aux vues de compatibilité de Ship.
+ */
+public final class Coordonnee {
+    private final int ligne;
+    private final int colonne;
+
+    public Coordonnee(int ligne, int colonne) {
+        this.ligne = ligne;
+        this.colonne = colonne;
+    }
+
+    public int getLigne() {
+        return ligne;
+    }
+
+    public int getColonne() {
+        return colonne;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Coordonnee)) return false;
+        Coordonnee autre = (Coordonnee) o;
+        return ligne == autre.ligne && colonne == autre.colonne;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ligne, colonne);
+    }
+
+    @Override
+    public String toString() {
+        return ligne + "," + colonne;
+    }
+}
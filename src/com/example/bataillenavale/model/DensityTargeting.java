@@ -0,0 +1,328 @@
+package com.example.bataillenavale.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Visée par densité de probabilité (chasse / cible). Pour chaque navire encore à flot, on
+ * énumère les positions compatibles avec les tirs observés et on compte, case par case,
+ * combien de positions la couvrent ; on tire sur la case la plus couverte (égalités au hasard).
+ *
+ * Chasse (aucune touche non attribuée) : énumération de toute la grille, ligne par ligne et
+ * colonne par colonne sur des masques de bits (une position est libre si son masque ne croise
+ * pas les cases bloquées). Au-delà de 64 colonnes les masques ne tiennent plus dans un long :
+ * on tire alors au hasard une case non jouée sur le damier de pas égal au plus petit navire restant.
+ * Cible (touches non attribuées) : seules les positions passant par une touche ouverte comptent,
+ * pondérées par le nombre de touches couvertes ; le coût ne dépend pas de la taille de grille.
+ *
+ * Un navire annoncé coulé est rattaché à un alignement de touches ouvertes contenant le dernier tir,
+ * dont les cases sont alors bloquées.
+ */
+public final class DensityTargeting implements TargetingStrategy {
+    private static final int TAILLE_MAX_MASQUES = 64;
+    private static final int ESSAIS_DAMIER = 64;
+    private static final Ship.ShipType[] TYPES = Ship.ShipType.values();
+
+    private final int taille;
+    private final int nombreCases;
+    private final Bitboard tirees;         // Toutes les cases jouées
+    private final Bitboard bloquees;       // Eau ou navire coulé : aucune position ne peut y passer
+    private final Bitboard touchesOuvertes; // Touches pas encore rattachées à un navire coulé
+    private int[] ouvertes = new int[8];   // Liste des touches ouvertes (index de case)
+    private int nombreOuvertes;
+    private final int[] restantsParType;   // Navires à flot, par ordinal de ShipType
+    private int naviresRestants;
+    private final long[] ligneBloquee;     // Masques par ligne et par colonne, petites grilles seulement
+    private final long[] colonneBloquee;
+    private final int[] densite;           // Réutilisé d'un coup à l'autre
+
+    public DensityTargeting(GameConfig config) {
+        this.taille = config.getTailleGrille();
+        this.nombreCases = taille * taille;
+        this.tirees = new Bitboard(nombreCases);
+        this.bloquees = new Bitboard(nombreCases);
+        this.touchesOuvertes = new Bitboard(nombreCases);
+        this.restantsParType = new int[TYPES.length];
+        for (Ship.ShipType type : config.getFlotte()) {
+            restantsParType[type.ordinal()]++;
+        }
+        this.naviresRestants = config.getFlotte().size();
+        boolean masques = taille <= TAILLE_MAX_MASQUES;
+        this.ligneBloquee = masques ? new long[taille] : null;
+        this.colonneBloquee = masques ? new long[taille] : null;
+        this.densite = new int[masques ? nombreCases : 0]; // Grande grille : densité de la cible calculée à la volée
+    }
+
+    @Override
+    public void enregistrer(int ligne, int colonne, PlayerBoard.ShotResult resultat, Ship.ShipType navireCoule) {
+        if (ligne < 0 || ligne >= taille || colonne < 0 || colonne >= taille) return;
+        int index = ligne * taille + colonne;
+        switch (resultat) {
+            case MANQUE:
+                tirees.ajouter(index);
+                bloquer(index);
+                break;
+            case TOUCHE:
+                if (!tirees.contient(index)) ouvrir(index);
+                break;
+            case COULE:
+                if (!tirees.contient(index)) ouvrir(index);
+                if (navireCoule != null) rattacherNavireCoule(ligne, colonne, navireCoule);
+                break;
+            case DEJA_JOUE:
+                tirees.ajouter(index); // Jouée par un autre joueur avant nous : ne plus la proposer
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public int choisirCase(Random aleatoire) {
+        if (nombreOuvertes > 0) {
+            int cible = choisirCible(aleatoire);
+            if (cible >= 0) return cible;
+        }
+        return ligneBloquee != null ? chasserParMasques(aleatoire) : chasserSurDamier(aleatoire);
+    }
+
+    @Override
+    public boolean estFlotteCoulee() {
+        return naviresRestants == 0;
+    }
+
+    // État observé, lu par MonteCarloTargeting avant chaque échantillonnage
+
+    int getTaille() {
+        return taille;
+    }
+
+    boolean estTiree(int index) {
+        return tirees.contient(index);
+    }
+
+    boolean estToucheOuverte(int index) {
+        return touchesOuvertes.contient(index);
+    }
+
+    /** Vrai si les masques par ligne et par colonne sont tenus (grille d'au plus 64 colonnes). */
+    boolean aDesMasques() {
+        return ligneBloquee != null;
+    }
+
+    long getLigneBloquee(int ligne) {
+        return ligneBloquee[ligne];
+    }
+
+    long getColonneBloquee(int colonne) {
+        return colonneBloquee[colonne];
+    }
+
+    int getNombreOuvertes() {
+        return nombreOuvertes;
+    }
+
+    int getOuverte(int i) {
+        return ouvertes[i];
+    }
+
+    int getRestants(Ship.ShipType type) {
+        return restantsParType[type.ordinal()];
+    }
+
+    private void ouvrir(int index) {
+        tirees.ajouter(index);
+        touchesOuvertes.ajouter(index);
+        if (nombreOuvertes == ouvertes.length) ouvertes = Arrays.copyOf(ouvertes, nombreOuvertes * 2);
+        ouvertes[nombreOuvertes++] = index;
+    }
+
+    private void bloquer(int index) {
+        bloquees.ajouter(index);
+        if (ligneBloquee != null) {
+            ligneBloquee[index / taille] |= 1L << (index % taille);
+            colonneBloquee[index % taille] |= 1L << (index / taille);
+        }
+    }
+
+    private void fermer(int index) {
+        touchesOuvertes.retirer(index);
+        for (int i = 0; i < nombreOuvertes; i++) {
+            if (ouvertes[i] == index) {
+                ouvertes[i] = ouvertes[--nombreOuvertes];
+                break;
+            }
+        }
+        bloquer(index);
+    }
+
+    /**
+     * Rattache le navire coulé en (ligne, colonne) à L touches ouvertes alignées : l'orientation dont
+     * l'alignement est exactement de la taille du navire est préférée, sinon l'horizontale.
+     */
+    private void rattacherNavireCoule(int ligne, int colonne, Ship.ShipType type) {
+        int longueur = type.getTaille();
+        int gauche = compterOuvertes(ligne, colonne, 0, -1);
+        int droite = compterOuvertes(ligne, colonne, 0, 1);
+        int haut = compterOuvertes(ligne, colonne, -1, 0);
+        int bas = compterOuvertes(ligne, colonne, 1, 0);
+        int horizontal = gauche + droite + 1;
+        int vertical = haut + bas + 1;
+        boolean enLigne = horizontal >= longueur && (vertical < longueur || horizontal == longueur || vertical != longueur);
+        if (enLigne) {
+            int debut = colonne - Math.min(gauche, longueur - 1); // Fenêtre poussée vers la gauche (le haut) : touches les plus anciennes
+            for (int c = debut; c < debut + longueur; c++) fermer(ligne * taille + c);
+        } else if (vertical >= longueur) {
+            int debut = ligne - Math.min(haut, longueur - 1);
+            for (int l = debut; l < debut + longueur; l++) fermer(l * taille + colonne);
+        } else {
+            fermer(ligne * taille + colonne); // Alignement introuvable : seul le dernier tir est sûr
+        }
+        if (restantsParType[type.ordinal()] > 0) {
+            restantsParType[type.ordinal()]--;
+            naviresRestants--;
+        }
+    }
+
+    private int compterOuvertes(int ligne, int colonne, int dl, int dc) {
+        int n = 0;
+        for (int l = ligne + dl, c = colonne + dc; l >= 0 && l < taille && c >= 0 && c < taille
+                && touchesOuvertes.contient(l * taille + c); l += dl, c += dc) {
+            n++;
+        }
+        return n;
+    }
+
+    /** Mode cible : densité des positions passant par les touches ouvertes ; -1 si aucune n'est possible. */
+    private int choisirCible(Random aleatoire) {
+        int meilleure = -1;
+        int meilleurScore = 0;
+        int egalites = 0;
+        // Une case candidate est voisine d'une touche ouverte ; on cumule le poids des positions qui la couvrent
+        for (int h = 0; h < nombreOuvertes; h++) {
+            int touche = ouvertes[h];
+            int ligne = touche / taille;
+            int colonne = touche % taille;
+            for (int d = 0; d < 4; d++) {
+                int dl = d == 0 ? -1 : d == 1 ? 1 : 0;
+                int dc = d == 2 ? -1 : d == 3 ? 1 : 0;
+                int l = ligne + dl;
+                int c = colonne + dc;
+                // Suivre les touches ouvertes alignées jusqu'à la première case non jouée
+                while (l >= 0 && l < taille && c >= 0 && c < taille && touchesOuvertes.contient(l * taille + c)) {
+                    l += dl;
+                    c += dc;
+                }
+                if (l < 0 || l >= taille || c < 0 || c >= taille || tirees.contient(l * taille + c)) continue;
+                int score = scoreCible(l, c);
+                if (score > meilleurScore) {
+                    meilleurScore = score;
+                    meilleure = l * taille + c;
+                    egalites = 1;
+                } else if (score == meilleurScore && score > 0 && aleatoire.nextInt(++egalites) == 0) {
+                    meilleure = l * taille + c;
+                }
+            }
+        }
+        return meilleure;
+    }
+
+    /** Poids de la case (non jouée) : positions libres qui la couvrent, chacune comptée par touche ouverte couverte. */
+    private int scoreCible(int ligne, int colonne) {
+        int score = 0;
+        for (int t = 0; t < restantsParType.length; t++) {
+            int nombre = restantsParType[t];
+            if (nombre == 0) continue;
+            int longueur = TYPES[t].getTaille();
+            for (int orientation = 0; orientation < 2; orientation++) {
+                int dl = orientation == 0 ? 0 : 1;
+                int dc = orientation == 0 ? 1 : 0;
+                for (int decalage = 0; decalage < longueur; decalage++) {
+                    int l0 = ligne - dl * decalage;
+                    int c0 = colonne - dc * decalage;
+                    int couvertes = couvertureSiLibre(l0, c0, dl, dc, longueur);
+                    if (couvertes > 0) score += nombre * couvertes * couvertes;
+                }
+            }
+        }
+        return score;
+    }
+
+    /** Touches ouvertes couvertes par la position, 0 si elle sort de la grille ou croise une case bloquée. */
+    private int couvertureSiLibre(int l0, int c0, int dl, int dc, int longueur) {
+        int lFin = l0 + dl * (longueur - 1);
+        int cFin = c0 + dc * (longueur - 1);
+        if (l0 < 0 || c0 < 0 || lFin >= taille || cFin >= taille) return 0;
+        int couvertes = 0;
+        for (int i = 0, l = l0, c = c0; i < longueur; i++, l += dl, c += dc) {
+            int index = l * taille + c;
+            if (bloquees.contient(index)) return 0;
+            if (touchesOuvertes.contient(index)) couvertes++;
+        }
+        return couvertes;
+    }
+
+    /** Mode chasse, grille d'au plus 64 colonnes : densité de toutes les positions libres. */
+    private int chasserParMasques(Random aleatoire) {
+        Arrays.fill(densite, 0);
+        for (int t = 0; t < restantsParType.length; t++) {
+            int nombre = restantsParType[t];
+            if (nombre == 0) continue;
+            int longueur = TYPES[t].getTaille();
+            if (longueur > taille) continue;
+            long masque = (1L << longueur) - 1; // longueur <= 5 : pas de débordement
+            for (int ligne = 0; ligne < taille; ligne++) {
+                long bloquee = ligneBloquee[ligne];
+                int base = ligne * taille;
+                for (int colonne = 0; colonne + longueur <= taille; colonne++) {
+                    if (((bloquee >>> colonne) & masque) != 0) continue;
+                    for (int i = 0; i < longueur; i++) densite[base + colonne + i] += nombre;
+                }
+            }
+            for (int colonne = 0; colonne < taille; colonne++) {
+                long bloquee = colonneBloquee[colonne];
+                for (int ligne = 0; ligne + longueur <= taille; ligne++) {
+                    if (((bloquee >>> ligne) & masque) != 0) continue;
+                    for (int i = 0; i < longueur; i++) densite[(ligne + i) * taille + colonne] += nombre;
+                }
+            }
+        }
+        int meilleure = -1;
+        int meilleurScore = -1;
+        int egalites = 0;
+        for (int index = 0; index < nombreCases; index++) {
+            if (tirees.contient(index)) continue;
+            int score = densite[index];
+            if (score > meilleurScore) {
+                meilleurScore = score;
+                meilleure = index;
+                egalites = 1;
+            } else if (score == meilleurScore && aleatoire.nextInt(++egalites) == 0) {
+                meilleure = index;
+            }
+        }
+        return meilleure;
+    }
+
+    /** Mode chasse, grande grille : case non jouée au hasard sur le damier du plus petit navire restant. */
+    private int chasserSurDamier(Random aleatoire) {
+        int pas = Integer.MAX_VALUE;
+        for (int t = 0; t < restantsParType.length; t++) {
+            if (restantsParType[t] > 0) pas = Math.min(pas, TYPES[t].getTaille());
+        }
+        if (pas == Integer.MAX_VALUE) pas = 1;
+        for (int essai = 0; essai < ESSAIS_DAMIER; essai++) {
+            int ligne = aleatoire.nextInt(taille);
+            int colonne = aleatoire.nextInt(taille);
+            int index = ligne * taille + colonne;
+            if ((ligne + colonne) % pas == 0 && !tirees.contient(index)) return index;
+        }
+        // Grille presque pleine : première case non jouée à partir d'un point au hasard
+        int depart = aleatoire.nextInt(nombreCases);
+        for (int i = 0; i < nombreCases; i++) {
+            int index = (depart + i) % nombreCases;
+            if (!tirees.contient(index)) return index;
+        }
+        return -1;
+    }
+}
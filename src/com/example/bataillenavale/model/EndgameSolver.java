@@ -0,0 +1,541 @@
+package com.example.bataillenavale.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Résolution exacte de fin de partie sur une grille adverse. On énumère toutes les configurations des
+ * navires restants compatibles avec les observations (eau, navires coulés, touches ouvertes toutes
+ * couvertes, aucun navire entièrement touché sans avoir été annoncé coulé), puis on cherche le tir qui
+ * minimise l'espérance du nombre de tirs restants pour couler la flotte, les configurations compatibles
+ * étant équiprobables.
+ *
+ * Les cases utiles (couvertes par au moins une configuration) sont renumérotées sur un long.
+ * Un état est l'ensemble des configurations encore compatibles et le masque des cases utiles tirées ;
+ * sa valeur et son meilleur tir sont mémorisés. La table survit d'un coup à l'autre : après une
+ * observation, l'état courant est le plus souvent un sous-arbre déjà exploré.
+ * La recherche s'arrête pour un état dès qu'un tir atteint le minorant (le moins de cases restant à
+ * toucher parmi ses configurations) : chaque tir ne touche qu'une case.
+ *
+ * Au-delà de seuilConfigurations configurations, de CASES_UTILES_MAX cases utiles ou de TRAVAIL_MAX opérations
+ * pour un coup, la résolution est abandonnée et la visée appelante reprend la main. Après un abandon en
+ * cours de recherche, on ne réessaie qu'une fois le nombre de configurations divisé par deux. Après un
+ * abandon de l'énumération (ou un plafond encore dépassé), on laisse passer 1, 2, 4 puis au plus
+ * ATTENTE_MAX coups avant de la relancer : elle n'est pas refaite en vain à chaque coup.
+ * Non thread-safe.
+ */
+final class EndgameSolver {
+    static final long TRAVAIL_MAX = 50_000; // Mots d'ensemble hachés et issues calculées par coup : quelques ms
+    static final int CASES_UTILES_MAX = 20; // L'arbre croît en factorielle des cases : au-delà, quelques coups dépassent TRAVAIL_MAX
+    static final int TABLE_MAX = 100_000; // États mémorisés ; au-delà la table repart de zéro au coup suivant
+    private static final int ETAPES_PAR_CONFIGURATION = 64;
+    private static final int ETAPES_MIN = 100_000;
+    private static final int ATTENTE_MAX = 8; // Coups sans énumération après des abandons répétés
+    private static final Ship.ShipType[] TYPES = Ship.ShipType.values();
+
+    /** Levée quand un coup dépasse TRAVAIL_MAX ; sans pile, elle ne coûte qu'un saut. */
+    private static final RuntimeException TROP_COMPLEXE = new RuntimeException("fin de partie trop complexe", null, false, false) {
+    };
+
+    private final int seuilConfigurations;
+
+    // Configurations de la résolution active
+    private boolean actif;
+    private int[] cellules;      // Case utile -> index absolu de la grille
+    private int[] utileParCase;  // Index absolu -> case utile, -1 sinon
+    private long[][] navires;    // [configuration][navire] : masque des cases utiles du navire
+    private long[] unions;       // [configuration] : toutes les cases de ses navires
+    private int[] typesNavires;  // [navire] : ordinal du ShipType, commun à toutes les configurations
+    private long[] vivantes;     // Configurations encore compatibles
+    private long tirees;         // Cases utiles déjà tirées
+    private final Map<Etat, Resolu> table = new HashMap<>();
+    private long travail;
+    private int plafond = Integer.MAX_VALUE; // Configurations au-delà desquelles la recherche a déjà échoué
+    private int attente;                     // Coups à laisser passer avant la prochaine énumération
+    private int prochaineAttente = 1;        // Doublée à chaque abandon de l'énumération, remise à 1 au succès
+
+    // Statistiques cumulées
+    private long consultations;
+    private long succes;
+    private long coupsResolus;
+
+    EndgameSolver(int seuilConfigurations) {
+        this.seuilConfigurations = seuilConfigurations;
+    }
+
+    boolean estActif() {
+        return actif;
+    }
+
+    long getConsultations() {
+        return consultations;
+    }
+
+    long getSucces() {
+        return succes;
+    }
+
+    long getCoupsResolus() {
+        return coupsResolus;
+    }
+
+    /** Tente d'énumérer les configurations compatibles ; vrai si la fin de partie est assez petite pour être résolue. */
+    boolean activer(DensityTargeting observation) {
+        desactiver();
+        if (seuilConfigurations <= 0 || !observation.aDesMasques() || observation.estFlotteCoulee()) return false;
+        if (attente > 0) {
+            attente--;
+            return false;
+        }
+        int taille = observation.getTaille();
+        List<Integer> longueurs = new ArrayList<>();
+        List<Integer> types = new ArrayList<>();
+        for (int t = 0; t < TYPES.length; t++) { // Ordinaux croissants : longueurs décroissantes, navires identiques voisins
+            for (int n = observation.getRestants(TYPES[t]); n > 0; n--) {
+                longueurs.add(TYPES[t].getTaille());
+                types.add(t);
+            }
+        }
+        Enumeration enumeration = new Enumeration(observation, taille, longueurs, types, seuilConfigurations);
+        if (!enumeration.enumerer() || enumeration.abandonnee() || enumeration.trouvees.isEmpty()
+                || enumeration.trouvees.size() > plafond) {
+            return differer();
+        }
+
+        // Renumérotation des cases couvertes
+        utileParCase = new int[taille * taille];
+        Arrays.fill(utileParCase, -1);
+        int nombreUtiles = 0;
+        int[] parUtile = new int[CASES_UTILES_MAX];
+        List<int[]> configurations = new ArrayList<>();
+        for (Configuration configuration : enumeration.trouvees) configurations.add(configuration.positions);
+        for (int[] configuration : configurations) {
+            for (int n = 0; n < longueurs.size(); n++) {
+                for (int i = 0, index = configuration[n] >>> 1; i < longueurs.get(n); i++, index += (configuration[n] & 1) != 0 ? 1 : taille) {
+                    if (utileParCase[index] >= 0) continue;
+                    if (nombreUtiles == CASES_UTILES_MAX) {
+                        utileParCase = null;
+                        return differer();
+                    }
+                    parUtile[nombreUtiles] = index;
+                    utileParCase[index] = nombreUtiles++;
+                }
+            }
+        }
+        cellules = Arrays.copyOf(parUtile, nombreUtiles);
+        typesNavires = new int[types.size()];
+        for (int n = 0; n < typesNavires.length; n++) typesNavires[n] = types.get(n);
+        int nombre = configurations.size();
+        navires = new long[nombre][longueurs.size()];
+        unions = new long[nombre];
+        for (int c = 0; c < nombre; c++) {
+            int[] configuration = configurations.get(c);
+            for (int n = 0; n < longueurs.size(); n++) {
+                long masque = 0;
+                for (int i = 0, index = configuration[n] >>> 1; i < longueurs.get(n); i++, index += (configuration[n] & 1) != 0 ? 1 : taille) {
+                    masque |= 1L << utileParCase[index];
+                }
+                navires[c][n] = masque;
+                unions[c] |= masque;
+            }
+        }
+        vivantes = new long[(nombre + 63) >>> 6];
+        for (int c = 0; c < nombre; c++) vivantes[c >>> 6] |= 1L << c;
+        tirees = 0;
+        for (int u = 0; u < nombreUtiles; u++) {
+            if (observation.estTiree(cellules[u])) tirees |= 1L << u; // Touches ouvertes
+        }
+        prochaineAttente = 1;
+        actif = true;
+        return true;
+    }
+
+    /** Énumération abandonnée : pas de nouvel essai avant quelques coups, de plus en plus espacés. */
+    private boolean differer() {
+        attente = prochaineAttente;
+        prochaineAttente = Math.min(2 * prochaineAttente, ATTENTE_MAX);
+        return false;
+    }
+
+    void desactiver() {
+        actif = false;
+        table.clear();
+        navires = null;
+        unions = null;
+        vivantes = null;
+    }
+
+    /** Restreint les configurations au résultat observé ; désactive la résolution si plus rien n'est compatible. */
+    void enregistrer(int index, PlayerBoard.ShotResult resultat, Ship.ShipType navireCoule) {
+        if (!actif || resultat == PlayerBoard.ShotResult.DEJA_JOUE || resultat == PlayerBoard.ShotResult.ERREUR) return;
+        int utile = index >= 0 && index < utileParCase.length ? utileParCase[index] : -1;
+        if (utile < 0) {
+            if (resultat != PlayerBoard.ShotResult.MANQUE) desactiver(); // Touche hors de toute configuration
+            return;
+        }
+        if ((tirees & (1L << utile)) != 0) return;
+        int attendu;
+        if (resultat == PlayerBoard.ShotResult.MANQUE) {
+            attendu = 0;
+        } else if (resultat == PlayerBoard.ShotResult.TOUCHE) {
+            attendu = 1;
+        } else if (navireCoule != null) {
+            attendu = 2 + navireCoule.ordinal();
+        } else {
+            desactiver();
+            return;
+        }
+        boolean reste = false;
+        for (int c = premiere(vivantes); c >= 0; c = suivante(vivantes, c)) {
+            if (issue(c, utile, tirees) != attendu) {
+                vivantes[c >>> 6] &= ~(1L << c);
+            } else {
+                reste = true;
+            }
+        }
+        tirees |= 1L << utile;
+        if (!reste || (unions[premiere(vivantes)] & ~tirees) == 0) desactiver(); // Incohérence, ou flotte coulée
+    }
+
+    /** Meilleur tir (index absolu) ; -1 et désactivation si le coup dépasse TRAVAIL_MAX. */
+    int choisirCase() {
+        if (!actif) return -1;
+        travail = 0;
+        if (table.size() > TABLE_MAX) table.clear();
+        int[] courantes = listeVivantes();
+        try {
+            valeur(courantes, tirees);
+        } catch (RuntimeException e) {
+            if (e != TROP_COMPLEXE) throw e;
+            plafond = nombreVivantes() / 2;
+            desactiver();
+            return -1;
+        }
+        Resolu racine = table.get(new Etat(courantes, tirees));
+        coupsResolus++;
+        return cellules[racine.coup];
+    }
+
+    /** Issue d'un tir sur la case utile pour une configuration : 0 eau, 1 touché, 2 + ordinal coulé. */
+    private int issue(int configuration, int utile, long dejaTirees) {
+        long bit = 1L << utile;
+        if ((unions[configuration] & bit) == 0) return 0;
+        long[] masques = navires[configuration];
+        for (int n = 0; n < masques.length; n++) {
+            if ((masques[n] & bit) == 0) continue;
+            return (masques[n] & ~(dejaTirees | bit)) == 0 ? 2 + typesNavires[n] : 1;
+        }
+        return 0;
+    }
+
+    /** Espérance du nombre de tirs restants depuis l'état (configurations en ordre croissant), en jouant au mieux. */
+    private double valeur(int[] ensemble, long dejaTirees) {
+        travail += ensemble.length;
+        Etat etat = new Etat(ensemble, dejaTirees);
+        consultations++;
+        Resolu connu = table.get(etat);
+        if (connu != null) {
+            succes++;
+            return connu.valeur;
+        }
+
+        int nombre = ensemble.length;
+        int minorant = Integer.MAX_VALUE;
+        int[] couverture = new int[cellules.length];
+        for (int c : ensemble) {
+            long restantes = unions[c] & ~dejaTirees;
+            minorant = Math.min(minorant, Long.bitCount(restantes));
+            for (long m = restantes; m != 0; m &= m - 1) couverture[Long.numberOfTrailingZeros(m)]++;
+        }
+        if (minorant == 0) { // Configurations compatibles entre elles : toutes coulées
+            table.put(etat, new Resolu(0, -1));
+            return 0;
+        }
+
+        // Cases les plus souvent couvertes d'abord : le minorant est plus vite atteint
+        int candidats = 0;
+        int[] ordre = new int[cellules.length];
+        for (int u = 0; u < cellules.length; u++) if (couverture[u] > 0) ordre[candidats++] = u;
+        for (int i = 1; i < candidats; i++) {
+            int u = ordre[i];
+            int j = i - 1;
+            while (j >= 0 && couverture[ordre[j]] < couverture[u]) {
+                ordre[j + 1] = ordre[j];
+                j--;
+            }
+            ordre[j + 1] = u;
+        }
+
+        double meilleure = Double.MAX_VALUE;
+        int meilleurCoup = ordre[0];
+        int[] issues = new int[nombre];
+        int[] effectifs = new int[2 + TYPES.length];
+        int[] minorants = new int[effectifs.length];
+        for (int i = 0; i < candidats && meilleure > minorant + 1e-9; i++) {
+            int u = ordre[i];
+            travail += nombre;
+            if (travail > TRAVAIL_MAX) throw TROP_COMPLEXE;
+            Arrays.fill(effectifs, 0);
+            Arrays.fill(minorants, Integer.MAX_VALUE);
+            long apres = dejaTirees | (1L << u);
+            for (int k = 0; k < nombre; k++) {
+                int issue = issue(ensemble[k], u, dejaTirees);
+                issues[k] = issue;
+                effectifs[issue]++;
+                minorants[issue] = Math.min(minorants[issue], Long.bitCount(unions[ensemble[k]] & ~apres));
+            }
+            // Minorant de l'espérance de ce tir : inutile de l'explorer s'il ne peut pas battre le meilleur
+            double esperanceMin = 1;
+            for (int g = 0; g < effectifs.length; g++) {
+                if (effectifs[g] > 0) esperanceMin += (double) effectifs[g] / nombre * minorants[g];
+            }
+            if (esperanceMin >= meilleure) continue;
+            double esperance = 1;
+            for (int g = 0; g < effectifs.length && esperance < meilleure; g++) {
+                if (effectifs[g] == 0) continue;
+                int[] groupe = new int[effectifs[g]];
+                for (int k = 0, n = 0; k < nombre; k++) {
+                    if (issues[k] == g) groupe[n++] = ensemble[k];
+                }
+                esperance += (double) effectifs[g] / nombre * valeur(groupe, apres);
+            }
+            if (esperance < meilleure) {
+                meilleure = esperance;
+                meilleurCoup = u;
+            }
+        }
+        table.put(etat, new Resolu(meilleure, meilleurCoup));
+        return meilleure;
+    }
+
+    private int nombreVivantes() {
+        int nombre = 0;
+        for (long mot : vivantes) nombre += Long.bitCount(mot);
+        return nombre;
+    }
+
+    private int[] listeVivantes() {
+        int[] liste = new int[nombreVivantes()];
+        int n = 0;
+        for (int c = premiere(vivantes); c >= 0; c = suivante(vivantes, c)) liste[n++] = c;
+        return liste;
+    }
+
+    private static int premiere(long[] ensemble) {
+        return suivante(ensemble, -1);
+    }
+
+    private static int suivante(long[] ensemble, int depuis) {
+        int suivant = depuis + 1;
+        int mot = suivant >>> 6;
+        if (mot >= ensemble.length) return -1;
+        long reste = ensemble[mot] & (-1L << suivant);
+        while (reste == 0) {
+            if (++mot == ensemble.length) return -1;
+            reste = ensemble[mot];
+        }
+        return (mot << 6) + Long.numberOfTrailingZeros(reste);
+    }
+
+    /** Clé de la table : configurations compatibles et cases utiles tirées. */
+    private static final class Etat {
+        private final int[] ensemble;
+        private final long tirees;
+        private final int hash;
+
+        Etat(int[] ensemble, long tirees) {
+            this.ensemble = ensemble;
+            this.tirees = tirees;
+            // Ensembles voisins : Arrays.hashCode les ferait collisionner en masse
+            long h = tirees * 0xC2B2AE3D27D4EB4FL;
+            for (int c : ensemble) {
+                h = (h ^ c) * 0x9E3779B97F4A7C15L;
+                h ^= h >>> 29;
+            }
+            this.hash = (int) (h ^ (h >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object autre) {
+            if (!(autre instanceof Etat)) return false;
+            Etat etat = (Etat) autre;
+            return hash == etat.hash && tirees == etat.tirees && Arrays.equals(ensemble, etat.ensemble);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Resolu {
+        final double valeur;
+        final int coup; // Case utile, -1 pour un état terminal
+
+        Resolu(double valeur, int coup) {
+            this.valeur = valeur;
+            this.coup = coup;
+        }
+    }
+
+    /** Positions des navires d'une configuration, triées au sein de chaque type : deux navires du même type s'échangent. */
+    private static final class Configuration {
+        final int[] positions;
+        private final int hash;
+
+        Configuration(int[] positions, int[] types) {
+            this.positions = positions.clone();
+            for (int debut = 0, fin; debut < types.length; debut = fin) {
+                fin = debut + 1;
+                while (fin < types.length && types[fin] == types[debut]) fin++;
+                Arrays.sort(this.positions, debut, fin);
+            }
+            this.hash = Arrays.hashCode(this.positions);
+        }
+
+        @Override
+        public boolean equals(Object autre) {
+            return autre instanceof Configuration && Arrays.equals(positions, ((Configuration) autre).positions);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Retour arrière sur les navires restants, positions codées comme FleetGenerator.
+     * D'abord la première touche ouverte non couverte : un navire non posé doit passer par elle (un seul
+     * navire essayé par type). Une fois toutes les touches couvertes, les autres navires sont posés
+     * librement, dans l'ordre de leurs positions pour un même type. Une configuration atteinte par deux
+     * chemins n'est comptée qu'une fois.
+     */
+    private static final class Enumeration {
+        private final DensityTargeting observation;
+        private final int taille;
+        private final int[] longueurs;
+        private final int[] types;
+        private final int seuil;
+        private final long[] lignes;    // Cases interdites ou occupées, par ligne
+        private final int[] touches;    // Touches ouvertes
+        private final int[] positions;
+        private final boolean[] poses;
+        private long etapes;            // Poses essayées, bornées pour que l'échec reste bon marché
+        final Set<Configuration> trouvees = new LinkedHashSet<>();
+
+        Enumeration(DensityTargeting observation, int taille, List<Integer> longueurs, List<Integer> types, int seuil) {
+            this.observation = observation;
+            this.taille = taille;
+            this.longueurs = new int[longueurs.size()];
+            this.types = new int[types.size()];
+            for (int n = 0; n < this.longueurs.length; n++) {
+                this.longueurs[n] = longueurs.get(n);
+                this.types[n] = types.get(n);
+            }
+            this.seuil = seuil;
+            this.lignes = new long[taille];
+            for (int l = 0; l < taille; l++) {
+                for (int c = 0; c < taille; c++) {
+                    int index = l * taille + c;
+                    // Case jouée sans être une touche ouverte : eau, navire coulé ou case déjà jouée par un autre
+                    if (observation.estTiree(index) && !observation.estToucheOuverte(index)) lignes[l] |= 1L << c;
+                }
+            }
+            this.touches = new int[observation.getNombreOuvertes()];
+            for (int i = 0; i < touches.length; i++) touches[i] = observation.getOuverte(i);
+            this.positions = new int[this.longueurs.length];
+            this.poses = new boolean[this.longueurs.length];
+        }
+
+        /** Faux dès que le seuil de configurations ou d'étapes est dépassé. */
+        boolean enumerer() {
+            int touche = -1;
+            for (int t : touches) {
+                if ((lignes[t / taille] & (1L << (t % taille))) == 0) {
+                    touche = t;
+                    break;
+                }
+            }
+            if (touche < 0) return placerLibres(0, -1, -1);
+            int ligne = touche / taille;
+            int colonne = touche % taille;
+            for (int n = 0; n < longueurs.length; n++) {
+                if (poses[n] || (n > 0 && types[n] == types[n - 1] && !poses[n - 1])) continue; // Un seul navire par type
+                int longueur = longueurs[n];
+                for (int decalage = 0; decalage < longueur; decalage++) {
+                    for (int sens = 0; sens < 2; sens++) {
+                        boolean horizontal = sens == 0;
+                        int l = horizontal ? ligne : ligne - decalage;
+                        int c = horizontal ? colonne - decalage : colonne;
+                        if (!essayer(n, l, c, horizontal)) continue;
+                        boolean continuer = enumerer();
+                        enlever(n, l, c, horizontal);
+                        if (!continuer) return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** precedent : dernier navire posé librement, à la position positionMin. */
+        private boolean placerLibres(int depuis, int precedent, int positionMin) {
+            int navire = depuis;
+            while (navire < longueurs.length && poses[navire]) navire++;
+            if (navire == longueurs.length) {
+                trouvees.add(new Configuration(positions, types));
+                return trouvees.size() <= seuil;
+            }
+            boolean memeType = precedent == navire - 1 && precedent >= 0 && types[navire] == types[precedent];
+            for (int position = memeType ? positionMin + 1 : 0; position < 2 * taille * taille; position++) {
+                int index = position >>> 1;
+                boolean horizontal = (position & 1) != 0;
+                if (!essayer(navire, index / taille, index % taille, horizontal)) continue;
+                boolean continuer = placerLibres(navire + 1, navire, position);
+                enlever(navire, index / taille, index % taille, horizontal);
+                if (!continuer) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Pose le navire si ses cases sont dans la grille, libres, et pas toutes des touches ouvertes
+         * (il aurait été annoncé coulé).
+         */
+        private boolean essayer(int navire, int ligne, int colonne, boolean horizontal) {
+            if (++etapes > ETAPES_PAR_CONFIGURATION * (long) seuil + ETAPES_MIN) return false;
+            int longueur = longueurs[navire];
+            if (ligne < 0 || colonne < 0 || (horizontal ? colonne + longueur > taille : ligne + longueur > taille)) return false;
+            boolean caseNonTouchee = false;
+            for (int i = 0; i < longueur; i++) {
+                int l = horizontal ? ligne : ligne + i;
+                int c = horizontal ? colonne + i : colonne;
+                if ((lignes[l] & (1L << c)) != 0) return false;
+                if (!observation.estToucheOuverte(l * taille + c)) caseNonTouchee = true;
+            }
+            if (!caseNonTouchee) return false;
+            for (int i = 0; i < longueur; i++) {
+                lignes[horizontal ? ligne : ligne + i] |= 1L << (horizontal ? colonne + i : colonne);
+            }
+            positions[navire] = ((ligne * taille + colonne) << 1) | (horizontal ? 1 : 0);
+            poses[navire] = true;
+            return true;
+        }
+
+        private void enlever(int navire, int ligne, int colonne, boolean horizontal) {
+            for (int i = 0; i < longueurs[navire]; i++) {
+                lignes[horizontal ? ligne : ligne + i] &= ~(1L << (horizontal ? colonne + i : colonne));
+            }
+            poses[navire] = false;
+        }
+
+        boolean abandonnee() {
+            return etapes > ETAPES_PAR_CONFIGURATION * (long) seuil + ETAPES_MIN || trouvees.size() > seuil;
+        }
+    }
+}
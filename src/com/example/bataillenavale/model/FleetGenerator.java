@@ -0,0 +1,121 @@
+package com.example.bataillenavale.model;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tirage de flottes aléatoires sans rejet en rafale ni état de tour.
+ * Les positions légales d'un navire (dans la grille) sont numérotées de 0 à 2 * n * (n - taille + 1) - 1,
+ * horizontales puis verticales, et décodées par calcul. On tire un numéro, on vérifie le chevauchement
+ * sur la grille d'occupation (un test de bit par case) ; si la grille est trop encombrée pour que
+ * quelques tirages suffisent, on énumère les positions libres et on tire parmi elles.
+ * Dans les deux cas le tirage est uniforme parmi les positions libres.
+ *
+ * Un placement est codé dans un int : (ligne * tailleGrille + colonne) << 1 | horizontal.
+ * Non thread-safe (tampons réutilisés) : une instance par thread ou par partie.
+ */
+public final class FleetGenerator {
+    private static final int TIRAGES_DIRECTS = 8;
+
+    private final int tailleGrille;
+    private final Bitboard occupation; // Tampon de generer, vidé après chaque flotte
+    private int[] candidats = new int[0]; // Positions libres, pour l'énumération (alloué à la demande)
+
+    public FleetGenerator(int tailleGrille) {
+        this.tailleGrille = tailleGrille;
+        this.occupation = new Bitboard(tailleGrille * tailleGrille);
+    }
+
+    public int getLigne(int placement) {
+        return (placement >>> 1) / tailleGrille;
+    }
+
+    public int getColonne(int placement) {
+        return (placement >>> 1) % tailleGrille;
+    }
+
+    public static boolean estHorizontal(int placement) {
+        return (placement & 1) != 0;
+    }
+
+    /**
+     * Tire une flotte complète sur une grille vide, un placement par type dans l'ordre de la liste.
+     * @return false si un navire ne tient plus (grille trop petite pour la flotte).
+     */
+    public boolean generer(List<Ship.ShipType> types, Random aleatoire, int[] placements) {
+        boolean complet = true;
+        int places = 0;
+        for (; places < types.size(); places++) {
+            int taille = types.get(places).getTaille();
+            int placement = tirerPlacement(occupation, taille, aleatoire);
+            if (placement < 0) {
+                complet = false;
+                break;
+            }
+            placements[places] = placement;
+            marquer(occupation, placement, taille, true);
+        }
+        for (int i = 0; i < places; i++) { // Vider le tampon case par case : O(flotte) et non O(grille)
+            marquer(occupation, placements[i], types.get(i).getTaille(), false);
+        }
+        return complet;
+    }
+
+    /** Place le navire à une position libre tirée au hasard sur le plateau (sans toucher au tour de jeu). */
+    public boolean placerAleatoirement(PlayerBoard plateau, Ship navire, Random aleatoire) {
+        int placement = tirerPlacement(plateau.getCasesNavires(), navire.getTaille(), aleatoire);
+        return placement >= 0 && plateau.placerNavire(navire, getLigne(placement), getColonne(placement), estHorizontal(placement));
+    }
+
+    /** Placement uniforme parmi les positions libres pour un navire de cette taille, -1 s'il n'y en a aucune. */
+    private int tirerPlacement(Bitboard occupees, int taille, Random aleatoire) {
+        int parOrientation = tailleGrille * (tailleGrille - taille + 1);
+        if (parOrientation <= 0) return -1;
+        int total = 2 * parOrientation;
+        for (int essai = 0; essai < TIRAGES_DIRECTS; essai++) {
+            int placement = decoder(aleatoire.nextInt(total), taille, parOrientation);
+            if (estLibre(occupees, placement, taille)) return placement;
+        }
+        // Grille encombrée : énumération des positions libres
+        if (candidats.length < total) candidats = new int[total];
+        int libres = 0;
+        for (int numero = 0; numero < total; numero++) {
+            int placement = decoder(numero, taille, parOrientation);
+            if (estLibre(occupees, placement, taille)) candidats[libres++] = placement;
+        }
+        return libres == 0 ? -1 : candidats[aleatoire.nextInt(libres)];
+    }
+
+    private int decoder(int numero, int taille, int parOrientation) {
+        int ligne;
+        int colonne;
+        boolean horizontal = numero < parOrientation;
+        if (horizontal) {
+            int colonnesPossibles = tailleGrille - taille + 1;
+            ligne = numero / colonnesPossibles;
+            colonne = numero % colonnesPossibles;
+        } else {
+            numero -= parOrientation;
+            ligne = numero / tailleGrille;
+            colonne = numero % tailleGrille;
+        }
+        return (ligne * tailleGrille + colonne) << 1 | (horizontal ? 1 : 0);
+    }
+
+    private boolean estLibre(Bitboard occupees, int placement, int taille) {
+        int index = placement >>> 1;
+        int pas = estHorizontal(placement) ? 1 : tailleGrille;
+        for (int i = 0; i < taille; i++, index += pas) {
+            if (occupees.contient(index)) return false;
+        }
+        return true;
+    }
+
+    private void marquer(Bitboard occupees, int placement, int taille, boolean occupe) {
+        int index = placement >>> 1;
+        int pas = estHorizontal(placement) ? 1 : tailleGrille;
+        for (int i = 0; i < taille; i++, index += pas) {
+            if (occupe) occupees.ajouter(index); else occupees.retirer(index);
+        }
+    }
+}
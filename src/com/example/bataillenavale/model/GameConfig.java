@@ -0,0 +1,90 @@
+package com.example.bataillenavale.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Réglages d'une partie : taille de la grille (carrée) et composition de la flotte,
+ * un type de navire par entrée (un type peut revenir plusieurs fois). Immuable.
+ * Forme protocole de la flotte : les noms des types séparés par des virgules
+ * ("PORTE_AVIONS,TORPILLEUR,TORPILLEUR").
+ */
+public final class GameConfig {
+    public static final int TAILLE_MIN = 5;
+    public static final int TAILLE_MAX = 1000;
+    public static final int NAVIRES_MAX = 100; // Numéro de navire stocké sur un octet par PlayerBoard
+
+    public static final List<Ship.ShipType> FLOTTE_STANDARD = Collections.unmodifiableList(Arrays.asList(
+            Ship.ShipType.PORTE_AVIONS,
+            Ship.ShipType.CROISEUR,
+            Ship.ShipType.CONTRE_TORPILLEUR,
+            Ship.ShipType.SOUS_MARIN,
+            Ship.ShipType.TORPILLEUR
+    ));
+    public static final GameConfig STANDARD = new GameConfig(PlayerBoard.TAILLE_GRILLE, FLOTTE_STANDARD);
+
+    private final int tailleGrille;
+    private final List<Ship.ShipType> flotte;
+
+    /**
+     * @throws IllegalArgumentException si la taille sort de [TAILLE_MIN, TAILLE_MAX], si la flotte est vide,
+     * dépasse NAVIRES_MAX navires ou occupe plus de la moitié des cases (placement non garanti au-delà).
+     */
+    public GameConfig(int tailleGrille, List<Ship.ShipType> flotte) {
+        if (tailleGrille < TAILLE_MIN || tailleGrille > TAILLE_MAX) {
+            throw new IllegalArgumentException("Taille de grille hors limites (" + TAILLE_MIN + " à " + TAILLE_MAX + ").");
+        }
+        if (flotte.isEmpty() || flotte.size() > NAVIRES_MAX) {
+            throw new IllegalArgumentException("La flotte doit compter de 1 à " + NAVIRES_MAX + " navires.");
+        }
+        long casesNavires = 0;
+        for (Ship.ShipType type : flotte) casesNavires += type.getTaille();
+        if (casesNavires * 2 > (long) tailleGrille * tailleGrille) {
+            throw new IllegalArgumentException("Flotte trop grande pour une grille de " + tailleGrille + "x" + tailleGrille + ".");
+        }
+        this.tailleGrille = tailleGrille;
+        this.flotte = Collections.unmodifiableList(new ArrayList<>(flotte));
+    }
+
+    /**
+     * Lit une flotte au format protocole ; une chaîne vide donne la flotte standard.
+     * @throws IllegalArgumentException si un type de navire est inconnu.
+     */
+    public static List<Ship.ShipType> lireFlotte(String texte) {
+        if (texte.trim().isEmpty()) return FLOTTE_STANDARD;
+        List<Ship.ShipType> flotte = new ArrayList<>();
+        for (String nom : texte.split(",")) {
+            try {
+                flotte.add(Ship.ShipType.valueOf(nom.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Type de navire inconnu : " + nom.trim());
+            }
+        }
+        return flotte;
+    }
+
+    public int getTailleGrille() {
+        return tailleGrille;
+    }
+
+    public List<Ship.ShipType> getFlotte() {
+        return flotte;
+    }
+
+    /** Flotte au format protocole, l'inverse de lireFlotte. */
+    public String getFlotteTexte() {
+        StringBuilder texte = new StringBuilder();
+        for (Ship.ShipType type : flotte) {
+            if (texte.length() > 0) texte.append(',');
+            texte.append(type.name());
+        }
+        return texte.toString();
+    }
+
+    @Override
+    public String toString() {
+        return tailleGrille + "x" + tailleGrille + " " + getFlotteTexte();
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.bataillenavale.model;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instantané binaire versionné d'une BatailleNavaleGame : de quoi la reconstruire à l'identique
+ * (persistance, reprise après arrêt, spectateur qui arrive en cours de partie).
+ *
+ * Format, entiers en varint (7 bits par octet, poids faibles d'abord) sauf mention contraire :
+ * <pre>
+ * en-tête   MAGIQUE (2 octets) VERSION (1 octet)
+ * config    taille, nombre de navires, un octet par type (ordinal)
+ * tour      nombre de joueurs, phase (ordinal), gagnant + 1, index du courant dans les actifs,
+ *           nombre d'actifs puis leurs index globaux, noms des joueurs (longueur puis UTF-8)
+ * plateau   (par joueur) abandon (1 octet),
+ *           navires à placer (nombre puis ordinaux),
+ *           navires placés dans l'ordre : type (1 octet), (case de l'ancre << 1 | horizontal), segments touchés,
+ *           tirs dans l'eau : LISTE puis écarts entre cases croissantes, ou MASQUE puis un bit par case
+ * </pre>
+ * Les tirs au but se déduisent des segments touchés ; l'ordre des tirs n'est pas conservé, le modèle
+ * ne le garde pas. Le codage des tirs dans l'eau prend le plus court des deux : une grille 10x10 tient
+ * en 13 octets au pire, une grande grille ne paie que ses tirs. Plateau 10x10 en cours de partie :
+ * une quarantaine d'octets.
+ *
+ * L'écriture ne fait aucune allocation pour des noms ASCII ; la lecture n'alloue que la partie
+ * reconstruite. La partie relue est remise en jeu par les méthodes du modèle (placerNavire,
+ * recevoirTir), ses invariants sont donc ceux d'une partie jouée. Un instantané illisible lève
+ * IllegalArgumentException.
+ */
+public final class GameSnapshot {
+    public static final int MAGIQUE = 0x424E; // "BN"
+    public static final int VERSION = 1;
+
+    private static final int TIRS_LISTE = 0;
+    private static final int TIRS_MASQUE = 1;
+    private static final Ship.ShipType[] TYPES = Ship.ShipType.values();
+    private static final BatailleNavaleGame.GamePhase[] PHASES = BatailleNavaleGame.GamePhase.values();
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Écrit l'instantané à la position courante du tampon.
+     * @return nombre d'octets écrits.
+     * @throws BufferOverflowException si le tampon est trop petit (sa position est alors indéterminée).
+     */
+    public static int ecrire(BatailleNavaleGame partie, ByteBuffer tampon) {
+        int debut = tampon.position();
+        GameConfig config = partie.getConfig();
+        int taille = config.getTailleGrille();
+        tampon.putShort((short) MAGIQUE);
+        tampon.put((byte) VERSION);
+        ecrireVarint(tampon, taille);
+        List<Ship.ShipType> flotte = config.getFlotte();
+        ecrireVarint(tampon, flotte.size());
+        for (int i = 0; i < flotte.size(); i++) tampon.put((byte) flotte.get(i).ordinal());
+
+        int nombreJoueurs = partie.getNombreJoueursInitial();
+        ecrireVarint(tampon, nombreJoueurs);
+        tampon.put((byte) partie.getPhaseActuelle().ordinal());
+        ecrireVarint(tampon, partie.getGagnantIndex() + 1);
+        ecrireVarint(tampon, partie.getJoueurCourantIndexDansListeActifs());
+        List<Integer> actifs = partie.joueursActifs();
+        ecrireVarint(tampon, actifs.size());
+        for (int i = 0; i < actifs.size(); i++) ecrireVarint(tampon, actifs.get(i));
+        for (int joueur = 0; joueur < nombreJoueurs; joueur++) ecrireTexte(tampon, partie.getPlayerBoard(joueur).getNomJoueur());
+
+        for (int joueur = 0; joueur < nombreJoueurs; joueur++) {
+            PlayerBoard plateau = partie.getPlayerBoard(joueur);
+            tampon.put((byte) (plateau.estAbandonne() ? 1 : 0));
+            List<Ship.ShipType> aPlacer = partie.getNaviresRestantsAPlacer(joueur);
+            ecrireVarint(tampon, aPlacer.size());
+            for (int i = 0; i < aPlacer.size(); i++) tampon.put((byte) aPlacer.get(i).ordinal());
+            List<Ship> navires = plateau.naviresPlaces();
+            ecrireVarint(tampon, navires.size());
+            for (int i = 0; i < navires.size(); i++) {
+                Ship navire = navires.get(i);
+                tampon.put((byte) navire.getType().ordinal());
+                int ancre = navire.getLigneSegment(0) * taille + navire.getColonneSegment(0);
+                ecrireVarint(tampon, ancre << 1 | (navire.isEstHorizontal() ? 1 : 0));
+                ecrireVarint(tampon, navire.getTouches());
+            }
+            ecrireTirsManques(tampon, plateau.getCasesManquees(), taille * taille);
+        }
+        return tampon.position() - debut;
+    }
+
+    /** Instantané dans un tableau à sa taille exacte. */
+    public static byte[] versOctets(BatailleNavaleGame partie) {
+        for (int capacite = 256; ; capacite *= 2) {
+            ByteBuffer tampon = ByteBuffer.allocate(capacite);
+            try {
+                ecrire(partie, tampon);
+            } catch (BufferOverflowException e) {
+                continue; // Grande grille ou nombreux joueurs : tampon doublé
+            }
+            byte[] octets = new byte[tampon.position()];
+            tampon.flip();
+            tampon.get(octets);
+            return octets;
+        }
+    }
+
+    public static BatailleNavaleGame lire(byte[] octets) {
+        return lire(ByteBuffer.wrap(octets));
+    }
+
+    /**
+     * Lit un instantané à la position courante du tampon et reconstruit la partie, sans traces console.
+     * @throws IllegalArgumentException si l'instantané est tronqué, d'une autre version ou incohérent.
+     */
+    public static BatailleNavaleGame lire(ByteBuffer tampon) {
+        try {
+            int magique = tampon.getShort() & 0xFFFF;
+            if (magique != MAGIQUE) throw new IllegalArgumentException("Instantané de partie invalide (en-tête " + Integer.toHexString(magique) + ").");
+            int version = tampon.get() & 0xFF;
+            if (version != VERSION) throw new IllegalArgumentException("Version d'instantané non prise en charge : " + version + ".");
+            return lireVersion1(tampon);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Instantané de partie tronqué ou incohérent.", e);
+        }
+    }
+
+    private static BatailleNavaleGame lireVersion1(ByteBuffer tampon) {
+        int taille = lireVarint(tampon);
+        int nombreNavires = lireVarint(tampon);
+        if (nombreNavires > GameConfig.NAVIRES_MAX) throw new IllegalArgumentException("Flotte de l'instantané trop grande : " + nombreNavires + ".");
+        List<Ship.ShipType> flotte = new ArrayList<>(nombreNavires);
+        for (int i = 0; i < nombreNavires; i++) flotte.add(lireType(tampon));
+        GameConfig config = new GameConfig(taille, flotte);
+
+        int nombreJoueurs = lireVarint(tampon);
+        if (nombreJoueurs < 1 || nombreJoueurs > 255) throw new IllegalArgumentException("Nombre de joueurs de l'instantané invalide : " + nombreJoueurs + ".");
+        BatailleNavaleGame.GamePhase phase = PHASES[tampon.get() & 0xFF];
+        int gagnant = lireVarint(tampon) - 1;
+        int courantDansActifs = lireVarint(tampon);
+        int nombreActifs = lireVarint(tampon);
+        if (nombreActifs > nombreJoueurs) throw new IllegalArgumentException("Joueurs actifs de l'instantané invalides.");
+        List<Integer> actifs = new ArrayList<>(nombreActifs);
+        for (int i = 0; i < nombreActifs; i++) actifs.add(lireJoueur(tampon, nombreJoueurs));
+        // Partie finie : la liste des actifs a rétréci sous l'index, qui n'est plus lu mais reste borné
+        int bornePourCourant = phase == BatailleNavaleGame.GamePhase.TERMINE ? nombreJoueurs : nombreActifs;
+        if (courantDansActifs >= bornePourCourant) {
+            throw new IllegalArgumentException("Joueur courant de l'instantané invalide : " + courantDansActifs + ".");
+        }
+        if (gagnant >= nombreJoueurs) throw new IllegalArgumentException("Gagnant de l'instantané invalide : " + gagnant + ".");
+
+        String[] noms = new String[nombreJoueurs];
+        for (int joueur = 0; joueur < nombreJoueurs; joueur++) noms[joueur] = lireTexte(tampon);
+
+        BatailleNavaleGame partie = new BatailleNavaleGame(noms, config);
+        partie.setSilencieux(true);
+        for (int joueur = 0; joueur < nombreJoueurs; joueur++) lirePlateau(tampon, partie, joueur, taille);
+        partie.restaurerTour(phase, actifs, courantDansActifs, gagnant);
+        partie.setSilencieux(false);
+        return partie;
+    }
+
+    /** Le type doit rester disponible dans la flotte de la partie : navires à placer et placés la composent exactement. */
+    private static Ship.ShipType retirerDeLaFlotte(Ship.ShipType type, int[] restants, PlayerBoard plateau) {
+        if (restants[type.ordinal()]-- == 0) {
+            throw new IllegalArgumentException("Navire " + type + " de l'instantané absent de la flotte de " + plateau.getNomJoueur() + ".");
+        }
+        return type;
+    }
+
+    private static void lirePlateau(ByteBuffer tampon, BatailleNavaleGame partie, int joueur, int taille) {
+        PlayerBoard plateau = partie.getPlayerBoard(joueur);
+        boolean abandonne = tampon.get() != 0;
+        List<Ship.ShipType> aPlacer = partie.getNaviresRestantsAPlacer(joueur);
+        aPlacer.clear();
+        int tailleFlotte = partie.getConfig().getFlotte().size();
+        int nombreAPlacer = lireVarint(tampon);
+        if (nombreAPlacer > tailleFlotte) throw new IllegalArgumentException("Navires à placer de l'instantané invalides pour " + plateau.getNomJoueur() + ".");
+        int[] restants = new int[Ship.ShipType.values().length]; // Navires de la flotte pas encore lus, par type
+        for (Ship.ShipType type : partie.getConfig().getFlotte()) restants[type.ordinal()]++;
+        for (int i = 0; i < nombreAPlacer; i++) aPlacer.add(retirerDeLaFlotte(lireType(tampon), restants, plateau));
+
+        int nombreNavires = lireVarint(tampon);
+        // Borné avant toute allocation : un instantané corrompu ne doit pas épuiser la mémoire
+        if (nombreNavires > GameConfig.NAVIRES_MAX || nombreNavires != tailleFlotte - nombreAPlacer) {
+            throw new IllegalArgumentException("Nombre de navires de l'instantané invalide pour " + plateau.getNomJoueur() + " : " + nombreNavires + ".");
+        }
+        int[] touches = new int[nombreNavires];
+        for (int i = 0; i < nombreNavires; i++) {
+            Ship navire = new Ship(retirerDeLaFlotte(lireType(tampon), restants, plateau));
+            int position = lireVarint(tampon);
+            int ancre = position >>> 1;
+            touches[i] = lireVarint(tampon);
+            if (ancre >= taille * taille || !plateau.placerNavire(navire, ancre / taille, ancre % taille, (position & 1) != 0)) {
+                throw new IllegalArgumentException("Navire de l'instantané mal placé pour " + plateau.getNomJoueur() + ".");
+            }
+        }
+        // Tirs au but puis dans l'eau, rejoués sur le plateau : compteurs et index par case suivent
+        List<Ship> navires = plateau.naviresPlaces();
+        for (int i = 0; i < nombreNavires; i++) {
+            Ship navire = navires.get(i);
+            for (int segment = 0; segment < navire.getTaille(); segment++) {
+                if ((touches[i] & (1 << segment)) != 0) plateau.recevoirTir(navire.getLigneSegment(segment), navire.getColonneSegment(segment));
+            }
+        }
+        int codage = tampon.get() & 0xFF;
+        int nombreCases = taille * taille;
+        if (codage == TIRS_LISTE) {
+            int index = -1;
+            for (int i = lireVarint(tampon); i > 0; i--) {
+                index += lireVarint(tampon) + 1;
+                if (index >= nombreCases) throw new IllegalArgumentException("Tir de l'instantané hors grille.");
+                rejouerManque(plateau, index, taille);
+            }
+        } else if (codage == TIRS_MASQUE) {
+            int debut = tampon.position();
+            for (int index = 0; index < nombreCases; index++) {
+                if ((tampon.get(debut + (index >>> 3)) & (1 << (index & 7))) != 0) rejouerManque(plateau, index, taille);
+            }
+            tampon.position(debut + ((nombreCases + 7) >>> 3));
+        } else {
+            throw new IllegalArgumentException("Codage de tirs inconnu : " + codage + ".");
+        }
+        if (abandonne) plateau.marquerCommeAbandonne();
+    }
+
+    private static void rejouerManque(PlayerBoard plateau, int index, int taille) {
+        if (plateau.recevoirTir(index / taille, index % taille).getResultat() != PlayerBoard.ShotResult.MANQUE) {
+            throw new IllegalArgumentException("Tir dans l'eau de l'instantané sur une case occupée ou déjà jouée.");
+        }
+    }
+
+    /** Écarts entre tirs croissants si c'est plus court que le masque de la grille, masque sinon. */
+    private static void ecrireTirsManques(ByteBuffer tampon, Bitboard manques, int nombreCases) {
+        int tailleMasque = (nombreCases + 7) >>> 3;
+        int nombre = 0;
+        int tailleListe = 0;
+        for (int index = manques.suivant(0), precedent = -1; index >= 0; precedent = index, index = manques.suivant(index + 1)) {
+            nombre++;
+            tailleListe += tailleVarint(index - precedent - 1);
+        }
+        tailleListe += tailleVarint(nombre);
+        if (tailleListe <= tailleMasque) {
+            tampon.put((byte) TIRS_LISTE);
+            ecrireVarint(tampon, nombre);
+            for (int index = manques.suivant(0), precedent = -1; index >= 0; precedent = index, index = manques.suivant(index + 1)) {
+                ecrireVarint(tampon, index - precedent - 1);
+            }
+        } else {
+            tampon.put((byte) TIRS_MASQUE);
+            int debut = tampon.position();
+            if (tampon.remaining() < tailleMasque) throw new BufferOverflowException();
+            for (int i = 0; i < tailleMasque; i++) tampon.put(debut + i, (byte) 0);
+            for (int index = manques.suivant(0); index >= 0; index = manques.suivant(index + 1)) {
+                tampon.put(debut + (index >>> 3), (byte) (tampon.get(debut + (index >>> 3)) | (1 << (index & 7))));
+            }
+            tampon.position(debut + tailleMasque);
+        }
+    }
+
+    private static void ecrireTexte(ByteBuffer tampon, String texte) {
+        int longueur = texte.length();
+        boolean ascii = true;
+        for (int i = 0; i < longueur && ascii; i++) ascii = texte.charAt(i) < 0x80;
+        if (ascii) { // Cas courant : pas de tableau intermédiaire
+            ecrireVarint(tampon, longueur);
+            for (int i = 0; i < longueur; i++) tampon.put((byte) texte.charAt(i));
+        } else {
+            byte[] octets = texte.getBytes(StandardCharsets.UTF_8);
+            ecrireVarint(tampon, octets.length);
+            tampon.put(octets);
+        }
+    }
+
+    private static String lireTexte(ByteBuffer tampon) {
+        int longueur = lireVarint(tampon);
+        if (longueur > tampon.remaining()) throw new BufferUnderflowException();
+        byte[] octets = new byte[longueur];
+        tampon.get(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    private static Ship.ShipType lireType(ByteBuffer tampon) {
+        return TYPES[tampon.get() & 0xFF];
+    }
+
+    private static int lireJoueur(ByteBuffer tampon, int nombreJoueurs) {
+        int joueur = lireVarint(tampon);
+        if (joueur >= nombreJoueurs) throw new IllegalArgumentException("Index de joueur de l'instantané invalide : " + joueur + ".");
+        return joueur;
+    }
+
+    static void ecrireVarint(ByteBuffer tampon, int valeur) {
+        while ((valeur & ~0x7F) != 0) {
+            tampon.put((byte) ((valeur & 0x7F) | 0x80));
+            valeur >>>= 7;
+        }
+        tampon.put((byte) valeur);
+    }
+
+    static int lireVarint(ByteBuffer tampon) {
+        int valeur = 0;
+        for (int decalage = 0; decalage < 35; decalage += 7) {
+            int octet = tampon.get();
+            valeur |= (octet & 0x7F) << decalage;
+            if (octet >= 0) {
+                if (valeur < 0) break;
+                return valeur;
+            }
+        }
+        throw new IllegalArgumentException("Entier de l'instantané invalide.");
+    }
+
+    private static int tailleVarint(int valeur) {
+        int octets = 1;
+        while ((valeur & ~0x7F) != 0) {
+            valeur >>>= 7;
+            octets++;
+        }
+        return octets;
+    }
+}
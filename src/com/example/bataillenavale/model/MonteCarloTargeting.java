@@ -0,0 +1,346 @@
+package com.example.bataillenavale.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Visée Monte-Carlo. On tire des milliers de flottes compatibles avec les tirs observés et on vise,
+ * en chasse comme en cible, la case non jouée de plus forte probabilité a posteriori d'être couverte.
+ *
+ * Un échantillon est tiré par échantillonnage préférentiel (voir poserFlotte) : les touches ouvertes
+ * reçoivent d'abord chacune un navire restant qui passe par elle, puis les autres navires une position
+ * libre, hors de l'eau, des navires coulés et des navires déjà posés ; une flotte dont un navire n'est
+ * fait que de touches (il aurait été annoncé coulé) est écartée. Chaque flotte gardée est pondérée par
+ * l'inverse de sa probabilité d'être tirée : les comptes pondérés estiment sans biais la loi uniforme
+ * sur les flottes compatibles. Mesuré par SimulationRunner (10x10, 2000 échantillons par coup), cela
+ * ne bat pas encore la densité de DensityTargeting de façon mesurable ; les bots HARD n'utilisent donc
+ * pas cette visée (voir BotConnection).
+ *
+ * Les échantillons sont découpés en lots de ECHANTILLONS_PAR_LOT, répartis sur un ForkJoinPool.
+ * Chaque lot a son propre SplittableRandom, dérivé de (graine, numéro du coup, numéro du lot) :
+ * tant que l'échéance n'est pas atteinte, un coup est reproductible quel que soit le nombre de threads.
+ * Les lots qui démarrent après l'échéance du coup sont sautés ; le premier lot est toujours tiré.
+ *
+ * L'état observé (touches, eau, rattachement des navires coulés) est celui d'une DensityTargeting
+ * tenue à jour en parallèle. On se replie sur elle au-delà de 64 colonnes, où les masques par
+ * ligne ne tiennent plus dans un long, et quand aucun échantillon n'est gardé.
+ */
+public final class MonteCarloTargeting implements TargetingStrategy {
+    public static final int ECHANTILLONS_PAR_LOT = 256;
+    public static final int SEUIL_FIN_DE_PARTIE = 500;
+
+    private final DensityTargeting observation;
+    private final EndgameSolver finDePartie;
+    private final int taille;
+    private final int nombreCases;
+    private final long graine;
+    private final ForkJoinPool pool;
+    private final int lotsParCoup;
+    private final long budgetNanos;
+    private long coup;
+    private long echantillonsDernierCoup;
+    private long acceptesDernierCoup;
+
+    /**
+     * @param echantillonsParCoup nombre maximal d'échantillons par coup (arrondi au lot supérieur).
+     * @param budgetNanos temps alloué à un coup ; 0 pour tirer tous les échantillons.
+     */
+    public MonteCarloTargeting(GameConfig config, long graine, ForkJoinPool pool, int echantillonsParCoup, long budgetNanos) {
+        this(config, graine, pool, echantillonsParCoup, budgetNanos, SEUIL_FIN_DE_PARTIE);
+    }
+
+    /**
+     * @param seuilFinDePartie nombre de configurations compatibles en dessous duquel la fin de partie est
+     * résolue exactement ; 0 pour toujours échantillonner.
+     */
+    public MonteCarloTargeting(GameConfig config, long graine, ForkJoinPool pool, int echantillonsParCoup, long budgetNanos,
+                               int seuilFinDePartie) {
+        this.finDePartie = new EndgameSolver(seuilFinDePartie);
+        this.observation = new DensityTargeting(config);
+        this.taille = config.getTailleGrille();
+        this.nombreCases = taille * taille;
+        this.graine = graine;
+        this.pool = pool;
+        this.lotsParCoup = Math.max(1, (echantillonsParCoup + ECHANTILLONS_PAR_LOT - 1) / ECHANTILLONS_PAR_LOT);
+        this.budgetNanos = budgetNanos;
+    }
+
+    @Override
+    public void enregistrer(int ligne, int colonne, PlayerBoard.ShotResult resultat, Ship.ShipType navireCoule) {
+        observation.enregistrer(ligne, colonne, resultat, navireCoule);
+        if (finDePartie.estActif() && ligne >= 0 && ligne < taille && colonne >= 0 && colonne < taille) {
+            finDePartie.enregistrer(ligne * taille + colonne, resultat, navireCoule);
+        }
+    }
+
+    @Override
+    public boolean estFlotteCoulee() {
+        return observation.estFlotteCoulee();
+    }
+
+    /** Échantillons tirés (acceptés ou rejetés) pendant le dernier coup. */
+    public long getEchantillonsDernierCoup() {
+        return echantillonsDernierCoup;
+    }
+
+    public long getAcceptesDernierCoup() {
+        return acceptesDernierCoup;
+    }
+
+    /** Coups choisis par la résolution exacte de fin de partie, depuis la création. */
+    public long getCoupsExacts() {
+        return finDePartie.getCoupsResolus();
+    }
+
+    /** Consultations de la table de la résolution exacte, et celles qui y ont trouvé l'état. */
+    public long getConsultationsTable() {
+        return finDePartie.getConsultations();
+    }
+
+    public long getSuccesTable() {
+        return finDePartie.getSucces();
+    }
+
+    @Override
+    public int choisirCase(Random aleatoire) {
+        echantillonsDernierCoup = 0;
+        acceptesDernierCoup = 0;
+        if (finDePartie.estActif() || finDePartie.activer(observation)) {
+            int exacte = finDePartie.choisirCase();
+            if (exacte >= 0) return exacte;
+        }
+        if (!observation.aDesMasques() || observation.estFlotteCoulee()) {
+            return observation.choisirCase(aleatoire);
+        }
+        long debut = System.nanoTime();
+        Tirage tirage = new Tirage(this, budgetNanos > 0 ? debut + budgetNanos : Long.MAX_VALUE, coup++);
+        double[] poids = pool.invoke(new Lots(tirage, 0, lotsParCoup));
+        echantillonsDernierCoup = (long) poids[nombreCases + 2];
+        acceptesDernierCoup = (long) poids[nombreCases + 1];
+        if (acceptesDernierCoup == 0) return observation.choisirCase(aleatoire);
+
+        int meilleure = -1;
+        double meilleurScore = -1;
+        int egalites = 0;
+        for (int index = 0; index < nombreCases; index++) {
+            if (observation.estTiree(index)) continue;
+            double score = poids[index];
+            if (score > meilleurScore) {
+                meilleurScore = score;
+                meilleure = index;
+                egalites = 1;
+            } else if (score == meilleurScore && aleatoire.nextInt(++egalites) == 0) {
+                meilleure = index;
+            }
+        }
+        return meilleure;
+    }
+
+    /** Photographie de l'état observé pour un coup, lue sans verrou par les threads du pool. */
+    private static final class Tirage {
+        final int taille;
+        final int nombreCases;
+        final long[] lignes;
+        final long[] colonnes;
+        final int[] ouvertes;
+        final long[] touchesParLigne; // Touches ouvertes en masques, pour écarter un navire entièrement touché
+        final long[] touchesParColonne;
+        final int[] longueurs; // Un navire restant par entrée
+        final long echeance;
+        final long graineCoup;
+
+        Tirage(MonteCarloTargeting visee, long echeance, long coup) {
+            DensityTargeting observation = visee.observation;
+            this.taille = visee.taille;
+            this.nombreCases = visee.nombreCases;
+            this.lignes = new long[taille];
+            this.colonnes = new long[taille];
+            for (int i = 0; i < taille; i++) {
+                lignes[i] = observation.getLigneBloquee(i);
+                colonnes[i] = observation.getColonneBloquee(i);
+            }
+            this.ouvertes = new int[observation.getNombreOuvertes()];
+            this.touchesParLigne = new long[taille];
+            this.touchesParColonne = new long[taille];
+            for (int i = 0; i < ouvertes.length; i++) {
+                ouvertes[i] = observation.getOuverte(i);
+                touchesParLigne[ouvertes[i] / taille] |= 1L << (ouvertes[i] % taille);
+                touchesParColonne[ouvertes[i] % taille] |= 1L << (ouvertes[i] / taille);
+            }
+            List<Integer> restants = new ArrayList<>();
+            for (Ship.ShipType type : Ship.ShipType.values()) {
+                for (int n = observation.getRestants(type); n > 0; n--) restants.add(type.getTaille());
+            }
+            this.longueurs = new int[restants.size()];
+            for (int i = 0; i < longueurs.length; i++) longueurs[i] = restants.get(i);
+            this.echeance = echeance;
+            this.graineCoup = visee.graine + coup * 0x9E3779B97F4A7C15L;
+        }
+    }
+
+    /**
+     * Lots [premier, dernier) d'un coup, coupés en deux jusqu'au lot unique.
+     * Résultat : poids par case, puis poids total, échantillons gardés et échantillons tirés.
+     */
+    private static final class Lots extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+        private final Tirage tirage;
+        private final int premier;
+        private final int dernier;
+
+        Lots(Tirage tirage, int premier, int dernier) {
+            this.tirage = tirage;
+            this.premier = premier;
+            this.dernier = dernier;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (dernier - premier == 1) return echantillonner(tirage, premier);
+            int milieu = (premier + dernier) >>> 1;
+            Lots gauche = new Lots(tirage, premier, milieu);
+            gauche.fork();
+            double[] droite = new Lots(tirage, milieu, dernier).compute();
+            double[] resultat = gauche.join();
+            for (int i = 0; i < resultat.length; i++) resultat[i] += droite[i];
+            return resultat;
+        }
+    }
+
+    private static double[] echantillonner(Tirage tirage, int lot) {
+        int taille = tirage.taille;
+        double[] poids = new double[tirage.nombreCases + 3];
+        if (lot > 0 && System.nanoTime() > tirage.echeance) return poids;
+        SplittableRandom aleatoire = new SplittableRandom(tirage.graineCoup + lot * 0xBF58476D1CE4E5B9L);
+        int[] longueurs = tirage.longueurs;
+        long[] lignes = new long[taille];
+        long[] colonnes = new long[taille];
+        int[] positions = new int[longueurs.length]; // (index << 1) | horizontal, -1 si pas encore posé
+        int[] candidates = new int[2 * longueurs.length * taille];
+
+        for (int e = 0; e < ECHANTILLONS_PAR_LOT; e++) {
+            System.arraycopy(tirage.lignes, 0, lignes, 0, taille);
+            System.arraycopy(tirage.colonnes, 0, colonnes, 0, taille);
+            double p = poserFlotte(tirage, aleatoire, lignes, colonnes, positions, candidates);
+            if (p == 0) continue;
+            for (int n = 0; n < longueurs.length; n++) {
+                int depart = positions[n] >>> 1;
+                int pas = (positions[n] & 1) != 0 ? 1 : taille;
+                for (int i = 0, index = depart; i < longueurs[n]; i++, index += pas) poids[index] += p;
+            }
+            poids[tirage.nombreCases] += p;
+            poids[tirage.nombreCases + 1]++;
+        }
+        poids[tirage.nombreCases + 2] = ECHANTILLONS_PAR_LOT;
+        return poids;
+    }
+
+    /**
+     * Pose une flotte qui couvre les touches ouvertes. Chaque touche pas encore couverte reçoit, au hasard
+     * uniforme, un (navire restant, position libre passant par elle) ; les autres navires prennent ensuite,
+     * dans l'ordre, une position libre au hasard uniforme. Une flotte n'a qu'un chemin de tirage possible :
+     * le produit du nombre de choix à chaque pas est l'inverse de sa probabilité, son poids.
+     * @return le poids de la flotte tirée, 0 si un pas n'avait aucun choix.
+     */
+    private static double poserFlotte(Tirage tirage, SplittableRandom aleatoire, long[] lignes, long[] colonnes,
+                                      int[] positions, int[] candidates) {
+        int taille = tirage.taille;
+        int[] longueurs = tirage.longueurs;
+        Arrays.fill(positions, -1);
+        double poids = 1;
+        for (int touche : tirage.ouvertes) {
+            int ligne = touche / taille;
+            int colonne = touche % taille;
+            if ((lignes[ligne] & (1L << colonne)) != 0) continue; // Déjà couverte par un navire posé
+            int nombre = 0;
+            for (int n = 0; n < longueurs.length; n++) {
+                if (positions[n] >= 0) continue;
+                int longueur = longueurs[n];
+                for (int decalage = 0; decalage < longueur; decalage++) {
+                    if (estLibre(taille, lignes, colonnes, ligne, colonne - decalage, true, longueur)) {
+                        candidates[nombre++] = n << 16 | (ligne * taille + colonne - decalage) << 1 | 1;
+                    }
+                    if (estLibre(taille, lignes, colonnes, ligne - decalage, colonne, false, longueur)) {
+                        candidates[nombre++] = n << 16 | ((ligne - decalage) * taille + colonne) << 1;
+                    }
+                }
+            }
+            if (nombre == 0) return 0;
+            int choix = candidates[aleatoire.nextInt(nombre)];
+            poser(tirage, lignes, colonnes, positions, choix >>> 16, choix & 0xFFFF);
+            poids *= nombre;
+        }
+        long grille = taille == 64 ? -1L : (1L << taille) - 1;
+        for (int n = 0; n < longueurs.length; n++) {
+            if (positions[n] >= 0) continue;
+            int longueur = longueurs[n];
+            int nombre = 0;
+            for (int i = 0; i < taille; i++) {
+                nombre += Long.bitCount(departs(lignes[i], grille, longueur)) + Long.bitCount(departs(colonnes[i], grille, longueur));
+            }
+            if (nombre == 0) return 0;
+            int rang = aleatoire.nextInt(nombre);
+            for (int i = 0; i < 2 * taille; i++) { // Lignes puis colonnes, jusqu'à la position de ce rang
+                boolean horizontal = i < taille;
+                long libres = departs(horizontal ? lignes[i] : colonnes[i - taille], grille, longueur);
+                int compte = Long.bitCount(libres);
+                if (rang >= compte) {
+                    rang -= compte;
+                    continue;
+                }
+                for (; rang > 0; rang--) libres &= libres - 1;
+                int decalage = Long.numberOfTrailingZeros(libres);
+                int index = horizontal ? i * taille + decalage : decalage * taille + i - taille;
+                poser(tirage, lignes, colonnes, positions, n, index << 1 | (horizontal ? 1 : 0));
+                break;
+            }
+            poids *= nombre;
+        }
+        for (int n = 0; n < longueurs.length; n++) { // Un navire restant entièrement touché aurait été annoncé coulé
+            int index = positions[n] >>> 1;
+            long masque = (1L << longueurs[n]) - 1;
+            long touches = (positions[n] & 1) != 0 ? tirage.touchesParLigne[index / taille] >>> (index % taille)
+                                                   : tirage.touchesParColonne[index % taille] >>> (index / taille);
+            if ((touches & masque) == masque) return 0;
+        }
+        return poids;
+    }
+
+    /** Débuts des positions libres de la longueur sur une ligne (ou colonne) de masque bloqué. */
+    private static long departs(long bloquee, long grille, int longueur) {
+        long libres = ~bloquee & grille;
+        long departs = libres;
+        for (int i = 1; i < longueur; i++) departs &= libres >>> i;
+        return departs;
+    }
+
+    private static void poser(Tirage tirage, long[] lignes, long[] colonnes, int[] positions, int navire, int position) {
+        int taille = tirage.taille;
+        int index = position >>> 1;
+        poser(taille, lignes, colonnes, index / taille, index % taille, (position & 1) != 0, tirage.longueurs[navire]);
+        positions[navire] = position;
+    }
+
+    private static boolean estLibre(int taille, long[] lignes, long[] colonnes, int ligne, int colonne, boolean horizontal, int longueur) {
+        if (ligne < 0 || colonne < 0) return false;
+        long masque = (1L << longueur) - 1;
+        if (horizontal) {
+            return colonne + longueur <= taille && ((lignes[ligne] >>> colonne) & masque) == 0;
+        }
+        return ligne + longueur <= taille && ((colonnes[colonne] >>> ligne) & masque) == 0;
+    }
+
+    private static void poser(int taille, long[] lignes, long[] colonnes, int ligne, int colonne, boolean horizontal, int longueur) {
+        for (int i = 0; i < longueur; i++) {
+            int l = horizontal ? ligne : ligne + i;
+            int c = horizontal ? colonne + i : colonne;
+            lignes[l] |= 1L << c;
+            colonnes[c] |= 1L << l;
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package com.example.bataillenavale.model; // Exemple de package
 
-import java.awt.Point;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class PlayerBoard {
-    public static final int TAILLE_GRILLE = 10; // Grille standard de 10x10
+    public static final int TAILLE_GRILLE = 10; // Grille standard de 10x10 (taille par défaut, voir GameConfig)
 
     // États des cases pour la grille de ce joueur (vue par lui-même)
     public static final char CASE_VIDE = ' '; // Eau non touchée
@@ -15,10 +13,24 @@ public class PlayerBoard {
     public static final char CASE_MANQUE = 'O'; // Tir manqué dans l'eau
     public static final char CASE_ABANDON = 'A'; // Case d'un joueur ayant abandonné
 
-    private final char[][] grille; // La grille de ce joueur avec ses navires et les tirs reçus
+    // Au-delà, pas d'index navire par case : la mémoire d'un plateau suit les navires et les tirs, pas la surface
+    private static final int CASES_MAX_INDEX_DIRECT = 64 * 64;
+
+    private final int tailleGrille;
+    // La grille de ce joueur en couches de bits (une case par bit, voir Bitboard) :
+    // segments de navires, tirs reçus sur un navire, tirs dans l'eau.
+    // Les cases abandonnées se déduisent de aAbandonne.
+    private final Bitboard casesNavires;
+    private final Bitboard casesTouchees;
+    private final Bitboard casesManquees;
+    // Index par case, rempli au placement : numéro du navire dans navires + 1 (0 = eau).
+    // Null sur les grandes grilles : le navire touché est alors cherché parmi les navires.
+    private final byte[] navireParCase;
     private final List<Ship> navires;
+    private int naviresRestants; // Navires placés et non coulés : tousNaviresCoules en O(1)
     private final String nomJoueur;
     private boolean aAbandonne = false;
+    private boolean silencieux = false;
 
 
     public enum ShotResult {
@@ -30,18 +42,35 @@ public class PlayerBoard {
     }
 
     public PlayerBoard(String nomJoueur) {
+        this(nomJoueur, TAILLE_GRILLE);
+    }
+
+    public PlayerBoard(String nomJoueur, int tailleGrille) {
         this.nomJoueur = nomJoueur;
-        this.grille = new char[TAILLE_GRILLE][TAILLE_GRILLE];
+        this.tailleGrille = tailleGrille;
+        int nombreCases = tailleGrille * tailleGrille;
+        this.casesNavires = new Bitboard(nombreCases);
+        this.casesTouchees = new Bitboard(nombreCases);
+        this.casesManquees = new Bitboard(nombreCases);
+        this.navireParCase = nombreCases <= CASES_MAX_INDEX_DIRECT ? new byte[nombreCases] : null;
         this.navires = new ArrayList<>();
-        initialiserGrille();
     }
 
-    private void initialiserGrille() {
-        for (int i = 0; i < TAILLE_GRILLE; i++) {
-            for (int j = 0; j < TAILLE_GRILLE; j++) {
-                grille[i][j] = CASE_VIDE;
-            }
-        }
+    /** Coupe les traces console du plateau ; afficherGrilleDebug, appelé explicitement, affiche toujours. */
+    public void setSilencieux(boolean silencieux) {
+        this.silencieux = silencieux;
+    }
+
+    private int indexCase(int ligne, int colonne) {
+        return ligne * tailleGrille + colonne;
+    }
+
+    private boolean estDansGrille(int ligne, int colonne) {
+        return ligne >= 0 && ligne < tailleGrille && colonne >= 0 && colonne < tailleGrille;
+    }
+
+    public int getTailleGrille() {
+        return tailleGrille;
     }
 
     public String getNomJoueur() {
@@ -49,10 +78,38 @@ public class PlayerBoard {
     }
 
     public char getEtatCase(int ligne, int colonne) {
-        if (ligne < 0 || ligne >= TAILLE_GRILLE || colonne < 0 || colonne >= TAILLE_GRILLE) {
+        if (!estDansGrille(ligne, colonne)) {
             return ' '; // Hors grille
         }
-        return grille[ligne][colonne];
+        int index = indexCase(ligne, colonne);
+        if (casesTouchees.contient(index)) return CASE_NAVIRE_TOUCHE;
+        if (casesManquees.contient(index)) return CASE_MANQUE;
+        if (aAbandonne) return CASE_ABANDON; // Cases non tirées d'un joueur ayant abandonné
+        return casesNavires.contient(index) ? CASE_NAVIRE : CASE_VIDE;
+    }
+
+    /** Cases occupées par un navire, pour le placement aléatoire (FleetGenerator). */
+    Bitboard getCasesNavires() {
+        return casesNavires;
+    }
+
+    /** Tirs dans l'eau, pour GameSnapshot. */
+    Bitboard getCasesManquees() {
+        return casesManquees;
+    }
+
+    /** Navires dans l'ordre de placement, sans copie (GameSnapshot). */
+    List<Ship> naviresPlaces() {
+        return navires;
+    }
+
+    /** Prochain tir dans l'eau à partir de la case depuis (ligne * taille + colonne), -1 s'il n'y en a plus. */
+    public int manqueSuivant(int depuis) {
+        return casesManquees.suivant(depuis);
+    }
+
+    public boolean estAbandonne() {
+        return aAbandonne;
     }
 
     public List<Ship> getNavires() {
@@ -62,7 +119,6 @@ public class PlayerBoard {
     public boolean placerNavire(Ship navire, int ligne, int colonne, boolean horizontal) {
         if (aAbandonne) return false; // Ne peut pas placer si abandonné
 
-        List<Point> positionsPotentielles = new ArrayList<>();
         for (int i = 0; i < navire.getTaille(); i++) {
             int currentLigne = ligne;
             int currentCol = colonne;
@@ -72,138 +128,106 @@ public class PlayerBoard {
                 currentLigne += i;
             }
 
-            if (currentLigne < 0 || currentLigne >= TAILLE_GRILLE || currentCol < 0 || currentCol >= TAILLE_GRILLE) {
-                System.err.println("Placement navire " + navire.getType().getNom() + " hors grille pour " + nomJoueur);
+            if (!estDansGrille(currentLigne, currentCol)) {
+                if (!silencieux) System.err.println("Placement navire " + navire.getType().getNom() + " hors grille pour " + nomJoueur);
                 return false;
             }
-            for (Ship existant : navires) {
-                for (Point pExistant : existant.getPositions()) {
-                    if (pExistant.x == currentLigne && pExistant.y == currentCol) {
-                         System.err.println("Placement navire " + navire.getType().getNom() + " chevauche un autre navire pour " + nomJoueur);
-                        return false; // Chevauchement
-                    }
-                }
+            int index = indexCase(currentLigne, currentCol);
+            if (casesNavires.contient(index)) {
+                if (!silencieux) System.err.println("Placement navire " + navire.getType().getNom() + " chevauche un autre navire pour " + nomJoueur);
+                return false; // Chevauchement
             }
-            if (grille[currentLigne][currentCol] != CASE_VIDE && grille[currentLigne][currentCol] != CASE_ABANDON) { // Vérifier si la case est vide sur la grille
-               System.err.println("Placement navire " + navire.getType().getNom() + " sur case " + grille[currentLigne][currentCol] + " non vide pour " + nomJoueur);
+            if (casesTouchees.contient(index) || casesManquees.contient(index)) { // Vérifier si la case est vide sur la grille
+               if (!silencieux) System.err.println("Placement navire " + navire.getType().getNom() + " sur case " + getEtatCase(currentLigne, currentCol) + " non vide pour " + nomJoueur);
                return false;
             }
-            positionsPotentielles.add(new Point(currentLigne, currentCol));
         }
 
-        navire.setPositions(positionsPotentielles);
-        navire.setEstHorizontal(horizontal);
+        if (navires.size() >= GameConfig.NAVIRES_MAX) {
+            if (!silencieux) System.err.println("Placement navire " + navire.getType().getNom() + " refusé pour " + nomJoueur + " : " + GameConfig.NAVIRES_MAX + " navires au plus.");
+            return false;
+        }
+
+        navire.placer(ligne, colonne, horizontal);
         navires.add(navire);
-        for (Point p : positionsPotentielles) {
-            grille[p.x][p.y] = CASE_NAVIRE;
+        if (!navire.estCoule()) naviresRestants++;
+        for (int i = 0; i < navire.getTaille(); i++) {
+            int index = indexCase(navire.getLigneSegment(i), navire.getColonneSegment(i));
+            casesNavires.ajouter(index);
+            if (navireParCase != null) navireParCase[index] = (byte) navires.size();
         }
-        System.out.println("Navire " + navire.getType().getNom() + " placé pour " + nomJoueur);
+        if (!silencieux) System.out.println("Navire " + navire.getType().getNom() + " placé pour " + nomJoueur);
         return true;
     }
 
-    public ShotResult recevoirTir(int ligne, int colonne) {
-        if (aAbandonne) return ShotResult.ERREUR; // Ou un autre statut indiquant que le joueur n'est plus cible valide
+    /** Résout un tir reçu ; l'issue indique le navire coulé et si c'était le dernier. */
+    public ShotOutcome recevoirTir(int ligne, int colonne) {
+        if (aAbandonne) return ShotOutcome.de(ShotResult.ERREUR); // Ou un autre statut indiquant que le joueur n'est plus cible valide
 
-        if (ligne < 0 || ligne >= TAILLE_GRILLE || colonne < 0 || colonne >= TAILLE_GRILLE) {
-            return ShotResult.ERREUR;
+        if (!estDansGrille(ligne, colonne)) {
+            return ShotOutcome.de(ShotResult.ERREUR);
         }
 
-        char etatCase = grille[ligne][colonne];
-        if (etatCase == CASE_NAVIRE_TOUCHE || etatCase == CASE_MANQUE || etatCase == CASE_ABANDON) {
-            return ShotResult.DEJA_JOUE; // Ou ERREUR si ABANDON
+        int index = indexCase(ligne, colonne);
+        if (casesTouchees.contient(index) || casesManquees.contient(index)) {
+            return ShotOutcome.de(ShotResult.DEJA_JOUE);
         }
 
-        if (etatCase == CASE_NAVIRE) {
-            grille[ligne][colonne] = CASE_NAVIRE_TOUCHE;
-            for (Ship navire : navires) {
-                // Inutile de vérifier registerHit si le navire est déjà coulé
-                if (!navire.estCoule() && navire.registerHit(new Point(ligne, colonne))) {
-                    if (navire.estCoule()) {
-                        System.out.println("Navire " + navire.getType().getNom() + " coulé pour " + nomJoueur);
-                        // Marquer toutes les cases du navire coulé différemment ? (Pour l'affichage client)
-                        return ShotResult.COULE;
-                    }
-                    return ShotResult.TOUCHE;
-                }
+        if (casesNavires.contient(index)) {
+            casesTouchees.ajouter(index);
+            // Navire par l'index de la case (parcours des navires sur grande grille), segment calculé depuis son ancre
+            Ship navire = navireParCase != null ? navires.get(navireParCase[index] - 1) : navireEn(ligne, colonne);
+            if (navire.registerHit(navire.segmentEn(ligne, colonne)) && navire.estCoule()) {
+                naviresRestants--;
+                if (!silencieux) System.out.println("Navire " + navire.getType().getNom() + " coulé pour " + nomJoueur);
+                // Marquer toutes les cases du navire coulé différemment ? (Pour l'affichage client)
+                return ShotOutcome.coule(navire.getType(), tousNaviresCoules());
             }
-            // Si on arrive ici, c'est que le segment touché appartenait à un navire déjà marqué comme coulé
-            // ou une incohérence. On considère TOUCHE car la case était 'N'.
-            return ShotResult.TOUCHE;
+            // Segment d'un navire déjà marqué comme coulé (abandon) : TOUCHE car la case était 'N'.
+            return ShotOutcome.de(ShotResult.TOUCHE);
         }
 
-        if (etatCase == CASE_VIDE) {
-            grille[ligne][colonne] = CASE_MANQUE;
-            return ShotResult.MANQUE;
-        }
+        casesManquees.ajouter(index);
+        return ShotOutcome.de(ShotResult.MANQUE);
+    }
 
-        System.err.println("État de case inattendu lors du tir: " + etatCase + " en " + ligne + "," + colonne + " pour " + nomJoueur);
-        return ShotResult.ERREUR;
+    /** Navire occupant la case, par parcours des navires (grandes grilles sans index par case). */
+    private Ship navireEn(int ligne, int colonne) {
+        for (int i = 0; i < navires.size(); i++) {
+            Ship navire = navires.get(i);
+            if (navire.segmentEn(ligne, colonne) >= 0) return navire;
+        }
+        throw new IllegalStateException("Case navire sans navire en " + ligne + "," + colonne);
     }
 
     public boolean tousNaviresCoules() {
         if (aAbandonne) return true; // Si abandonné, considéré comme tous navires coulés
-        if (navires.isEmpty() && !typesDeNaviresAPlacerDansLeJeu().isEmpty()) {
-            // Si la liste des navires à placer n'est pas vide (par ex. jeu solo où on n'a pas encore placé)
-            // et que `navires` est vide, alors pas encore de navires à couler.
-            // Cependant, dans le contexte du jeu serveur, les navires sont placés avant le combat.
-            // Si `navires` est vide après la phase de placement, c'est une erreur de logique.
-            // Pour être sûr, on vérifie si le jeu attendait des navires.
-            // Normalement, si navires est vide APRES placement, cela signifie que tous sont placés.
-            // Cette condition est surtout pour le cas où aucun navire n'a été placé.
-            return false;
-        }
-        for (Ship navire : navires) {
-            if (!navire.estCoule()) {
-                return false;
-            }
-        }
-        // Si la liste navires est vide ET que le jeu s'attendait à ce qu'on ait des navires,
-        // on ne peut pas dire que tous sont coulés. Mais si tous les navires attendus ont été placés
-        // et que la liste `navires` en contient, alors cette boucle est correcte.
-        return !navires.isEmpty(); // Vrai si la liste n'est pas vide et que tous sont coulés.
-                                  // Faux si la liste est vide (aucun navire placé = pas de défaite)
-                                  // Cela pourrait être problématique si un joueur n'a aucun navire à placer.
-                                  // On part du principe qu'il y a toujours des navires à placer.
-    }
-
-    // Juste pour la complétude, similairement à BatailleNavaleGame.typesDeNaviresAPlacer
-    private List<Ship.ShipType> typesDeNaviresAPlacerDansLeJeu() {
-        return Arrays.asList(
-            Ship.ShipType.PORTE_AVIONS,
-            Ship.ShipType.CROISEUR,
-            Ship.ShipType.CONTRE_TORPILLEUR,
-            Ship.ShipType.SOUS_MARIN,
-            Ship.ShipType.TORPILLEUR
-        );
+        // Aucun navire placé = pas de défaite
+        return naviresRestants == 0 && !navires.isEmpty();
+    }
+
+    public int getNombreNaviresRestants() {
+        return naviresRestants;
     }
 
     public void marquerCommeAbandonne() {
         this.aAbandonne = true;
-        // Marquer toutes les cases de la grille comme abandonnées pour l'affichage
-        for (int i = 0; i < TAILLE_GRILLE; i++) {
-            for (int j = 0; j < TAILLE_GRILLE; j++) {
-                // Ne pas écraser les tirs déjà effectués (TOUCHÉ, MANQUÉ)
-                // mais indiquer que le joueur n'est plus actif.
-                // Pour l'instant, on met juste un flag. Le serveur gère l'élimination.
-                // On pourrait changer l'état des cases non touchées.
-                if (grille[i][j] == CASE_VIDE || grille[i][j] == CASE_NAVIRE) {
-                    // grille[i][j] = CASE_ABANDON; // Optionnel: pour l'affichage
-                }
-            }
-        }
+        // Les cases non encore tirées s'affichent abandonnées (getEtatCase), sans écraser
+        // les tirs déjà effectués (TOUCHÉ, MANQUÉ). Le serveur gère l'élimination.
         // Tous les navires sont considérés comme "coulés" ou hors-jeu
         for (Ship navire : navires) {
             navire.marquerCommeCouleSiAbandon(); // Nouvelle méthode dans Ship
         }
-         System.out.println("Le joueur " + nomJoueur + " a abandonné. Ses navires sont considérés coulés.");
+        naviresRestants = 0;
+         if (!silencieux) System.out.println("Le joueur " + nomJoueur + " a abandonné. Ses navires sont considérés coulés.");
     }
 
 
     public void afficherGrilleDebug() {
         System.out.println("Grille de " + nomJoueur + (aAbandonne ? " (ABANDONNÉ)" : "") + ":");
-        for (int i = 0; i < TAILLE_GRILLE; i++) {
-            for (int j = 0; j < TAILLE_GRILLE; j++) {
-                System.out.print(grille[i][j] + " ");
+        for (int i = 0; i < tailleGrille; i++) {
+            for (int j = 0; j < tailleGrille; j++) {
+                System.out.print(getEtatCase(i, j) + " ");
             }
             System.out.println();
         }
@@ -1,6 +1,5 @@
 package com.example.bataillenavale.model; // Exemple de package
 
-import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -31,15 +30,18 @@ public class Ship {
     }
 
     private final ShipType type;
-    private final List<Point> positions;
-    private final boolean[] hits;
+    // Cases du navire sous forme compacte : ancre (première case), orientation et taille du type.
+    // Segment i = (ligneAncre, colonneAncre + i) si horizontal, (ligneAncre + i, colonneAncre) sinon.
+    private int ligneAncre = -1; // -1 tant que le navire n'est pas placé
+    private int colonneAncre = -1;
     private boolean estHorizontal;
+    private int touches; // Bit i à 1 si le segment i est touché
+    private int segmentsRestants; // Segments non touchés, tenu à jour par registerHit : estCoule en O(1)
     private boolean explicitementCoule = false; // Pour le cas d'abandon
 
     public Ship(ShipType type) {
         this.type = type;
-        this.positions = new ArrayList<>();
-        this.hits = new boolean[type.getTaille()]; // Initialisé à false par défaut
+        this.segmentsRestants = type.getTaille();
     }
 
     public ShipType getType() {
@@ -50,20 +52,74 @@ public class Ship {
         return type.getTaille();
     }
 
-    public List<Point> getPositions() {
-        return new ArrayList<>(positions); // Retourner une copie
+    /** Positionne le navire à partir de sa première case (ligne, colonne). */
+    public void placer(int ligne, int colonne, boolean horizontal) {
+        this.ligneAncre = ligne;
+        this.colonneAncre = colonne;
+        this.estHorizontal = horizontal;
     }
 
+    public boolean estPlace() {
+        return ligneAncre >= 0;
+    }
+
+    public int getLigneSegment(int segment) {
+        return estHorizontal ? ligneAncre : ligneAncre + segment;
+    }
+
+    public int getColonneSegment(int segment) {
+        return estHorizontal ? colonneAncre + segment : colonneAncre;
+    }
+
+    /** Index du segment occupant la case (ligne, colonne), -1 si la case n'est pas sur ce navire. */
+    public int segmentEn(int ligne, int colonne) {
+        if (!estPlace()) return -1;
+        int segment;
+        if (estHorizontal) {
+            if (ligne != ligneAncre) return -1;
+            segment = colonne - colonneAncre;
+        } else {
+            if (colonne != colonneAncre) return -1;
+            segment = ligne - ligneAncre;
+        }
+        return segment >= 0 && segment < type.getTaille() ? segment : -1;
+    }
+
+    /** Vue de compatibilité : une liste neuve des cases du navire, vide si non placé. */
+    public List<Coordonnee> getPositions() {
+        List<Coordonnee> positions = new ArrayList<>();
+        if (estPlace()) {
+            for (int i = 0; i < type.getTaille(); i++) {
+                positions.add(new Coordonnee(getLigneSegment(i), getColonneSegment(i)));
+            }
+        }
+        return positions;
+    }
+
+    /** Compatibilité : la première position fixe l'ancre, la suivante l'orientation. */
     public void addPosition(int x, int y) { // Utilisé pendant la construction initiale, pas par le jeu principal
-        this.positions.add(new Point(x, y));
+        if (!estPlace()) {
+            placer(x, y, estHorizontal);
+        } else if (x == ligneAncre && y != colonneAncre) {
+            estHorizontal = true;
+        } else if (y == colonneAncre && x != ligneAncre) {
+            estHorizontal = false;
+        }
     }
 
-    public void setPositions(List<Point> positions) {
-        this.positions.clear();
-        this.positions.addAll(positions);
-        // S'assurer que `hits` est réinitialisé si les positions changent après l'initialisation
-        // (normalement, les positions sont fixées une fois pour toutes).
-        // Arrays.fill(this.hits, false); // Déjà fait par la taille fixe dans le constructeur.
+    /**
+     * Compatibilité : la première position sert d'ancre, la deuxième donne l'orientation.
+     * Les positions doivent être contiguës, comme celles produites par PlayerBoard.placerNavire.
+     */
+    public void setPositions(List<Coordonnee> positions) {
+        if (positions.isEmpty()) {
+            this.ligneAncre = -1;
+            this.colonneAncre = -1;
+            return;
+        }
+        Coordonnee premiere = positions.get(0);
+        boolean horizontal = positions.size() < 2 ? estHorizontal : positions.get(1).getLigne() == premiere.getLigne();
+        placer(premiere.getLigne(), premiere.getColonne(), horizontal);
     }
 
     public boolean isEstHorizontal() {
@@ -74,56 +130,58 @@ public class Ship {
         this.estHorizontal = estHorizontal;
     }
 
-    public boolean registerHit(Point shotPosition) {
+    public boolean registerHit(Coordonnee shotPosition) {
         if (explicitementCoule) return false; // Si déjà marqué comme coulé par abandon, ne pas enregistrer de nouveaux tirs
-
-        for (int i = 0; i < positions.size(); i++) {
-            if (positions.get(i).equals(shotPosition)) {
-                if (!hits[i]) {
-                    hits[i] = true;
-                    return true; // Touché pour la première fois à cet endroit
-                }
-                return false; // Déjà touché à cet endroit
-            }
+        int segment = segmentEn(shotPosition.getLigne(), shotPosition.getColonne());
+        // Hors du navire : ne devrait pas arriver si la logique de PlayerBoard est correcte
+        return segment >= 0 && registerHit(segment);
+    }
+
+    /** Enregistre un tir sur le segment donné (0 = première case du navire), sans recherche de position. */
+    public boolean registerHit(int segment) {
+        if (explicitementCoule) return false;
+        int bit = 1 << segment;
+        if ((touches & bit) == 0) {
+            touches |= bit;
+            segmentsRestants--;
+            return true; // Touché pour la première fois à cet endroit
         }
-        return false; // Le tir n'est pas sur ce navire (ne devrait pas arriver si la logique de PlayerBoard est correcte)
+        return false; // Déjà touché à cet endroit
+    }
+
+    /** Segments touchés, bit i pour le segment i. */
+    int getTouches() {
+        return touches;
+    }
+
+    public boolean estSegmentTouche(int segment) {
+        return (touches & (1 << segment)) != 0;
     }
 
     public boolean estCoule() {
-        if (explicitementCoule) return true;
-        if (positions.isEmpty() && type.getTaille() > 0) return false; // Pas de positions, pas encore placé, donc pas coulé.
-        if (type.getTaille() == 0) return true; // Navire de taille 0 est toujours "coulé".
+        // Un navire non placé n'a aucun segment touché, il lui en reste donc (sauf taille 0, toujours "coulé").
+        return explicitementCoule || segmentsRestants == 0;
+    }
 
-        for (boolean hit : hits) {
-            if (!hit) {
-                return false; // Au moins un segment n'est pas touché
-            }
-        }
-        // Si tous les segments sont dans `hits` et sont `true`, et qu'il y a bien des positions
-        return !positions.isEmpty(); // Vrai seulement si tous les segments sont touchés ET le navire a été positionné.
+    /** Segments non encore touchés (0 une fois coulé, y compris par abandon). */
+    public int getSegmentsRestants() {
+        return segmentsRestants;
     }
 
     public void marquerCommeCouleSiAbandon() {
         this.explicitementCoule = true;
-        // Optionnellement, marquer tous les segments comme touchés si la logique externe en dépend.
-        // for (int i = 0; i < hits.length; i++) {
-        //     hits[i] = true;
-        // }
+        this.segmentsRestants = 0;
+        // Les bits de touches restent ceux des tirs réels ; getNombreTouchees renvoie la taille entière.
     }
 
 
     public int getNombreTouchees() {
-        if (explicitementCoule) return type.getTaille();
-        int count = 0;
-        for (boolean hit : hits) {
-            if (hit) count++;
-        }
-        return count;
+        return type.getTaille() - segmentsRestants; // Taille entière si coulé par abandon
     }
 
     @Override
     public String toString() {
-        return type.getNom() + " (taille " + type.getTaille() + ", positions: " + positions.size() + ", touches: " + getNombreTouchees() + (estCoule() ? " COULÉ" : "") + ")";
+        return type.getNom() + " (taille " + type.getTaille() + ", positions: " + (estPlace() ? type.getTaille() : 0) + ", touches: " + getNombreTouchees() + (estCoule() ? " COULÉ" : "") + ")";
     }
 
     @Override
@@ -131,13 +189,13 @@ public class Ship {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Ship ship = (Ship) o;
-        // Comparaison basée sur le type et les positions initiales peut suffire si les navires sont uniques par type sur un plateau.
+        // Comparaison basée sur le type et la position peut suffire si les navires sont uniques par type sur un plateau.
         // Si plusieurs navires du même type sont possibles, un ID unique serait nécessaire.
-        return type == ship.type && Objects.equals(positions, ship.positions) && estHorizontal == ship.estHorizontal;
+        return type == ship.type && ligneAncre == ship.ligneAncre && colonneAncre == ship.colonneAncre && estHorizontal == ship.estHorizontal;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, positions, estHorizontal);
+        return Objects.hash(type, ligneAncre, colonneAncre, estHorizontal);
     }
-}
\ No newline at end of file
+}
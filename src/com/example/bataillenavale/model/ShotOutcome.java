@@ -0,0 +1,65 @@
+package com.example.bataillenavale.model;
+
+/**
+ * Issue complète d'un tir : le résultat, le type du navire coulé (COULE uniquement)
+ * et l'élimination éventuelle de la cible. Immuable ; toutes les issues possibles sont
+ * créées une fois, un tir ne fait donc aucune allocation.
+ */
+public final class ShotOutcome {
+    private static final ShotOutcome[] SIMPLES = new ShotOutcome[PlayerBoard.ShotResult.values().length];
+    // [type de navire][0 = cible toujours en jeu, 1 = cible éliminée]
+    private static final ShotOutcome[][] COULES = new ShotOutcome[Ship.ShipType.values().length][2];
+
+    static {
+        for (PlayerBoard.ShotResult resultat : PlayerBoard.ShotResult.values()) {
+            SIMPLES[resultat.ordinal()] = new ShotOutcome(resultat, null, false);
+        }
+        for (Ship.ShipType type : Ship.ShipType.values()) {
+            COULES[type.ordinal()][0] = new ShotOutcome(PlayerBoard.ShotResult.COULE, type, false);
+            COULES[type.ordinal()][1] = new ShotOutcome(PlayerBoard.ShotResult.COULE, type, true);
+        }
+    }
+
+    private final PlayerBoard.ShotResult resultat;
+    private final Ship.ShipType navireCoule;
+    private final boolean cibleEliminee;
+
+    private ShotOutcome(PlayerBoard.ShotResult resultat, Ship.ShipType navireCoule, boolean cibleEliminee) {
+        this.resultat = resultat;
+        this.navireCoule = navireCoule;
+        this.cibleEliminee = cibleEliminee;
+    }
+
+    /** Issue sans navire coulé (MANQUE, TOUCHE, DEJA_JOUE, ERREUR). */
+    public static ShotOutcome de(PlayerBoard.ShotResult resultat) {
+        return SIMPLES[resultat.ordinal()];
+    }
+
+    public static ShotOutcome coule(Ship.ShipType navire, boolean cibleEliminee) {
+        return COULES[navire.ordinal()][cibleEliminee ? 1 : 0];
+    }
+
+    public PlayerBoard.ShotResult getResultat() {
+        return resultat;
+    }
+
+    /** Type du navire coulé par ce tir, null si le résultat n'est pas COULE. */
+    public Ship.ShipType getNavireCoule() {
+        return navireCoule;
+    }
+
+    /** Vrai si ce tir a coulé le dernier navire de la cible. */
+    public boolean isCibleEliminee() {
+        return cibleEliminee;
+    }
+
+    /** Le tir a-t-il été joué (le tour passe) ? Faux pour DEJA_JOUE et ERREUR. */
+    public boolean estJoue() {
+        return resultat != PlayerBoard.ShotResult.DEJA_JOUE && resultat != PlayerBoard.ShotResult.ERREUR;
+    }
+
+    @Override
+    public String toString() {
+        return navireCoule == null ? resultat.name() : resultat.name() + ":" + navireCoule.getNom();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.bataillenavale.model;
+
+import java.util.Random;
+
+/**
+ * Choix des tirs d'un joueur artificiel sur la grille d'un adversaire, à partir des seuls
+ * résultats de tir annoncés (SHOT_RESULT) : aucune lecture du plateau adverse.
+ * Une instance suit une grille ; elle n'est pas thread-safe.
+ */
+public interface TargetingStrategy {
+
+    /** Enregistre le résultat d'un tir sur la grille suivie ; navireCoule n'est renseigné que pour COULE. */
+    void enregistrer(int ligne, int colonne, PlayerBoard.ShotResult resultat, Ship.ShipType navireCoule);
+
+    /** Case à viser, codée ligne * taille + colonne ; -1 si aucune case ne reste à tirer. */
+    int choisirCase(Random aleatoire);
+
+    /** Vrai quand toute la flotte suivie a été annoncée coulée. */
+    boolean estFlotteCoulee();
+}
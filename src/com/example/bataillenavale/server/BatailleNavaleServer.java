@@ -1,78 +1,72 @@
 package com.example.bataillenavale.server; // Exemple de package
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 // Assurez-vous que les classes du modèle sont accessibles
-import com.example.bataillenavale.model.BatailleNavaleGame;
-import com.example.bataillenavale.model.PlayerBoard;
 import com.example.bataillenavale.model.Ship;
 
 // Imports for Java-WebSocket
 import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer; // WebSocketServer itself
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer; // For potential binary messages, though String is primary for this app
-
-// New interface for client connections
-interface ClientConnection {
-    String getNomJoueur();
-    boolean isNameSet();
-    void setPlayerIndex(int index);
-    int getPlayerIndex();
-    BatailleNavaleServer.ClientHandler.ClientRole getRole(); // Use existing enum from ClientHandler
-    void setRole(BatailleNavaleServer.ClientHandler.ClientRole role);
-    boolean isActive();
-    void sendMessage(String message);
-    void closeConnection(boolean notifyServer); // notifyServer if server needs to run handleClientQuitte
-    String getRemoteAddressString();
-    void resetForNewLobby();
-    Object getUnderlyingHandle(); // Returns Socket or WebSocket for identity/removal
-}
-
+import java.nio.ByteBuffer; // Messages du protocole binaire (BinaryProtocol)
 
 public class BatailleNavaleServer {
     private static final int DEFAULT_TCP_PORT = 12350;
     private static final int DEFAULT_WS_PORT = 12349;
 
+    /** Manière dont les connexions TCP sont servies. */
+    public enum TcpMode {
+        THREAD_PER_CONNECTION, // Un ClientHandler bloquant par socket, sur un pool de threads classiques
+        VIRTUAL_THREADS,       // Un ClientHandler bloquant par socket, sur un thread virtuel (Java 21+)
+        NIO                    // Quelques threads Selector pour toutes les sockets
+    }
+
     private final int actualTcpPort;
     private final int actualWsPort;
 
-    private ServerSocket legacyServerSocket; // For TCP
+    private ServerSocket legacyServerSocket; // For TCP, THREAD_PER_CONNECTION mode
+    private NioTcpServer nioTcpServer;       // For TCP, NIO mode
     private GameWebSocketServer webSocketServer;     // For WS
 
-    // Unified list of connections
-    private final List<ClientConnection> allClientConnections = new ArrayList<>();
-    // playersInGame needs to store ClientConnection objects too
-    private final List<ClientConnection> playersInGame = new ArrayList<>(); // Stores ClientConnection
-    private final ExecutorService pool = Executors.newCachedThreadPool();
-    private BatailleNavaleGame game;
+    // Unified set of connections, all rooms included
+    private final Set<ClientConnection> allClientConnections = ConcurrentHashMap.newKeySet();
+    private final RoomRegistry roomRegistry = new RoomRegistry(GameJournal.depuisProprietes());
+    private final ExecutorService pool; // Boucle d'acceptation TCP, ClientHandler et vidage de leurs files d'envoi
 
-    private static final int MIN_PLAYERS_TO_START_TIMER = 2;
-    private static final int MAX_PLAYERS_ALLOWED = 7;
-    private boolean gameInProgressFlag = false;
-    private Timer lobbyCountdownTimer;
-    private TimerTask currentLobbyCountdownTask;
-    private static final long LOBBY_COUNTDOWN_MS = 20000; // 20 secondes
-    private boolean lobbyCountdownActive = false;
+    private static final int MAX_ROOM_ID_LENGTH = 15;
+    // -Dbataillenavale.log.commands=false coupe le journal de chaque commande reçue
+    private static final boolean JOURNAL_COMMANDES = Boolean.parseBoolean(System.getProperty("bataillenavale.log.commands", "true"));
+    // Commande réutilisée par chaque thread de transport (WebSocket, ClientHandler)
+    private static final ThreadLocal<ClientCommand> COMMANDE_COURANTE = ThreadLocal.withInitial(ClientCommand::new);
 
 
-    public BatailleNavaleServer(int tcpPort, int wsPort) {
+    public BatailleNavaleServer(int tcpPort, int wsPort, TcpMode tcpMode) {
         this.actualTcpPort = tcpPort;
         this.actualWsPort = wsPort;
+        this.pool = creerPoolConnexions(tcpMode);
 
         // Start WebSocket server
         try {
@@ -86,21 +80,62 @@ public class BatailleNavaleServer {
 
         // Start TCP server
         try {
-            legacyServerSocket = new ServerSocket(this.actualTcpPort);
-            System.out.println("Serveur Bataille Navale (TCP) démarré sur le port " + this.actualTcpPort);
+            if (tcpMode == TcpMode.NIO) {
+                nioTcpServer = new NioTcpServer(this, this.actualTcpPort, nombreThreadsIoParDefaut());
+            } else {
+                legacyServerSocket = new ServerSocket(this.actualTcpPort);
+            }
+            System.out.println("Serveur Bataille Navale (TCP, mode " + tcpMode + ") démarré sur le port " + this.actualTcpPort);
         } catch (IOException e) {
             System.err.println("Erreur au démarrage du serveur TCP Bataille Navale: " + e.getMessage());
             // Consider exiting if TCP server is essential and fails
             // System.exit(1); 
             legacyServerSocket = null; // Ensure it's null if failed
+            nioTcpServer = null;
         }
     }
+    public BatailleNavaleServer(int tcpPort, int wsPort) {
+        this(tcpPort, wsPort, tcpModeParDefaut());
+    }
     public BatailleNavaleServer() {
         this(DEFAULT_TCP_PORT, DEFAULT_WS_PORT);
     }
 
+    // -Dbataillenavale.tcp.mode=THREAD_PER_CONNECTION pour revenir à un thread par socket
+    private static TcpMode tcpModeParDefaut() {
+        String mode = System.getProperty("bataillenavale.tcp.mode", TcpMode.NIO.name());
+        try {
+            return TcpMode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Mode TCP inconnu '" + mode + "', utilisation de " + TcpMode.NIO);
+            return TcpMode.NIO;
+        }
+    }
+
+    /**
+     * En mode VIRTUAL_THREADS, chaque tâche obtient son propre thread virtuel.
+     * Le projet cible Java 8 : l'exécuteur est donc obtenu par réflexion, avec repli
+     * sur le pool classique si le JDK courant ne fournit pas de threads virtuels.
+     */
+    private static ExecutorService creerPoolConnexions(TcpMode mode) {
+        if (mode == TcpMode.VIRTUAL_THREADS) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Threads virtuels indisponibles sur ce JDK (Java 21+ requis). Repli sur un pool de threads classiques.");
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    private static int nombreThreadsIoParDefaut() {
+        return Integer.getInteger("bataillenavale.nio.threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
 
     public void startServer() {
+        roomRegistry.reprendreParties(); // Parties interrompues par le dernier arrêt, avant toute connexion
+
         if (webSocketServer != null) {
             webSocketServer.start(); // Starts the WebSocket server in a new thread
             // System.out.println("Serveur WebSocket démarré."); // Message now in GameWebSocketServer.onStart
@@ -108,39 +143,31 @@ public class BatailleNavaleServer {
             System.err.println("Impossible de démarrer le serveur WebSocket car il n'a pas été initialisé.");
         }
 
+        if (nioTcpServer != null) {
+            try {
+                nioTcpServer.start();
+                System.out.println("En attente de connexions TCP (NIO, " + nioTcpServer.getNombreThreadsIo() + " threads d'E/S) sur le port " + actualTcpPort + "...");
+            } catch (IOException e) {
+                System.err.println("Impossible de démarrer l'écoute TCP NIO: " + e.getMessage());
+            }
+            return;
+        }
+
         if (legacyServerSocket == null) {
             System.err.println("Impossible de démarrer l'écoute TCP car le serveur TCP n'a pas été initialisé.");
             return; // Cannot proceed without TCP server socket
         }
 
-        System.out.println("En attente de connexions TCP sur le port " + actualTcpPort + " pour " + MIN_PLAYERS_TO_START_TIMER + " à " + MAX_PLAYERS_ALLOWED + " participants...");
+        System.out.println("En attente de connexions TCP sur le port " + actualTcpPort + " (" + GameRoom.MIN_PLAYERS_TO_START_TIMER + " à " + GameRoom.MAX_PLAYERS_ALLOWED + " participants par salle)...");
         // TCP Connection Accept Loop
         pool.execute(() -> {
             while (legacyServerSocket != null && !legacyServerSocket.isClosed()) {
                 try {
                     Socket clientSocket = legacyServerSocket.accept();
-                    synchronized (this) { 
-                         if (allClientConnections.size() >= MAX_PLAYERS_ALLOWED && !gameInProgressFlag) {
-                            if (!(gameInProgressFlag && allClientConnections.size() < MAX_PLAYERS_ALLOWED)) {
-                                PrintWriter tempOut = new PrintWriter(clientSocket.getOutputStream(), true);
-                                tempOut.println("ERROR:Serveur plein (max " + MAX_PLAYERS_ALLOWED + " participants).");
-                                clientSocket.close();
-                                continue;
-                            }
-                        }
-
-                        ClientHandler tcpConnection = new ClientHandler(clientSocket, this);
-                        allClientConnections.add(tcpConnection);
-                        pool.execute(tcpConnection); 
-                        System.out.println("Nouveau participant TCP connecté: " + clientSocket.getRemoteSocketAddress() + ". Total connectés (tous types): " + allClientConnections.size());
-
-                        if (gameInProgressFlag && game != null && game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) {
-                            tcpConnection.setRole(ClientHandler.ClientRole.SPECTATOR);
-                            System.out.println("Client TCP " + clientSocket.getRemoteSocketAddress() + " est un spectateur potentiel (jeu en cours).");
-                        } else {
-                            tcpConnection.setRole(ClientHandler.ClientRole.PLAYER_IN_LOBBY);
-                        }
-                    }
+                    ClientHandler tcpConnection = new ClientHandler(clientSocket, this);
+                    registerConnection(tcpConnection);
+                    pool.execute(tcpConnection); 
+                    System.out.println("Nouveau participant TCP connecté: " + clientSocket.getRemoteSocketAddress() + ". Total connectés (tous types): " + allClientConnections.size());
                 } catch (IOException e) {
                     if (legacyServerSocket == null || legacyServerSocket.isClosed()) {
                         System.out.println("Serveur TCP arrêté.");
@@ -152,703 +179,231 @@ public class BatailleNavaleServer {
         });
     }
 
-    public synchronized void playerHasSetName(ClientConnection client) { //
-        if (client.getRole() == ClientHandler.ClientRole.SPECTATOR) {
-            System.out.println("Spectateur " + client.getNomJoueur() + " a défini son nom.");
-            if (gameInProgressFlag && game != null && game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) {
-                client.sendMessage("SPECTATE_MODE");
-                String allPlayerNamesStr = playersInGame.stream()
-                                                      .map(ClientConnection::getNomJoueur) 
-                                                      .collect(Collectors.joining(","));
-                client.sendMessage("SPECTATE_INFO:" + PlayerBoard.TAILLE_GRILLE + ":" + playersInGame.size() + ":" + allPlayerNamesStr);
-                handleChatMessage(client, "[A rejoint le chat en tant que spectateur]");
-                System.out.println(client.getNomJoueur() + " a reçu les infos pour spectateur.");
-            } else {
-                System.out.println("Jeu non en cours ou terminé. " + client.getNomJoueur() + " devient joueur dans le lobby.");
-                client.setRole(ClientHandler.ClientRole.PLAYER_IN_LOBBY);
-                broadcastLobbyState();
-                handleChatMessage(client, "[A rejoint le chat du lobby]");
-            }
-            if (client.getRole() == ClientHandler.ClientRole.SPECTATOR && gameInProgressFlag) {
-                return;
-            }
-        }
-
-        if (client.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY) {
-            if (!(gameInProgressFlag && client.getRole() == ClientHandler.ClientRole.SPECTATOR)) { // Avoid double broadcast if transition
-                 broadcastLobbyState();
-             }
-            int namedPlayerCount = 0;
-            synchronized (allClientConnections) {
-                for (ClientConnection ch : allClientConnections) {
-                    if (ch.isNameSet() && ch.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY) {
-                        namedPlayerCount++;
-                    }
-                }
-            }
-            System.out.println("Joueurs avec nom dans le lobby: " + namedPlayerCount);
-
-            if (!gameInProgressFlag && !lobbyCountdownActive && namedPlayerCount >= MIN_PLAYERS_TO_START_TIMER) {
-                System.out.println(namedPlayerCount + " joueurs ont défini leur nom. Démarrage du compte à rebours du lobby.");
-                startLobbyCountdown();
-            } else if (!gameInProgressFlag && namedPlayerCount >= MAX_PLAYERS_ALLOWED ) { 
-                 System.out.println("Nombre maximum de joueurs (" + namedPlayerCount + ") atteint et noms définis. Démarrage anticipé.");
-                 if (lobbyCountdownActive) cancelLobbyCountdown();
-                 prepareAndStartGameWithReadyPlayers();
-            }
-        }
+    /** Enregistre une nouvelle connexion et la place dans le lobby d'une salle ouverte. */
+    void registerConnection(ClientConnection connection) {
+        allClientConnections.add(connection);
+        roomRegistry.rejoindreSalleOuverte(connection, false);
     }
-    
-    private synchronized void startLobbyCountdown() {
-        if (lobbyCountdownActive || gameInProgressFlag) {
-            return;
-        }
-        lobbyCountdownActive = true;
-        if (lobbyCountdownTimer == null) {
-            lobbyCountdownTimer = new Timer("LobbyTimer", true);
-        }
-        currentLobbyCountdownTask = new TimerTask() {
-            @Override
-            public void run() {
-                synchronized (BatailleNavaleServer.this) { 
-                    lobbyCountdownActive = false;
-                    if (gameInProgressFlag) return;
-
-                    int namedPlayerCount = 0;
-                    synchronized (allClientConnections) {
-                        for (ClientConnection ch : allClientConnections) { 
-                            if (ch.isNameSet() && ch.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY) namedPlayerCount++;
-                        }
-                    }
 
-                    if (namedPlayerCount >= MIN_PLAYERS_TO_START_TIMER) {
-                        System.out.println("Compte à rebours du lobby terminé. Démarrage du jeu avec " + namedPlayerCount + " joueurs.");
-                        prepareAndStartGameWithReadyPlayers();
-                    } else {
-                        System.out.println("Compte à rebours du lobby terminé, mais pas assez de joueurs ayant défini un nom. En attente...");
-                        broadcast("LOBBY_TIMER_ENDED_NO_GAME:Pas assez de joueurs prêts.");
-                    }
-                }
-            }
-        };
-        lobbyCountdownTimer.schedule(currentLobbyCountdownTask, LOBBY_COUNTDOWN_MS);
-        broadcast("LOBBY_COUNTDOWN_STARTED:" + (LOBBY_COUNTDOWN_MS / 1000));
-        System.out.println("Compte à rebours du lobby de " + (LOBBY_COUNTDOWN_MS / 1000) + "s démarré.");
+    /** Métriques des files d'envoi : profondeur actuelle, messages envoyés et abandonnés. */
+    public OutboundMetrics getMetriquesEnvoi() {
+        long profondeurTotale = 0;
+        int profondeurMax = 0;
+        int connexions = 0;
+        for (ClientConnection connection : allClientConnections) {
+            int profondeur = connection.getOutboundQueueDepth();
+            profondeurTotale += profondeur;
+            profondeurMax = Math.max(profondeurMax, profondeur);
+            connexions++;
+        }
+        return new OutboundMetrics(connexions, profondeurTotale, profondeurMax);
     }
 
-    private synchronized void cancelLobbyCountdown() {
-        if (currentLobbyCountdownTask != null) {
-            currentLobbyCountdownTask.cancel();
-            currentLobbyCountdownTask = null;
-        }
-        if (lobbyCountdownActive) {
-            lobbyCountdownActive = false;
-            broadcast("LOBBY_COUNTDOWN_CANCELLED");
-            System.out.println("Compte à rebours du lobby annulé.");
+    /** Applique un nom validé à une connexion, quel que soit son transport. */
+    static void definirNom(ClientConnection client, String nom) {
+        if (client instanceof ClientHandler) { 
+            ((ClientHandler)client).nomJoueur = nom;
+            ((ClientHandler)client).nameIsSet = true;
+        } else if (client instanceof WebSocketClientConnection) { 
+            ((WebSocketClientConnection)client).nomJoueur = nom;
+            ((WebSocketClientConnection)client).nameIsSet = true;
+        } else if (client instanceof NioTcpServer.NioClientConnection) {
+            ((NioTcpServer.NioClientConnection)client).nomJoueur = nom;
+            ((NioTcpServer.NioClientConnection)client).nameIsSet = true;
+        } else if (client instanceof BotConnection) {
+            ((BotConnection)client).nomJoueur = nom;
+            ((BotConnection)client).nameIsSet = true;
         }
     }
 
-    private synchronized void prepareAndStartGameWithReadyPlayers() {
-        if (gameInProgressFlag) {
-            System.out.println("prepareAndStartGameWithReadyPlayers appelée alors que gameInProgressFlag est true.");
-            return;
-        }
+    public void processClientMessage(ClientConnection client, String messageLine) { //
+        processClientMessage(client, messageLine, COMMANDE_COURANTE.get());
+    }
 
-        List<ClientConnection> joueursPretsPourPartie = new ArrayList<>();
-        synchronized (allClientConnections) { 
-            for (ClientConnection ch : allClientConnections) {
-                if (ch.isNameSet() && ch.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY && ch.isActive()) {
-                    joueursPretsPourPartie.add(ch);
-                }
-            }
+    /** Analyse une ligne texte dans une commande réutilisable (voir CommandParser) puis l'exécute. */
+    void processClientMessage(ClientConnection client, CharSequence messageLine, ClientCommand commande) {
+        if (JOURNAL_COMMANDES) {
+            System.out.println("Reçu de " + (client.isNameSet() ? client.getNomJoueur() : client.getRemoteAddressString()) + 
+                               " (rôle " + client.getRole() + ", idx " + client.getPlayerIndex() + ", nameSet: "+client.isNameSet()+"): " + messageLine);
         }
+        CommandParser.analyser(messageLine, commande);
+        executerCommande(client, commande);
+    }
 
-        if (joueursPretsPourPartie.size() < MIN_PLAYERS_TO_START_TIMER) {
-            System.out.println("Tentative de démarrage, mais pas assez de joueurs prêts (" + joueursPretsPourPartie.size() + ").");
-            broadcast("ERROR:Pas assez de joueurs prêts pour démarrer.");
-            return;
-        }
-        
-        gameInProgressFlag = true;
-        cancelLobbyCountdown();
-
-        synchronized(playersInGame) { //
-            playersInGame.clear();
-            playersInGame.addAll(joueursPretsPourPartie);
-            for(int i=0; i < playersInGame.size(); i++) { 
-                ClientConnection player = playersInGame.get(i);
-                player.setPlayerIndex(i);
-                player.setRole(ClientHandler.ClientRole.PLAYER_IN_GAME);
-            }
-        }
-        
-        String[] nomsJoueursEnPartie = new String[playersInGame.size()];
-        for (int i = 0; i < playersInGame.size(); i++) {
-            nomsJoueursEnPartie[i] = playersInGame.get(i).getNomJoueur();
+    // Le transport ne fait qu'analyser la commande : la salle l'exécute sur sa propre boucle
+    void executerCommande(ClientConnection client, ClientCommand commande) {
+        switch (commande.opcode) {
+            case BinaryProtocol.LIST_ROOMS:
+                handleListRooms(client);
+                break;
+            case BinaryProtocol.JOIN_ROOM:
+                handleJoinRoom(client, commande.texte.trim());
+                break;
+            case BinaryProtocol.QUIT_GAME:
+                handleQuitGame(client);
+                break;
+            case BinaryProtocol.SET_NAME:
+                handleSetName(client, commande.texte);
+                break;
+            case BinaryProtocol.RECONNECT:
+                handleReconnect(client, commande.texte);
+                break;
+            case BinaryProtocol.PLACE_SHIP:
+                handlePlaceShip(client, commande.navire, commande.ligne, commande.colonne, commande.horizontal);
+                break;
+            case BinaryProtocol.FIRE_SHOT:
+                handleFireShot(client, commande.cible, commande.ligne, commande.colonne);
+                break;
+            case BinaryProtocol.ADMIN_START_GAME:
+                handleAdminStartGame(client);
+                break;
+            case BinaryProtocol.ADMIN_CONFIG:
+                handleAdminConfig(client, commande.tailleGrille, commande.texte);
+                break;
+            case BinaryProtocol.CHAT_MSG:
+                handleChatMessage(client, commande.texte);
+                break;
+            default:
+                client.sendMessage(commande.erreur != null ? commande.erreur : "ERROR:Commande invalide.");
+                break;
         }
-        
-        game = new BatailleNavaleGame(nomsJoueursEnPartie);
-        System.out.println("Partie de Bataille Navale démarrée avec : " + Arrays.toString(nomsJoueursEnPartie));
+    }
 
-        String allPlayerNamesStr = Arrays.stream(nomsJoueursEnPartie).collect(Collectors.joining(","));
+    // Commandes déjà décodées, communes aux protocoles texte et binaire
 
-        for (ClientConnection client : playersInGame) { 
-            client.sendMessage("GAME_START:" + PlayerBoard.TAILLE_GRILLE + ":" + client.getPlayerIndex() + ":" + playersInGame.size() + ":" + allPlayerNamesStr);
-        }
-        
-        synchronized(allClientConnections) { 
-            for(ClientConnection ch : allClientConnections) {
-                if (!playersInGame.contains(ch)) { 
-                    ch.setRole(ClientHandler.ClientRole.SPECTATOR); 
-                    if (ch.isNameSet()) { 
-                        ch.sendMessage("SPECTATE_MODE");
-                        ch.sendMessage("SPECTATE_INFO:" + PlayerBoard.TAILLE_GRILLE + ":" + playersInGame.size() + ":" + allPlayerNamesStr);
-                         System.out.println(ch.getNomJoueur() + " est maintenant spectateur de la nouvelle partie.");
-                    } else {
-                        if (ch.getUnderlyingHandle() instanceof WebSocket) { 
-                            ch.sendMessage("REQ_NAME"); 
-                        }
-                    }
-                }
-            }
-        }
-        passerAuPlacementSuivant();
+    void handleListRooms(ClientConnection client) {
+        client.sendMessage("ROOM_LIST:" + roomRegistry.getSalles().stream()
+                                                      .map(GameRoom::getDescription)
+                                                      .collect(Collectors.joining(",")));
     }
 
-    public synchronized void handleAdminStartGame(ClientConnection adminClient) { //
-        boolean isAdminHost = false;
-        synchronized(allClientConnections) { 
-            if (!allClientConnections.isEmpty()) {
-                ClientConnection firstPotentialHost = null;
-                for (ClientConnection ch_loop : allClientConnections) {
-                    if (ch_loop.isNameSet() && ch_loop.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY) {
-                        firstPotentialHost = ch_loop;
-                        break;
-                    }
-                }
-                if (firstPotentialHost == adminClient) {
-                    isAdminHost = true;
-                }
-            }
-        }
+    void handleQuitGame(ClientConnection client) {
+        System.out.println("Client " + client.getNomJoueur() + " a envoyé QUIT_GAME.");
+        client.closeConnection(true); 
+    }
 
-        if (!isAdminHost) {
-            adminClient.sendMessage("ERROR:Seul l'hôte (premier joueur connecté ayant un nom dans le lobby) peut démarrer la partie.");
-            return;
-        }
-         if (gameInProgressFlag) {
-            adminClient.sendMessage("ERROR:La partie est déjà en cours ou en démarrage.");
-            return;
-        }
-        
-        int namedPlayerCount = 0;
-        synchronized(allClientConnections) { 
-            for(ClientConnection ch_loop : allClientConnections) {
-                if(ch_loop.isNameSet() && ch_loop.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY) namedPlayerCount++;
-            }
+    void handleSetName(ClientConnection client, String nom) {
+        GameRoom room = salleDuClient(client);
+        if (room == null) return;
+        String potentialName = nom.trim();
+        if (!potentialName.isEmpty() && potentialName.length() <= 15) {
+            room.executerPour(client, r -> r.handleSetName(client, potentialName));
+        } else {
+            client.sendMessage("ERROR:Le nom ne peut pas être vide et doit faire 15 caractères max.");
+            if (!client.isNameSet()) client.sendMessage("REQ_NAME");
         }
+    }
 
-        if (namedPlayerCount < MIN_PLAYERS_TO_START_TIMER) {
-            adminClient.sendMessage("ERROR:Pas assez de joueurs prêts (min " + MIN_PLAYERS_TO_START_TIMER + " avec nom défini).");
+    /** RECONNECT:salle:jeton, jeton reçu dans SEAT_TOKEN pour retrouver son siège dans une partie reprise. */
+    void handleReconnect(ClientConnection client, String reprise) {
+        GameRoom room = salleDuClient(client);
+        if (room == null) return;
+        int separateur = reprise.lastIndexOf(':');
+        long jeton;
+        try {
+            if (separateur < 0 || reprise.length() - separateur - 1 != 16) throw new NumberFormatException();
+            jeton = Long.parseUnsignedLong(reprise.substring(separateur + 1), 16);
+        } catch (NumberFormatException e) {
+            client.sendMessage("ERROR:Commande RECONNECT malformée (attendu: RECONNECT:salle:jeton).");
             return;
         }
-
-        System.out.println("Démarrage de la partie par l'administrateur/hôte: " + adminClient.getNomJoueur());
-        cancelLobbyCountdown();
-        prepareAndStartGameWithReadyPlayers();
+        String salle = reprise.substring(0, separateur).trim();
+        room.executerPour(client, r -> r.handleReconnect(client, salle, jeton));
     }
 
-
-    private synchronized void passerAuPlacementSuivant() {
-        if (game == null) {
-             System.err.println("passerAuPlacementSuivant appelé alors que game est null.");
-            if (gameInProgressFlag) { 
-                 broadcastToAllParticipants("ERROR:Erreur critique du jeu, retour au lobby.");
-                 resetServerForNewLobby();
+    void handlePlaceShip(ClientConnection client, Ship.ShipType type, int ligne, int col, boolean horizontal) {
+        GameRoom room = salleDuClient(client);
+        if (room == null) return;
+        room.executerPourJoueurNomme(client, r -> {
+            if (GameRoom.exigerRole(client, ClientHandler.ClientRole.PLAYER_IN_GAME)) {
+                r.handlePlacementNavire(client, type, ligne, col, horizontal);
             }
-            return;
-        }
-        if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.COMBAT) {
-            System.out.println("Tous les navires placés. Début de la phase de combat.");
-            broadcastToPlayersInGame("ALL_SHIPS_PLACED");
-            informerTourCombat();
-            return;
-        }
+        });
+    }
 
-        if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX) {
-            int gameCurrentPlayerGlobalIndex = game.getJoueurCourantIndex();
-             if (gameCurrentPlayerGlobalIndex == -1) { 
-                System.err.println("Erreur: Aucun joueur actif pour la phase de placement.");
-                if (game.getNombreJoueursActifs() == 0 && !playersInGame.isEmpty()) { 
-                    broadcastToAllParticipants("GAME_OVER_DISCONNECT:Tous les joueurs ont quitté pendant le placement.");
-                } else {
-                     broadcastToAllParticipants("ERROR:Problème de joueur pour le placement.");
-                }
-                resetServerForNewLobby();
-                return;
+    void handleFireShot(ClientConnection client, int targetIdx, int ligne, int col) {
+        GameRoom room = salleDuClient(client);
+        if (room == null) return;
+        room.executerPourJoueurNomme(client, r -> {
+            if (GameRoom.exigerRole(client, ClientHandler.ClientRole.PLAYER_IN_GAME)) {
+                r.handleTir(client, targetIdx, ligne, col);
             }
+        });
+    }
 
-            ClientConnection clientActif = getClientConnectionByGlobalIndexInGame(gameCurrentPlayerGlobalIndex); 
-            if (clientActif == null) {
-                System.err.println("Erreur: Joueur courant (" + gameCurrentPlayerGlobalIndex + ") pour placement non trouvé ou inactif côté serveur.");
-                game.passerAuJoueurSuivantPourPlacement(); 
-                passerAuPlacementSuivant(); 
-                return;
-            }
-            List<Ship.ShipType> naviresAPlacer = game.getNaviresAPlacerPourJoueurCourant();
-            if (!naviresAPlacer.isEmpty()) {
-                Ship.ShipType prochainNavire = naviresAPlacer.get(0);
-                clientActif.sendMessage("YOUR_TURN_PLACE_SHIP:" + prochainNavire.name() + ":" + prochainNavire.getTaille() + ":" + prochainNavire.getNom());
-                broadcastSaufAUnJoueurEnPartie(clientActif,"WAIT_PLACEMENT:" + clientActif.getNomJoueur() + ":" + prochainNavire.getNom());
-            } else {
-                System.out.println("Joueur " + clientActif.getNomJoueur() + " a fini ses placements. Demande de passage au suivant.");
-                game.passerAuJoueurSuivantPourPlacement(); 
-                passerAuPlacementSuivant(); 
+    void handleAdminStartGame(ClientConnection client) {
+        GameRoom room = salleDuClient(client);
+        if (room == null) return;
+        room.executerPourJoueurNomme(client, r -> {
+            if (GameRoom.exigerRole(client, ClientHandler.ClientRole.PLAYER_IN_LOBBY)) {
+                r.handleAdminStartGame(client);
             }
-        } else if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE) {
-             System.out.println("Jeu terminé, pas de placement suivant.");
-             if (gameInProgressFlag) { 
-                 resetServerForNewLobby();
-             }
-        } else {
-            System.err.println("Phase de jeu inattendue dans passerAuPlacementSuivant: " + game.getPhaseActuelle());
-        }
+        });
     }
-    
-    public synchronized void handlePlacementNavire(ClientConnection client, Ship.ShipType type, int ligne, int col, boolean horizontal) { //
-        if (client.getRole() != ClientHandler.ClientRole.PLAYER_IN_GAME) {
-             client.sendMessage("ERROR:Les spectateurs ne peuvent pas placer de navires."); return;
-        }
-        if (game == null || game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX) {
-            client.sendMessage("ERROR:Pas en phase de placement.");
-            return;
-        }
-        if (client.getPlayerIndex() != game.getJoueurCourantIndex()) {
-            client.sendMessage("ERROR:Pas votre tour de placer.");
-            return;
-        }
 
-        List<Ship.ShipType> naviresAPlacer = game.getNaviresAPlacerPourJoueurCourant();
-        if (naviresAPlacer.isEmpty() || naviresAPlacer.get(0) != type) {
-            client.sendMessage("ERROR:Ce n'est pas le navire attendu (" + (naviresAPlacer.isEmpty() ? "aucun" : naviresAPlacer.get(0).getNom()) + ")");
-            return;
-        }
-        if (game.placerNavireJoueurCourant(type, ligne, col, horizontal)) {
-            client.sendMessage("PLACEMENT_ACCEPTED:" + type.name() + ":" + ligne + ":" + col + ":" + horizontal);
-            broadcastSaufAUnJoueurEnPartie(client, "PLAYER_PLACED_SHIP:" + client.getNomJoueur() + ":" + type.getNom());
-            passerAuPlacementSuivant();
-        } else {
-            client.sendMessage("PLACEMENT_REJECTED:" + type.name());
-            List<Ship.ShipType> currentNaviresAPlacer = game.getNaviresAPlacerPourJoueurCourant(); 
-            if (!currentNaviresAPlacer.isEmpty() && currentNaviresAPlacer.get(0) == type) {
-                 Ship.ShipType prochainNavire = currentNaviresAPlacer.get(0);
-                 client.sendMessage("YOUR_TURN_PLACE_SHIP:" + prochainNavire.name() + ":" + prochainNavire.getTaille() + ":" + prochainNavire.getNom());
-            } else if (!currentNaviresAPlacer.isEmpty()) { 
-                 Ship.ShipType prochainNavire = currentNaviresAPlacer.get(0);
-                 client.sendMessage("YOUR_TURN_PLACE_SHIP:" + prochainNavire.name() + ":" + prochainNavire.getTaille() + ":" + prochainNavire.getNom());
-                 System.out.println("Placement rejeté, mais le navire attendu a changé pour " + client.getNomJoueur());
-            } else { 
-                 System.err.println("Erreur critique: Rejet de placement mais plus de navires à placer pour " + client.getNomJoueur() + " ou liste vide.");
-                 passerAuPlacementSuivant(); 
+    void handleAdminConfig(ClientConnection client, int tailleGrille, String flotte) {
+        GameRoom room = salleDuClient(client);
+        if (room == null) return;
+        room.executerPourJoueurNomme(client, r -> {
+            if (GameRoom.exigerRole(client, ClientHandler.ClientRole.PLAYER_IN_LOBBY)) {
+                r.handleAdminConfig(client, tailleGrille, flotte);
             }
-        }
+        });
     }
 
-    private synchronized void informerTourCombat() {
-        if (game == null || game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.COMBAT) {
-            if (game != null && game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE && gameInProgressFlag) {
-                 System.out.println("informerTourCombat appelé alors que le jeu est terminé.");
+    void handleChatMessage(ClientConnection client, String message) {
+        GameRoom room = salleDuClient(client);
+        if (room == null) return;
+        room.executerPourJoueurNomme(client, r -> {
+            if (!message.isEmpty()) {
+                r.handleChatMessage(client, message);
             }
-            return;
-        }
-
-        int joueurCourantGlobalIndex = game.getJoueurCourantIndex();
-        if (joueurCourantGlobalIndex == -1) { 
-             System.err.println("Erreur dans informerTourCombat: Aucun joueur courant actif.");
-             if (game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) { 
-                broadcastToAllParticipants("GAME_OVER_DRAW: Aucun joueur actif restant en combat.");
-                resetServerForNewLobby();
-             }
-             return;
-        }
+        });
+    }
 
-        ClientConnection clientActif = getClientConnectionByGlobalIndexInGame(joueurCourantGlobalIndex); 
-        if (clientActif == null) {
-            System.err.println("Erreur dans informerTourCombat: ClientConnection non trouvé pour l'index global " + joueurCourantGlobalIndex + ".");
-            game.passerAuJoueurSuivantPourCombat(); 
-            informerTourCombat(); 
-            return;
+    private static GameRoom salleDuClient(ClientConnection client) {
+        GameRoom room = client.getRoom();
+        if (room == null) {
+            client.sendMessage("ERROR:Vous n'êtes dans aucune salle. Utilisez JOIN_ROOM:idSalle.");
         }
-        clientActif.sendMessage("YOUR_TURN_FIRE");
-        broadcastSaufAUnJoueurEnPartie(clientActif, "OPPONENT_TURN_FIRE:" + clientActif.getNomJoueur());
-        System.out.println("Phase de combat: Au tour de " + clientActif.getNomJoueur());
+        return room;
     }
 
-    public synchronized void handleTir(ClientConnection clientTireur, int targetPlayerGlobalIndex, int ligne, int col) { //
-         if (clientTireur.getRole() != ClientHandler.ClientRole.PLAYER_IN_GAME) {
-             clientTireur.sendMessage("ERROR:Les spectateurs ne peuvent pas tirer."); return;
-        }
-        if (game == null || game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.COMBAT) {
-            clientTireur.sendMessage("ERROR:Pas en phase de combat.");
+    void handleJoinRoom(ClientConnection client, String roomId) {
+        if (roomId.isEmpty() || roomId.length() > MAX_ROOM_ID_LENGTH || !roomId.chars().allMatch(Character::isLetterOrDigit)) {
+            client.sendMessage("ERROR:Identifiant de salle invalide (lettres et chiffres, " + MAX_ROOM_ID_LENGTH + " caractères max).");
             return;
         }
-        if (clientTireur.getPlayerIndex() != game.getJoueurCourantIndex()) {
-            clientTireur.sendMessage("ERROR:Pas votre tour de tirer.");
+        GameRoom current = client.getRoom();
+        if (current != null && current.getId().equals(roomId)) {
+            client.sendMessage("ROOM_JOINED:" + roomId);
             return;
         }
-        PlayerBoard targetBoard = game.getPlayerBoard(targetPlayerGlobalIndex); 
-        if (targetBoard == null || targetPlayerGlobalIndex == clientTireur.getPlayerIndex() ||
-            (game.getJoueursActifsIndices() != null && !game.getJoueursActifsIndices().contains(targetPlayerGlobalIndex))) {
-            clientTireur.sendMessage("ERROR:Cible de tir invalide ou joueur inactif.");
-            clientTireur.sendMessage("YOUR_TURN_FIRE"); 
-            return;
-        }
-
-        PlayerBoard.ShotResult resultat = game.tirerSurAdversaire(targetPlayerGlobalIndex, ligne, col);
-        String nomJoueurCible = game.getPlayerBoard(targetPlayerGlobalIndex).getNomJoueur();
-        int joueurTireurIndex = clientTireur.getPlayerIndex();
-        String messageBase = "SHOT_RESULT:" + joueurTireurIndex + ":" + targetPlayerGlobalIndex + ":" + ligne + ":" + col + ":" + resultat.name();
-
-        if (resultat == PlayerBoard.ShotResult.COULE) {
-            Ship navireCouleDetecte = null;
-            PlayerBoard boardCibleEffective = game.getPlayerBoard(targetPlayerGlobalIndex); 
-            for(Ship s : boardCibleEffective.getNavires()){ //
-                if(s.estCoule()){  //
-                    boolean segmentToucheSurCeNavire = false;
-                    for(java.awt.Point p : s.getPositions()){ //
-                        if(p.x == ligne && p.y == col) {
-                            segmentToucheSurCeNavire = true;
-                            break;
-                        }
-                    }
-                    if (segmentToucheSurCeNavire) {
-                        navireCouleDetecte = s;
-                        break;
-                    }
-                    if (navireCouleDetecte == null) { 
-                        boolean hitThisShip = false;
-                         for(java.awt.Point p : s.getPositions()){ if(p.x == ligne && p.y == col) {hitThisShip = true; break;}}
-                         if(hitThisShip) navireCouleDetecte = s;
-                    }
-                }
-            } 
-             if(navireCouleDetecte != null){ 
-                messageBase += ":" + navireCouleDetecte.getType().getNom(); //
-            } else {
-                 PlayerBoard boardCible = game.getPlayerBoard(targetPlayerGlobalIndex);
-                 for(Ship s : boardCible.getNavires()){ //
-                     if(s.estCoule()){ //
-                         boolean justSunkByThisHit = false;
-                         for(java.awt.Point p : s.getPositions()){ //
-                             if(p.x == ligne && p.y == col && s.getNombreTouchees() == s.getTaille()){ //
-                                 justSunkByThisHit = true;
-                                 break;
-                             }
-                         }
-                         if(justSunkByThisHit){
-                             navireCouleDetecte = s;
-                             break;
-                         }
-                     }
-                 }
-                 if(navireCouleDetecte != null){
-                    messageBase += ":" + navireCouleDetecte.getType().getNom(); //
-                 } else {
-                    messageBase += ":UNKNOWN_SHIP"; 
-                    System.err.println("SHOT_RESULT was COULE, but could not identify which ship for player " + nomJoueurCible);
-                 }
-            }
-        } 
-        broadcastToAllParticipants(messageBase);
-        System.out.println("Tir de " + clientTireur.getNomJoueur() + " sur " + nomJoueurCible + " en " + ligne + "," + col + " -> " + resultat);
-
-        if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE) {
-            if (game.getGagnantIndex() != -1) {
-                String nomGagnant = game.getPlayerBoard(game.getGagnantIndex()).getNomJoueur();
-                broadcastToAllParticipants("GAME_OVER:" + nomGagnant + ":" + game.getGagnantIndex());
-                System.out.println("Partie terminée. Gagnant: " + nomGagnant);
-            } else {
-                broadcastToAllParticipants("GAME_OVER_DRAW");
-                System.out.println("Partie terminée. Aucun survivant ou match nul.");
-            }
-            resetServerForNewLobby();
-        } else if (resultat != PlayerBoard.ShotResult.DEJA_JOUE && resultat != PlayerBoard.ShotResult.ERREUR) {
-            informerTourCombat();
-        } else { 
-            clientTireur.sendMessage("YOUR_TURN_FIRE");
-        }
-    }
-
-    public synchronized void processClientMessage(ClientConnection client, String messageLine) { //
-        System.out.println("Reçu de " + (client.isNameSet() ? client.getNomJoueur() : client.getRemoteAddressString()) + 
-                           " (rôle " + client.getRole() + ", idx " + client.getPlayerIndex() + ", nameSet: "+client.isNameSet()+"): " + messageLine);
-        
-        String[] parts = messageLine.split(":", 2);
-        String command = parts[0].toUpperCase();
-        String payload = (parts.length > 1) ? parts[1] : "";
-
-        if (command.equals("SET_NAME")) {
-            String potentialName = payload.trim();
-            if (!potentialName.isEmpty() && potentialName.length() <= 15) {
-                boolean nameTaken = false;
-                synchronized(allClientConnections) {
-                    for(ClientConnection ch : allClientConnections) {
-                        if (ch != client && ch.isNameSet() && ch.getNomJoueur().equalsIgnoreCase(potentialName)) {
-                            nameTaken = true;
-                            break;
-                        }
-                    }
-                }
-                if (nameTaken) {
-                    client.sendMessage("ERROR:Ce nom est déjà utilisé. Veuillez en choisir un autre.");
-                    client.sendMessage("REQ_NAME"); 
-                } else {
-                    if (client instanceof ClientHandler) { 
-                        ((ClientHandler)client).nomJoueur = potentialName;
-                        ((ClientHandler)client).nameIsSet = true;
-                    } else if (client instanceof WebSocketClientConnection) { 
-                        ((WebSocketClientConnection)client).nomJoueur = potentialName;
-                        ((WebSocketClientConnection)client).nameIsSet = true;
-                    }
-                    System.out.println("Client ("+client.getRemoteAddressString()+") s'appelle maintenant " + client.getNomJoueur());
-                    playerHasSetName(client);
-                }
-            } else {
-                client.sendMessage("ERROR:Le nom ne peut pas être vide et doit faire 15 caractères max.");
-                if (!client.isNameSet()) client.sendMessage("REQ_NAME");
-            }
-            return; 
-        }
-
-        if (!client.isNameSet() && !command.equals("QUIT_GAME")) { 
-            client.sendMessage("ERROR:Veuillez d'abord définir votre nom avec SET_NAME:votreNom.");
-            client.sendMessage("REQ_NAME"); 
+        if (current == null) {
+            roomRegistry.rejoindreSalle(roomId, client);
             return;
         }
-
-        switch (command) {
-            case "PLACE_SHIP":
-                if (client.getRole() != ClientHandler.ClientRole.PLAYER_IN_GAME) { client.sendMessage("ERROR:Action non autorisée pour votre rôle."); break;}
-                String[] placementArgs = payload.split(":");
-                if (placementArgs.length == 4) {
-                    try {
-                        Ship.ShipType type = Ship.ShipType.valueOf(placementArgs[0].toUpperCase());
-                        int ligne = Integer.parseInt(placementArgs[1]);
-                        int col = Integer.parseInt(placementArgs[2]);
-                        boolean horizontal = Boolean.parseBoolean(placementArgs[3]);
-                        handlePlacementNavire(client, type, ligne, col, horizontal);
-                    } catch (IllegalArgumentException e) {
-                        client.sendMessage("ERROR:Arguments de placement invalides. " + e.getMessage());
-                    }
-                } else {
-                     client.sendMessage("ERROR:Commande PLACE_SHIP malformée.");
-                }
-                break;
-            case "FIRE_SHOT":
-                if (client.getRole() != ClientHandler.ClientRole.PLAYER_IN_GAME) { client.sendMessage("ERROR:Action non autorisée pour votre rôle."); break;}
-                String[] tirArgs = payload.split(":");
-                if (tirArgs.length == 3) {
-                    try {
-                        int targetIdx = Integer.parseInt(tirArgs[0]);
-                        int ligne = Integer.parseInt(tirArgs[1]);
-                        int col = Integer.parseInt(tirArgs[2]);
-                        handleTir(client, targetIdx, ligne, col);
-                    } catch (NumberFormatException e) {
-                        client.sendMessage("ERROR:Coordonnées de tir ou index cible invalides.");
-                    }
-                } else {
-                    client.sendMessage("ERROR:Commande FIRE_SHOT malformée (attendu: FIRE_SHOT:targetIdx:ligne:col).");
-                }
-                break;
-            case "ADMIN_START_GAME":
-                if (client.getRole() != ClientHandler.ClientRole.PLAYER_IN_LOBBY) { client.sendMessage("ERROR:Action non autorisée pour votre rôle."); break;}
-                handleAdminStartGame(client);
-                break;
-            case "QUIT_GAME":
-                System.out.println("Client " + client.getNomJoueur() + " a envoyé QUIT_GAME.");
-                client.closeConnection(true); 
-                break; 
-            case "CHAT_MSG":
-                if (!payload.isEmpty()) {
-                    handleChatMessage(client, payload);
-                }
-                break;
-            default:
-                client.sendMessage("ERROR:Commande inconnue '" + command + "'.");
-                break;
-        }
+        // Quitter l'ancienne salle depuis sa boucle, puis déposer l'admission dans la nouvelle
+        current.executerPour(client, r -> {
+            r.handleClientQuitte(client);
+            client.resetForNewLobby();
+            roomRegistry.rejoindreSalle(roomId, client);
+        });
     }
 
 
-    public synchronized void handleClientQuitte(ClientConnection client) { //
+    public void handleClientQuitte(ClientConnection client) { //
         System.out.println("Déconnexion demandée/détectée pour: " + client.getNomJoueur() + 
                            " (rôle: " + client.getRole() + ", index: " + client.getPlayerIndex() + ")");
 
         boolean clientWasInAllConnections = allClientConnections.remove(client);
-        boolean clientWasInPlayersInGame = playersInGame.remove(client); 
-
-        if (gameInProgressFlag && clientWasInPlayersInGame && game != null) { 
-            System.out.println("Joueur " + client.getNomJoueur() + " a quitté une partie en cours.");
-            boolean gamePeutContinuer = game.handlePlayerDisconnect(client.getPlayerIndex());
-
-            if (gamePeutContinuer && game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) {
-                broadcastToAllParticipants("PLAYER_LEFT:" + client.getNomJoueur() + ":" + client.getPlayerIndex());
-                System.out.println("La partie continue sans " + client.getNomJoueur() + ".");
-                if (game.getJoueurCourantIndex() == client.getPlayerIndex() || 
-                    (getClientConnectionByGlobalIndexInGame(game.getJoueurCourantIndex()) != null && !getClientConnectionByGlobalIndexInGame(game.getJoueurCourantIndex()).isActive()) ) {
-                    
-                    if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX) {
-                        passerAuPlacementSuivant(); 
-                    } else if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.COMBAT) {
-                        informerTourCombat(); 
-                    }
-                } 
-            } else { 
-                 String raisonFin = game.getGagnantIndex() != -1 && game.getPlayerBoard(game.getGagnantIndex()) != null ?
-                                   game.getPlayerBoard(game.getGagnantIndex()).getNomJoueur() :
-                                   (client.getNomJoueur() + " (déconnexion)");
-
-                String messageFin = game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE && game.getGagnantIndex() != -1 && game.getPlayerBoard(game.getGagnantIndex()) != null ?
-                                   "GAME_OVER:" + game.getPlayerBoard(game.getGagnantIndex()).getNomJoueur() + ":" + game.getGagnantIndex():
-                                   "GAME_OVER_DISCONNECT:" + client.getNomJoueur();
-                broadcastToAllParticipants(messageFin);
-                System.out.println("Partie terminée suite à déconnexion. Raison approx: " + raisonFin);
-                resetServerForNewLobby();
-            }
-        } else if (clientWasInAllConnections) {  
-            System.out.println("Participant " + client.getNomJoueur() + " a quitté (hors partie active).");
-            if (client.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY && lobbyCountdownActive) {
-                int playerCountInLobby = 0;
-                synchronized(allClientConnections) { 
-                    for (ClientConnection ch : allClientConnections) {
-                        if (ch.isNameSet() && ch.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY) {
-                            playerCountInLobby++;
-                        }
-                    }
-                }
-                if (playerCountInLobby < MIN_PLAYERS_TO_START_TIMER) {
-                    System.out.println("Moins de " + MIN_PLAYERS_TO_START_TIMER + " joueurs prêts restants dans le lobby, annulation du compte à rebours.");
-                    cancelLobbyCountdown();
-                }
-            }
-            broadcastLobbyState(); 
-            if(client.isNameSet()) { 
-                handleChatMessage(client, "[A quitté le chat]");
-            }
-        } else {
+        GameRoom room = client.getRoom();
+        if (room != null) {
+            room.executerPour(client, r -> r.handleClientQuitte(client));
+        } else if (!clientWasInAllConnections) {
              System.out.println("Client " + client.getNomJoueur() + " non trouvé dans les listes actives lors de la déconnexion (peut-être déjà retiré).");
         }
     }
-    
-    public synchronized void handleChatMessage(ClientConnection sender, String message) { //
-        if (sender.isNameSet() && !message.trim().isEmpty()) {
-            System.out.println("CHAT [" + sender.getNomJoueur() + "]: " + message);
-            broadcast("NEW_CHAT_MSG:" + sender.getNomJoueur() + ":" + message);
-        } else if (!sender.isNameSet()){
-            sender.sendMessage("ERROR:Vous devez définir votre nom pour envoyer des messages dans le chat.");
-        }
-    }
-
-    private synchronized void resetServerForNewLobby() { //
-        System.out.println("Réinitialisation du serveur pour un nouveau lobby.");
-        game = null; 
-        gameInProgressFlag = false;
-        cancelLobbyCountdown();
-        playersInGame.clear(); 
-
-        List<ClientConnection> clientsASynchroniser; 
-        synchronized (allClientConnections) {
-            clientsASynchroniser = new ArrayList<>(allClientConnections);
-        }
-
-        for (ClientConnection ch : clientsASynchroniser) {
-            if (ch.isActive()) {
-                ch.resetForNewLobby();
-                ch.sendMessage("REQ_NAME"); 
-            }
-        }
-        synchronized (allClientConnections) { 
-            if (allClientConnections.isEmpty()) {
-                 System.out.println("Aucun client actif restant après reset. En attente de nouvelles connexions.");
-            } else {
-                System.out.println(allClientConnections.size() + " clients potentiels pour le nouveau lobby (doivent redonner leur nom).");
-            }
-        }
-        broadcastLobbyState(); 
-    }
-
-    private void broadcast(String message) { //
-        List<ClientConnection> clientsSnapshot;
-        synchronized (allClientConnections) {
-            clientsSnapshot = new ArrayList<>(allClientConnections);
-        }
-        for (ClientConnection client : clientsSnapshot) {
-            if (client != null && client.isActive()) client.sendMessage(message);
-        }
-    }
-    
-    private void broadcastToPlayersInGame(String message) {  //
-        List<ClientConnection> gamePlayersSnapshot;
-        synchronized (playersInGame) {
-            gamePlayersSnapshot = new ArrayList<>(playersInGame);
-        }
-        for (ClientConnection client : gamePlayersSnapshot) {
-            if (client != null && client.isActive()) client.sendMessage(message);
-        }
-    }
-
-    private void broadcastToAllParticipants(String message) {  //
-        List<ClientConnection> participants = new ArrayList<>();
-        synchronized(playersInGame) { 
-            participants.addAll(playersInGame);
-        }
-        synchronized(allClientConnections) { 
-            for(ClientConnection ch : allClientConnections) {
-                if(ch.getRole() == ClientHandler.ClientRole.SPECTATOR && !participants.contains(ch)) {
-                    participants.add(ch);
-                }
-            }
-        }
-        for (ClientConnection participant : participants) {
-            if (participant != null && participant.isActive()) participant.sendMessage(message);
-        }
-    }
-
-    private void broadcastSaufAUnJoueurEnPartie(ClientConnection exclure, String message) { //
-        List<ClientConnection> gamePlayersSnapshot;
-        synchronized (playersInGame) {
-            gamePlayersSnapshot = new ArrayList<>(playersInGame);
-        }
-        for (ClientConnection client : gamePlayersSnapshot) {
-            if (client != null && client != exclure && client.isActive()) {
-                client.sendMessage(message);
-            }
-        }
-    }
-    
-    private ClientConnection getClientConnectionByGlobalIndexInGame(int globalGameIndex) { //
-        synchronized(playersInGame) {
-            for(ClientConnection ch : playersInGame){ 
-                 if(ch.getPlayerIndex() == globalGameIndex && ch.getRole() == ClientHandler.ClientRole.PLAYER_IN_GAME) {
-                     return ch;
-                 }
-            }
-        }
-        return null;
-    }
-        
-    private void broadcastLobbyState() { //
-        synchronized(allClientConnections) { 
-            String nomsJoueursDansLobbyAyantNom = allClientConnections.stream()
-                                             .filter(ch -> ch.isNameSet() && ch.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY) 
-                                             .map(ClientConnection::getNomJoueur) 
-                                             .collect(Collectors.joining(","));
-            long nombreDeNomsDefinisDansLobby = allClientConnections.stream()
-                                             .filter(ch -> ch.isNameSet() && ch.getRole() == ClientHandler.ClientRole.PLAYER_IN_LOBBY)
-                                             .count();
-            broadcast("LOBBY_STATE:" + nombreDeNomsDefinisDansLobby + ":" + MIN_PLAYERS_TO_START_TIMER + ":" + MAX_PLAYERS_ALLOWED + ":" + nomsJoueursDansLobbyAyantNom);
-        }
-    }
 
 
     static class ClientHandler implements Runnable, ClientConnection { //
@@ -856,21 +411,26 @@ public class BatailleNavaleServer {
 
         private Socket clientSocket;
         private BatailleNavaleServer server; 
-        private PrintWriter out;
+        private OutputStream out;
         private BufferedReader in;
         String nomJoueur = "JoueurAnonyme"; 
         int playerIndex = -1;
         boolean nameIsSet = false; 
         private ClientRole role = ClientRole.PLAYER_IN_LOBBY;
+        private volatile GameRoom room;
         private volatile boolean socketActive = true;
+        // File d'envoi vidée par une tâche du pool de connexions : un socket lent ne bloque pas la salle
+        private final ArrayDeque<byte[]> enAttenteEnvoi = new ArrayDeque<>(); // Lignes encodées, gardé par lui-même
+        private boolean vidageEnCours = false;
 
 
         public ClientHandler(Socket socket, BatailleNavaleServer server) {
             this.clientSocket = socket;
             this.server = server;
             try {
-                out = new PrintWriter(clientSocket.getOutputStream(), true);
-                in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
+                out = new BufferedOutputStream(clientSocket.getOutputStream()); // Vidé (flush) à la fin de chaque lot
+                // UTF-8 comme le frontal NIO, quel que soit le charset par défaut de la plateforme
+                in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream(), StandardCharsets.UTF_8));
             } catch (IOException e) {
                 System.err.println("Erreur I/O pour ClientHandler: " + e.getMessage());
                 socketActive = false;
@@ -887,10 +447,15 @@ public class BatailleNavaleServer {
         @Override public ClientRole getRole() { return role; }
         @Override public void setRole(ClientRole role) { this.role = role; }
         @Override public boolean isActive() {
-             return socketActive && clientSocket != null && !clientSocket.isClosed() && clientSocket.isConnected() && out != null && !out.checkError();
+             return socketActive && clientSocket != null && !clientSocket.isClosed() && clientSocket.isConnected() && out != null;
         }
         @Override public String getRemoteAddressString() { return clientSocket.getRemoteSocketAddress().toString(); }
         @Override public Object getUnderlyingHandle() { return clientSocket; }
+        @Override public GameRoom getRoom() { return room; }
+        @Override public void setRoom(GameRoom room) { this.room = room; }
+        @Override public int getOutboundQueueDepth() {
+            synchronized (enAttenteEnvoi) { return enAttenteEnvoi.size(); }
+        }
 
         @Override
         public void resetForNewLobby() {
@@ -924,18 +489,6 @@ public class BatailleNavaleServer {
         @Override
         public void run() { //
             try {
-                synchronized(server) { 
-                    if (server.gameInProgressFlag && server.game != null && server.game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) {
-                        if (this.role != ClientRole.SPECTATOR) { 
-                             this.role = ClientRole.SPECTATOR;
-                        }
-                    } else {
-                        if (this.role != ClientRole.PLAYER_IN_LOBBY) { 
-                            this.role = ClientRole.PLAYER_IN_LOBBY;
-                        }
-                    }
-                }
-
                 if (!nameIsSet && isActive()) { // Check isActive before sending
                      sendMessage("REQ_NAME");
                 }
@@ -973,10 +526,51 @@ public class BatailleNavaleServer {
 
         @Override
         public void sendMessage(String message) {
-            if (isActive()) {
-                out.println(message);
-                if(out.checkError()) { // Check for errors after sending
-                    System.err.println("Erreur PrintWriter pour TCP client " + getNomJoueur() + ". Fermeture.");
+            enfiler((message + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void envoyer(OutboundMessage message) {
+            enfiler(message.getLigneTcp());
+        }
+
+        private void enfiler(byte[] ligne) {
+            if (!isActive()) return;
+            synchronized (enAttenteEnvoi) {
+                if (!OutboundPolicy.accepter(this, enAttenteEnvoi.size())) return;
+                enAttenteEnvoi.add(ligne);
+                if (vidageEnCours) return;
+                vidageEnCours = true;
+            }
+            try {
+                server.pool.execute(this::viderFileEnvoi);
+            } catch (RuntimeException e) { // Pool arrêté
+                synchronized (enAttenteEnvoi) { vidageEnCours = false; }
+            }
+        }
+
+        private void viderFileEnvoi() {
+            try {
+                while (true) {
+                    byte[] ligne;
+                    synchronized (enAttenteEnvoi) {
+                        ligne = enAttenteEnvoi.poll();
+                        if (ligne == null) {
+                            vidageEnCours = false;
+                            break;
+                        }
+                    }
+                    out.write(ligne);
+                    OutboundPolicy.messagesEnvoyes.increment();
+                }
+                out.flush();
+            } catch (IOException e) {
+                synchronized (enAttenteEnvoi) {
+                    enAttenteEnvoi.clear();
+                    vidageEnCours = false;
+                }
+                if (socketActive) {
+                    System.err.println("Erreur d'écriture pour TCP client " + getNomJoueur() + ". Fermeture.");
                     this.closeConnection(true); // Problem with stream, close and notify
                 }
             }
@@ -990,7 +584,9 @@ public class BatailleNavaleServer {
         int playerIndex = -1; 
         boolean nameIsSet = false; 
         private ClientHandler.ClientRole role = ClientHandler.ClientRole.PLAYER_IN_LOBBY; 
+        private volatile GameRoom room;
         volatile boolean active = true;
+        boolean binaire = false; // Sous-protocole BinaryProtocol négocié à la poignée de main
 
 
         public WebSocketClientConnection(WebSocket conn, BatailleNavaleServer server) {
@@ -1008,14 +604,32 @@ public class BatailleNavaleServer {
         
         @Override public void sendMessage(String message) {
             if (isActive()) {
+                // La bibliothèque met déjà le message en file pour son thread d'E/S : on ne fait que la borner
+                if (!OutboundPolicy.accepter(this, getOutboundQueueDepth())) return;
                 try {
-                    webSocketConnection.send(message);
+                    if (binaire) {
+                        webSocketConnection.send(BinaryProtocol.encoder(message));
+                    } else {
+                        webSocketConnection.send(message);
+                    }
+                    OutboundPolicy.messagesEnvoyes.increment();
                 } catch (Exception e) { // Catch potential exceptions from send, e.g., if socket closes abruptly
                     System.err.println("Exception en envoyant un message WebSocket à " + getRemoteAddressString() + ": " + e.getMessage());
                     this.closeConnection(true); // Treat as a disconnect
                 }
             }
         }
+        @Override public void envoyer(OutboundMessage message) {
+            if (!isActive() || !OutboundPolicy.accepter(this, getOutboundQueueDepth())) return;
+            try {
+                // Charge utile déjà encodée et partagée : la bibliothèque n'ajoute que l'en-tête de trame
+                webSocketConnection.sendFrame(binaire ? message.trameBinaire() : message.trameTexte());
+                OutboundPolicy.messagesEnvoyes.increment();
+            } catch (Exception e) {
+                System.err.println("Exception en envoyant un message WebSocket à " + getRemoteAddressString() + ": " + e.getMessage());
+                this.closeConnection(true);
+            }
+        }
         @Override public void closeConnection(boolean notifyServer) {
             if (!active) return;
             active = false;
@@ -1037,6 +651,11 @@ public class BatailleNavaleServer {
             this.role = ClientHandler.ClientRole.PLAYER_IN_LOBBY;
         }
         @Override public Object getUnderlyingHandle() { return webSocketConnection; }
+        @Override public GameRoom getRoom() { return room; }
+        @Override public void setRoom(GameRoom room) { this.room = room; }
+        @Override public int getOutboundQueueDepth() {
+            return webSocketConnection instanceof WebSocketImpl ? ((WebSocketImpl) webSocketConnection).outQueue.size() : 0;
+        }
 
     } 
 
@@ -1045,7 +664,9 @@ public class BatailleNavaleServer {
         private final BatailleNavaleServer mainServer; 
 
         public GameWebSocketServer(InetSocketAddress address, BatailleNavaleServer mainServer) {
-            super(address);
+            // Sous-protocole binaire proposé ; le protocole vide garde les clients texte existants
+            super(address, Collections.<Draft>singletonList(new Draft_6455(Collections.<IExtension>emptyList(),
+                    Arrays.<IProtocol>asList(new Protocol(BinaryProtocol.SOUS_PROTOCOLE), new Protocol("")))));
             this.mainServer = mainServer;
         }
 
@@ -1053,29 +674,13 @@ public class BatailleNavaleServer {
         public void onOpen(WebSocket conn, ClientHandshake handshake) { //
             System.out.println("Nouvelle connexion WebSocket de: " + conn.getRemoteSocketAddress());
             WebSocketClientConnection wsConnection = mainServer.new WebSocketClientConnection(conn, mainServer);
+            wsConnection.binaire = conn.getProtocol() != null && BinaryProtocol.SOUS_PROTOCOLE.equals(conn.getProtocol().getProvidedProtocol());
             conn.setAttachment(wsConnection); 
 
-            synchronized (mainServer) { 
-                if (mainServer.allClientConnections.size() >= MAX_PLAYERS_ALLOWED && !mainServer.gameInProgressFlag) {
-                     if (!(mainServer.gameInProgressFlag && mainServer.allClientConnections.size() < MAX_PLAYERS_ALLOWED)) {
-                        conn.send("ERROR:Serveur plein (max " + MAX_PLAYERS_ALLOWED + " participants).");
-                        conn.close();
-                        return;
-                    }
-                }
-                mainServer.allClientConnections.add(wsConnection);
-                System.out.println("Nouveau participant WebSocket connecté: " + conn.getRemoteSocketAddress() + ". Total connectés (tous types): " + mainServer.allClientConnections.size());
-
-
-                if (mainServer.gameInProgressFlag && mainServer.game != null && mainServer.game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) {
-                    wsConnection.setRole(ClientHandler.ClientRole.SPECTATOR);
-                     System.out.println("Client WS " + conn.getRemoteSocketAddress() + " est un spectateur potentiel (jeu en cours).");
-                } else {
-                    wsConnection.setRole(ClientHandler.ClientRole.PLAYER_IN_LOBBY);
-                }
-                if (!wsConnection.isNameSet()) { //
-                    wsConnection.sendMessage("REQ_NAME");
-                }
+            mainServer.registerConnection(wsConnection);
+            System.out.println("Nouveau participant WebSocket connecté: " + conn.getRemoteSocketAddress() + ". Total connectés (tous types): " + mainServer.allClientConnections.size());
+            if (!wsConnection.isNameSet()) { //
+                wsConnection.sendMessage("REQ_NAME");
             }
         }
 
@@ -1105,9 +710,16 @@ public class BatailleNavaleServer {
         
         @Override
         public void onMessage(WebSocket conn, ByteBuffer message) {
-            System.out.println("Message WebSocket binaire reçu de " + conn.getRemoteSocketAddress() + " - non géré.");
-            if (conn != null && conn.isOpen()) {
-                conn.send("ERROR:Messages binaires non supportés.");
+            ClientConnection wsConnection = conn.getAttachment();
+            if (wsConnection == null || !wsConnection.isActive()) {
+                System.err.println("Message reçu sur une connexion WebSocket inactive ou sans attachement: " + conn.getRemoteSocketAddress());
+                return;
+            }
+            ClientCommand commande = COMMANDE_COURANTE.get();
+            if (BinaryProtocol.decoderCommande(message, commande)) {
+                mainServer.executerCommande(wsConnection, commande);
+            } else {
+                wsConnection.sendMessage("ERROR:Message binaire inconnu ou malformé.");
             }
         }
 
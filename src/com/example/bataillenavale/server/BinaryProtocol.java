@@ -0,0 +1,305 @@
+package com.example.bataillenavale.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.bataillenavale.model.PlayerBoard;
+import com.example.bataillenavale.model.Ship;
+
+/**
+ * Protocole WebSocket binaire, négocié à la poignée de main par le sous-protocole
+ * SOUS_PROTOCOLE (Sec-WebSocket-Protocol). Sans ce sous-protocole le client reste en texte.
+ *
+ * Chaque message est un opcode sur un octet suivi de champs de largeur fixe, dans l'ordre
+ * du message texte équivalent : index et compteurs sur 1 octet, coordonnées sur 2 octets
+ * (big-endian), booléens sur 1 octet, types de navire et résultats de tir par leur ordinal,
+ * chaînes en UTF-8 précédées de leur longueur en varint. Un message serveur sans format
+ * binaire (ou dont un champ sort des bornes) part en TEXTE_BRUT avec sa forme texte.
+ *
+ * Le même tableau de formats sert dans les deux sens : commandes client (0x01-0x3F) et
+ * messages serveur (0x40-0x7F).
+ */
+final class BinaryProtocol {
+    static final String SOUS_PROTOCOLE = "bataillenavale-bin";
+
+    // Commandes client
+    static final int SET_NAME = 0x01;
+    static final int PLACE_SHIP = 0x02;
+    static final int FIRE_SHOT = 0x03;
+    static final int CHAT_MSG = 0x04;
+    static final int ADMIN_START_GAME = 0x05;
+    static final int QUIT_GAME = 0x06;
+    static final int LIST_ROOMS = 0x07;
+    static final int JOIN_ROOM = 0x08;
+    static final int ADMIN_CONFIG = 0x09;
+    static final int RECONNECT = 0x0A;
+    // Messages serveur
+    static final int TEXTE_BRUT = 0x7F;
+
+    private enum Champ { U8, U16, BOOLEEN, NAVIRE, NOM_NAVIRE, RESULTAT, TEXTE }
+
+    private static final class Format {
+        final int opcode;
+        final String nom;
+        final Champ[] champs;
+
+        Format(int opcode, String nom, Champ... champs) {
+            this.opcode = opcode;
+            this.nom = nom;
+            this.champs = champs;
+        }
+    }
+
+    private static final Format[] PAR_OPCODE = new Format[256];
+    private static final Map<String, List<Format>> PAR_NOM = new HashMap<>();
+    private static final Map<String, Ship.ShipType> NAVIRE_PAR_NOM = new HashMap<>();
+    private static final Ship.ShipType[] NAVIRES = Ship.ShipType.values();
+
+    static {
+        definir(SET_NAME, "SET_NAME", Champ.TEXTE);
+        definir(PLACE_SHIP, "PLACE_SHIP", Champ.NAVIRE, Champ.U16, Champ.U16, Champ.BOOLEEN);
+        definir(FIRE_SHOT, "FIRE_SHOT", Champ.U8, Champ.U16, Champ.U16);
+        definir(CHAT_MSG, "CHAT_MSG", Champ.TEXTE);
+        definir(ADMIN_START_GAME, "ADMIN_START_GAME");
+        definir(QUIT_GAME, "QUIT_GAME");
+        definir(LIST_ROOMS, "LIST_ROOMS");
+        definir(JOIN_ROOM, "JOIN_ROOM", Champ.TEXTE);
+        definir(ADMIN_CONFIG, "ADMIN_CONFIG", Champ.U16, Champ.TEXTE);
+        definir(RECONNECT, "RECONNECT", Champ.TEXTE);
+
+        definir(0x40, "REQ_NAME");
+        definir(0x41, "ERROR", Champ.TEXTE);
+        definir(0x42, "ROOM_JOINED", Champ.TEXTE);
+        definir(0x43, "ROOM_LIST", Champ.TEXTE);
+        definir(0x44, "LOBBY_STATE", Champ.U8, Champ.U8, Champ.U8, Champ.TEXTE);
+        definir(0x45, "LOBBY_COUNTDOWN_STARTED", Champ.U16);
+        definir(0x46, "LOBBY_COUNTDOWN_CANCELLED");
+        definir(0x47, "LOBBY_TIMER_ENDED_NO_GAME", Champ.TEXTE);
+        definir(0x48, "GAME_START", Champ.U16, Champ.U8, Champ.U8, Champ.TEXTE, Champ.TEXTE);
+        definir(0x49, "SPECTATE_MODE");
+        definir(0x4A, "SPECTATE_INFO", Champ.U16, Champ.U8, Champ.TEXTE, Champ.TEXTE);
+        definir(0x4B, "YOUR_TURN_PLACE_SHIP", Champ.NAVIRE, Champ.U8, Champ.NOM_NAVIRE);
+        definir(0x4C, "WAIT_PLACEMENT", Champ.TEXTE, Champ.NOM_NAVIRE);
+        definir(0x4D, "PLACEMENT_ACCEPTED", Champ.NAVIRE, Champ.U16, Champ.U16, Champ.BOOLEEN);
+        definir(0x4E, "PLACEMENT_REJECTED", Champ.NAVIRE);
+        definir(0x4F, "PLAYER_PLACED_SHIP", Champ.TEXTE, Champ.NOM_NAVIRE);
+        definir(0x50, "ALL_SHIPS_PLACED");
+        definir(0x51, "YOUR_TURN_FIRE");
+        definir(0x52, "OPPONENT_TURN_FIRE", Champ.TEXTE);
+        definir(0x53, "SHOT_RESULT", Champ.U8, Champ.U8, Champ.U16, Champ.U16, Champ.RESULTAT);
+        definir(0x54, "SHOT_RESULT", Champ.U8, Champ.U8, Champ.U16, Champ.U16, Champ.RESULTAT, Champ.NOM_NAVIRE);
+        definir(0x55, "NEW_CHAT_MSG", Champ.TEXTE, Champ.TEXTE);
+        definir(0x56, "PLAYER_LEFT", Champ.TEXTE, Champ.U8);
+        definir(0x57, "GAME_OVER", Champ.TEXTE, Champ.U8);
+        definir(0x58, "GAME_OVER_DISCONNECT", Champ.TEXTE);
+        definir(0x59, "GAME_OVER_DRAW");
+        definir(0x5A, "GAME_OVER_DRAW", Champ.TEXTE);
+        definir(0x5B, "ROOM_CONFIG", Champ.U16, Champ.TEXTE);
+        definir(0x5C, "SEAT_TOKEN", Champ.TEXTE, Champ.TEXTE);
+        definir(0x5D, "BOARD_STATE", Champ.U8, Champ.TEXTE, Champ.TEXTE, Champ.TEXTE);
+
+        for (Ship.ShipType type : Ship.ShipType.values()) {
+            NAVIRE_PAR_NOM.put(type.getNom(), type);
+        }
+    }
+
+    private BinaryProtocol() {
+    }
+
+    private static void definir(int opcode, String nom, Champ... champs) {
+        Format format = new Format(opcode, nom, champs);
+        PAR_OPCODE[opcode] = format;
+        PAR_NOM.computeIfAbsent(nom, k -> new ArrayList<>()).add(format);
+    }
+
+    /**
+     * Encode un message au format texte ("NOM:champ1:champ2...") dans sa forme binaire.
+     * Le dernier champ texte d'un message absorbe le reste de la ligne, comme en texte.
+     */
+    static byte[] encoder(String texte) {
+        int separateur = texte.indexOf(':');
+        String nom = separateur < 0 ? texte : texte.substring(0, separateur);
+        List<Format> candidats = PAR_NOM.get(nom);
+        if (candidats != null) {
+            for (Format format : candidats) {
+                byte[] encode = encoder(format, texte, separateur);
+                if (encode != null) return encode;
+            }
+        }
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(texte.length() + 4);
+        sortie.write(TEXTE_BRUT);
+        ecrireChaine(sortie, texte);
+        return sortie.toByteArray();
+    }
+
+    /** @return null si le texte ne correspond pas à ce format. */
+    private static byte[] encoder(Format format, String texte, int separateur) {
+        if (format.champs.length == 0) {
+            if (separateur >= 0) return null;
+            return new byte[] { (byte) format.opcode };
+        }
+        if (separateur < 0) return null;
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(texte.length() + 4);
+        sortie.write(format.opcode);
+        int debut = separateur + 1;
+        for (int i = 0; i < format.champs.length; i++) {
+            boolean dernier = i == format.champs.length - 1;
+            int fin = dernier ? texte.length() : texte.indexOf(':', debut);
+            if (fin < 0) return null;
+            if (!ecrireChamp(sortie, format.champs[i], texte.substring(debut, fin))) return null;
+            debut = fin + 1;
+        }
+        return sortie.toByteArray();
+    }
+
+    private static boolean ecrireChamp(ByteArrayOutputStream sortie, Champ champ, String valeur) {
+        try {
+            switch (champ) {
+                case U8: {
+                    int n = Integer.parseInt(valeur);
+                    if (n < 0 || n > 0xFF) return false;
+                    sortie.write(n);
+                    return true;
+                }
+                case U16: {
+                    int n = Integer.parseInt(valeur);
+                    if (n < 0 || n > 0xFFFF) return false;
+                    sortie.write(n >>> 8);
+                    sortie.write(n);
+                    return true;
+                }
+                case BOOLEEN:
+                    if (!valeur.equals("true") && !valeur.equals("false")) return false;
+                    sortie.write(valeur.equals("true") ? 1 : 0);
+                    return true;
+                case NAVIRE:
+                    sortie.write(Ship.ShipType.valueOf(valeur).ordinal());
+                    return true;
+                case NOM_NAVIRE: {
+                    Ship.ShipType type = NAVIRE_PAR_NOM.get(valeur);
+                    if (type == null) return false;
+                    sortie.write(type.ordinal());
+                    return true;
+                }
+                case RESULTAT:
+                    sortie.write(PlayerBoard.ShotResult.valueOf(valeur).ordinal());
+                    return true;
+                default:
+                    ecrireChaine(sortie, valeur);
+                    return true;
+            }
+        } catch (IllegalArgumentException e) { // NumberFormatException incluse
+            return false;
+        }
+    }
+
+    private static void ecrireChaine(ByteArrayOutputStream sortie, String valeur) {
+        byte[] utf8 = valeur.getBytes(StandardCharsets.UTF_8);
+        int longueur = utf8.length;
+        while (longueur >= 0x80) { // varint
+            sortie.write((longueur & 0x7F) | 0x80);
+            longueur >>>= 7;
+        }
+        sortie.write(longueur);
+        sortie.write(utf8, 0, utf8.length);
+    }
+
+    /**
+     * Décode un message binaire vers sa forme texte (clients de test, journaux).
+     * @return null si l'opcode est inconnu ou le message tronqué.
+     */
+    static String decoderEnTexte(ByteBuffer message) {
+        try {
+            int opcode = message.get() & 0xFF;
+            if (opcode == TEXTE_BRUT) return lireChaine(message);
+            Format format = PAR_OPCODE[opcode];
+            if (format == null) return null;
+            StringBuilder texte = new StringBuilder(format.nom);
+            for (Champ champ : format.champs) {
+                texte.append(':');
+                switch (champ) {
+                    case U8: texte.append(message.get() & 0xFF); break;
+                    case U16: texte.append(message.getShort() & 0xFFFF); break;
+                    case BOOLEEN: texte.append(message.get() != 0); break;
+                    case NAVIRE: texte.append(NAVIRES[message.get() & 0xFF].name()); break;
+                    case NOM_NAVIRE: texte.append(NAVIRES[message.get() & 0xFF].getNom()); break;
+                    case RESULTAT: texte.append(PlayerBoard.ShotResult.values()[message.get() & 0xFF].name()); break;
+                    default: texte.append(lireChaine(message)); break;
+                }
+            }
+            return texte.toString();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Décode une commande client directement dans la commande réutilisable, sans passer par la forme texte.
+     * @return faux si le message est inconnu ou malformé.
+     */
+    static boolean decoderCommande(ByteBuffer message, ClientCommand commande) {
+        commande.reinitialiser();
+        try {
+            int opcode = message.get() & 0xFF;
+            switch (opcode) {
+                case SET_NAME:
+                case CHAT_MSG:
+                case JOIN_ROOM:
+                case RECONNECT:
+                    commande.texte = lireChaine(message);
+                    break;
+                case PLACE_SHIP:
+                    commande.navire = NAVIRES[message.get() & 0xFF];
+                    commande.ligne = message.getShort() & 0xFFFF;
+                    commande.colonne = message.getShort() & 0xFFFF;
+                    commande.horizontal = message.get() != 0;
+                    break;
+                case FIRE_SHOT:
+                    commande.cible = message.get() & 0xFF;
+                    commande.ligne = message.getShort() & 0xFFFF;
+                    commande.colonne = message.getShort() & 0xFFFF;
+                    break;
+                case ADMIN_CONFIG:
+                    commande.tailleGrille = message.getShort() & 0xFFFF;
+                    commande.texte = lireChaine(message);
+                    break;
+                case ADMIN_START_GAME:
+                case QUIT_GAME:
+                case LIST_ROOMS:
+                    break;
+                default:
+                    return false;
+            }
+            commande.opcode = opcode;
+            return true;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String lireChaine(ByteBuffer message) {
+        int longueur = 0;
+        for (int decalage = 0; ; decalage += 7) {
+            if (decalage > 28) throw new IllegalArgumentException("Longueur de chaîne invalide");
+            int octet = message.get() & 0xFF;
+            if (decalage == 28 && octet > 0x07) throw new IllegalArgumentException("Longueur de chaîne invalide"); // Au-delà de 31 bits
+            longueur |= (octet & 0x7F) << decalage;
+            if (octet < 0x80) break;
+        }
+        if (longueur < 0 || longueur > message.remaining()) throw new BufferUnderflowException();
+        if (!message.hasArray()) {
+            byte[] utf8 = new byte[longueur];
+            message.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+        String valeur = new String(message.array(), message.arrayOffset() + message.position(), longueur, StandardCharsets.UTF_8);
+        message.position(message.position() + longueur);
+        return valeur;
+    }
+}
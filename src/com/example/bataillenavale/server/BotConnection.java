@@ -0,0 +1,232 @@
+package com.example.bataillenavale.server;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.example.bataillenavale.model.DensityTargeting;
+import com.example.bataillenavale.model.FleetGenerator;
+import com.example.bataillenavale.model.GameConfig;
+import com.example.bataillenavale.model.PlayerBoard;
+import com.example.bataillenavale.model.Ship;
+import com.example.bataillenavale.model.TargetingStrategy;
+
+/**
+ * Joueur artificiel côté serveur, vu par la salle comme une connexion de plus.
+ * Il lit les messages que la salle lui envoie (même texte qu'un client) et joue en déposant
+ * ses commandes dans la boîte aux lettres de la salle (handleSetName, handlePlacementNavire,
+ * handleTir) : jamais d'appel réentrant pendant une diffusion.
+ * sendMessage est appelé depuis la boucle de la salle, seul thread à toucher l'état du bot.
+ * Un bot joue une partie puis quitte la salle ; il la quitte aussi si plus aucun humain n'y est.
+ * La difficulté HARD (-Dbataillenavale.bots.difficulty) vise aussi par densité : la visée Monte-Carlo
+ * ne la bat pas de façon mesurable (SimulationRunner), elle ne vaut pas son coût par coup.
+ */
+class BotConnection implements ClientConnection {
+    enum Difficulty { NORMAL, HARD }
+
+    static final Difficulty DIFFICULTE = difficulteParDefaut();
+    private static final AtomicInteger NUMERO = new AtomicInteger();
+    private static final Ship.ShipType[] NAVIRES = Ship.ShipType.values();
+
+    private final String nomBase;
+    private final long graine;
+    private final Random aleatoire;
+    String nomJoueur = "JoueurAnonyme";
+    boolean nameIsSet = false;
+    private int tentativesNom = 0;
+    private int playerIndex = -1;
+    private BatailleNavaleServer.ClientHandler.ClientRole role = BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY;
+    private volatile GameRoom room;
+    private volatile boolean active = true;
+    private boolean aJoue = false; // Partie commencée : le prochain REQ_NAME (retour au lobby) le fait partir
+
+    // Partie en cours
+    private int[] placements; // Flotte tirée au GAME_START, posée navire par navire
+    private int prochainNavire;
+    private FleetGenerator generateur;
+    private TargetingStrategy[] visees; // Une par adversaire, null pour soi
+    private boolean[] elimines;
+    private int tailleGrille;
+    private int cibleCourante = -1;
+
+    BotConnection(long graine) {
+        this.nomBase = "Bot" + NUMERO.incrementAndGet();
+        this.graine = graine;
+        this.aleatoire = new Random(graine);
+    }
+
+    @Override public String getNomJoueur() { return nomJoueur; }
+    @Override public boolean isNameSet() { return nameIsSet; }
+    @Override public void setPlayerIndex(int index) { this.playerIndex = index; }
+    @Override public int getPlayerIndex() { return playerIndex; }
+    @Override public BatailleNavaleServer.ClientHandler.ClientRole getRole() { return role; }
+    @Override public void setRole(BatailleNavaleServer.ClientHandler.ClientRole role) { this.role = role; }
+    @Override public boolean isActive() { return active; }
+    @Override public String getRemoteAddressString() { return "bot:" + nomBase; }
+    @Override public Object getUnderlyingHandle() { return this; }
+    @Override public GameRoom getRoom() { return room; }
+    @Override public void setRoom(GameRoom room) { this.room = room; }
+    @Override public int getOutboundQueueDepth() { return 0; }
+
+    @Override
+    public void resetForNewLobby() {
+        this.nameIsSet = false;
+        this.playerIndex = -1;
+        this.role = BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY;
+    }
+
+    @Override
+    public void closeConnection(boolean notifyServer) {
+        if (!active) return;
+        active = false;
+        GameRoom salle = room;
+        if (notifyServer && salle != null) {
+            salle.executerPour(this, r -> r.handleClientQuitte(this));
+        }
+    }
+
+    @Override
+    public void sendMessage(String message) {
+        if (!active) return;
+        int separateur = message.indexOf(':');
+        String commande = separateur < 0 ? message : message.substring(0, separateur);
+        String[] champs = separateur < 0 ? new String[0] : message.substring(separateur + 1).split(":");
+        try {
+            traiter(commande, champs);
+        } catch (RuntimeException e) { // Message inattendu : le bot abandonne plutôt que de bloquer la partie
+            System.err.println("Bot " + nomJoueur + " : message non compris '" + message + "' (" + e + "), départ.");
+            closeConnection(true);
+        }
+    }
+
+    private void traiter(String commande, String[] champs) {
+        switch (commande) {
+            case "REQ_NAME":
+                if (aJoue) {
+                    closeConnection(true);
+                } else {
+                    String nom = tentativesNom == 0 ? nomBase : nomBase + "_" + tentativesNom;
+                    tentativesNom++;
+                    jouer(r -> r.handleSetName(this, nom));
+                }
+                break;
+            case "GAME_START": // taille:index:nombreJoueurs:flotte:noms
+                debuterPartie(Integer.parseInt(champs[0]), Integer.parseInt(champs[2]), champs[3]);
+                break;
+            case "YOUR_TURN_PLACE_SHIP": // TYPE:taille:nom
+                placer(Ship.ShipType.valueOf(champs[0]));
+                break;
+            case "YOUR_TURN_FIRE":
+                tirer();
+                break;
+            case "SHOT_RESULT": { // tireur:cible:ligne:col:RESULTAT[:nomNavire]
+                int cible = Integer.parseInt(champs[1]);
+                if (visees != null && cible != playerIndex && visees[cible] != null) {
+                    Ship.ShipType coule = champs.length > 5 ? navireParNom(champs[5]) : null;
+                    visees[cible].enregistrer(Integer.parseInt(champs[2]), Integer.parseInt(champs[3]),
+                            PlayerBoard.ShotResult.valueOf(champs[4]), coule);
+                    if (visees[cible].estFlotteCoulee()) elimines[cible] = true;
+                }
+                break;
+            }
+            case "PLAYER_LEFT": // nom:index
+                if (elimines != null) elimines[Integer.parseInt(champs[1])] = true;
+                break;
+            case "ERROR":
+                // YOUR_TURN_FIRE suit une cible refusée : en changer
+                if (champs.length > 0 && champs[0].startsWith("Cible de tir invalide") && cibleCourante >= 0) {
+                    elimines[cibleCourante] = true;
+                }
+                break;
+            default:
+                break; // Lobby, chat, spectateurs : rien à jouer
+        }
+    }
+
+    private void debuterPartie(int taille, int nombreJoueurs, String flotte) {
+        GameConfig config = new GameConfig(taille, GameConfig.lireFlotte(flotte));
+        aJoue = true;
+        tailleGrille = taille;
+        generateur = new FleetGenerator(taille);
+        placements = new int[config.getFlotte().size()];
+        if (!generateur.generer(config.getFlotte(), aleatoire, placements)) {
+            throw new IllegalStateException("flotte impossible à placer");
+        }
+        prochainNavire = 0;
+        visees = new TargetingStrategy[nombreJoueurs];
+        elimines = new boolean[nombreJoueurs];
+        for (int i = 0; i < nombreJoueurs; i++) {
+            if (i == playerIndex) continue;
+            visees[i] = new DensityTargeting(config);
+        }
+        elimines[playerIndex] = true;
+        cibleCourante = -1;
+    }
+
+    private void placer(Ship.ShipType type) {
+        int placement = placements[prochainNavire++];
+        int ligne = generateur.getLigne(placement);
+        int colonne = generateur.getColonne(placement);
+        boolean horizontal = FleetGenerator.estHorizontal(placement);
+        jouer(r -> r.handlePlacementNavire(this, type, ligne, colonne, horizontal));
+    }
+
+    private void tirer() {
+        if (cibleCourante < 0 || elimines[cibleCourante]) {
+            cibleCourante = -1;
+            for (int i = 1; i < elimines.length; i++) {
+                int candidate = (playerIndex + i) % elimines.length;
+                if (!elimines[candidate]) {
+                    cibleCourante = candidate;
+                    break;
+                }
+            }
+            if (cibleCourante < 0) { // Plus aucune cible connue alors que la salle attend un tir : partir plutôt que bloquer
+                System.err.println("Bot " + nomJoueur + " : aucune cible valide pour son tour, départ.");
+                closeConnection(true);
+                return;
+            }
+        }
+        int cible = cibleCourante;
+        tirerSur(cible, visees[cible].choisirCase(aleatoire));
+    }
+
+    private void tirerSur(int cible, int index) {
+        if (index < 0) { // Grille entièrement jouée : cible suivante, depuis la boucle de la salle
+            jouer(r -> {
+                elimines[cible] = true;
+                tirer();
+            });
+            return;
+        }
+        jouer(r -> r.handleTir(this, cible, index / tailleGrille, index % tailleGrille));
+    }
+
+    // -Dbataillenavale.bots.difficulty=HARD : accepté, joue comme NORMAL (voir la doc de la classe)
+    private static Difficulty difficulteParDefaut() {
+        String valeur = System.getProperty("bataillenavale.bots.difficulty", Difficulty.NORMAL.name());
+        try {
+            Difficulty difficulte = Difficulty.valueOf(valeur.trim().toUpperCase());
+            if (difficulte == Difficulty.HARD) {
+                System.err.println("Difficulté HARD : la visée Monte-Carlo ne bat pas la densité, les bots visent par densité.");
+            }
+            return difficulte;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Difficulté de bot inconnue '" + valeur + "', utilisation de " + Difficulty.NORMAL + ".");
+            return Difficulty.NORMAL;
+        }
+    }
+
+    /** Dépose l'action dans la boîte aux lettres de la salle, comme une commande reçue d'un client. */
+    private void jouer(Consumer<GameRoom> action) {
+        GameRoom salle = room;
+        if (salle != null) salle.executerPour(this, action);
+    }
+
+    private static Ship.ShipType navireParNom(String nom) {
+        for (Ship.ShipType type : NAVIRES) {
+            if (type.getNom().equals(nom)) return type;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bataillenavale.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Réserve de ByteBuffers directs de taille fixe.
+ * Les buffers rendus au-delà de la capacité maximale de la réserve sont simplement abandonnés au GC.
+ */
+class ByteBufferPool {
+    private final int tailleBuffer;
+    private final int maxBuffersEnReserve;
+    private final ConcurrentLinkedQueue<ByteBuffer> libres = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nombreLibres = new AtomicInteger();
+
+    ByteBufferPool(int tailleBuffer, int maxBuffersEnReserve) {
+        this.tailleBuffer = tailleBuffer;
+        this.maxBuffersEnReserve = maxBuffersEnReserve;
+    }
+
+    int getTailleBuffer() {
+        return tailleBuffer;
+    }
+
+    ByteBuffer acquerir() {
+        ByteBuffer buffer = libres.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(tailleBuffer);
+        }
+        nombreLibres.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    void liberer(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != tailleBuffer || !buffer.isDirect()) return;
+        if (nombreLibres.incrementAndGet() <= maxBuffersEnReserve) {
+            libres.offer(buffer);
+        } else {
+            nombreLibres.decrementAndGet();
+        }
+    }
+}
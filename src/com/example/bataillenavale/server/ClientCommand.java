@@ -0,0 +1,34 @@
+package com.example.bataillenavale.server;
+
+import com.example.bataillenavale.model.Ship;
+
+/**
+ * Commande client décodée, réutilisée d'un message à l'autre par le même thread.
+ * Remplie par CommandParser (texte) ou BinaryProtocol (binaire), puis exécutée par
+ * BatailleNavaleServer.executerCommande. Les opcodes sont ceux de BinaryProtocol.
+ */
+final class ClientCommand {
+    static final int INVALIDE = 0; // Opcode d'une commande inconnue ou malformée (voir erreur)
+
+    int opcode;
+    Ship.ShipType navire;
+    int cible;
+    int ligne;
+    int colonne;
+    boolean horizontal;
+    int tailleGrille; // ADMIN_CONFIG
+    String texte;  // SET_NAME, CHAT_MSG, JOIN_ROOM, RECONNECT (salle:jeton), flotte d'ADMIN_CONFIG
+    String erreur; // Message à renvoyer au client quand opcode == INVALIDE
+
+    void reinitialiser() {
+        opcode = INVALIDE;
+        navire = null;
+        cible = 0;
+        ligne = 0;
+        colonne = 0;
+        horizontal = false;
+        tailleGrille = 0;
+        texte = null;
+        erreur = null;
+    }
+}
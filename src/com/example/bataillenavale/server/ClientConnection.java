@@ -0,0 +1,23 @@
+package com.example.bataillenavale.server;
+
+/**
+ * Connexion d'un participant, quel que soit son transport (TCP, WebSocket, bot).
+ */
+interface ClientConnection {
+    String getNomJoueur();
+    boolean isNameSet();
+    void setPlayerIndex(int index);
+    int getPlayerIndex();
+    BatailleNavaleServer.ClientHandler.ClientRole getRole(); // Use existing enum from ClientHandler
+    void setRole(BatailleNavaleServer.ClientHandler.ClientRole role);
+    boolean isActive();
+    void sendMessage(String message); // Non bloquant : mis en file d'envoi bornée (voir OutboundPolicy)
+    default void envoyer(OutboundMessage message) { sendMessage(message.getTexte()); } // Diffusion déjà encodée
+    void closeConnection(boolean notifyServer); // notifyServer if server needs to run handleClientQuitte
+    String getRemoteAddressString();
+    void resetForNewLobby();
+    Object getUnderlyingHandle(); // Returns Socket or WebSocket for identity/removal
+    GameRoom getRoom(); // Room currently hosting this connection (null while switching rooms)
+    void setRoom(GameRoom room);
+    int getOutboundQueueDepth(); // Messages en attente d'envoi
+}
@@ -0,0 +1,210 @@
+package com.example.bataillenavale.server;
+
+import java.nio.charset.StandardCharsets;
+
+import com.example.bataillenavale.model.Ship;
+
+/**
+ * Analyseur des commandes texte ("NOM:champ:champ...") à curseur, sans découpage en tableaux
+ * ni conversion de casse : le nom de commande est cherché dans la table des opcodes et les
+ * champs numériques sont lus chiffre par chiffre. Seuls les champs texte (nom, chat, salle, reprise)
+ * et les messages d'erreur allouent une chaîne.
+ */
+final class CommandParser {
+    // Table des commandes texte, indexée par opcode BinaryProtocol
+    private static final String[] NOMS = new String[BinaryProtocol.RECONNECT + 1];
+    private static final Ship.ShipType[] NAVIRES = Ship.ShipType.values();
+
+    static {
+        NOMS[BinaryProtocol.SET_NAME] = "SET_NAME";
+        NOMS[BinaryProtocol.PLACE_SHIP] = "PLACE_SHIP";
+        NOMS[BinaryProtocol.FIRE_SHOT] = "FIRE_SHOT";
+        NOMS[BinaryProtocol.CHAT_MSG] = "CHAT_MSG";
+        NOMS[BinaryProtocol.ADMIN_START_GAME] = "ADMIN_START_GAME";
+        NOMS[BinaryProtocol.QUIT_GAME] = "QUIT_GAME";
+        NOMS[BinaryProtocol.LIST_ROOMS] = "LIST_ROOMS";
+        NOMS[BinaryProtocol.JOIN_ROOM] = "JOIN_ROOM";
+        NOMS[BinaryProtocol.ADMIN_CONFIG] = "ADMIN_CONFIG";
+        NOMS[BinaryProtocol.RECONNECT] = "RECONNECT";
+    }
+
+    private CommandParser() {
+    }
+
+    /** Remplit la commande à partir d'une ligne texte (sans son '\n'). */
+    static void analyser(CharSequence ligne, ClientCommand commande) {
+        commande.reinitialiser();
+        int fin = ligne.length();
+        int separateur = indexOf(ligne, ':', 0, fin);
+        int finNom = separateur < 0 ? fin : separateur;
+        int debut = separateur < 0 ? fin : separateur + 1; // Début de la charge utile
+        int opcode = chercherOpcode(ligne, finNom);
+
+        switch (opcode) {
+            case BinaryProtocol.SET_NAME:
+            case BinaryProtocol.CHAT_MSG:
+            case BinaryProtocol.JOIN_ROOM:
+            case BinaryProtocol.RECONNECT:
+                commande.texte = ligne.subSequence(debut, fin).toString();
+                break;
+            case BinaryProtocol.PLACE_SHIP:
+                if (!analyserPlacement(ligne, debut, fin, commande)) return;
+                break;
+            case BinaryProtocol.FIRE_SHOT:
+                if (!analyserTir(ligne, debut, fin, commande)) return;
+                break;
+            case BinaryProtocol.ADMIN_CONFIG:
+                if (!analyserConfig(ligne, debut, fin, commande)) return;
+                break;
+            case ClientCommand.INVALIDE:
+                commande.erreur = "ERROR:Commande inconnue '" + ligne.subSequence(0, finNom).toString().toUpperCase() + "'.";
+                return;
+            default:
+                break; // Commandes sans argument
+        }
+        commande.opcode = opcode;
+    }
+
+    private static boolean analyserPlacement(CharSequence ligne, int debut, int fin, ClientCommand commande) {
+        int s1 = indexOf(ligne, ':', debut, fin);
+        int s2 = s1 < 0 ? -1 : indexOf(ligne, ':', s1 + 1, fin);
+        int s3 = s2 < 0 ? -1 : indexOf(ligne, ':', s2 + 1, fin);
+        if (debut == fin || s3 < 0 || indexOf(ligne, ':', s3 + 1, fin) >= 0) {
+            commande.erreur = "ERROR:Commande PLACE_SHIP malformée.";
+            return false;
+        }
+        commande.navire = chercherNavire(ligne, debut, s1);
+        if (commande.navire == null || !lireEntier(ligne, s1 + 1, s2, commande, true) || !lireEntier(ligne, s2 + 1, s3, commande, false)) {
+            commande.erreur = "ERROR:Arguments de placement invalides.";
+            return false;
+        }
+        commande.horizontal = egalSansCasse(ligne, s3 + 1, fin, "true");
+        return true;
+    }
+
+    private static boolean analyserTir(CharSequence ligne, int debut, int fin, ClientCommand commande) {
+        int s1 = indexOf(ligne, ':', debut, fin);
+        int s2 = s1 < 0 ? -1 : indexOf(ligne, ':', s1 + 1, fin);
+        if (debut == fin || s2 < 0 || indexOf(ligne, ':', s2 + 1, fin) >= 0) {
+            commande.erreur = "ERROR:Commande FIRE_SHOT malformée (attendu: FIRE_SHOT:targetIdx:ligne:col).";
+            return false;
+        }
+        int cible = lireEntier(ligne, debut, s1);
+        if (cible == Integer.MIN_VALUE || !lireEntier(ligne, s1 + 1, s2, commande, true) || !lireEntier(ligne, s2 + 1, fin, commande, false)) {
+            commande.erreur = "ERROR:Coordonnées de tir ou index cible invalides.";
+            return false;
+        }
+        commande.cible = cible;
+        return true;
+    }
+
+    /** ADMIN_CONFIG:taille[:flotte], flotte vide ou absente = flotte standard. */
+    private static boolean analyserConfig(CharSequence ligne, int debut, int fin, ClientCommand commande) {
+        int s1 = indexOf(ligne, ':', debut, fin);
+        int taille = lireEntier(ligne, debut, s1 < 0 ? fin : s1);
+        if (taille == Integer.MIN_VALUE || (s1 >= 0 && indexOf(ligne, ':', s1 + 1, fin) >= 0)) {
+            commande.erreur = "ERROR:Commande ADMIN_CONFIG malformée (attendu: ADMIN_CONFIG:taille:TYPE,TYPE...).";
+            return false;
+        }
+        commande.tailleGrille = taille;
+        commande.texte = s1 < 0 ? "" : ligne.subSequence(s1 + 1, fin).toString();
+        return true;
+    }
+
+    private static boolean lireEntier(CharSequence ligne, int debut, int fin, ClientCommand commande, boolean versLigne) {
+        int valeur = lireEntier(ligne, debut, fin);
+        if (valeur == Integer.MIN_VALUE) return false;
+        if (versLigne) commande.ligne = valeur; else commande.colonne = valeur;
+        return true;
+    }
+
+    /** Entier décimal signé, comme Integer.parseInt ; Integer.MIN_VALUE si invalide. */
+    private static int lireEntier(CharSequence ligne, int debut, int fin) {
+        if (debut >= fin) return Integer.MIN_VALUE;
+        boolean negatif = false;
+        char premier = ligne.charAt(debut);
+        if (premier == '-' || premier == '+') {
+            negatif = premier == '-';
+            if (++debut == fin) return Integer.MIN_VALUE;
+        }
+        long valeur = 0;
+        for (int i = debut; i < fin; i++) {
+            char c = ligne.charAt(i);
+            if (c < '0' || c > '9') return Integer.MIN_VALUE;
+            valeur = valeur * 10 + (c - '0');
+            if (valeur > Integer.MAX_VALUE) return Integer.MIN_VALUE;
+        }
+        return (int) (negatif ? -valeur : valeur);
+    }
+
+    private static int chercherOpcode(CharSequence ligne, int finNom) {
+        for (int opcode = 1; opcode < NOMS.length; opcode++) {
+            if (NOMS[opcode] != null && egalSansCasse(ligne, 0, finNom, NOMS[opcode])) return opcode;
+        }
+        return ClientCommand.INVALIDE;
+    }
+
+    private static Ship.ShipType chercherNavire(CharSequence ligne, int debut, int fin) {
+        for (Ship.ShipType type : NAVIRES) {
+            if (egalSansCasse(ligne, debut, fin, type.name())) return type;
+        }
+        return null;
+    }
+
+    private static boolean egalSansCasse(CharSequence ligne, int debut, int fin, String attendu) {
+        if (fin - debut != attendu.length()) return false;
+        for (int i = 0; i < attendu.length(); i++) {
+            char c = ligne.charAt(debut + i);
+            if (c >= 'a' && c <= 'z') c -= 'a' - 'A';
+            char a = attendu.charAt(i);
+            if (a >= 'a' && a <= 'z') a -= 'a' - 'A';
+            if (c != a) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence ligne, char c, int debut, int fin) {
+        for (int i = debut; i < fin; i++) {
+            if (ligne.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Vue CharSequence réutilisable sur une ligne d'octets UTF-8 (frontal NIO), sans copie.
+     * charAt expose les octets bruts, ce qui suffit pour la structure ASCII des commandes ;
+     * subSequence et toString décodent réellement l'UTF-8 pour les champs texte.
+     */
+    static final class LigneOctets implements CharSequence {
+        private byte[] octets;
+        private int debut;
+        private int longueur;
+
+        LigneOctets cibler(byte[] octets, int debut, int longueur) {
+            this.octets = octets;
+            this.debut = debut;
+            this.longueur = longueur;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return longueur;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (octets[debut + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(octets, debut + start, end - start, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return new String(octets, debut, longueur, StandardCharsets.UTF_8);
+        }
+    }
+}
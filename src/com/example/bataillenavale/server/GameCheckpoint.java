@@ -0,0 +1,241 @@
+package com.example.bataillenavale.server;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.example.bataillenavale.model.BatailleNavaleGame;
+import com.example.bataillenavale.model.GameSnapshot;
+
+/**
+ * Point de reprise du journal des parties : l'instantané (GameSnapshot) de chaque partie en cours,
+ * pris par la boucle de sa salle, avec la séquence du journal qu'il couvre.
+ * Au démarrage, le dernier point de reprise est relu puis complété par la fin du journal
+ * (GameJournal.rejouer) : la reprise relit au plus un intervalle entre deux points, quel que soit
+ * l'âge des parties. Les deux derniers points de reprise sont conservés, et seuls les segments
+ * couverts par l'avant-dernier peuvent être supprimés : si le dernier se révèle illisible,
+ * la reprise repart du précédent avec tout le journal qu'il lui faut.
+ *
+ * Fichier checkpoint-SEQUENCE.chk, écrit à côté, forcé sur disque puis renommé (répertoire forcé à son tour) :
+ * <pre>
+ * magique (int)   version (byte)   séquence (long)   dernière partie (long)   parties (int)
+ * par partie : numéro (long)   séquence couverte (long)   sièges des bots (int)
+ *              sièges (byte)   jeton de reprise par siège (long)   salle (UTF)   longueur (int)   instantané
+ * somme CRC32 de tout ce qui précède (int)
+ * </pre>
+ * Les versions 1 (sans les sièges des bots) et 2 (sans les jetons, sièges non repris) restent lisibles.
+ * La séquence du fichier est relevée avant de demander leur instantané aux salles : tout événement
+ * postérieur est relu depuis le journal, chaque partie ignorant ceux que son instantané couvre déjà.
+ */
+public final class GameCheckpoint {
+    private static final int MAGIQUE = 0x424E4350; // "BNCP"
+    private static final int VERSION = 3;
+    private static final int VERSION_SANS_JETONS = 2;
+    private static final int VERSION_SANS_BOTS = 1;
+    private static final String PREFIXE = "checkpoint-";
+    private static final String SUFFIXE = ".chk";
+    private static final int TAILLE_MIN = 29; // En-tête (25 octets) et somme de contrôle
+
+    private GameCheckpoint() {
+    }
+
+    /** Instantané d'une partie en cours, pris par la boucle de sa salle. */
+    public static final class Entree {
+        final long partie;
+        final long sequence; // Dernier événement du journal couvert par l'instantané
+        final int siegesBots; // Un bit par joueur tenu par un bot
+        final long[] jetons; // Jeton de reprise par siège, 0 si le siège ne peut pas être repris
+        final String salle;
+        final byte[] instantane;
+
+        public Entree(long partie, long sequence, int siegesBots, long[] jetons, String salle, byte[] instantane) {
+            this.partie = partie;
+            this.sequence = sequence;
+            this.siegesBots = siegesBots;
+            this.jetons = jetons;
+            this.salle = salle;
+            this.instantane = instantane;
+        }
+    }
+
+    /** Parties reconstruites au démarrage. */
+    public static final class Reprise {
+        public final Map<Long, GameJournal.PartieRelue> parties = new HashMap<>();
+        public long sequence = -1; // Séquence du point de reprise relu, -1 sans point de reprise
+        public int depuisPointDeReprise; // Parties lues dans le point de reprise
+        public GameJournal.Relecture relecture;
+        public long dureeNs;
+    }
+
+    /**
+     * Écrit un point de reprise, le relit, puis supprime ceux d'avant le précédent.
+     * @param sequence séquence du journal relevée avant les instantanés.
+     * @param dernierePartie dernier numéro de partie attribué, relevé après la séquence.
+     * @return séquence du point de reprise précédent, conservé : les segments qu'il couvre peuvent
+     *         être supprimés ; -1 s'il n'y en a pas.
+     */
+    public static long ecrire(File dossier, long sequence, long dernierePartie, Collection<Entree> entrees) throws IOException {
+        String nom = String.format("%s%020d", PREFIXE, sequence);
+        File temporaire = new File(dossier, nom + ".tmp");
+        File fichier = new File(dossier, nom + SUFFIXE);
+        CRC32 somme = new CRC32();
+        try (FileOutputStream sortie = new FileOutputStream(temporaire)) {
+            DataOutputStream donnees = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(sortie, 1 << 16), somme));
+            donnees.writeInt(MAGIQUE);
+            donnees.writeByte(VERSION);
+            donnees.writeLong(sequence);
+            donnees.writeLong(dernierePartie);
+            donnees.writeInt(entrees.size());
+            for (Entree entree : entrees) {
+                donnees.writeLong(entree.partie);
+                donnees.writeLong(entree.sequence);
+                donnees.writeInt(entree.siegesBots);
+                donnees.writeByte(entree.jetons.length);
+                for (long jeton : entree.jetons) donnees.writeLong(jeton);
+                donnees.writeUTF(entree.salle);
+                donnees.writeInt(entree.instantane.length);
+                donnees.write(entree.instantane);
+            }
+            donnees.writeInt((int) somme.getValue());
+            donnees.flush();
+            sortie.getFD().sync();
+        }
+        Files.move(temporaire.toPath(), fichier.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        // Renommage rendu durable avant toute suppression : sinon un crash peut ne laisser ni l'ancien
+        // point de reprise ni le nouveau. En cas d'échec, rien n'est supprimé (IOException).
+        try (FileChannel repertoire = FileChannel.open(dossier.toPath(), StandardOpenOption.READ)) {
+            repertoire.force(true);
+        }
+        try {
+            lire(Files.readAllBytes(fichier.toPath()), new Reprise()); // Relu comme au démarrage avant de compter dessus
+        } catch (IllegalArgumentException e) {
+            if (!fichier.delete()) System.err.println("Point de reprise : impossible de supprimer " + fichier + ".");
+            throw new IOException("point de reprise " + nom + " illisible à la relecture (" + e.getMessage() + ")", e);
+        }
+        File[] points = pointsDeReprise(dossier);
+        int nouveau = Arrays.asList(points).indexOf(fichier);
+        long precedente = nouveau > 0 ? sequence(points[nouveau - 1]) : -1;
+        for (int i = 0; i < nouveau - 1; i++) {
+            if (!points[i].delete()) System.err.println("Point de reprise : impossible de supprimer " + points[i] + ".");
+        }
+        File[] temporaires = dossier.listFiles((d, n) -> n.startsWith(PREFIXE) && n.endsWith(".tmp")); // Laissés par un arrêt brutal
+        if (temporaires != null) {
+            for (File temporaireAbandonne : temporaires) {
+                if (!temporaireAbandonne.delete()) System.err.println("Point de reprise : impossible de supprimer " + temporaireAbandonne + ".");
+            }
+        }
+        return precedente;
+    }
+
+    /**
+     * Séquence et dernière partie du point de reprise valide le plus récent (somme de contrôle comprise,
+     * comme à la reprise), null s'il n'y en a pas.
+     */
+    static long[] lireEntete(File dossier) throws IOException {
+        File[] points = pointsDeReprise(dossier);
+        for (int i = points.length - 1; i >= 0; i--) {
+            byte[] fichier = Files.readAllBytes(points[i].toPath());
+            if (!estIntegre(fichier)) continue; // Point de reprise abîmé : le précédent, s'il existe
+            ByteBuffer octets = ByteBuffer.wrap(fichier);
+            int magique = octets.getInt();
+            byte version = octets.get();
+            if (magique == MAGIQUE && version >= VERSION_SANS_BOTS && version <= VERSION) {
+                return new long[] {octets.getLong(), octets.getLong()};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reconstruit les parties en cours : dernier point de reprise lisible, puis fin du journal.
+     * Les parties relues sont silencieuses.
+     */
+    public static Reprise reprendre(File dossier) throws IOException {
+        long debut = System.nanoTime();
+        Reprise reprise = new Reprise();
+        File[] points = pointsDeReprise(dossier);
+        for (int i = points.length - 1; i >= 0 && reprise.sequence < 0; i--) {
+            try {
+                lire(Files.readAllBytes(points[i].toPath()), reprise);
+            } catch (IllegalArgumentException e) {
+                reprise.parties.clear();
+                System.err.println("Point de reprise " + points[i].getName() + " illisible (" + e.getMessage() + ").");
+            }
+        }
+        reprise.depuisPointDeReprise = reprise.parties.size();
+        reprise.relecture = GameJournal.rejouer(dossier, reprise.sequence, reprise.parties);
+        reprise.dureeNs = System.nanoTime() - debut;
+        return reprise;
+    }
+
+    /** Fichier assez long pour l'en-tête, et somme CRC32 finale conforme. */
+    private static boolean estIntegre(byte[] fichier) {
+        if (fichier.length < TAILLE_MIN) return false;
+        CRC32 controle = new CRC32();
+        controle.update(fichier, 0, fichier.length - 4);
+        return ByteBuffer.wrap(fichier).getInt(fichier.length - 4) == (int) controle.getValue();
+    }
+
+    private static void lire(byte[] fichier, Reprise reprise) {
+        if (!estIntegre(fichier)) throw new IllegalArgumentException("fichier tronqué ou somme de contrôle");
+        ByteBuffer octets = ByteBuffer.wrap(fichier);
+        try {
+            if (octets.getInt() != MAGIQUE) throw new IllegalArgumentException("en-tête");
+            byte version = octets.get();
+            if (version < VERSION_SANS_BOTS || version > VERSION) throw new IllegalArgumentException("version " + version);
+            long sequence = octets.getLong();
+            octets.getLong(); // Dernière partie : sert à l'ouverture du journal
+            int nombre = octets.getInt();
+            for (int i = 0; i < nombre; i++) {
+                long partie = octets.getLong();
+                long couverte = octets.getLong();
+                int siegesBots = version == VERSION_SANS_BOTS ? 0 : octets.getInt();
+                long[] jetons = new long[version <= VERSION_SANS_JETONS ? 0 : octets.get() & 0xFF];
+                for (int j = 0; j < jetons.length; j++) jetons[j] = octets.getLong();
+                byte[] salle = new byte[octets.getShort() & 0xFFFF];
+                octets.get(salle);
+                int longueur = octets.getInt();
+                ByteBuffer instantane = octets.slice();
+                instantane.limit(longueur);
+                octets.position(octets.position() + longueur);
+                BatailleNavaleGame jeu = GameSnapshot.lire(instantane);
+                jeu.setSilencieux(true);
+                // writeUTF : UTF-8 modifié, identique à l'UTF-8 pour les identifiants de salle acceptés
+                GameJournal.PartieRelue relue = new GameJournal.PartieRelue(new String(salle, StandardCharsets.UTF_8), jeu, siegesBots, couverte);
+                if (jetons.length > relue.jetons.length) throw new IllegalArgumentException("jetons de la partie " + partie);
+                System.arraycopy(jetons, 0, relue.jetons, 0, jetons.length);
+                reprise.parties.put(partie, relue);
+            }
+            reprise.sequence = sequence;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("fichier tronqué", e);
+        }
+    }
+
+    private static long sequence(File point) {
+        String nom = point.getName();
+        return Long.parseLong(nom.substring(PREFIXE.length(), nom.length() - SUFFIXE.length()));
+    }
+
+    private static File[] pointsDeReprise(File dossier) {
+        File[] points = dossier.listFiles((d, nom) -> nom.startsWith(PREFIXE) && nom.endsWith(SUFFIXE));
+        if (points == null) return new File[0];
+        Arrays.sort(points); // Noms à largeur fixe : ordre des séquences
+        return points;
+    }
+}
@@ -0,0 +1,649 @@
+package com.example.bataillenavale.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import com.example.bataillenavale.model.BatailleNavaleGame;
+import com.example.bataillenavale.model.GameSnapshot;
+import com.example.bataillenavale.model.PlayerBoard;
+import com.example.bataillenavale.model.Ship;
+import com.example.bataillenavale.model.ShotOutcome;
+
+/**
+ * Journal en ajout seul des événements qui modifient une partie, toutes salles confondues :
+ * début (instantané GameSnapshot de la partie neuve) et jetons de reprise de ses sièges, placement,
+ * tir et son résultat, élimination, passage de tour décidé par la salle, déconnexion et fin de partie.
+ *
+ * Le journal est une suite de segments (journal-SEQUENCE.seg, SEQUENCE = séquence de son premier emplacement)
+ * projetés en mémoire, découpés en enregistrements de TAILLE_ENREGISTREMENT octets :
+ * <pre>
+ * 0  somme CRC32 des octets 4 à 31     4  séquence (long)     12 numéro de partie (long)
+ * 20 type   21 joueur   22 cible   23 valeur (type de navire, résultat, sens)
+ * 24 ligne (short)   26 colonne (short)   28 octets qui suivent (DEBUT) ou navire coulé + 1
+ * </pre>
+ * Dans un DEBUT, les octets 24 à 27 portent les sièges tenus par des bots (int, un bit par joueur).
+ * Un DEBUT est suivi de l'identifiant de la salle (longueur sur un octet, UTF-8) puis de l'instantané,
+ * 28 octets par enregistrement (somme puis données). Il est suivi d'un JETON par siège humain,
+ * dont les octets 24 à 31 portent le jeton de reprise (long).
+ * Un segment neuf est rempli de zéros : la fin d'un segment est le dernier enregistrement scellé
+ * (somme correcte, séquence égale à celle de son emplacement).
+ *
+ * L'écriture ne prend pas de verrou : un getAndAdd sur la position du segment courant réserve les
+ * enregistrements, dont la séquence se déduit de la position (séquence du segment + rang), puis quelques
+ * put dans la projection ; l'ordre des séquences est celui du fichier. Le segment suivant est créé et
+ * projeté à l'avance par le thread JournalSync ; seule la bascule, une fois par segment, prend le verrou,
+ * sans attendre les écritures encore en cours dans le segment plein.
+ * Un arrêt brutal peut laisser des trous (emplacements réservés, jamais scellés) parmi les derniers
+ * enregistrements, même suivis d'enregistrements scellés ou d'un segment plus récent : la relecture les
+ * saute. Une salle n'écrit un événement qu'une fois le précédent scellé : un trou ne peut être que le
+ * dernier événement de sa partie, chaque partie retrouve donc un préfixe de ses événements.
+ * Le fsync est groupé : le thread JournalSync force la projection toutes les intervalleSyncMs
+ * millisecondes s'il y a eu des écritures, jamais d'attente disque dans la boucle d'une salle ; un segment
+ * plein est forcé une dernière fois quand ses écritures sont toutes scellées. Un arrêt de la JVM ne perd
+ * que les événements en cours d'écriture (les pages projetées appartiennent au système), un arrêt du
+ * système perd au plus le dernier intervalle. intervalleSyncMs = 0 force après chaque événement.
+ * À l'ouverture, les segments existants (et le dernier point de reprise, voir GameCheckpoint) sont
+ * parcourus pour reprendre séquence et numéros de partie ; les nouveaux événements partent dans un
+ * nouveau segment. Les segments antérieurs à un point de reprise peuvent être supprimés.
+ */
+public final class GameJournal {
+    public static final int TAILLE_ENREGISTREMENT = 32;
+    static final int DONNEES_PAR_SUITE = TAILLE_ENREGISTREMENT - 4;
+    private static final String PREFIXE = "journal-";
+    private static final String SUFFIXE = ".seg";
+    private static final int TAILLE_SEGMENT_MIN = 1 << 16;
+    // Plus long trou cherché à la relecture : au plus une réservation en cours par thread de salle à l'arrêt.
+    // Au-delà, le segment est considéré terminé (sans cela la fin vide de chaque segment serait lue en entier).
+    private static final int TROU_MAX = 1 << 20;
+
+    // Types d'enregistrement
+    static final byte DEBUT = 1;
+    static final byte PLACEMENT = 2;
+    static final byte TIR = 3;
+    static final byte ELIMINATION = 4;
+    static final byte TOUR_SUIVANT = 5;
+    static final byte DECONNEXION = 6;
+    static final byte FIN = 7;
+    static final byte JETON = 8;
+
+    private static final Ship.ShipType[] TYPES = Ship.ShipType.values();
+    private static final PlayerBoard.ShotResult[] RESULTATS = PlayerBoard.ShotResult.values();
+
+    private final File dossier;
+    private final int tailleSegment;
+    private final long intervalleSyncMs;
+    private final ScheduledExecutorService fond; // Thread JournalSync : fsync groupé, préparation du segment suivant
+    private final ThreadLocal<CRC32> sommes = ThreadLocal.withInitial(CRC32::new);
+    private final ThreadLocal<ByteBuffer> instantanes = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1024));
+    private final AtomicLong prochainePartie;
+    private final AtomicBoolean modifie = new AtomicBoolean(); // Écritures non forcées
+    private volatile Segment courant;
+    private volatile boolean ferme;
+
+    // Sous le verrou du journal, pris seulement à la bascule de segment
+    private Future<Segment> suivant; // Préparé par le thread JournalSync
+    private final List<Segment> pleins = new ArrayList<>(); // Segments terminés, à forcer une dernière fois
+
+    /** Segment projeté : les enregistrements y sont réservés par un getAndAdd sur la position. */
+    private static final class Segment {
+        final File fichier;
+        final long premiereSequence; // Séquence de l'enregistrement à l'octet 0
+        final MappedByteBuffer octets;
+        final AtomicInteger position = new AtomicInteger(); // Prochain octet libre, dépasse la taille une fois plein
+        final AtomicInteger ecrits = new AtomicInteger(); // Octets réservés puis scellés
+        volatile int fin = -1; // Fin des données, fixée par la première réservation qui déborde
+
+        /** Segment plein dont toutes les réservations sont scellées. */
+        boolean estTermine() {
+            return fin >= 0 && ecrits.get() >= fin;
+        }
+
+        Segment(File fichier, long premiereSequence, MappedByteBuffer octets) {
+            this.fichier = fichier;
+            this.premiereSequence = premiereSequence;
+            this.octets = octets;
+        }
+
+        /** Début de nombre octets contigus, -1 si le segment est plein. */
+        int reserver(int nombre) {
+            int debut = position.getAndAdd(nombre);
+            if (debut + nombre <= octets.capacity()) return debut;
+            if (debut <= octets.capacity()) fin = debut;
+            return -1;
+        }
+
+        long sequence(int debut) {
+            return premiereSequence + debut / TAILLE_ENREGISTREMENT;
+        }
+    }
+
+    /**
+     * Ouvre (ou crée) le journal du dossier.
+     * @param tailleSegment octets par segment, arrondis à un multiple de TAILLE_ENREGISTREMENT.
+     * @throws IOException si le dossier ou le premier segment ne peut être créé.
+     */
+    public GameJournal(File dossier, int tailleSegment, long intervalleSyncMs) throws IOException {
+        if (!dossier.isDirectory() && !dossier.mkdirs()) throw new IOException("Impossible de créer le dossier du journal " + dossier);
+        this.dossier = dossier;
+        this.tailleSegment = Math.max(TAILLE_SEGMENT_MIN, tailleSegment) / TAILLE_ENREGISTREMENT * TAILLE_ENREGISTREMENT;
+        this.intervalleSyncMs = intervalleSyncMs;
+        Relecture existant = rejouer(dossier, -1, null);
+        long[] reprise = GameCheckpoint.lireEntete(dossier); // Les segments d'avant le point de reprise ont pu être supprimés
+        long premiere = Math.max(existant.derniereSequence, reprise == null ? -1 : reprise[0]) + 1;
+        File[] fichiers = segments(dossier);
+        if (fichiers != null && fichiers.length > 0) {
+            // Au-delà de tout emplacement existant, même jamais relu (segment préparé, fin après un trou)
+            File dernier = fichiers[fichiers.length - 1];
+            premiere = Math.max(premiere, premiereSequence(dernier) + dernier.length() / TAILLE_ENREGISTREMENT);
+        }
+        this.prochainePartie = new AtomicLong(Math.max(existant.dernierePartie, reprise == null ? -1 : reprise[1]) + 1);
+        courant = creerSegment(premiere);
+        fond = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "JournalSync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        preparerSuivant(courant);
+        if (intervalleSyncMs > 0) {
+            fond.scheduleWithFixedDelay(() -> synchroniser(false), intervalleSyncMs, intervalleSyncMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Journal configuré par -Dbataillenavale.journal.dir (absent ou vide : pas de journal),
+     * -Dbataillenavale.journal.segment.mb (64) et -Dbataillenavale.journal.sync.ms (10).
+     * @return null si le journal est désactivé ou ne peut être ouvert (message sur stderr).
+     */
+    static GameJournal depuisProprietes() {
+        String dossier = System.getProperty("bataillenavale.journal.dir", "").trim();
+        if (dossier.isEmpty()) return null;
+        try {
+            GameJournal journal = new GameJournal(new File(dossier), Integer.getInteger("bataillenavale.journal.segment.mb", 64) << 20,
+                    Long.getLong("bataillenavale.journal.sync.ms", 10));
+            System.out.println("Journal des parties dans " + new File(dossier).getAbsolutePath() + " (prochaine séquence " + (journal.derniereSequence() + 1) + ").");
+            return journal;
+        } catch (IOException e) {
+            System.err.println("Journal des parties indisponible (" + e.getMessage() + "), les parties ne seront pas journalisées.");
+            return null;
+        }
+    }
+
+    public File getDossier() {
+        return dossier;
+    }
+
+    /**
+     * Séquence du dernier emplacement réservé, -1 si aucun : tout événement journalisé ensuite a une
+     * séquence supérieure. Les séquences ne sont pas contiguës (suites d'un DEBUT, fin de segment).
+     */
+    public long derniereSequence() {
+        Segment segment = courant;
+        return segment.sequence(Math.min(segment.position.get(), tailleSegment)) - 1;
+    }
+
+    /** Numéro de la dernière partie commencée, -1 si aucune. */
+    public long dernierePartie() {
+        return prochainePartie.get() - 1;
+    }
+
+    /**
+     * Journalise une partie qui commence dans la salle et lui attribue son numéro.
+     * @param siegesBots un bit par joueur tenu par un bot : ces sièges ne sont pas attendus à la reprise.
+     * @param jetons jeton de reprise de chaque siège, 0 pour un siège qui ne sera pas repris (bot).
+     */
+    public long debuterPartie(String salle, BatailleNavaleGame partie, int siegesBots, long[] jetons) {
+        byte[] nomSalle = salle.getBytes(StandardCharsets.UTF_8);
+        if (nomSalle.length > 255) throw new IllegalArgumentException("Identifiant de salle trop long pour le journal.");
+        ByteBuffer instantane = instantanes.get();
+        instantane.clear();
+        while (true) {
+            try {
+                instantane.put((byte) nomSalle.length).put(nomSalle);
+                GameSnapshot.ecrire(partie, instantane);
+                break;
+            } catch (BufferOverflowException e) {
+                instantane = ByteBuffer.allocate(instantane.capacity() * 2); // Position à 0 : tout est réécrit
+                instantanes.set(instantane);
+            }
+        }
+        int longueur = instantane.position();
+        int suites = (longueur + DONNEES_PAR_SUITE - 1) / DONNEES_PAR_SUITE;
+        int octets = (1 + suites) * TAILLE_ENREGISTREMENT;
+        if (octets > tailleSegment) throw new IllegalArgumentException("Événement plus grand qu'un segment du journal.");
+        long numero = prochainePartie.getAndIncrement(); // Avant la réservation : un point de reprise qui couvre le DEBUT couvre son numéro
+        for (Segment segment = ouvert(); ; segment = basculer(segment)) {
+            int debut = segment.reserver(octets);
+            if (debut < 0) continue;
+            try {
+                for (int s = 0; s < suites; s++) { // Les suites d'abord : l'en-tête scellé annonce un DEBUT complet
+                    int enregistrement = debut + (s + 1) * TAILLE_ENREGISTREMENT;
+                    int taille = Math.min(DONNEES_PAR_SUITE, longueur - s * DONNEES_PAR_SUITE);
+                    for (int i = 0; i < taille; i++) segment.octets.put(enregistrement + 4 + i, instantane.get(s * DONNEES_PAR_SUITE + i));
+                    sceller(segment.octets, enregistrement);
+                }
+                entete(segment, debut, numero, DEBUT, 0, 0, 0, siegesBots >>> 16, siegesBots & 0xFFFF, longueur);
+            } finally {
+                segment.ecrits.addAndGet(octets);
+            }
+            ecrit(segment);
+            break;
+        }
+        for (int joueur = 0; joueur < jetons.length; joueur++) {
+            long jeton = jetons[joueur];
+            if (jeton != 0) evenement(numero, JETON, joueur, 0, 0, (int) (jeton >>> 48), (int) (jeton >>> 32), (int) jeton);
+        }
+        return numero;
+    }
+
+    public void placement(long partie, int joueur, Ship.ShipType type, int ligne, int colonne, boolean horizontal) {
+        evenement(partie, PLACEMENT, joueur, 0, type.ordinal() << 1 | (horizontal ? 1 : 0), ligne, colonne, 0);
+    }
+
+    public void tir(long partie, int tireur, int cible, int ligne, int colonne, ShotOutcome issue) {
+        int coule = issue.getNavireCoule() == null ? 0 : issue.getNavireCoule().ordinal() + 1;
+        evenement(partie, TIR, tireur, cible, issue.getResultat().ordinal(), ligne, colonne, coule);
+    }
+
+    public void elimination(long partie, int joueur) {
+        evenement(partie, ELIMINATION, joueur, 0, 0, 0, 0, 0);
+    }
+
+    /** La salle a passé le tour du joueur courant (placement terminé, joueur introuvable). */
+    public void tourSuivant(long partie) {
+        evenement(partie, TOUR_SUIVANT, 0, 0, 0, 0, 0, 0);
+    }
+
+    public void deconnexion(long partie, int joueur) {
+        evenement(partie, DECONNEXION, joueur, 0, 0, 0, 0, 0);
+    }
+
+    /** Fin de partie, gagnant -1 sans vainqueur (ou partie interrompue par la salle). */
+    public void fin(long partie, int gagnant) {
+        evenement(partie, FIN, gagnant + 1, 0, 0, 0, 0, 0);
+    }
+
+    private void evenement(long partie, byte type, int joueur, int cible, int valeur, int ligne, int colonne, int extra) {
+        if (partie < 0) return; // Partie commencée sans journal
+        for (Segment segment = ouvert(); ; segment = basculer(segment)) {
+            int debut = segment.reserver(TAILLE_ENREGISTREMENT);
+            if (debut < 0) continue;
+            try {
+                entete(segment, debut, partie, type, joueur, cible, valeur, ligne, colonne, extra);
+            } finally {
+                segment.ecrits.addAndGet(TAILLE_ENREGISTREMENT);
+            }
+            ecrit(segment);
+            return;
+        }
+    }
+
+    private Segment ouvert() {
+        if (ferme) throw new IllegalStateException("Journal fermé.");
+        return courant;
+    }
+
+    /**
+     * Segment plein : passe au segment préparé par le thread JournalSync (créé ici s'il ne l'est pas encore).
+     * Les écritures encore en cours dans le segment plein s'y terminent ; le thread JournalSync le force
+     * une fois qu'elles sont scellées.
+     * @return le segment courant, déjà remplacé si un autre thread a basculé avant.
+     */
+    private synchronized Segment basculer(Segment plein) {
+        if (ferme) throw new IllegalStateException("Journal fermé.");
+        if (courant != plein) return courant;
+        Segment segment = null;
+        Future<Segment> prepare = suivant;
+        suivant = null;
+        if (prepare != null && (prepare.isDone() || !prepare.cancel(false))) {
+            try {
+                segment = prepare.get();
+            } catch (ExecutionException e) {
+                System.err.println("Journal : préparation du segment suivant impossible (" + e.getCause() + ").");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment == null) {
+            try {
+                segment = creerSegment(plein.premiereSequence + tailleSegment / TAILLE_ENREGISTREMENT);
+            } catch (IOException e) {
+                throw new IllegalStateException("Impossible de créer un segment du journal : " + e.getMessage(), e);
+            }
+        }
+        pleins.add(plein);
+        courant = segment;
+        preparerSuivant(segment);
+        return segment;
+    }
+
+    /** Sous le verrou, ou depuis le constructeur. */
+    private void preparerSuivant(Segment segment) {
+        long premiere = segment.premiereSequence + tailleSegment / TAILLE_ENREGISTREMENT;
+        suivant = fond.submit(() -> creerSegment(premiere));
+    }
+
+    private void entete(Segment segment, int debut, long partie, byte type, int joueur, int cible, int valeur, int ligne, int colonne, int extra) {
+        MappedByteBuffer octets = segment.octets;
+        octets.putLong(debut + 4, segment.sequence(debut));
+        octets.putLong(debut + 12, partie);
+        octets.put(debut + 20, type);
+        octets.put(debut + 21, (byte) joueur);
+        octets.put(debut + 22, (byte) cible);
+        octets.put(debut + 23, (byte) valeur);
+        octets.putShort(debut + 24, (short) ligne);
+        octets.putShort(debut + 26, (short) colonne);
+        octets.putInt(debut + 28, extra);
+        sceller(octets, debut);
+    }
+
+    /** Écrit la somme en dernier : un enregistrement n'est valide qu'une fois complet. */
+    private void sceller(MappedByteBuffer octets, int debut) {
+        CRC32 somme = sommes.get();
+        somme.reset();
+        for (int i = 4; i < TAILLE_ENREGISTREMENT; i++) somme.update(octets.get(debut + i));
+        octets.putInt(debut, (int) somme.getValue());
+    }
+
+    private void ecrit(Segment segment) {
+        if (intervalleSyncMs <= 0) {
+            segment.octets.force();
+        } else if (!modifie.get()) {
+            modifie.set(true);
+        }
+    }
+
+    private Segment creerSegment(long premiereSequence) throws IOException {
+        File fichier = new File(dossier, String.format("%s%020d%s", PREFIXE, premiereSequence, SUFFIXE));
+        try (RandomAccessFile acces = new RandomAccessFile(fichier, "rw")) {
+            acces.setLength(tailleSegment);
+            // La projection survit au canal
+            return new Segment(fichier, premiereSequence, acces.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, tailleSegment));
+        }
+    }
+
+    /**
+     * Force sur disque ce qui a été écrit depuis le dernier passage (thread JournalSync). Un segment plein
+     * dont des écritures sont encore en cours attend le passage suivant, sauf à la fermeture (tous).
+     */
+    private void synchroniser(boolean tous) {
+        List<Segment> termines = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Segment> it = pleins.iterator(); it.hasNext(); ) {
+                Segment plein = it.next();
+                if (!tous && !plein.estTermine()) continue;
+                termines.add(plein);
+                it.remove();
+            }
+        }
+        boolean ecritures = modifie.getAndSet(false);
+        for (Segment plein : termines) plein.octets.force();
+        if (ecritures) courant.octets.force(); // Hors verrou : les salles continuent d'écrire pendant le fsync
+    }
+
+    /**
+     * Supprime les segments dont tous les événements ont une séquence inférieure ou égale à sequence
+     * (couverts par un point de reprise). Le segment courant et le segment préparé sont toujours gardés.
+     * @return le nombre de segments supprimés.
+     */
+    public int supprimerSegmentsJusqua(long sequence) {
+        File[] fichiers = segments(dossier);
+        if (fichiers == null) return 0;
+        long premiereCourante = courant.premiereSequence;
+        int supprimes = 0;
+        for (int i = 0; i + 1 < fichiers.length; i++) {
+            if (premiereSequence(fichiers[i]) >= premiereCourante) break;
+            // Un segment se termine juste avant le premier emplacement du suivant
+            if (premiereSequence(fichiers[i + 1]) - 1 > sequence) break;
+            if (fichiers[i].delete()) {
+                supprimes++;
+            } else {
+                System.err.println("Journal : impossible de supprimer " + fichiers[i] + ".");
+            }
+        }
+        return supprimes;
+    }
+
+    private static File[] segments(File dossier) {
+        File[] fichiers = dossier.listFiles((d, nom) -> nom.startsWith(PREFIXE) && nom.endsWith(SUFFIXE));
+        if (fichiers != null) Arrays.sort(fichiers); // Noms à largeur fixe : ordre des séquences
+        return fichiers;
+    }
+
+    private static long premiereSequence(File segment) {
+        String nom = segment.getName();
+        return Long.parseLong(nom.substring(PREFIXE.length(), nom.length() - SUFFIXE.length()));
+    }
+
+    /**
+     * Force les dernières écritures, arrête le thread JournalSync et supprime le segment préparé inutilisé.
+     * Les appels suivants échouent (IllegalStateException) ; un appel concurrent de la fermeture peut
+     * encore écrire, sans garantie d'être forcé.
+     */
+    public void fermer() {
+        Future<Segment> inutilise;
+        synchronized (this) {
+            if (ferme) return;
+            ferme = true;
+            inutilise = suivant;
+            suivant = null;
+        }
+        fond.shutdown();
+        modifie.set(true);
+        synchroniser(true);
+        if (inutilise != null) {
+            try {
+                File fichier = inutilise.get().fichier;
+                if (!fichier.delete()) System.err.println("Journal : impossible de supprimer " + fichier + ".");
+            } catch (ExecutionException e) {
+                // Jamais créé
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Partie reconstruite par la relecture, avec la salle qui l'hébergeait. */
+    public static final class PartieRelue {
+        public final String salle;
+        public final BatailleNavaleGame partie;
+        public final int siegesBots; // Un bit par joueur tenu par un bot
+        public final long[] jetons; // Jeton de reprise par siège, 0 si le siège ne peut pas être repris
+        long derniereSequence; // Dernier événement appliqué (ou couvert par le point de reprise)
+
+        public PartieRelue(String salle, BatailleNavaleGame partie, int siegesBots, long derniereSequence) {
+            this.salle = salle;
+            this.partie = partie;
+            this.siegesBots = siegesBots;
+            this.jetons = new long[partie.getNombreJoueursInitial()];
+            this.derniereSequence = derniereSequence;
+        }
+    }
+
+    /** Bilan d'une relecture. */
+    public static final class Relecture {
+        public long derniereSequence = -1;
+        public long dernierePartie = -1;
+        public long evenements;
+        public int segments;
+        public int incoherentes; // Parties abandonnées car un événement ne s'y appliquait pas
+        public int trous; // Emplacements réservés jamais scellés (arrêt brutal), sautés
+    }
+
+    /**
+     * Relit les segments du dossier dans l'ordre et applique aux parties les événements de séquence
+     * supérieure à apresSequence : un DEBUT crée la partie (silencieuse), une FIN la retire.
+     * Les trous d'un arrêt brutal (jusqu'à TROU_MAX octets) sont sautés ; un segment se termine à son
+     * dernier enregistrement scellé.
+     * Une partie déjà présente dans la table (point de reprise) ne reçoit que les événements postérieurs
+     * à sa derniereSequence. Les segments entièrement antérieurs à apresSequence ne sont pas lus.
+     * Les événements d'une partie absente de la table sont ignorés. Un événement qui ne s'applique pas
+     * (joueur qui n'a pas la main, résultat de tir différent) retire la partie, avec un message sur stderr.
+     * @param parties null pour ne relever que la dernière séquence et le dernier numéro de partie.
+     * @throws IOException si le premier segment commence après apresSequence + 1 : des événements à rejouer manquent.
+     */
+    public static Relecture rejouer(File dossier, long apresSequence, Map<Long, PartieRelue> parties) throws IOException {
+        Relecture bilan = new Relecture();
+        File[] fichiers = segments(dossier);
+        if (fichiers == null) return bilan;
+        if (parties != null && fichiers.length > 0 && premiereSequence(fichiers[0]) > apresSequence + 1) {
+            // Segments supprimés après un point de reprise qui n'a pas pu être relu : reprendre à vide perdrait les parties
+            throw new IOException("début du journal absent (premier segment " + fichiers[0].getName()
+                    + ", point de reprise à la séquence " + apresSequence + ")");
+        }
+        Set<Long> ignorees = new HashSet<>();
+        CRC32 controle = new CRC32();
+        for (int f = 0; f < fichiers.length; f++) {
+            File fichier = fichiers[f];
+            if (parties != null && f + 1 < fichiers.length && premiereSequence(fichiers[f + 1]) - 1 <= apresSequence) continue;
+            bilan.segments++;
+            ByteBuffer octets;
+            try (RandomAccessFile acces = new RandomAccessFile(fichier, "r"); FileChannel canal = acces.getChannel()) {
+                octets = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            }
+            int limite = octets.capacity() / TAILLE_ENREGISTREMENT * TAILLE_ENREGISTREMENT;
+            long premiere = premiereSequence(fichier);
+            int position = 0;
+            while (position < limite) {
+                if (!estEnregistrement(octets, position, premiere, controle)) {
+                    // Trou laissé par un arrêt brutal, ou fin du segment si plus rien n'est scellé après
+                    int suivant = position + TAILLE_ENREGISTREMENT;
+                    int finRecherche = (int) Math.min(limite, (long) position + TROU_MAX);
+                    while (suivant < finRecherche && !estEnregistrement(octets, suivant, premiere, controle)) suivant += TAILLE_ENREGISTREMENT;
+                    if (suivant >= finRecherche) break;
+                    bilan.trous++;
+                    System.err.println("Journal : " + (suivant - position) / TAILLE_ENREGISTREMENT + " emplacements non scellés ignorés avant la séquence "
+                            + (premiere + suivant / TAILLE_ENREGISTREMENT) + " (" + fichier.getName() + ").");
+                    position = suivant;
+                }
+                long sequence = octets.getLong(position + 4);
+                long numero = octets.getLong(position + 12);
+                byte type = octets.get(position + 20);
+                int suites = type == DEBUT ? (octets.getInt(position + 28) + DONNEES_PAR_SUITE - 1) / DONNEES_PAR_SUITE : 0;
+                boolean complet = suites >= 0 && position + (1 + suites) * TAILLE_ENREGISTREMENT <= limite;
+                for (int s = 1; s <= suites && complet; s++) complet = estScelle(octets, position + s * TAILLE_ENREGISTREMENT, controle);
+                if (!complet) { // Jamais écrit ainsi (suites scellées avant l'en-tête) : traité comme un trou
+                    position += TAILLE_ENREGISTREMENT;
+                    continue;
+                }
+                bilan.derniereSequence = Math.max(bilan.derniereSequence, sequence);
+                if (type == DEBUT) bilan.dernierePartie = Math.max(bilan.dernierePartie, numero);
+                if (parties != null && sequence > apresSequence) {
+                    bilan.evenements++;
+                    try {
+                        if (!appliquer(octets, position, sequence, type, numero, parties, ignorees)) {
+                            parties.remove(numero);
+                            ignorees.add(numero);
+                            bilan.incoherentes++;
+                            System.err.println("Journal : événement " + sequence + " incohérent pour la partie " + numero + ", partie abandonnée.");
+                        }
+                    } catch (IllegalArgumentException e) {
+                        parties.remove(numero);
+                        ignorees.add(numero);
+                        bilan.incoherentes++;
+                        System.err.println("Journal : partie " + numero + " illisible à l'événement " + sequence + " (" + e.getMessage() + ").");
+                    }
+                }
+                position += (1 + suites) * TAILLE_ENREGISTREMENT;
+            }
+        }
+        return bilan;
+    }
+
+    /**
+     * Enregistrement scellé à sa place : la séquence (lue d'abord, nulle dans un emplacement vide) doit être
+     * celle de l'emplacement, ce qui écarte aussi les suites d'un DEBUT dont l'en-tête manque.
+     */
+    private static boolean estEnregistrement(ByteBuffer octets, int debut, long premiereSequence, CRC32 controle) {
+        return octets.getLong(debut + 4) == premiereSequence + debut / TAILLE_ENREGISTREMENT
+                && octets.get(debut + 20) != 0 && estScelle(octets, debut, controle);
+    }
+
+    private static boolean estScelle(ByteBuffer octets, int debut, CRC32 controle) {
+        controle.reset();
+        for (int i = 4; i < TAILLE_ENREGISTREMENT; i++) controle.update(octets.get(debut + i));
+        return octets.getInt(debut) == (int) controle.getValue();
+    }
+
+    /** Faux si l'événement ne peut pas s'appliquer à la partie. */
+    private static boolean appliquer(ByteBuffer octets, int debut, long sequence, byte type, long numero, Map<Long, PartieRelue> parties, Set<Long> ignorees) {
+        PartieRelue relue = parties.get(numero);
+        if (relue != null && sequence <= relue.derniereSequence) return true; // Déjà dans le point de reprise
+        if (type == DEBUT) {
+            int longueur = octets.getInt(debut + 28);
+            byte[] donnees = new byte[longueur];
+            for (int i = 0; i < longueur; i++) {
+                donnees[i] = octets.get(debut + TAILLE_ENREGISTREMENT * (1 + i / DONNEES_PAR_SUITE) + 4 + i % DONNEES_PAR_SUITE);
+            }
+            int longueurSalle = donnees.length == 0 ? 0 : donnees[0] & 0xFF;
+            if (1 + longueurSalle > donnees.length) throw new IllegalArgumentException("identifiant de salle tronqué");
+            BatailleNavaleGame partie = GameSnapshot.lire(ByteBuffer.wrap(donnees, 1 + longueurSalle, donnees.length - 1 - longueurSalle));
+            partie.setSilencieux(true);
+            parties.put(numero, new PartieRelue(new String(donnees, 1, longueurSalle, StandardCharsets.UTF_8), partie,
+                    octets.getInt(debut + 24), sequence));
+            return true;
+        }
+        if (relue == null || ignorees.contains(numero)) return true; // Terminée avant, ou commencée avant l'instantané relu
+        relue.derniereSequence = sequence;
+        BatailleNavaleGame partie = relue.partie;
+        int joueur = octets.get(debut + 21) & 0xFF;
+        int cible = octets.get(debut + 22) & 0xFF;
+        int valeur = octets.get(debut + 23) & 0xFF;
+        int ligne = octets.getShort(debut + 24);
+        int colonne = octets.getShort(debut + 26);
+        int extra = octets.getInt(debut + 28);
+        switch (type) {
+            case PLACEMENT:
+                return partie.getJoueurCourantIndex() == joueur
+                        && partie.placerNavireJoueurCourant(TYPES[valeur >>> 1], ligne, colonne, (valeur & 1) != 0);
+            case TIR: {
+                if (partie.getJoueurCourantIndex() != joueur) return false;
+                ShotOutcome issue = partie.tirerSurAdversaire(cible, ligne, colonne);
+                int coule = issue.getNavireCoule() == null ? 0 : issue.getNavireCoule().ordinal() + 1;
+                return issue.getResultat() == RESULTATS[valeur] && coule == extra;
+            }
+            case ELIMINATION:
+                return !partie.getJoueursActifsIndices().contains(joueur);
+            case TOUR_SUIVANT:
+                if (partie.getPhaseActuelle() == BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX) {
+                    partie.passerAuJoueurSuivantPourPlacement();
+                } else {
+                    partie.passerAuJoueurSuivantPourCombat();
+                }
+                return true;
+            case DECONNEXION:
+                partie.handlePlayerDisconnect(joueur);
+                return true;
+            case FIN:
+                parties.remove(numero);
+                return true;
+            case JETON:
+                if (joueur >= relue.jetons.length) return false;
+                relue.jetons[joueur] = octets.getLong(debut + 24);
+                return true;
+            default:
+                return false;
+        }
+    }
+}
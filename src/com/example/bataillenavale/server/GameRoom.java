@@ -0,0 +1,1045 @@
+package com.example.bataillenavale.server;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.example.bataillenavale.model.BatailleNavaleGame;
+import com.example.bataillenavale.model.GameConfig;
+import com.example.bataillenavale.model.GameSnapshot;
+import com.example.bataillenavale.model.PlayerBoard;
+import com.example.bataillenavale.model.Ship;
+import com.example.bataillenavale.model.ShotOutcome;
+
+import org.java_websocket.WebSocket;
+
+/**
+ * Une salle (table) de jeu indépendante : son propre lobby, son compte à rebours,
+ * ses joueurs, ses spectateurs et sa partie.
+ * La salle est un acteur : son état n'est lu et modifié que par sa RoomEventLoop.
+ * Les transports y déposent des commandes (executerPour, admettre) sans jamais attendre,
+ * il n'y a donc aucun verrou sur le chemin de jeu et les salles tournent en parallèle.
+ */
+class GameRoom {
+    static final int MIN_PLAYERS_TO_START_TIMER = 2;
+    static final int MAX_PLAYERS_ALLOWED = 7;
+    static final long LOBBY_COUNTDOWN_MS = 20000; // 20 secondes
+    // Délai après lequel un lobby sous MIN_PLAYERS_TO_START_TIMER est complété par des bots (0 = jamais)
+    static final long BOT_FILL_DELAY_MS = Long.getLong("bataillenavale.bots.delay.ms", 30000);
+    // Délai laissé aux joueurs d'une partie reprise au démarrage pour revenir ; ensuite leur siège est abandonné
+    static final long ATTENTE_REPRISE_MS = Long.getLong("bataillenavale.recovery.wait.s", 300) * 1000;
+    private static final SecureRandom JETONS = new SecureRandom(); // Jetons de reprise des sièges
+
+    private final String id;
+    private final RoomRegistry registry;
+    private final Timer lobbyCountdownTimer; // Partagé entre toutes les salles
+    private final RoomEventLoop boucle;
+    private final GameJournal journal; // Null si les parties ne sont pas journalisées
+
+    // Tous les participants de la salle (joueurs du lobby, joueurs en partie, spectateurs)
+    private final List<ClientConnection> participants = new ArrayList<>();
+    private final List<ClientConnection> playersInGame = new ArrayList<>();
+    private BatailleNavaleGame game;
+    private long numeroPartie = -1; // Numéro de la partie dans le journal
+    private int siegesBots; // Partie en cours : un bit par joueur tenu par un bot
+    private long[] jetons; // Partie en cours : jeton de reprise de chaque siège humain, 0 pour un bot
+    private GameConfig config = GameConfig.STANDARD; // Choisie par l'hôte (ADMIN_CONFIG), gardée d'une partie à l'autre
+
+    private boolean gameInProgressFlag = false;
+    private TimerTask currentLobbyCountdownTask;
+    private boolean lobbyCountdownActive = false;
+    private TimerTask tacheBots; // Complément du lobby par des bots, programmé tant qu'il manque des joueurs
+    private boolean fermee = false; // Vrai une fois la salle vide et retirée du registre
+    private boolean[] siegesLibres; // Partie reprise : sièges que leur joueur n'a pas encore repris (null sinon)
+    private TimerTask tacheAttenteReprise;
+
+    // Résumé pour LIST_ROOMS, publié par la boucle et lu par les threads des transports
+    private volatile String description;
+
+    GameRoom(String id, RoomRegistry registry, Timer lobbyCountdownTimer, Executor poolSalles) {
+        this.id = id;
+        this.registry = registry;
+        this.lobbyCountdownTimer = lobbyCountdownTimer;
+        this.boucle = new RoomEventLoop(id, poolSalles);
+        this.journal = registry.getJournal();
+        publierDescription();
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    private void publierDescription() {
+        String etat = siegesLibres != null ? "ATTENTE_JOUEURS" : gameInProgressFlag ? "EN_PARTIE" : (lobbyCountdownActive ? "COMPTE_A_REBOURS" : "LOBBY");
+        description = id + "/" + participants.size() + "/" + etat;
+    }
+
+    /**
+     * Dépose une action concernant un client dans la boîte aux lettres de la salle.
+     * Si le client a changé de salle entre le dépôt et l'exécution, l'action suit le client.
+     */
+    void executerPour(ClientConnection client, Consumer<GameRoom> action) {
+        boucle.execute(() -> {
+            if (participants.contains(client)) {
+                action.accept(this);
+                return;
+            }
+            GameRoom actuelle = client.getRoom();
+            if (actuelle != null && actuelle != this) {
+                actuelle.executerPour(client, action);
+            }
+        });
+    }
+
+    /** Comme executerPour, réservé aux clients ayant défini leur nom. */
+    void executerPourJoueurNomme(ClientConnection client, Consumer<GameRoom> action) {
+        executerPour(client, salle -> {
+            if (!client.isNameSet()) {
+                client.sendMessage("ERROR:Veuillez d'abord définir votre nom avec SET_NAME:votreNom.");
+                client.sendMessage("REQ_NAME");
+                return;
+            }
+            action.accept(salle);
+        });
+    }
+
+    static boolean exigerRole(ClientConnection client, BatailleNavaleServer.ClientHandler.ClientRole role) {
+        if (client.getRole() != role) {
+            client.sendMessage("ERROR:Action non autorisée pour votre rôle.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Admet un client dans la salle, depuis la boucle de la salle.
+     * Sans spectateur autorisé, une salle en partie refuse le client ; une salle fermée ou pleine
+     * le refuse toujours. Un client refusé est réorienté vers la salle ouverte du registre
+     * (après un message d'erreur s'il avait demandé cette salle explicitement).
+     * @param explicite vrai pour JOIN_ROOM : spectateurs autorisés et ROOM_JOINED envoyé.
+     */
+    void admettre(ClientConnection client, boolean explicite, boolean annoncer) {
+        boucle.execute(() -> {
+            if (!client.isActive()) return; // Déconnecté pendant qu'il changeait de salle
+            if (fermee) {
+                if (explicite) registry.rejoindreSalle(id, client); else registry.rejoindreSalleOuverte(client, annoncer);
+                return;
+            }
+            // Une partie reprise attend ses joueurs même terminée (bots abandonnés) : ils viennent en connaître l'issue
+            boolean partieEnCours = gameInProgressFlag && game != null
+                    && (siegesLibres != null || game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE);
+            if ((partieEnCours && !explicite) || (!partieEnCours && participants.size() >= MAX_PLAYERS_ALLOWED)) {
+                registry.salleIndisponible(this);
+                if (explicite) {
+                    client.sendMessage("ERROR:Salle pleine (max " + MAX_PLAYERS_ALLOWED + " participants).");
+                }
+                registry.rejoindreSalleOuverte(client, annoncer);
+                return;
+            }
+
+            participants.add(client);
+            client.setRoom(this);
+            if (partieEnCours) {
+                client.setRole(BatailleNavaleServer.ClientHandler.ClientRole.SPECTATOR);
+                System.out.println("Client " + client.getRemoteAddressString() + " est un spectateur potentiel de la salle " + id + " (jeu en cours).");
+            } else {
+                client.setRole(BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY);
+                if (participants.size() >= MAX_PLAYERS_ALLOWED) {
+                    registry.salleIndisponible(this);
+                }
+            }
+            publierDescription();
+            System.out.println("Participant " + client.getRemoteAddressString() + " a rejoint la salle " + id + ". Participants: " + participants.size());
+            if (annoncer) {
+                client.sendMessage("ROOM_JOINED:" + id);
+                client.sendMessage("REQ_NAME");
+            }
+        });
+    }
+
+    /**
+     * Vérifie l'unicité du nom dans la salle, l'applique puis fait entrer le client dans le lobby ou le chat.
+     * Le nom d'un joueur attendu par une partie reprise lui reste réservé.
+     */
+    void handleSetName(ClientConnection client, String nom) {
+        boolean pris = estNomAttendu(nom);
+        for (ClientConnection ch : participants) {
+            if (ch != client && ch.isNameSet() && ch.getNomJoueur().equalsIgnoreCase(nom)) pris = true;
+        }
+        if (pris) {
+            client.sendMessage("ERROR:Ce nom est déjà utilisé. Veuillez en choisir un autre.");
+            client.sendMessage("REQ_NAME");
+            return;
+        }
+        BatailleNavaleServer.definirNom(client, nom);
+        System.out.println("Client ("+client.getRemoteAddressString()+") s'appelle maintenant " + client.getNomJoueur());
+        playerHasSetName(client);
+    }
+
+    /**
+     * RECONNECT : le client présente le jeton de reprise reçu au GAME_START (SEAT_TOKEN). Il est conduit
+     * à la salle de la partie reprise qui attend ce jeton, où il retrouve son siège et son nom.
+     */
+    void handleReconnect(ClientConnection client, String salle, long jeton) {
+        GameRoom reprise = registry.salleAttendant(salle, jeton);
+        if (reprise == null || client instanceof BotConnection
+                || client.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_GAME) {
+            client.sendMessage("ERROR:Aucun siège à reprendre avec ce jeton.");
+            if (!client.isNameSet()) client.sendMessage("REQ_NAME");
+            return;
+        }
+        if (reprise != this) {
+            handleClientQuitte(client);
+            client.resetForNewLobby();
+            client.sendMessage("ROOM_JOINED:" + reprise.getId());
+            registry.rejoindreSalle(reprise.getId(), client, false);
+            reprise.executerPour(client, r -> r.handleReconnect(client, salle, jeton));
+            return;
+        }
+        if (!reprendreSiege(client, jeton)) { // Siège repris ou abandonné entre-temps
+            client.sendMessage("ERROR:Aucun siège à reprendre avec ce jeton.");
+            if (!client.isNameSet()) client.sendMessage("REQ_NAME");
+        }
+    }
+
+    /**
+     * Installe une partie reconstruite au démarrage (GameCheckpoint) : elle reste suspendue jusqu'à ce
+     * que chaque joueur encore en lice revienne avec son jeton (RECONNECT), ou que ATTENTE_REPRISE_MS soit écoulé.
+     * Les bots ne reviennent pas (leur numérotation repart de zéro) : leurs sièges sont aussitôt abandonnés,
+     * comme ceux sans jeton.
+     */
+    void reprendrePartie(long numero, BatailleNavaleGame partie, int siegesBots, long[] jetons) {
+        boucle.execute(() -> {
+            partie.setSilencieux(false);
+            game = partie;
+            numeroPartie = numero;
+            this.siegesBots = siegesBots;
+            this.jetons = jetons;
+            config = partie.getConfig();
+            gameInProgressFlag = true;
+            siegesLibres = new boolean[partie.getNombreJoueursInitial()];
+            boolean attendus = false;
+            for (int joueur : partie.getJoueursActifsIndices()) {
+                if (estSiegeBot(siegesBots, joueur) || jetons[joueur] == 0) {
+                    abandonnerSiege(joueur);
+                } else {
+                    siegesLibres[joueur] = true;
+                    attendus = true;
+                }
+            }
+            if (!attendus) { // Plus aucun humain en lice
+                relancerPartieReprise();
+                return;
+            }
+            if (ATTENTE_REPRISE_MS > 0) {
+                tacheAttenteReprise = new TimerTask() {
+                    @Override
+                    public void run() {
+                        TimerTask tache = this;
+                        boucle.execute(() -> finDeLAttenteReprise(tache));
+                    }
+                };
+                lobbyCountdownTimer.schedule(tacheAttenteReprise, ATTENTE_REPRISE_MS);
+            }
+            publierDescription();
+        });
+    }
+
+    /** Jeton de reprise tel qu'échangé avec les clients (SEAT_TOKEN, RECONNECT) : 16 chiffres hexadécimaux. */
+    static String texteJeton(long jeton) {
+        return String.format("%016x", jeton);
+    }
+
+    static boolean estSiegeBot(int siegesBots, int joueur) {
+        return joueur < Integer.SIZE && (siegesBots >>> joueur & 1) != 0;
+    }
+
+    /** Nom d'un joueur que la partie reprise attend encore. */
+    private boolean estNomAttendu(String nom) {
+        if (siegesLibres == null) return false;
+        for (int joueur = 0; joueur < siegesLibres.length; joueur++) {
+            if (siegesLibres[joueur] && game.getPlayerBoard(joueur).getNomJoueur().equalsIgnoreCase(nom)) return true;
+        }
+        return false;
+    }
+
+    /** Rend au client le siège attendu qui porte ce jeton, avec le nom du joueur qui l'occupait. */
+    private boolean reprendreSiege(ClientConnection client, long jeton) {
+        if (siegesLibres == null || client.getRole() != BatailleNavaleServer.ClientHandler.ClientRole.SPECTATOR) return false;
+        for (int joueur = 0; joueur < siegesLibres.length; joueur++) {
+            if (!siegesLibres[joueur] || jetons[joueur] != jeton) continue;
+            String nom = game.getPlayerBoard(joueur).getNomJoueur();
+            siegesLibres[joueur] = false;
+            registry.siegeLibere(id, jeton, this);
+            BatailleNavaleServer.definirNom(client, nom);
+            client.setPlayerIndex(joueur);
+            client.setRole(BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_GAME);
+            playersInGame.add(client);
+            envoyerEtatRepris(client);
+            int attendus = 0;
+            for (boolean libre : siegesLibres) if (libre) attendus++;
+            System.out.println(nom + " a repris son siège (" + joueur + ") dans la salle " + id + ". Joueurs encore attendus: " + attendus);
+            if (attendus == 0) {
+                reprendreLeJeu();
+            } else {
+                broadcastToPlayersInGame("NEW_CHAT_MSG:Serveur:Partie reprise, en attente de " + attendus + " joueur(s).");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * GAME_START, navires déjà placés puis un BOARD_STATE par plateau, comme si le joueur ne les avait pas quittés.
+     * BOARD_STATE:cible:manques:touches:coules ; cases en index ligne * taille + colonne séparés par des virgules,
+     * navires coulés en nom/case.case... séparés par des virgules. Le message suit les tirs joués, pas la surface.
+     */
+    private void envoyerEtatRepris(ClientConnection client) {
+        int nombreJoueurs = game.getNombreJoueursInitial();
+        String noms = IntStream.range(0, nombreJoueurs).mapToObj(i -> game.getPlayerBoard(i).getNomJoueur()).collect(Collectors.joining(","));
+        int taille = config.getTailleGrille();
+        client.sendMessage("GAME_START:" + taille + ":" + client.getPlayerIndex() + ":" + nombreJoueurs + ":" + config.getFlotteTexte() + ":" + noms);
+        for (Ship navire : game.getPlayerBoard(client.getPlayerIndex()).getNavires()) {
+            if (navire.estPlace()) {
+                client.sendMessage("PLACEMENT_ACCEPTED:" + navire.getType().name() + ":" + navire.getLigneSegment(0) + ":" + navire.getColonneSegment(0) + ":" + navire.isEstHorizontal());
+            }
+        }
+        if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX) return;
+        client.sendMessage("ALL_SHIPS_PLACED");
+        for (int cible = 0; cible < nombreJoueurs; cible++) {
+            PlayerBoard plateau = game.getPlayerBoard(cible);
+            StringBuilder manques = new StringBuilder();
+            for (int index = plateau.manqueSuivant(0); index >= 0; index = plateau.manqueSuivant(index + 1)) {
+                if (manques.length() > 0) manques.append(',');
+                manques.append(index);
+            }
+            StringBuilder touches = new StringBuilder();
+            StringBuilder coules = new StringBuilder();
+            for (Ship navire : plateau.getNavires()) {
+                if (!navire.estPlace()) continue;
+                StringBuilder liste = navire.estCoule() ? coules : touches;
+                boolean premier = true;
+                for (int segment = 0; segment < navire.getTaille(); segment++) {
+                    if (!navire.estSegmentTouche(segment)) continue; // Coulé par abandon : seules les cases touchées sont connues
+                    if (premier) {
+                        if (liste.length() > 0) liste.append(',');
+                        if (liste == coules) liste.append(navire.getType().getNom()).append('/');
+                    } else {
+                        liste.append(liste == coules ? '.' : ',');
+                    }
+                    premier = false;
+                    liste.append(navire.getLigneSegment(segment) * taille + navire.getColonneSegment(segment));
+                }
+            }
+            if (manques.length() == 0 && touches.length() == 0 && coules.length() == 0) continue;
+            client.sendMessage("BOARD_STATE:" + cible + ":" + manques + ":" + touches + ":" + coules);
+        }
+    }
+
+    /** Délai de reprise écoulé : les sièges non repris sont abandonnés, la partie continue sans eux. */
+    private void finDeLAttenteReprise(TimerTask tache) {
+        if (tacheAttenteReprise != tache || siegesLibres == null) return;
+        tacheAttenteReprise = null;
+        for (int joueur = 0; joueur < siegesLibres.length; joueur++) {
+            if (!siegesLibres[joueur]) continue;
+            siegesLibres[joueur] = false;
+            abandonnerSiege(joueur);
+        }
+        System.out.println("Fin de l'attente des joueurs de la partie reprise dans la salle " + id + ".");
+        relancerPartieReprise();
+    }
+
+    /** Siège d'une partie reprise que personne ne reprendra : le joueur quitte la partie. */
+    private void abandonnerSiege(int joueur) {
+        registry.siegeLibere(id, jetons[joueur], this);
+        if (game.getJoueursActifsIndices().contains(joueur)) {
+            game.handlePlayerDisconnect(joueur);
+            if (journal != null) journal.deconnexion(numeroPartie, joueur);
+            broadcastToAllParticipants("PLAYER_LEFT:" + game.getPlayerBoard(joueur).getNomJoueur() + ":" + joueur);
+        }
+    }
+
+    /** Plus aucun siège attendu : la partie repart avec les joueurs revenus, ou la salle se ferme. */
+    private void relancerPartieReprise() {
+        if (playersInGame.isEmpty()) {
+            resetRoomForNewLobby(); // Personne n'est revenu
+            if (participants.isEmpty() && !fermee) {
+                fermee = true;
+                registry.supprimerSalle(this);
+                System.out.println("Salle " + id + " vide, fermée.");
+            }
+            return;
+        }
+        reprendreLeJeu();
+    }
+
+    /** Tous les sièges de la partie reprise sont occupés (ou abandonnés) : la partie repart. */
+    private void reprendreLeJeu() {
+        siegesLibres = null;
+        if (tacheAttenteReprise != null) {
+            tacheAttenteReprise.cancel();
+            tacheAttenteReprise = null;
+        }
+        publierDescription();
+        if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE) {
+            broadcastToAllParticipants(game.getGagnantIndex() != -1
+                    ? "GAME_OVER:" + game.getPlayerBoard(game.getGagnantIndex()).getNomJoueur() + ":" + game.getGagnantIndex()
+                    : "GAME_OVER_DRAW");
+            resetRoomForNewLobby();
+        } else if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX) {
+            passerAuPlacementSuivant();
+        } else {
+            informerTourCombat();
+        }
+    }
+
+    /** Instantané de la partie en cours pour un point de reprise, null s'il n'y en a pas (depuis la boucle de la salle). */
+    void instantanePourReprise(Consumer<GameCheckpoint.Entree> reponse) {
+        boucle.execute(() -> {
+            if (journal == null || game == null || numeroPartie < 0 || game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE) {
+                reponse.accept(null);
+                return;
+            }
+            // Tous les événements de cette partie sont journalisés par cette boucle : la séquence courante les couvre
+            reponse.accept(new GameCheckpoint.Entree(numeroPartie, journal.derniereSequence(), siegesBots, jetons, id, GameSnapshot.versOctets(game)));
+        });
+    }
+
+    private void playerHasSetName(ClientConnection client) {
+        if (client.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.SPECTATOR) {
+            System.out.println("Spectateur " + client.getNomJoueur() + " a défini son nom.");
+            if (gameInProgressFlag && game != null && game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) {
+                client.sendMessage("SPECTATE_MODE");
+                String allPlayerNamesStr = playersInGame.stream()
+                                                      .map(ClientConnection::getNomJoueur)
+                                                      .collect(Collectors.joining(","));
+                client.sendMessage("SPECTATE_INFO:" + game.getConfig().getTailleGrille() + ":" + playersInGame.size() + ":" + game.getConfig().getFlotteTexte() + ":" + allPlayerNamesStr);
+                handleChatMessage(client, "[A rejoint le chat en tant que spectateur]");
+                System.out.println(client.getNomJoueur() + " a reçu les infos pour spectateur.");
+            } else {
+                System.out.println("Jeu non en cours ou terminé. " + client.getNomJoueur() + " devient joueur dans le lobby.");
+                client.setRole(BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY);
+                broadcastLobbyState();
+                handleChatMessage(client, "[A rejoint le chat du lobby]");
+            }
+            if (client.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.SPECTATOR && gameInProgressFlag) {
+                return;
+            }
+        }
+
+        if (client.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY) {
+            broadcastLobbyState();
+            client.sendMessage(messageConfig());
+            int namedPlayerCount = compterJoueursNommesDansLobby();
+            System.out.println("Joueurs avec nom dans le lobby de la salle " + id + ": " + namedPlayerCount);
+
+            programmerBots();
+            if (!gameInProgressFlag && !lobbyCountdownActive && namedPlayerCount >= MIN_PLAYERS_TO_START_TIMER) {
+                System.out.println(namedPlayerCount + " joueurs ont défini leur nom. Démarrage du compte à rebours du lobby.");
+                startLobbyCountdown();
+            } else if (!gameInProgressFlag && namedPlayerCount >= MAX_PLAYERS_ALLOWED) {
+                 System.out.println("Nombre maximum de joueurs (" + namedPlayerCount + ") atteint et noms définis. Démarrage anticipé.");
+                 if (lobbyCountdownActive) cancelLobbyCountdown();
+                 prepareAndStartGameWithReadyPlayers();
+            }
+        }
+    }
+
+    /** Programme l'arrivée de bots si le lobby a un joueur nommé mais pas assez pour lancer le compte à rebours. */
+    private void programmerBots() {
+        if (BOT_FILL_DELAY_MS <= 0 || tacheBots != null || gameInProgressFlag) return;
+        int nommes = compterJoueursNommesDansLobby();
+        if (nommes == 0 || nommes >= MIN_PLAYERS_TO_START_TIMER) return;
+        tacheBots = new TimerTask() {
+            @Override
+            public void run() {
+                TimerTask tache = this;
+                boucle.execute(() -> ajouterBots(tache));
+            }
+        };
+        lobbyCountdownTimer.schedule(tacheBots, BOT_FILL_DELAY_MS);
+    }
+
+    private void ajouterBots(TimerTask tache) {
+        if (tacheBots != tache) return;
+        tacheBots = null;
+        if (fermee || gameInProgressFlag) return;
+        int nommes = compterJoueursNommesDansLobby();
+        if (nommes == 0) return;
+        for (int i = nommes; i < MIN_PLAYERS_TO_START_TIMER; i++) {
+            BotConnection bot = new BotConnection(System.nanoTime());
+            System.out.println("Lobby de la salle " + id + " incomplet après " + (BOT_FILL_DELAY_MS / 1000) + "s : ajout de " + bot.getRemoteAddressString());
+            bot.setRoom(this);
+            admettre(bot, true, true);
+        }
+    }
+
+    private int compterJoueursNommesDansLobby() {
+        int namedPlayerCount = 0;
+        for (ClientConnection ch : participants) {
+            if (ch.isNameSet() && ch.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY) {
+                namedPlayerCount++;
+            }
+        }
+        return namedPlayerCount;
+    }
+
+    private void startLobbyCountdown() {
+        if (lobbyCountdownActive || gameInProgressFlag) {
+            return;
+        }
+        lobbyCountdownActive = true;
+        currentLobbyCountdownTask = new TimerTask() {
+            @Override
+            public void run() {
+                TimerTask tache = this;
+                boucle.execute(() -> finDuCompteARebours(tache));
+            }
+        };
+        lobbyCountdownTimer.schedule(currentLobbyCountdownTask, LOBBY_COUNTDOWN_MS);
+        publierDescription();
+        broadcast("LOBBY_COUNTDOWN_STARTED:" + (LOBBY_COUNTDOWN_MS / 1000));
+        System.out.println("Compte à rebours du lobby de " + (LOBBY_COUNTDOWN_MS / 1000) + "s démarré (salle " + id + ").");
+    }
+
+    private void finDuCompteARebours(TimerTask tache) {
+        if (currentLobbyCountdownTask != tache) return; // Tâche annulée entre-temps
+        lobbyCountdownActive = false;
+        currentLobbyCountdownTask = null;
+        if (gameInProgressFlag) return;
+
+        int namedPlayerCount = compterJoueursNommesDansLobby();
+        if (namedPlayerCount >= MIN_PLAYERS_TO_START_TIMER) {
+            System.out.println("Compte à rebours du lobby terminé (salle " + id + "). Démarrage du jeu avec " + namedPlayerCount + " joueurs.");
+            prepareAndStartGameWithReadyPlayers();
+        } else {
+            System.out.println("Compte à rebours du lobby terminé (salle " + id + "), mais pas assez de joueurs ayant défini un nom. En attente...");
+            broadcast("LOBBY_TIMER_ENDED_NO_GAME:Pas assez de joueurs prêts.");
+        }
+        publierDescription();
+    }
+
+    private void cancelLobbyCountdown() {
+        if (currentLobbyCountdownTask != null) {
+            currentLobbyCountdownTask.cancel();
+            currentLobbyCountdownTask = null;
+        }
+        if (lobbyCountdownActive) {
+            lobbyCountdownActive = false;
+            broadcast("LOBBY_COUNTDOWN_CANCELLED");
+            System.out.println("Compte à rebours du lobby annulé (salle " + id + ").");
+        }
+        publierDescription();
+    }
+
+    private void prepareAndStartGameWithReadyPlayers() {
+        if (gameInProgressFlag) {
+            System.out.println("prepareAndStartGameWithReadyPlayers appelée alors que gameInProgressFlag est true.");
+            return;
+        }
+
+        List<ClientConnection> joueursPretsPourPartie = new ArrayList<>();
+        for (ClientConnection ch : participants) {
+            if (ch.isNameSet() && ch.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY && ch.isActive()) {
+                joueursPretsPourPartie.add(ch);
+            }
+        }
+
+        if (joueursPretsPourPartie.size() < MIN_PLAYERS_TO_START_TIMER) {
+            System.out.println("Tentative de démarrage, mais pas assez de joueurs prêts (" + joueursPretsPourPartie.size() + ").");
+            broadcast("ERROR:Pas assez de joueurs prêts pour démarrer.");
+            return;
+        }
+
+        gameInProgressFlag = true;
+        cancelLobbyCountdown();
+
+        playersInGame.clear();
+        playersInGame.addAll(joueursPretsPourPartie);
+        for (int i = 0; i < playersInGame.size(); i++) {
+            ClientConnection player = playersInGame.get(i);
+            player.setPlayerIndex(i);
+            player.setRole(BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_GAME);
+        }
+
+        String[] nomsJoueursEnPartie = new String[playersInGame.size()];
+        for (int i = 0; i < playersInGame.size(); i++) {
+            nomsJoueursEnPartie[i] = playersInGame.get(i).getNomJoueur();
+        }
+
+        game = new BatailleNavaleGame(nomsJoueursEnPartie, config);
+        siegesBots = 0;
+        jetons = new long[playersInGame.size()];
+        for (int i = 0; i < playersInGame.size(); i++) {
+            if (playersInGame.get(i) instanceof BotConnection) {
+                siegesBots |= 1 << i;
+            } else {
+                do jetons[i] = JETONS.nextLong(); while (jetons[i] == 0); // 0 : pas de jeton
+            }
+        }
+        if (journal != null) numeroPartie = journal.debuterPartie(id, game, siegesBots, jetons);
+        System.out.println("Partie de Bataille Navale démarrée dans la salle " + id + " (" + config + ") avec : " + Arrays.toString(nomsJoueursEnPartie));
+        registry.salleIndisponible(this);
+        publierDescription();
+
+        String allPlayerNamesStr = Arrays.stream(nomsJoueursEnPartie).collect(Collectors.joining(","));
+        String flotte = config.getFlotteTexte();
+
+        // GAME_START:taille:index:nombreJoueurs:flotte:noms, la flotte avant les noms (qui peuvent contenir ':')
+        for (ClientConnection client : playersInGame) {
+            client.sendMessage("GAME_START:" + config.getTailleGrille() + ":" + client.getPlayerIndex() + ":" + playersInGame.size() + ":" + flotte + ":" + allPlayerNamesStr);
+            // Présenté avec RECONNECT pour retrouver son siège si le serveur redémarre pendant la partie
+            if (jetons[client.getPlayerIndex()] != 0) client.sendMessage("SEAT_TOKEN:" + id + ":" + texteJeton(jetons[client.getPlayerIndex()]));
+        }
+
+        for (ClientConnection ch : participants) {
+            if (!playersInGame.contains(ch)) {
+                ch.setRole(BatailleNavaleServer.ClientHandler.ClientRole.SPECTATOR);
+                if (ch.isNameSet()) {
+                    ch.sendMessage("SPECTATE_MODE");
+                    ch.sendMessage("SPECTATE_INFO:" + config.getTailleGrille() + ":" + playersInGame.size() + ":" + flotte + ":" + allPlayerNamesStr);
+                    System.out.println(ch.getNomJoueur() + " est maintenant spectateur de la nouvelle partie.");
+                } else {
+                    if (ch.getUnderlyingHandle() instanceof WebSocket) {
+                        ch.sendMessage("REQ_NAME");
+                    }
+                }
+            }
+        }
+        passerAuPlacementSuivant();
+    }
+
+    /** L'hôte : premier joueur du lobby ayant défini son nom, null s'il n'y en a aucun. */
+    private ClientConnection hoteDuLobby() {
+        for (ClientConnection ch_loop : participants) {
+            if (ch_loop.isNameSet() && ch_loop.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY) {
+                return ch_loop;
+            }
+        }
+        return null;
+    }
+
+    void handleAdminStartGame(ClientConnection adminClient) {
+        if (hoteDuLobby() != adminClient) {
+            adminClient.sendMessage("ERROR:Seul l'hôte (premier joueur connecté ayant un nom dans le lobby) peut démarrer la partie.");
+            return;
+        }
+         if (gameInProgressFlag) {
+            adminClient.sendMessage("ERROR:La partie est déjà en cours ou en démarrage.");
+            return;
+        }
+
+        if (compterJoueursNommesDansLobby() < MIN_PLAYERS_TO_START_TIMER) {
+            adminClient.sendMessage("ERROR:Pas assez de joueurs prêts (min " + MIN_PLAYERS_TO_START_TIMER + " avec nom défini).");
+            return;
+        }
+
+        System.out.println("Démarrage de la partie par l'administrateur/hôte: " + adminClient.getNomJoueur() + " (salle " + id + ")");
+        cancelLobbyCountdown();
+        prepareAndStartGameWithReadyPlayers();
+    }
+
+
+    /** Change la taille de grille et la flotte des prochaines parties de la salle (hôte seulement, hors partie). */
+    void handleAdminConfig(ClientConnection adminClient, int tailleGrille, String flotte) {
+        if (hoteDuLobby() != adminClient) {
+            adminClient.sendMessage("ERROR:Seul l'hôte (premier joueur connecté ayant un nom dans le lobby) peut configurer la partie.");
+            return;
+        }
+        if (gameInProgressFlag) {
+            adminClient.sendMessage("ERROR:La partie est déjà en cours ou en démarrage.");
+            return;
+        }
+        try {
+            config = new GameConfig(tailleGrille, GameConfig.lireFlotte(flotte));
+        } catch (IllegalArgumentException e) {
+            adminClient.sendMessage("ERROR:Configuration refusée : " + e.getMessage());
+            return;
+        }
+        System.out.println("Configuration de la salle " + id + " : " + config + " (par " + adminClient.getNomJoueur() + ")");
+        broadcast(messageConfig());
+    }
+
+    private String messageConfig() {
+        return "ROOM_CONFIG:" + config.getTailleGrille() + ":" + config.getFlotteTexte();
+    }
+
+    private void passerAuPlacementSuivant() {
+        if (siegesLibres != null) return; // Partie reprise : on attend le retour des joueurs
+        if (game == null) {
+             System.err.println("passerAuPlacementSuivant appelé alors que game est null.");
+            if (gameInProgressFlag) {
+                 broadcastToAllParticipants("ERROR:Erreur critique du jeu, retour au lobby.");
+                 resetRoomForNewLobby();
+            }
+            return;
+        }
+        if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.COMBAT) {
+            System.out.println("Tous les navires placés. Début de la phase de combat.");
+            broadcastToPlayersInGame("ALL_SHIPS_PLACED");
+            informerTourCombat();
+            return;
+        }
+
+        if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX) {
+            int gameCurrentPlayerGlobalIndex = game.getJoueurCourantIndex();
+             if (gameCurrentPlayerGlobalIndex == -1) {
+                System.err.println("Erreur: Aucun joueur actif pour la phase de placement.");
+                if (game.getNombreJoueursActifs() == 0 && !playersInGame.isEmpty()) {
+                    broadcastToAllParticipants("GAME_OVER_DISCONNECT:Tous les joueurs ont quitté pendant le placement.");
+                } else {
+                     broadcastToAllParticipants("ERROR:Problème de joueur pour le placement.");
+                }
+                resetRoomForNewLobby();
+                return;
+            }
+
+            ClientConnection clientActif = getClientConnectionByGlobalIndexInGame(gameCurrentPlayerGlobalIndex);
+            if (clientActif == null) {
+                System.err.println("Erreur: Joueur courant (" + gameCurrentPlayerGlobalIndex + ") pour placement non trouvé ou inactif côté serveur.");
+                game.passerAuJoueurSuivantPourPlacement();
+                if (journal != null) journal.tourSuivant(numeroPartie);
+                passerAuPlacementSuivant();
+                return;
+            }
+            List<Ship.ShipType> naviresAPlacer = game.getNaviresAPlacerPourJoueurCourant();
+            if (!naviresAPlacer.isEmpty()) {
+                Ship.ShipType prochainNavire = naviresAPlacer.get(0);
+                clientActif.sendMessage("YOUR_TURN_PLACE_SHIP:" + prochainNavire.name() + ":" + prochainNavire.getTaille() + ":" + prochainNavire.getNom());
+                broadcastSaufAUnJoueurEnPartie(clientActif,"WAIT_PLACEMENT:" + clientActif.getNomJoueur() + ":" + prochainNavire.getNom());
+            } else {
+                System.out.println("Joueur " + clientActif.getNomJoueur() + " a fini ses placements. Demande de passage au suivant.");
+                game.passerAuJoueurSuivantPourPlacement();
+                if (journal != null) journal.tourSuivant(numeroPartie);
+                passerAuPlacementSuivant();
+            }
+        } else if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE) {
+             System.out.println("Jeu terminé, pas de placement suivant.");
+             if (gameInProgressFlag) {
+                 resetRoomForNewLobby();
+             }
+        } else {
+            System.err.println("Phase de jeu inattendue dans passerAuPlacementSuivant: " + game.getPhaseActuelle());
+        }
+    }
+
+    void handlePlacementNavire(ClientConnection client, Ship.ShipType type, int ligne, int col, boolean horizontal) {
+        if (client.getRole() != BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_GAME) {
+             client.sendMessage("ERROR:Les spectateurs ne peuvent pas placer de navires."); return;
+        }
+        if (game == null || game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX) {
+            client.sendMessage("ERROR:Pas en phase de placement.");
+            return;
+        }
+        if (siegesLibres != null) {
+            client.sendMessage("ERROR:Partie reprise, en attente du retour des autres joueurs.");
+            return;
+        }
+        if (client.getPlayerIndex() != game.getJoueurCourantIndex()) {
+            client.sendMessage("ERROR:Pas votre tour de placer.");
+            return;
+        }
+
+        List<Ship.ShipType> naviresAPlacer = game.getNaviresAPlacerPourJoueurCourant();
+        if (naviresAPlacer.isEmpty() || naviresAPlacer.get(0) != type) {
+            client.sendMessage("ERROR:Ce n'est pas le navire attendu (" + (naviresAPlacer.isEmpty() ? "aucun" : naviresAPlacer.get(0).getNom()) + ")");
+            return;
+        }
+        if (game.placerNavireJoueurCourant(type, ligne, col, horizontal)) {
+            if (journal != null) journal.placement(numeroPartie, client.getPlayerIndex(), type, ligne, col, horizontal);
+            client.sendMessage("PLACEMENT_ACCEPTED:" + type.name() + ":" + ligne + ":" + col + ":" + horizontal);
+            broadcastSaufAUnJoueurEnPartie(client, "PLAYER_PLACED_SHIP:" + client.getNomJoueur() + ":" + type.getNom());
+            passerAuPlacementSuivant();
+        } else {
+            client.sendMessage("PLACEMENT_REJECTED:" + type.name());
+            List<Ship.ShipType> currentNaviresAPlacer = game.getNaviresAPlacerPourJoueurCourant();
+            if (!currentNaviresAPlacer.isEmpty() && currentNaviresAPlacer.get(0) == type) {
+                 Ship.ShipType prochainNavire = currentNaviresAPlacer.get(0);
+                 client.sendMessage("YOUR_TURN_PLACE_SHIP:" + prochainNavire.name() + ":" + prochainNavire.getTaille() + ":" + prochainNavire.getNom());
+            } else if (!currentNaviresAPlacer.isEmpty()) {
+                 Ship.ShipType prochainNavire = currentNaviresAPlacer.get(0);
+                 client.sendMessage("YOUR_TURN_PLACE_SHIP:" + prochainNavire.name() + ":" + prochainNavire.getTaille() + ":" + prochainNavire.getNom());
+                 System.out.println("Placement rejeté, mais le navire attendu a changé pour " + client.getNomJoueur());
+            } else {
+                 System.err.println("Erreur critique: Rejet de placement mais plus de navires à placer pour " + client.getNomJoueur() + " ou liste vide.");
+                 passerAuPlacementSuivant();
+            }
+        }
+    }
+
+    private void informerTourCombat() {
+        if (siegesLibres != null) return; // Partie reprise : on attend le retour des joueurs
+        if (game == null || game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.COMBAT) {
+            if (game != null && game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE && gameInProgressFlag) {
+                 System.out.println("informerTourCombat appelé alors que le jeu est terminé.");
+            }
+            return;
+        }
+
+        int joueurCourantGlobalIndex = game.getJoueurCourantIndex();
+        if (joueurCourantGlobalIndex == -1) {
+             System.err.println("Erreur dans informerTourCombat: Aucun joueur courant actif.");
+             if (game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) {
+                broadcastToAllParticipants("GAME_OVER_DRAW: Aucun joueur actif restant en combat.");
+                resetRoomForNewLobby();
+             }
+             return;
+        }
+
+        ClientConnection clientActif = getClientConnectionByGlobalIndexInGame(joueurCourantGlobalIndex);
+        if (clientActif == null) {
+            System.err.println("Erreur dans informerTourCombat: ClientConnection non trouvé pour l'index global " + joueurCourantGlobalIndex + ".");
+            game.passerAuJoueurSuivantPourCombat();
+            if (journal != null) journal.tourSuivant(numeroPartie);
+            informerTourCombat();
+            return;
+        }
+        clientActif.sendMessage("YOUR_TURN_FIRE");
+        broadcastSaufAUnJoueurEnPartie(clientActif, "OPPONENT_TURN_FIRE:" + clientActif.getNomJoueur());
+        System.out.println("Phase de combat: Au tour de " + clientActif.getNomJoueur());
+    }
+
+    void handleTir(ClientConnection clientTireur, int targetPlayerGlobalIndex, int ligne, int col) {
+         if (clientTireur.getRole() != BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_GAME) {
+             clientTireur.sendMessage("ERROR:Les spectateurs ne peuvent pas tirer."); return;
+        }
+        if (game == null || game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.COMBAT) {
+            clientTireur.sendMessage("ERROR:Pas en phase de combat.");
+            return;
+        }
+        if (siegesLibres != null) {
+            clientTireur.sendMessage("ERROR:Partie reprise, en attente du retour des autres joueurs.");
+            return;
+        }
+        if (clientTireur.getPlayerIndex() != game.getJoueurCourantIndex()) {
+            clientTireur.sendMessage("ERROR:Pas votre tour de tirer.");
+            return;
+        }
+        PlayerBoard targetBoard = game.getPlayerBoard(targetPlayerGlobalIndex);
+        if (targetBoard == null || targetPlayerGlobalIndex == clientTireur.getPlayerIndex() ||
+            (game.getJoueursActifsIndices() != null && !game.getJoueursActifsIndices().contains(targetPlayerGlobalIndex))) {
+            clientTireur.sendMessage("ERROR:Cible de tir invalide ou joueur inactif.");
+            clientTireur.sendMessage("YOUR_TURN_FIRE");
+            return;
+        }
+
+        ShotOutcome issue = game.tirerSurAdversaire(targetPlayerGlobalIndex, ligne, col);
+        if (journal != null && issue.estJoue()) {
+            journal.tir(numeroPartie, clientTireur.getPlayerIndex(), targetPlayerGlobalIndex, ligne, col, issue);
+            if (issue.isCibleEliminee()) journal.elimination(numeroPartie, targetPlayerGlobalIndex);
+        }
+        PlayerBoard.ShotResult resultat = issue.getResultat();
+        String nomJoueurCible = game.getPlayerBoard(targetPlayerGlobalIndex).getNomJoueur();
+        int joueurTireurIndex = clientTireur.getPlayerIndex();
+        String messageBase = "SHOT_RESULT:" + joueurTireurIndex + ":" + targetPlayerGlobalIndex + ":" + ligne + ":" + col + ":" + resultat.name();
+        if (issue.getNavireCoule() != null) {
+            messageBase += ":" + issue.getNavireCoule().getNom();
+        }
+        broadcastToAllParticipants(messageBase);
+        System.out.println("Tir de " + clientTireur.getNomJoueur() + " sur " + nomJoueurCible + " en " + ligne + "," + col + " -> " + resultat);
+
+        if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE) {
+            if (game.getGagnantIndex() != -1) {
+                String nomGagnant = game.getPlayerBoard(game.getGagnantIndex()).getNomJoueur();
+                broadcastToAllParticipants("GAME_OVER:" + nomGagnant + ":" + game.getGagnantIndex());
+                System.out.println("Partie terminée. Gagnant: " + nomGagnant);
+            } else {
+                broadcastToAllParticipants("GAME_OVER_DRAW");
+                System.out.println("Partie terminée. Aucun survivant ou match nul.");
+            }
+            resetRoomForNewLobby();
+        } else if (issue.estJoue()) {
+            informerTourCombat();
+        } else {
+            clientTireur.sendMessage("YOUR_TURN_FIRE");
+        }
+    }
+
+    /**
+     * Retire un participant de la salle (déconnexion ou changement de salle).
+     * Si la salle devient vide, elle est fermée et retirée du registre.
+     */
+    void handleClientQuitte(ClientConnection client) {
+        boolean clientWasInRoom = participants.remove(client);
+        boolean clientWasInPlayersInGame = playersInGame.remove(client);
+
+        if (gameInProgressFlag && clientWasInPlayersInGame && game != null) {
+            System.out.println("Joueur " + client.getNomJoueur() + " a quitté une partie en cours (salle " + id + ").");
+            boolean gamePeutContinuer = game.handlePlayerDisconnect(client.getPlayerIndex());
+            if (journal != null) journal.deconnexion(numeroPartie, client.getPlayerIndex());
+
+            if (gamePeutContinuer && game.getPhaseActuelle() != BatailleNavaleGame.GamePhase.TERMINE) {
+                broadcastToAllParticipants("PLAYER_LEFT:" + client.getNomJoueur() + ":" + client.getPlayerIndex());
+                System.out.println("La partie continue sans " + client.getNomJoueur() + ".");
+                ClientConnection joueurCourant = getClientConnectionByGlobalIndexInGame(game.getJoueurCourantIndex());
+                if (game.getJoueurCourantIndex() == client.getPlayerIndex() ||
+                    (joueurCourant != null && !joueurCourant.isActive())) {
+
+                    if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.PLACEMENT_BATEAUX) {
+                        passerAuPlacementSuivant();
+                    } else if (game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.COMBAT) {
+                        informerTourCombat();
+                    }
+                }
+            } else {
+                 String raisonFin = game.getGagnantIndex() != -1 && game.getPlayerBoard(game.getGagnantIndex()) != null ?
+                                   game.getPlayerBoard(game.getGagnantIndex()).getNomJoueur() :
+                                   (client.getNomJoueur() + " (déconnexion)");
+
+                String messageFin = game.getPhaseActuelle() == BatailleNavaleGame.GamePhase.TERMINE && game.getGagnantIndex() != -1 && game.getPlayerBoard(game.getGagnantIndex()) != null ?
+                                   "GAME_OVER:" + game.getPlayerBoard(game.getGagnantIndex()).getNomJoueur() + ":" + game.getGagnantIndex():
+                                   "GAME_OVER_DISCONNECT:" + client.getNomJoueur();
+                broadcastToAllParticipants(messageFin);
+                System.out.println("Partie terminée suite à déconnexion. Raison approx: " + raisonFin);
+                resetRoomForNewLobby();
+            }
+        } else if (clientWasInRoom) {
+            System.out.println("Participant " + client.getNomJoueur() + " a quitté la salle " + id + " (hors partie active).");
+            if (client.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY && lobbyCountdownActive) {
+                if (compterJoueursNommesDansLobby() < MIN_PLAYERS_TO_START_TIMER) {
+                    System.out.println("Moins de " + MIN_PLAYERS_TO_START_TIMER + " joueurs prêts restants dans le lobby, annulation du compte à rebours.");
+                    cancelLobbyCountdown();
+                }
+            }
+            broadcastLobbyState();
+            if(client.isNameSet()) {
+                handleChatMessage(client, "[A quitté le chat]");
+            }
+        } else {
+             System.out.println("Client " + client.getNomJoueur() + " non trouvé dans la salle " + id + " lors de la déconnexion (peut-être déjà retiré).");
+        }
+
+        if (!participants.isEmpty() && participants.stream().allMatch(BotConnection.class::isInstance)) {
+            for (ClientConnection bot : new ArrayList<>(participants)) {
+                bot.closeConnection(true); // Plus aucun humain : les bots partent, la salle se fermera
+            }
+        }
+        if (participants.isEmpty() && !fermee && siegesLibres == null) { // Une partie reprise attend ses joueurs
+            fermee = true;
+            cancelLobbyCountdown();
+            registry.supprimerSalle(this);
+            System.out.println("Salle " + id + " vide, fermée.");
+        } else if (!gameInProgressFlag && participants.size() < MAX_PLAYERS_ALLOWED) {
+            registry.salleDisponible(this);
+        }
+        publierDescription();
+    }
+
+    void handleChatMessage(ClientConnection sender, String message) {
+        if (sender.isNameSet() && !message.trim().isEmpty()) {
+            System.out.println("CHAT [" + id + "][" + sender.getNomJoueur() + "]: " + message);
+            broadcast("NEW_CHAT_MSG:" + sender.getNomJoueur() + ":" + message);
+        } else if (!sender.isNameSet()){
+            sender.sendMessage("ERROR:Vous devez définir votre nom pour envoyer des messages dans le chat.");
+        }
+    }
+
+    private void resetRoomForNewLobby() {
+        System.out.println("Réinitialisation de la salle " + id + " pour un nouveau lobby.");
+        if (journal != null && game != null) journal.fin(numeroPartie, game.getGagnantIndex());
+        if (siegesLibres != null) { // Partie reprise terminée avant le retour de tous ses joueurs
+            for (int joueur = 0; joueur < siegesLibres.length; joueur++) {
+                if (siegesLibres[joueur]) registry.siegeLibere(id, jetons[joueur], this);
+            }
+            siegesLibres = null;
+            if (tacheAttenteReprise != null) tacheAttenteReprise.cancel();
+            tacheAttenteReprise = null;
+        }
+        game = null;
+        numeroPartie = -1;
+        siegesBots = 0;
+        jetons = null;
+        gameInProgressFlag = false;
+        cancelLobbyCountdown();
+        playersInGame.clear();
+
+        for (ClientConnection ch : new ArrayList<>(participants)) {
+            if (ch.isActive()) {
+                ch.resetForNewLobby();
+                ch.sendMessage("REQ_NAME");
+            }
+        }
+        if (participants.isEmpty()) {
+             System.out.println("Aucun client actif restant dans la salle " + id + " après reset. En attente de nouvelles connexions.");
+        } else {
+            System.out.println(participants.size() + " clients potentiels pour le nouveau lobby de la salle " + id + " (doivent redonner leur nom).");
+        }
+        if (participants.size() < MAX_PLAYERS_ALLOWED) {
+            registry.salleDisponible(this);
+        }
+        publierDescription();
+        broadcastLobbyState();
+    }
+
+    // Les diffusions encodent le message une seule fois (OutboundMessage) pour tous les destinataires.
+    // Pas de copie des listes : une déconnexion pendant l'envoi est traitée plus tard par la boucle.
+    private void broadcast(String message) {
+        OutboundMessage encode = OutboundMessage.encoder(message);
+        for (int i = 0; i < participants.size(); i++) {
+            envoyerSiActif(participants.get(i), encode);
+        }
+    }
+
+    private void broadcastToPlayersInGame(String message) {
+        OutboundMessage encode = OutboundMessage.encoder(message);
+        for (int i = 0; i < playersInGame.size(); i++) {
+            envoyerSiActif(playersInGame.get(i), encode);
+        }
+    }
+
+    private void broadcastToAllParticipants(String message) {
+        OutboundMessage encode = OutboundMessage.encoder(message);
+        for (int i = 0; i < playersInGame.size(); i++) {
+            envoyerSiActif(playersInGame.get(i), encode);
+        }
+        for (int i = 0; i < participants.size(); i++) {
+            ClientConnection ch = participants.get(i);
+            if (ch.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.SPECTATOR && !playersInGame.contains(ch)) {
+                envoyerSiActif(ch, encode);
+            }
+        }
+    }
+
+    private void broadcastSaufAUnJoueurEnPartie(ClientConnection exclure, String message) {
+        OutboundMessage encode = OutboundMessage.encoder(message);
+        for (int i = 0; i < playersInGame.size(); i++) {
+            ClientConnection client = playersInGame.get(i);
+            if (client != exclure) {
+                envoyerSiActif(client, encode);
+            }
+        }
+    }
+
+    private static void envoyerSiActif(ClientConnection client, OutboundMessage message) {
+        if (client != null && client.isActive()) client.envoyer(message);
+    }
+
+    private ClientConnection getClientConnectionByGlobalIndexInGame(int globalGameIndex) {
+        for (ClientConnection ch : playersInGame) {
+             if (ch.getPlayerIndex() == globalGameIndex && ch.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_GAME) {
+                 return ch;
+             }
+        }
+        return null;
+    }
+
+    private void broadcastLobbyState() {
+        String nomsJoueursDansLobbyAyantNom = participants.stream()
+                                         .filter(ch -> ch.isNameSet() && ch.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY)
+                                         .map(ClientConnection::getNomJoueur)
+                                         .collect(Collectors.joining(","));
+        int nombreDeNomsDefinisDansLobby = compterJoueursNommesDansLobby();
+        broadcast("LOBBY_STATE:" + nombreDeNomsDefinisDansLobby + ":" + MIN_PLAYERS_TO_START_TIMER + ":" + MAX_PLAYERS_ALLOWED + ":" + nomsJoueursDansLobbyAyantNom);
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.bataillenavale.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Frontal TCP non bloquant basé sur des java.nio.channels.Selector.
+ * Un petit nombre fixe de threads d'E/S gère toutes les connexions : la boucle 0 accepte
+ * les connexions puis les répartit à tour de rôle entre les boucles.
+ * Le protocole ligne par ligne (terminé par '\n') est découpé directement depuis des buffers directs ;
+ * une connexion inactive ne garde aucun buffer, seul un fragment de ligne incomplet en emprunte un à la réserve.
+ */
+class NioTcpServer {
+    static final int MAX_LINE_BYTES = 4096;
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+
+    private final BatailleNavaleServer server;
+    private final ServerSocketChannel serverChannel;
+    private final IoLoop[] loops;
+    private final AtomicInteger prochaineBoucle = new AtomicInteger();
+    private final ByteBufferPool lignesPartielles = new ByteBufferPool(MAX_LINE_BYTES, 1024);
+    private volatile boolean running = true;
+
+    NioTcpServer(BatailleNavaleServer server, int port, int nombreThreadsIo) throws IOException {
+        this.server = server;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.bind(new InetSocketAddress(port), 1024);
+        this.loops = new IoLoop[Math.max(1, nombreThreadsIo)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(i);
+        }
+    }
+
+    int getNombreThreadsIo() {
+        return loops.length;
+    }
+
+    void start() throws ClosedChannelException {
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        for (IoLoop loop : loops) {
+            Thread thread = new Thread(loop, "NioTcp-" + loop.index);
+            thread.start();
+        }
+    }
+
+    void stop() {
+        running = false;
+        for (IoLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) { /* Ignored */ }
+    }
+
+    private void accepter() {
+        SocketChannel channel;
+        try {
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                IoLoop loop = loops[Math.floorMod(prochaineBoucle.getAndIncrement(), loops.length)];
+                NioClientConnection connection = new NioClientConnection(channel, loop, server);
+                loop.executer(() -> loop.enregistrer(connection));
+            }
+        } catch (IOException e) {
+            if (running) System.err.println("Erreur d'acceptation client TCP (NIO): " + e.getMessage());
+        }
+    }
+
+    /** Une boucle d'E/S : un Selector, un thread, un buffer de lecture direct. */
+    final class IoLoop implements Runnable {
+        private final int index;
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<Runnable> taches = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer lecture = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        private final byte[] ligne = new byte[MAX_LINE_BYTES];
+        // Vue et commande réutilisées : une ligne de jeu est analysée sans allocation
+        private final CommandParser.LigneOctets vueLigne = new CommandParser.LigneOctets();
+        private final ClientCommand commande = new ClientCommand();
+
+        IoLoop(int index) throws IOException {
+            this.index = index;
+            this.selector = Selector.open();
+        }
+
+        void libererLignePartielle(ByteBuffer buffer) {
+            lignesPartielles.liberer(buffer);
+        }
+
+        /** Exécute une tâche sur le thread de cette boucle (enregistrement, changement d'intérêt). */
+        void executer(Runnable tache) {
+            taches.offer(tache);
+            selector.wakeup();
+        }
+
+        private void enregistrer(NioClientConnection connection) {
+            try {
+                connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            server.registerConnection(connection);
+            System.out.println("Nouveau participant TCP (NIO) connecté: " + connection.getRemoteAddressString());
+            connection.sendMessage("REQ_NAME");
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    Runnable tache;
+                    while ((tache = taches.poll()) != null) {
+                        tache.run();
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) {
+                            accepter();
+                            continue;
+                        }
+                        NioClientConnection connection = (NioClientConnection) key.attachment();
+                        if (key.isReadable()) {
+                            lire(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.vider();
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Erreur dans la boucle NIO " + index + ": " + e.getMessage());
+                } catch (Exception e) {
+                    System.err.println("Exception inattendue dans la boucle NIO " + index + ": " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) { /* Ignored */ }
+        }
+
+        private void lire(NioClientConnection connection) {
+            int lus;
+            try {
+                lecture.clear();
+                lus = connection.channel.read(lecture);
+            } catch (IOException e) {
+                if (connection.isActive()) {
+                    System.out.println("Déconnexion (IOException) du client TCP (NIO) " + connection.getNomAffiche() + ": " + e.getMessage());
+                }
+                connection.closeConnection(true);
+                return;
+            }
+            if (lus < 0) {
+                connection.closeConnection(true);
+                return;
+            }
+            lecture.flip();
+            decouperLignes(connection);
+        }
+
+        private void decouperLignes(NioClientConnection connection) {
+            while (lecture.hasRemaining() && connection.isActive()) {
+                int debut = lecture.position();
+                int fin = -1;
+                for (int i = debut; i < lecture.limit(); i++) {
+                    if (lecture.get(i) == '\n') {
+                        fin = i;
+                        break;
+                    }
+                }
+                ByteBuffer partielle = connection.lignePartielle;
+                int longueurFragment = (fin == -1 ? lecture.limit() : fin) - debut;
+                int dejaRecu = partielle == null ? 0 : partielle.position();
+                if (dejaRecu + longueurFragment > MAX_LINE_BYTES) {
+                    connection.sendMessage("ERROR:Ligne trop longue (max " + MAX_LINE_BYTES + " octets).");
+                    connection.closeConnection(true);
+                    return;
+                }
+                if (fin == -1) {
+                    // Ligne incomplète : conserver le fragment jusqu'au prochain read
+                    if (partielle == null) {
+                        partielle = lignesPartielles.acquerir();
+                        connection.lignePartielle = partielle;
+                    }
+                    partielle.put(lecture);
+                    return;
+                }
+                int longueur = 0;
+                if (partielle != null) {
+                    partielle.flip();
+                    longueur = partielle.remaining();
+                    partielle.get(ligne, 0, longueur);
+                    lignesPartielles.liberer(partielle);
+                    connection.lignePartielle = null;
+                }
+                lecture.get(ligne, longueur, longueurFragment);
+                longueur += longueurFragment;
+                lecture.get(); // '\n'
+                if (longueur > 0 && ligne[longueur - 1] == '\r') longueur--;
+                server.processClientMessage(connection, vueLigne.cibler(ligne, 0, longueur), commande);
+            }
+        }
+    }
+
+    /** Connexion TCP gérée par une boucle NIO. */
+    static class NioClientConnection implements ClientConnection {
+        private final SocketChannel channel;
+        private final IoLoop loop;
+        private final BatailleNavaleServer server;
+        private final String remoteAddress;
+        private SelectionKey key; // Affectée par le thread de la boucle
+        private ByteBuffer lignePartielle; // Accédé uniquement par le thread de la boucle
+        private final ArrayDeque<ByteBuffer> enAttenteEcriture = new ArrayDeque<>(); // Gardé par lui-même
+        String nomJoueur = "JoueurAnonyme";
+        int playerIndex = -1;
+        boolean nameIsSet = false;
+        private BatailleNavaleServer.ClientHandler.ClientRole role = BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY;
+        private volatile GameRoom room;
+        private volatile boolean active = true;
+
+        NioClientConnection(SocketChannel channel, IoLoop loop, BatailleNavaleServer server) {
+            this.channel = channel;
+            this.loop = loop;
+            this.server = server;
+            String adresse;
+            try {
+                adresse = String.valueOf(channel.getRemoteAddress());
+            } catch (IOException e) {
+                adresse = "TCP (adresse inconnue)";
+            }
+            this.remoteAddress = adresse;
+        }
+
+        @Override public String getNomJoueur() { return nomJoueur; }
+        @Override public boolean isNameSet() { return nameIsSet; }
+        @Override public void setPlayerIndex(int index) { this.playerIndex = index; }
+        @Override public int getPlayerIndex() { return playerIndex; }
+        @Override public BatailleNavaleServer.ClientHandler.ClientRole getRole() { return role; }
+        @Override public void setRole(BatailleNavaleServer.ClientHandler.ClientRole role) { this.role = role; }
+        @Override public boolean isActive() { return active && channel.isOpen(); }
+        @Override public String getRemoteAddressString() { return remoteAddress; }
+        @Override public Object getUnderlyingHandle() { return channel; }
+        @Override public GameRoom getRoom() { return room; }
+        @Override public void setRoom(GameRoom room) { this.room = room; }
+        @Override public int getOutboundQueueDepth() {
+            synchronized (enAttenteEcriture) { return enAttenteEcriture.size(); }
+        }
+
+        String getNomAffiche() {
+            return nameIsSet ? nomJoueur : remoteAddress;
+        }
+
+        @Override
+        public void resetForNewLobby() {
+            this.nameIsSet = false;
+            this.playerIndex = -1;
+            this.role = BatailleNavaleServer.ClientHandler.ClientRole.PLAYER_IN_LOBBY;
+        }
+
+        @Override
+        public void sendMessage(String message) {
+            ecrire(ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void envoyer(OutboundMessage message) {
+            ecrire(message.vueLigneTcp());
+        }
+
+        private void ecrire(ByteBuffer donnees) {
+            if (!isActive()) return;
+            boolean demanderEcriture = false;
+            synchronized (enAttenteEcriture) {
+                if (enAttenteEcriture.isEmpty()) {
+                    // Écriture directe non bloquante ; seul le reliquat part dans la file de la boucle
+                    try {
+                        channel.write(donnees);
+                    } catch (IOException e) {
+                        System.err.println("Erreur d'écriture pour TCP client (NIO) " + getNomJoueur() + ". Fermeture.");
+                        loop.executer(() -> closeConnection(true));
+                        return;
+                    }
+                    if (!donnees.hasRemaining()) {
+                        OutboundPolicy.messagesEnvoyes.increment();
+                        return;
+                    }
+                    demanderEcriture = true;
+                } else if (!OutboundPolicy.accepter(this, enAttenteEcriture.size())) {
+                    return;
+                }
+                enAttenteEcriture.add(donnees);
+            }
+            if (demanderEcriture) {
+                loop.executer(() -> {
+                    if (key != null && key.isValid()) key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                });
+            }
+        }
+
+        /** Appelée par la boucle quand le socket est à nouveau inscriptible. */
+        void vider() {
+            synchronized (enAttenteEcriture) {
+                try {
+                    ByteBuffer tete;
+                    while ((tete = enAttenteEcriture.peek()) != null) {
+                        channel.write(tete);
+                        if (tete.hasRemaining()) return; // Buffer système plein, attendre le prochain OP_WRITE
+                        enAttenteEcriture.poll();
+                        OutboundPolicy.messagesEnvoyes.increment();
+                    }
+                } catch (IOException e) {
+                    enAttenteEcriture.clear();
+                    closeConnection(true);
+                    return;
+                }
+            }
+            if (key.isValid()) key.interestOps(SelectionKey.OP_READ);
+        }
+
+        @Override
+        public void closeConnection(boolean notifyServer) {
+            if (!active) return;
+            active = false;
+            try {
+                channel.close(); // Annule aussi la clé du selector
+            } catch (IOException e) {
+                System.err.println("Exception en fermant le canal TCP pour " + remoteAddress + ": " + e.getMessage());
+            }
+            loop.executer(this::libererLignePartielle);
+            System.out.println("Fermeture de la connexion TCP (NIO) demandée pour " + remoteAddress);
+            if (notifyServer) {
+                server.handleClientQuitte(this);
+            }
+        }
+
+        private void libererLignePartielle() {
+            if (lignePartielle != null) {
+                loop.libererLignePartielle(lignePartielle);
+                lignePartielle = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.bataillenavale.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.TextFrame;
+
+/**
+ * Message diffusé, encodé une seule fois pour tous ses destinataires :
+ * la ligne TCP (UTF-8 terminée par '\n'), la charge utile UTF-8 des trames WebSocket texte et, pour
+ * les clients du protocole binaire, la charge utile BinaryProtocol (encodée à la première demande).
+ * Côté WebSocket, chaque destinataire reçoit sa propre trame (WebSocket.sendFrame) sur les octets
+ * partagés : la bibliothèque déplace la position de la charge utile en la sérialisant.
+ * Immuable : les vues (ByteBuffer) sont en lecture seule.
+ */
+final class OutboundMessage {
+    private final String texte;
+    private final byte[] ligneTcp;
+    private final ByteBuffer chargeTexte;
+    private ByteBuffer chargeBinaire; // Paresseuse : seules les diffusions de la boucle de la salle la demandent
+
+    private OutboundMessage(String texte) {
+        this.texte = texte;
+        byte[] utf8 = texte.getBytes(StandardCharsets.UTF_8);
+        this.ligneTcp = new byte[utf8.length + 1];
+        System.arraycopy(utf8, 0, ligneTcp, 0, utf8.length);
+        ligneTcp[utf8.length] = '\n';
+        this.chargeTexte = ByteBuffer.wrap(ligneTcp, 0, utf8.length).slice().asReadOnlyBuffer();
+    }
+
+    static OutboundMessage encoder(String texte) {
+        return new OutboundMessage(texte);
+    }
+
+    String getTexte() {
+        return texte;
+    }
+
+    /** Ligne TCP partagée : ne jamais modifier le tableau. */
+    byte[] getLigneTcp() {
+        return ligneTcp;
+    }
+
+    /** Vue propre à un destinataire sur la ligne TCP partagée (seule sa position avance). */
+    ByteBuffer vueLigneTcp() {
+        return ByteBuffer.wrap(ligneTcp);
+    }
+
+    /** Trame WebSocket texte propre à un destinataire, sur la charge utile partagée. */
+    DataFrame trameTexte() {
+        return trame(new TextFrame(), chargeTexte);
+    }
+
+    /** Trame WebSocket binaire propre à un destinataire (voir BinaryProtocol), sur la charge utile partagée. */
+    DataFrame trameBinaire() {
+        if (chargeBinaire == null) {
+            chargeBinaire = ByteBuffer.wrap(BinaryProtocol.encoder(texte)).asReadOnlyBuffer();
+        }
+        return trame(new BinaryFrame(), chargeBinaire);
+    }
+
+    private static DataFrame trame(DataFrame trame, ByteBuffer charge) {
+        trame.setPayload(charge.duplicate());
+        trame.setFin(true);
+        return trame;
+    }
+}
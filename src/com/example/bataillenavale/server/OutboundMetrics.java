@@ -0,0 +1,43 @@
+package com.example.bataillenavale.server;
+
+/**
+ * Instantané des métriques des files d'envoi (voir OutboundPolicy).
+ * Obtenu par BatailleNavaleServer.getMetriquesEnvoi().
+ */
+public final class OutboundMetrics {
+    private final int connexions;
+    private final long profondeurTotale;
+    private final int profondeurMaxActuelle;
+    private final int profondeurMaxObservee;
+    private final long messagesEnvoyes;
+    private final long messagesAbandonnes;
+    private final long deconnexionsLentes;
+
+    OutboundMetrics(int connexions, long profondeurTotale, int profondeurMaxActuelle) {
+        this.connexions = connexions;
+        this.profondeurTotale = profondeurTotale;
+        this.profondeurMaxActuelle = profondeurMaxActuelle;
+        this.profondeurMaxObservee = OutboundPolicy.profondeurMax.get();
+        this.messagesEnvoyes = OutboundPolicy.messagesEnvoyes.sum();
+        this.messagesAbandonnes = OutboundPolicy.messagesAbandonnes.sum();
+        this.deconnexionsLentes = OutboundPolicy.deconnexionsLentes.sum();
+    }
+
+    public int getConnexions() { return connexions; }
+    /** Messages actuellement en attente, toutes connexions confondues. */
+    public long getProfondeurTotale() { return profondeurTotale; }
+    /** File la plus chargée à l'instant de la mesure. */
+    public int getProfondeurMaxActuelle() { return profondeurMaxActuelle; }
+    /** File la plus chargée depuis le démarrage du serveur. */
+    public int getProfondeurMaxObservee() { return profondeurMaxObservee; }
+    public long getMessagesEnvoyes() { return messagesEnvoyes; }
+    public long getMessagesAbandonnes() { return messagesAbandonnes; }
+    public long getDeconnexionsLentes() { return deconnexionsLentes; }
+
+    @Override
+    public String toString() {
+        return "connexions=" + connexions + " enAttente=" + profondeurTotale + " fileMax=" + profondeurMaxActuelle
+                + " (max observé " + profondeurMaxObservee + ") envoyés=" + messagesEnvoyes
+                + " abandonnés=" + messagesAbandonnes + " déconnexionsLentes=" + deconnexionsLentes;
+    }
+}
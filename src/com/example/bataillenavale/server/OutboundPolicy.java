@@ -0,0 +1,63 @@
+package com.example.bataillenavale.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Politique commune des files d'envoi bornées de chaque connexion.
+ * Un envoi ne bloque jamais la salle : le message est mis en file et un thread d'E/S le vide.
+ * Quand la file d'un client atteint sa capacité, la politique décide :
+ * DROP_SPECTATOR_FRAMES abandonne les messages destinés aux spectateurs (un joueur trop lent
+ * est déconnecté, ses messages étant indispensables à la partie), DISCONNECT_SLOW_CONSUMERS
+ * déconnecte tout client trop lent.
+ *
+ * Réglages : -Dbataillenavale.outbound.capacity=N (messages, 1024 par défaut) et
+ * -Dbataillenavale.outbound.policy=DROP_SPECTATOR_FRAMES|DISCONNECT_SLOW_CONSUMERS.
+ */
+final class OutboundPolicy {
+    enum Mode { DROP_SPECTATOR_FRAMES, DISCONNECT_SLOW_CONSUMERS }
+
+    static final int CAPACITE = Math.max(1, Integer.getInteger("bataillenavale.outbound.capacity", 1024));
+    static final Mode MODE = modeParDefaut();
+
+    // Métriques globales, publiées par OutboundMetrics
+    static final LongAdder messagesEnvoyes = new LongAdder();
+    static final LongAdder messagesAbandonnes = new LongAdder();
+    static final LongAdder deconnexionsLentes = new LongAdder();
+    static final AtomicInteger profondeurMax = new AtomicInteger();
+
+    private OutboundPolicy() {
+    }
+
+    private static Mode modeParDefaut() {
+        String valeur = System.getProperty("bataillenavale.outbound.policy", Mode.DROP_SPECTATOR_FRAMES.name());
+        try {
+            return Mode.valueOf(valeur.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Politique d'envoi inconnue '" + valeur + "', utilisation de " + Mode.DROP_SPECTATOR_FRAMES + ".");
+            return Mode.DROP_SPECTATOR_FRAMES;
+        }
+    }
+
+    /**
+     * À appeler avant de mettre un message en file.
+     * @param profondeur nombre de messages déjà en attente pour ce client.
+     * @return vrai si le message peut être mis en file ; sinon il a été abandonné ou le client déconnecté.
+     */
+    static boolean accepter(ClientConnection client, int profondeur) {
+        if (profondeur < CAPACITE) {
+            profondeurMax.accumulateAndGet(profondeur + 1, Math::max);
+            return true;
+        }
+        messagesAbandonnes.increment();
+        if (MODE == Mode.DROP_SPECTATOR_FRAMES && client.getRole() == BatailleNavaleServer.ClientHandler.ClientRole.SPECTATOR) {
+            return false;
+        }
+        if (client.isActive()) {
+            deconnexionsLentes.increment();
+            System.err.println("File d'envoi pleine (" + CAPACITE + " messages) pour " + client.getRemoteAddressString() + ". Déconnexion du client trop lent.");
+            client.closeConnection(true);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bataillenavale.server;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Boucle d'événements mono-thread d'une salle : une boîte aux lettres FIFO
+ * vidée par un seul thread à la fois, emprunté à un pool partagé par toutes les salles.
+ * Deux commandes d'une même salle ne s'exécutent jamais en parallèle et toujours dans
+ * l'ordre de dépôt ; des salles différentes tournent en parallèle sur tous les cœurs.
+ * Un thread par salle coûterait des milliers de threads pour des salles presque toujours inactives.
+ */
+class RoomEventLoop implements Executor {
+    private static final int MAX_COMMANDES_PAR_TOUR = 64; // Équité entre salles sur le pool partagé
+
+    private final String nom;
+    private final Executor poolPartage;
+    private final ConcurrentLinkedQueue<Runnable> boiteAuxLettres = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean planifiee = new AtomicBoolean(false);
+    private final Runnable vidage = this::vider;
+
+    RoomEventLoop(String nom, Executor poolPartage) {
+        this.nom = nom;
+        this.poolPartage = poolPartage;
+    }
+
+    /** Dépose une commande ; ne bloque jamais. */
+    @Override
+    public void execute(Runnable commande) {
+        boiteAuxLettres.offer(commande);
+        planifier();
+    }
+
+    private void planifier() {
+        if (planifiee.compareAndSet(false, true)) {
+            poolPartage.execute(vidage);
+        }
+    }
+
+    private void vider() {
+        Runnable commande;
+        int traitees = 0;
+        while (traitees < MAX_COMMANDES_PAR_TOUR && (commande = boiteAuxLettres.poll()) != null) {
+            try {
+                commande.run();
+            } catch (RuntimeException e) {
+                System.err.println("Exception dans la boucle de la salle " + nom + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            traitees++;
+        }
+        planifiee.set(false);
+        if (!boiteAuxLettres.isEmpty()) {
+            planifier(); // Commandes arrivées pendant le vidage, ou quota atteint
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.bataillenavale.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.example.bataillenavale.model.BatailleNavaleGame;
+
+/**
+ * Registre concurrent des salles de jeu.
+ * Aucune opération du registre ne prend de verrou : le registre ne fait que router les clients
+ * vers la boucle d'événements de la bonne salle. Les boucles de toutes les salles se partagent
+ * un pool de threads fixe, dimensionné sur le nombre de cœurs.
+ */
+class RoomRegistry {
+    // Intervalle entre deux points de reprise du journal (0 = jamais)
+    static final long INTERVALLE_REPRISE_S = Long.getLong("bataillenavale.journal.checkpoint.s", 60);
+    private static final long DELAI_INSTANTANES_S = 10; // Au-delà, le point de reprise est abandonné
+
+    private final ConcurrentMap<String, GameRoom> salles = new ConcurrentHashMap<>();
+    private final GameJournal journal; // Null sans -Dbataillenavale.journal.dir
+    // Parties reprises au démarrage : salle et jeton de reprise d'un siège attendu -> salle qui le garde
+    private final ConcurrentMap<String, GameRoom> siegesAReprendre = new ConcurrentHashMap<>();
+    private ScheduledExecutorService pointsDeReprise;
+    private long dernierPointDeReprise = -1; // Thread JournalCheckpoint seulement
+    private final AtomicLong prochainIdSalle = new AtomicLong(1);
+    // Salle dont le lobby accueille les nouvelles connexions sans salle explicite
+    private final AtomicReference<GameRoom> salleOuverte = new AtomicReference<>();
+    private final Timer lobbyCountdownTimer = new Timer("LobbyTimer", true);
+    private final ExecutorService poolSalles = Executors.newFixedThreadPool(nombreThreadsSallesParDefaut(), new ThreadFactory() {
+        private final AtomicInteger compteur = new AtomicInteger();
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "RoomLoop-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    RoomRegistry(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    GameJournal getJournal() {
+        return journal;
+    }
+
+    private static int nombreThreadsSallesParDefaut() {
+        return Integer.getInteger("bataillenavale.room.threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    GameRoom getSalle(String id) {
+        return salles.get(id);
+    }
+
+    int getNombreSalles() {
+        return salles.size();
+    }
+
+    List<GameRoom> getSalles() {
+        return new ArrayList<>(salles.values());
+    }
+
+    /**
+     * Oriente un client vers le lobby de la salle ouverte, en créant une nouvelle salle si besoin.
+     * L'admission elle-même est traitée par la boucle de la salle : si la salle s'est remplie
+     * ou a démarré entre-temps, elle renvoie le client ici.
+     * @param annoncer si vrai, la salle confirme l'entrée par ROOM_JOINED et REQ_NAME.
+     */
+    GameRoom rejoindreSalleOuverte(ClientConnection client, boolean annoncer) {
+        GameRoom salle = salleOuverte.get();
+        while (salle == null) {
+            GameRoom nouvelle = creerSalle(String.valueOf(prochainIdSalle.getAndIncrement()));
+            if (nouvelle == null) continue; // Identifiant déjà pris par une salle nommée
+            if (salleOuverte.compareAndSet(null, nouvelle)) {
+                salle = nouvelle;
+            } else {
+                salles.remove(nouvelle.getId(), nouvelle); // Un autre thread a ouvert une salle avant nous
+                salle = salleOuverte.get();
+            }
+        }
+        client.setRoom(salle);
+        salle.admettre(client, false, annoncer);
+        return salle;
+    }
+
+    /**
+     * Oriente un client vers la salle demandée, créée à la volée si elle n'existe pas.
+     * Si une partie y est en cours, le client deviendra spectateur ; si elle est pleine,
+     * la salle le prévient et le renvoie vers la salle ouverte.
+     */
+    GameRoom rejoindreSalle(String id, ClientConnection client) {
+        return rejoindreSalle(id, client, true);
+    }
+
+    /** Comme rejoindreSalle, sans ROOM_JOINED ni REQ_NAME si annoncer est faux. */
+    GameRoom rejoindreSalle(String id, ClientConnection client, boolean annoncer) {
+        GameRoom salle = salles.get(id);
+        while (salle == null) {
+            salle = creerSalle(id);
+            if (salle == null) salle = salles.get(id);
+        }
+        client.setRoom(salle);
+        salle.admettre(client, true, annoncer);
+        return salle;
+    }
+
+    private GameRoom creerSalle(String id) {
+        GameRoom salle = new GameRoom(id, this, lobbyCountdownTimer, poolSalles);
+        if (salles.putIfAbsent(id, salle) != null) {
+            return null;
+        }
+        System.out.println("Salle " + id + " créée. Salles actives: " + salles.size());
+        return salle;
+    }
+
+    /**
+     * Reconstruit les parties en cours au dernier arrêt (point de reprise puis fin du journal), chacune
+     * dans sa salle d'origine, où elle attend que ses joueurs reviennent reprendre leur siège avec leur jeton.
+     * Programme ensuite les points de reprise. À appeler avant d'accepter des connexions.
+     */
+    void reprendreParties() {
+        if (journal == null) return;
+        try {
+            GameCheckpoint.Reprise reprise = GameCheckpoint.reprendre(journal.getDossier());
+            long idMax = 0; // Les salles numérotées à venir ne doivent pas réutiliser un identifiant repris
+            for (GameJournal.PartieRelue relue : reprise.parties.values()) {
+                if (relue.salle.length() < 19 && relue.salle.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                    idMax = Math.max(idMax, Long.parseLong(relue.salle));
+                }
+            }
+            prochainIdSalle.accumulateAndGet(idMax + 1, Math::max);
+            for (Map.Entry<Long, GameJournal.PartieRelue> partie : reprise.parties.entrySet()) {
+                GameRoom salle = new GameRoom(partie.getValue().salle, this, lobbyCountdownTimer, poolSalles);
+                while (salles.putIfAbsent(salle.getId(), salle) != null) { // Deux parties pour une salle : journal incohérent
+                    salle = new GameRoom(String.valueOf(prochainIdSalle.getAndIncrement()), this, lobbyCountdownTimer, poolSalles);
+                }
+                BatailleNavaleGame jeu = partie.getValue().partie;
+                int siegesBots = partie.getValue().siegesBots;
+                long[] jetons = partie.getValue().jetons;
+                for (int joueur : jeu.getJoueursActifsIndices()) {
+                    // Bot, ou siège sans jeton (journal antérieur aux jetons) : abandonné par la salle, personne ne le reprend
+                    if (GameRoom.estSiegeBot(siegesBots, joueur) || jetons[joueur] == 0) continue;
+                    siegesAReprendre.putIfAbsent(cleSiege(salle.getId(), jetons[joueur]), salle);
+                }
+                salle.reprendrePartie(partie.getKey(), jeu, siegesBots, jetons);
+            }
+            System.out.printf("Reprise : %d parties en cours (%d du point de reprise %d, %d événements relus dans %d segments, %d trous, %d incohérentes) en %d ms.%n",
+                    reprise.parties.size(), reprise.depuisPointDeReprise, reprise.sequence, reprise.relecture.evenements,
+                    reprise.relecture.segments, reprise.relecture.trous, reprise.relecture.incoherentes, reprise.dureeNs / 1_000_000);
+        } catch (IOException e) {
+            // Sans point de reprise, aucun segment ne doit être supprimé : le journal reste tel quel pour être réparé
+            System.err.println("Reprise des parties impossible (" + e.getMessage() + "), démarrage sans les parties en cours ni points de reprise.");
+            return;
+        }
+        if (INTERVALLE_REPRISE_S > 0) {
+            pointsDeReprise = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "JournalCheckpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            pointsDeReprise.scheduleWithFixedDelay(this::ecrirePointDeReprise, INTERVALLE_REPRISE_S, INTERVALLE_REPRISE_S, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String cleSiege(String salle, long jeton) {
+        return salle + ':' + jeton;
+    }
+
+    /** Salle de la partie reprise dont un siège attend encore ce jeton, null sinon. */
+    GameRoom salleAttendant(String salle, long jeton) {
+        return siegesAReprendre.get(cleSiege(salle, jeton));
+    }
+
+    /** Appelée par la salle quand le siège est repris ou abandonné. */
+    void siegeLibere(String salle, long jeton, GameRoom attendant) {
+        siegesAReprendre.remove(cleSiege(salle, jeton), attendant);
+    }
+
+    /**
+     * Point de reprise : instantané de chaque partie en cours, pris par la boucle de sa salle,
+     * puis suppression des segments du journal que couvre le point précédent (thread JournalCheckpoint).
+     */
+    private void ecrirePointDeReprise() {
+        long sequence = journal.derniereSequence();
+        if (sequence == dernierPointDeReprise) return; // Aucun événement depuis le dernier point
+        long dernierePartie = journal.dernierePartie(); // Après la séquence : couvre tout DEBUT antérieur
+        List<GameRoom> liste = getSalles();
+        Queue<GameCheckpoint.Entree> entrees = new ConcurrentLinkedQueue<>();
+        CountDownLatch reponses = new CountDownLatch(liste.size());
+        for (GameRoom salle : liste) {
+            salle.instantanePourReprise(entree -> {
+                if (entree != null) entrees.add(entree);
+                reponses.countDown();
+            });
+        }
+        try {
+            if (!reponses.await(DELAI_INSTANTANES_S, TimeUnit.SECONDS)) {
+                System.err.println("Point de reprise abandonné : " + reponses.getCount() + " salles n'ont pas répondu en " + DELAI_INSTANTANES_S + " s.");
+                return;
+            }
+            long couverte = GameCheckpoint.ecrire(journal.getDossier(), sequence, dernierePartie, entrees);
+            dernierPointDeReprise = sequence;
+            // Segments couverts par le point de reprise précédent : le nouveau peut encore se révéler illisible
+            int supprimes = couverte < 0 ? 0 : journal.supprimerSegmentsJusqua(couverte);
+            System.out.println("Point de reprise à la séquence " + sequence + " : " + entrees.size() + " parties en cours, " + supprimes + " segments supprimés.");
+        } catch (IOException e) {
+            System.err.println("Point de reprise impossible : " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Appelée par une salle pleine ou qui démarre sa partie : elle ne doit plus accueillir les nouveaux arrivants. */
+    void salleIndisponible(GameRoom salle) {
+        salleOuverte.compareAndSet(salle, null);
+    }
+
+    /** Appelée par une salle revenue au lobby ou qui a retrouvé une place libre. */
+    void salleDisponible(GameRoom salle) {
+        salleOuverte.compareAndSet(null, salle);
+    }
+
+    void supprimerSalle(GameRoom salle) {
+        salles.remove(salle.getId(), salle);
+        salleOuverte.compareAndSet(salle, null);
+    }
+
+    void arreter() {
+        if (pointsDeReprise != null) pointsDeReprise.shutdown();
+        lobbyCountdownTimer.cancel();
+        poolSalles.shutdown();
+        if (journal != null) journal.fermer();
+    }
+}